@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2018-2020 by Kurt Duncan - All Rights Reserved
+ */
+
+package com.kadware.komodo.baselib;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH throughput benchmarks for the byte translation formats used by the byte channel module,
+ * packing (writes) and unpacking (reads, forward and backward) one buffer of words per operation.
+ * Formats A and D use the same methods - for format A, the last word of the buffer carries a stop bit in Q3,
+ * so that writes terminate early and reads end with a partial word, while format D data has no stop bits at all.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ArraySliceBenchmark {
+
+    @Param({ "28", "1792" })
+    public int _words;
+
+    private ArraySlice _formatASource;
+    private ArraySlice _formatDSource;
+    private ArraySlice _destination;
+    private byte[] _formatABytes;
+    private byte[] _formatBBytes;
+    private byte[] _formatCBytes;
+    private byte[] _formatDBytes;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(0);
+        long[] values = new long[_words];
+        for (int wx = 0; wx < _words; ++wx) {
+            values[wx] = random.nextLong() & 0_377377_377377L;
+        }
+
+        _formatDSource = new ArraySlice(values);
+        long[] terminatedValues = Arrays.copyOf(values, _words);
+        terminatedValues[_words - 1] |= 0_000000_400000L;
+        _formatASource = new ArraySlice(terminatedValues);
+        _destination = new ArraySlice(new long[_words]);
+
+        byte[] frames = new byte[_words * 4];
+        _formatABytes = Arrays.copyOf(frames, _formatASource.packQuarterWords(frames));
+        _formatBBytes = new byte[_words * 6];
+        _formatCBytes = new byte[(_words * 9 + 1) / 2];
+        _formatDBytes = new byte[_words * 4];
+        _formatDSource.packSixthWords(_formatBBytes);
+        _formatDSource.pack(_formatCBytes);
+        _formatDSource.packQuarterWords(_formatDBytes);
+    }
+
+    @Benchmark
+    public int packFormatA() {
+        return _formatASource.packQuarterWords(_formatABytes);
+    }
+
+    @Benchmark
+    public int unpackFormatA() {
+        return _destination.unpackQuarterWords(_formatABytes, false);
+    }
+
+    @Benchmark
+    public int unpackFormatABackward() {
+        return _destination.unpackQuarterWords(_formatABytes, true);
+    }
+
+    @Benchmark
+    public int packFormatB() {
+        return _formatDSource.packSixthWords(_formatBBytes);
+    }
+
+    @Benchmark
+    public int unpackFormatB() {
+        return _destination.unpackSixthWords(_formatBBytes, false);
+    }
+
+    @Benchmark
+    public int unpackFormatBBackward() {
+        return _destination.unpackSixthWords(_formatBBytes, true);
+    }
+
+    @Benchmark
+    public int packFormatC() {
+        return _formatDSource.pack(_formatCBytes);
+    }
+
+    @Benchmark
+    public int unpackFormatC() {
+        return _destination.unpack(_formatCBytes, false);
+    }
+
+    @Benchmark
+    public int unpackFormatCBackward() {
+        return _destination.unpack(_formatCBytes, true);
+    }
+
+    @Benchmark
+    public int packFormatD() {
+        return _formatDSource.packQuarterWords(_formatDBytes);
+    }
+
+    @Benchmark
+    public int unpackFormatD() {
+        return _destination.unpackQuarterWords(_formatDBytes, false);
+    }
+
+    @Benchmark
+    public int unpackFormatDBackward() {
+        return _destination.unpackQuarterWords(_formatDBytes, true);
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2018-2020 by Kurt Duncan - All Rights Reserved
+ */
+
+package com.kadware.komodo.baselib;
+
+import java.math.BigInteger;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * JMH benchmarks comparing the BigInteger and primitive (high/low pair) forms of the DoubleWord36 operations
+ * used by the double-precision instructions.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DoubleWord36Benchmark {
+
+    private long _high1;
+    private long _low1;
+    private long _high2;
+    private long _low2;
+    private BigInteger _value1;
+    private BigInteger _value2;
+    private final long[] _result = new long[2];
+    private final long[] _remainder = new long[2];
+
+    @Setup
+    public void setup() {
+        _high1 = 0_000123_456701L;
+        _low1 = 0_234567_012345L;
+        _high2 = 0_777777_777777L;
+        _low2 = 0_777776_543210L;
+        _value1 = DoubleWord36.toBigInteger(_high1, _low1);
+        _value2 = DoubleWord36.toBigInteger(_high2, _low2);
+    }
+
+    @Benchmark
+    public void addBigInteger(Blackhole bh) {
+        bh.consume(DoubleWord36.add(_value1, _value2));
+    }
+
+    @Benchmark
+    public void addPrimitive(Blackhole bh) {
+        bh.consume(DoubleWord36.add(_high1, _low1, _high2, _low2, _result));
+        bh.consume(_result);
+    }
+
+    @Benchmark
+    public void multiplyBigInteger(Blackhole bh) {
+        bh.consume(DoubleWord36.multiply(_value1, _value2));
+    }
+
+    @Benchmark
+    public void multiplyPrimitive(Blackhole bh) {
+        bh.consume(DoubleWord36.multiply(_high1, _low1, _high2, _low2, _result));
+        bh.consume(_result);
+    }
+
+    @Benchmark
+    public void divideBigInteger(Blackhole bh) {
+        bh.consume(DoubleWord36.divide(_value1, _value2));
+    }
+
+    @Benchmark
+    public void dividePrimitive(Blackhole bh) {
+        DoubleWord36.divide(_high1, _low1, _high2, _low2, _result, _remainder);
+        bh.consume(_result);
+        bh.consume(_remainder);
+    }
+
+    @Benchmark
+    public void shiftBigInteger(Blackhole bh) {
+        bh.consume(DoubleWord36.rightShiftAlgebraic(_value2, 37));
+    }
+
+    @Benchmark
+    public void shiftPrimitive(Blackhole bh) {
+        DoubleWord36.rightShiftAlgebraic(_high2, _low2, 37, _result);
+        bh.consume(_result);
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2018-2020 by Kurt Duncan - All Rights Reserved
+ */
+
+package com.kadware.komodo.baselib;
+
+import com.kadware.komodo.baselib.exceptions.CharacteristicOverflowException;
+import com.kadware.komodo.baselib.exceptions.CharacteristicUnderflowException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * JMH benchmarks for decomposing, multiplying, and recomposing 72-bit floating point values,
+ * via both the DoubleWord36 and primitive (high/low pair) forms.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FloatingPointComponentsBenchmark {
+
+    private long _high1;
+    private long _low1;
+    private long _high2;
+    private long _low2;
+    private DoubleWord36 _value1;
+    private DoubleWord36 _value2;
+    private final long[] _result = new long[2];
+
+    @Setup
+    public void setup() {
+        _high1 = 0_200162_237000L;
+        _low1 = 0_123456_701234L;
+        _high2 = 0_577432_100000L;
+        _low2 = 0_000765_432107L;
+        _value1 = new DoubleWord36(_high1, _low1);
+        _value2 = new DoubleWord36(_high2, _low2);
+    }
+
+    @Benchmark
+    public void roundTripDoubleWord36(
+        Blackhole bh
+    ) throws CharacteristicOverflowException,
+             CharacteristicUnderflowException {
+        bh.consume(new FloatingPointComponents(_value1).toDoubleWord36());
+    }
+
+    @Benchmark
+    public void roundTripPrimitive(
+        Blackhole bh
+    ) throws CharacteristicOverflowException,
+             CharacteristicUnderflowException {
+        new FloatingPointComponents(_high1, _low1).toDoubleWord36(_result);
+        bh.consume(_result);
+    }
+
+    @Benchmark
+    public void multiplyDoubleWord36(
+        Blackhole bh
+    ) throws CharacteristicOverflowException,
+             CharacteristicUnderflowException {
+        FloatingPointComponents fpc1 = new FloatingPointComponents(_value1);
+        FloatingPointComponents fpc2 = new FloatingPointComponents(_value2);
+        bh.consume(fpc1.multiply(fpc2).toDoubleWord36());
+    }
+
+    @Benchmark
+    public void multiplyPrimitive(
+        Blackhole bh
+    ) throws CharacteristicOverflowException,
+             CharacteristicUnderflowException {
+        FloatingPointComponents fpc1 = new FloatingPointComponents(_high1, _low1);
+        FloatingPointComponents fpc2 = new FloatingPointComponents(_high2, _low2);
+        fpc1.multiply(fpc2).toDoubleWord36(_result);
+        bh.consume(_result);
+    }
+}
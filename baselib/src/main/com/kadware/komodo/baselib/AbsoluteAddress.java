@@ -29,9 +29,9 @@ public class AbsoluteAddress {
 
     /**
      * A value corresponding to an offset from the start of that MSP's segment.
-     * Range: 0:0_377777_777777 (35 bits)
+     * Range: 0:0_037777_777777 (32 bits - the architected two-word layout has no room for more)
      */
-    public final int _offset;
+    public final long _offset;
 
     /**
      * Constructor from components
@@ -42,11 +42,11 @@ public class AbsoluteAddress {
     public AbsoluteAddress(
         final int upiIndex,
         final int segment,
-        final int offset
+        final long offset
     ) {
         assert((upiIndex >= 0) && (upiIndex < 16));
         assert((segment & 0xFE000000) == 0);
-        assert(offset >= 0);
+        assert((offset & 0xFFFFFFFF00000000L) == 0);
         _upiIndex = upiIndex;
         _segment = segment;
         _offset = offset;
@@ -59,13 +59,13 @@ public class AbsoluteAddress {
      */
     public AbsoluteAddress(
         final ArraySlice baseArray,
-        final int offset
+        final long offset
     ) {
         long w1 = baseArray.get(offset);
         long w2 = baseArray.get(offset + 1);
         _segment = (int) (w1 & 0x1FFFFFF);
         _upiIndex = (int) (w2 >> 32);
-        _offset = (int) w2;
+        _offset = w2 & 0xFFFFFFFFL;
     }
 
     /**
@@ -81,7 +81,7 @@ public class AbsoluteAddress {
         long w2 = baseArray[offset + 1];
         _segment = (int) (w1 & 0x1FFFFFF);
         _upiIndex = (int) (w2 >> 32);
-        _offset = (int) w2;
+        _offset = w2 & 0xFFFFFFFFL;
     }
 
     /**
@@ -89,7 +89,7 @@ public class AbsoluteAddress {
      * @param offset offset to be added
      */
     public AbsoluteAddress addOffset(
-        final int offset
+        final long offset
     ) {
         return new AbsoluteAddress(_upiIndex, _segment, _offset + offset);
     }
@@ -101,7 +101,7 @@ public class AbsoluteAddress {
     @Override
     public int hashCode(
     ) {
-        return _upiIndex ^ _segment ^ (int)_offset;
+        return _upiIndex ^ _segment ^ Long.hashCode(_offset);
     }
 
     /**
@@ -140,7 +140,7 @@ public class AbsoluteAddress {
      */
     public void populate(
         final ArraySlice arena,
-        final int offset
+        final long offset
     ) {
         arena.set(offset, _segment);
         arena.set(offset + 1, ((long)(_upiIndex) << 32) | _offset);
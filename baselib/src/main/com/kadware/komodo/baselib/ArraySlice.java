@@ -7,25 +7,50 @@ package com.kadware.komodo.baselib;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
 import java.util.Arrays;
 import org.apache.logging.log4j.Level;
 import org.apache.logging.log4j.Logger;
 
 
 /**
- * Represents a subset of a base array of elements of type T
+ * Represents a subset of a base array of elements of type T.
+ * The base array is usually a long[] on the Java heap, in which case _array refers to it and _storage is null.
+ * Otherwise, it is some other kind of ArrayStorage (such as off-heap memory), in which case _storage refers to it
+ * and _array is null.  Clients which go directly to _array for speed must allow for the latter case.
+ * --
+ * The pack and unpack methods convert whole words (or for format C, whole word pairs) at a time for as long as there
+ * is room for them in both the source and the destination, moving the frames of each unit with single int or long
+ * accesses to the byte array.  Whatever is left over - a trailing partial unit, or a format A word with a stop bit -
+ * is handled frame by frame.
  */
 public class ArraySlice {
 
+    //  Views of byte arrays as big- or little-endian ints and longs.  Reading backward, the frames of a unit are
+    //  in reverse order in the byte array, so the little-endian view presents them in the order we want.
+    private static final VarHandle INT_BIG_ENDIAN = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+    private static final VarHandle INT_LITTLE_ENDIAN = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle LONG_BIG_ENDIAN = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+    private static final VarHandle LONG_LITTLE_ENDIAN = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private static final long QUARTER_WORD_STOP_BITS = 0_400400_400400L;
+
     @JsonProperty("array")
     public final long[] _array;     //  base array of which this slice is a (possibly complete) subset
 
+    @JsonIgnore
+    public final ArrayStorage _storage;     //  base storage, if the slice is not backed by a long[]
+
     @JsonProperty("length")
-    public final int _length;       //  length of this array (must be <= length of base array)
+    public final long _length;      //  length of this array (must be <= length of base array)
 
     @JsonProperty("offset")
-    public final int _offset;       //  offset into the base array, at which this slice begins
+    public final long _offset;      //  offset into the base array, at which this slice begins
                                     //      _length + _offset must not exceed the range of the base array
+                                    //  Both are long, so that a slice of off-heap or mapped storage may describe
+                                    //      more than 2^31 values - for a long[] they never exceed the int range.
 
     /**
      * Constructor to produce a slice of a full array
@@ -35,6 +60,7 @@ public class ArraySlice {
         final long[] array
     ) {
         _array = array;
+        _storage = null;
         _offset = 0;
         _length = array.length;
     }
@@ -60,6 +86,32 @@ public class ArraySlice {
         }
 
         _array = array;
+        _storage = null;
+        _offset = offset;
+        _length = length;
+    }
+
+    /**
+     * Constructor to produce a slice representing a subset of some storage other than a long[]
+     * @param storage base storage
+     * @param offset offset into the base storage at which point this subset begins
+     * @param length length of this subset
+     */
+    public ArraySlice(
+        final ArrayStorage storage,
+        final long offset,
+        final long length
+    ) {
+        if ((offset + length > storage.getSize()) || (offset < 0) || (length < 0)) {
+            String msg = String.format("Invalid arguments storage size=%d requested offset=%d length=%d",
+                                       storage.getSize(),
+                                       offset,
+                                       length);
+            throw new RuntimeException(msg);
+        }
+
+        _array = null;
+        _storage = storage;
         _offset = offset;
         _length = length;
     }
@@ -72,8 +124,8 @@ public class ArraySlice {
      */
     public ArraySlice(
         final ArraySlice baseSlice,
-        final int offset,
-        final int length
+        final long offset,
+        final long length
     ) {
         if ((offset + length > baseSlice._length) || (offset < 0) || (length < 0)) {
             String msg = String.format("Invalid arguments baseSliceSize=%d requestedOffset=%d length=%d",
@@ -84,16 +136,45 @@ public class ArraySlice {
         }
 
         _array = baseSlice._array;
+        _storage = baseSlice._storage;
         _offset = offset + baseSlice._offset;
         _length = length;
     }
 
+    /**
+     * Retrieves a value from the base array or storage
+     * @param baseIndex index into the base array or storage (not into the slice)
+     */
+    private long getBase(
+        final long baseIndex
+    ) {
+        return (_array != null) ? _array[(int) baseIndex] : _storage.get(baseIndex);
+    }
+
+    /**
+     * Stores a value into the base array or storage
+     * @param baseIndex index into the base array or storage (not into the slice)
+     * @param value value to be stored
+     */
+    private void setBase(
+        final long baseIndex,
+        final long value
+    ) {
+        if (_array != null) {
+            _array[(int) baseIndex] = value;
+        } else {
+            _storage.set(baseIndex, value);
+        }
+    }
+
     /**
      * Clears the slice to zero
      */
     public void clear() {
-        for (int ax = _offset; ax < _offset + _length; ++ax) {
-            _array[ax] = 0;
+        if (_array != null) {
+            Arrays.fill(_array, (int) _offset, (int) (_offset + _length), 0);
+        } else {
+            _storage.fill(_offset, _length, 0);
         }
     }
 
@@ -105,18 +186,27 @@ public class ArraySlice {
      * @return newly-allocated ArraySlice object
      */
     public ArraySlice copyOf(
-        final int newSize
+        final long newSize
     ) {
-        return new ArraySlice(Arrays.copyOf(_array, newSize));
+        if (_array != null) {
+            return new ArraySlice(Arrays.copyOf(_array, (int) newSize));
+        }
+
+        ArrayStorage storage = _storage.create(newSize);
+        long limit = Math.min(newSize, _length);
+        for (long ax = _offset, sx = 0; sx < limit; ++ax, ++sx) {
+            storage.set(sx, _storage.get(ax));
+        }
+        return new ArraySlice(storage, 0, newSize);
     }
 
     /**
      * For debugging
      */
     public void dump() {
-        int ax = _offset;
+        long ax = _offset;
         while (ax % 8 > 0) { --ax; }
-        int alimit = _length + _offset;
+        long alimit = _length + _offset;
         while (alimit % 8 > 0) { ++alimit; }
 
         System.out.println("ArraySlice content:");
@@ -126,7 +216,7 @@ public class ArraySlice {
                 if ((ax + ay < _offset) || (ax + ay >= _length + _offset)) {
                     sb.append("............  ");
                 } else {
-                    sb.append(String.format("%012o  ", _array[ax + ay]));
+                    sb.append(String.format("%012o  ", getBase(ax + ay)));
                 }
             }
             System.out.println(sb.toString());
@@ -141,8 +231,8 @@ public class ArraySlice {
         if (obj instanceof ArraySlice) {
             ArraySlice asObj = (ArraySlice) obj;
             if (asObj._length == _length) {
-                for (int objx = asObj._offset, thisx = _offset, x = 0; x < asObj._length; ++objx, ++thisx, ++x) {
-                    if (asObj._array[objx] != _array[thisx]) {
+                for (long objx = asObj._offset, thisx = _offset, x = 0; x < asObj._length; ++objx, ++thisx, ++x) {
+                    if (asObj.getBase(objx) != getBase(thisx)) {
                         return false;
                     }
                 }
@@ -159,13 +249,13 @@ public class ArraySlice {
      * @return the value
      */
     public long get(
-        final int index
+        final long index
     ) {
         if ((index < 0) || (index >= _length)) {
             throw new RuntimeException(String.format("Invalid index=%d slice length=%d", index, _length));
         }
 
-        return _array[index + _offset];
+        return (_array != null) ? _array[(int) (index + _offset)] : _storage.get(index + _offset);
     }
 
     /**
@@ -174,9 +264,17 @@ public class ArraySlice {
      */
     @JsonIgnore
     public long[] getAll() {
-        long[] result = new long[_length];
-        for (int ax = _offset, rx = 0; rx < _length; ++ax, ++rx) {
-            result[rx] = _array[ax];
+        if (_array != null) {
+            return Arrays.copyOfRange(_array, (int) _offset, (int) (_offset + _length));
+        }
+
+        if (_length > Integer.MAX_VALUE) {
+            throw new RuntimeException(String.format("Slice length=%d is too large for an array", _length));
+        }
+
+        long[] result = new long[(int) _length];
+        for (long ax = _offset, rx = 0; rx < _length; ++ax, ++rx) {
+            result[(int) rx] = _storage.get(ax);
         }
         return result;
     }
@@ -185,16 +283,16 @@ public class ArraySlice {
      * Getter
      * @return size of this slice
      */
-    public int getSize() {
+    public long getSize() {
         return _length;
     }
 
     @Override
     public int hashCode(
     ) {
-        int result = _length;
+        int result = Long.hashCode(_length);
         for (int ax = 0; (ax < 8) && (ax < _length); ++ax) {
-            result ^= _array[_offset + ax];
+            result ^= getBase(_offset + ax);
         }
         return result;
     }
@@ -207,10 +305,7 @@ public class ArraySlice {
     public void load(
         final long[] source
     ) {
-        int slimit = Math.min(source.length, _length);
-        for (int sx = 0, ax = _offset; sx < slimit; ++sx, ++ax) {
-            _array[ax] = source[sx];
-        }
+        load(source, 0, (int) Math.min(source.length, _length), 0);
     }
 
     /**
@@ -224,7 +319,7 @@ public class ArraySlice {
         final long[] source,
         final int sourceIndex,
         final int sourceLength,
-        final int destinationIndex
+        final long destinationIndex
     ) {
         if (sourceIndex + sourceLength > source.length) {
             throw new RuntimeException(
@@ -242,9 +337,14 @@ public class ArraySlice {
                               sourceLength));
         }
 
-        int slimit = sourceIndex + sourceLength;
-        for (int sx = sourceIndex, ax = _offset + destinationIndex; sx < slimit; ++sx, ++ax) {
-            _array[ax] = source[sx];
+        if (_array != null) {
+            System.arraycopy(source, sourceIndex, _array, (int) (_offset + destinationIndex), sourceLength);
+        } else {
+            int slimit = sourceIndex + sourceLength;
+            long ax = _offset + destinationIndex;
+            for (int sx = sourceIndex; sx < slimit; ++sx, ++ax) {
+                _storage.set(ax, source[sx]);
+            }
         }
     }
 
@@ -255,7 +355,7 @@ public class ArraySlice {
      */
     public void load(
         final ArraySlice source,
-        final int destinationIndex
+        final long destinationIndex
     ) {
         if (destinationIndex + source._length > _length) {
             throw new RuntimeException(
@@ -265,9 +365,7 @@ public class ArraySlice {
                               _length));
         }
 
-        for (int sx = source._offset, dx = _offset + destinationIndex, x = 0; x < source._length; ++sx, ++dx, ++x) {
-            _array[dx] = source._array[sx];
-        }
+        load(source, 0, source._length, destinationIndex);
     }
 
     /**
@@ -279,11 +377,27 @@ public class ArraySlice {
      */
     public void load(
         final ArraySlice source,
-        final int sourceIndex,
-        final int sourceLength,
-        final int destinationIndex
+        final long sourceIndex,
+        final long sourceLength,
+        final long destinationIndex
     ) {
-        load(source._array, source._offset + sourceIndex, sourceLength, destinationIndex);
+        if (source._array != null) {
+            load(source._array, (int) (source._offset + sourceIndex), (int) sourceLength, destinationIndex);
+        } else {
+            if (destinationIndex + sourceLength > _length) {
+                throw new RuntimeException(
+                    String.format("Invalid parameter slice length:%d destination index:%d source length:%d",
+                                  _length,
+                                  destinationIndex,
+                                  sourceLength));
+            }
+
+            for (long sx = source._offset + sourceIndex, dx = _offset + destinationIndex, x = 0;
+                 x < sourceLength;
+                 ++sx, ++dx, ++x) {
+                setBase(dx, source._storage.get(sx));
+            }
+        }
     }
 
     /**
@@ -303,29 +417,29 @@ public class ArraySlice {
         }
 
         int bufferIndex = 0;
-        int remainingWords = _length;
+        long remainingWords = _length;
         final int wordsPerRow = 4;
         for (int rowIndex = 0;
              remainingWords > 0;
              rowIndex += wordsPerRow, bufferIndex += wordsPerRow, remainingWords -= wordsPerRow) {
             //  Get a subset of the buffer
-            int wordBufferSize = Math.min(remainingWords, wordsPerRow);
+            int wordBufferSize = (int) Math.min(remainingWords, wordsPerRow);
             ArraySlice subset = new ArraySlice(this, bufferIndex, wordBufferSize);
 
             //  Build octal string
             StringBuilder octalBuilder = new StringBuilder();
             octalBuilder.append(subset.toOctal(true));
-            octalBuilder.append("             ".repeat(Math.max(0, wordsPerRow - subset.getSize())));
+            octalBuilder.append("             ".repeat(Math.max(0, wordsPerRow - wordBufferSize)));
 
             //  Build fieldata string
             StringBuilder fieldataBuilder = new StringBuilder();
             fieldataBuilder.append(subset.toFieldata(true));
-            fieldataBuilder.append("       ".repeat(Math.max(0, wordsPerRow - subset.getSize())));
+            fieldataBuilder.append("       ".repeat(Math.max(0, wordsPerRow - wordBufferSize)));
 
             //  Build ASCII string
             StringBuilder asciiBuilder = new StringBuilder();
             asciiBuilder.append(subset.toASCII(true));
-            asciiBuilder.append("     ".repeat(Math.max(0, wordsPerRow - subset.getSize())));
+            asciiBuilder.append("     ".repeat(Math.max(0, wordsPerRow - wordBufferSize)));
 
             //  Log the output
             logger.printf(logLevel, String.format("%06o:%s  %s  %s",
@@ -352,7 +466,7 @@ public class ArraySlice {
         }
 
         int bufferIndex = 0;
-        int remainingWords = _length;
+        long remainingWords = _length;
         for (int rowIndex = 0; remainingWords > 0; rowIndex += 7, bufferIndex += 7, remainingWords -= 7) {
             //  Get a subset of the buffer
             ArraySlice subset = new ArraySlice(this, bufferIndex, 7);
@@ -380,13 +494,26 @@ public class ArraySlice {
             return 0;
         }
 
-        int wordsLeft = getSize();
+        long wordsLeft = _length;
         int sx = 0;
         int bytesLeft = destination.length - destinationOffset;
         int dx = destinationOffset;
         int count = 0;
         int partial = 0;
 
+        //  Whole word pairs - the first eight frames are the top 64 of the 72 bits, and the ninth is the rest
+        while ((wordsLeft >= 2) && (bytesLeft >= 9)) {
+            long word0 = getBase(_offset + sx) & Word36.BIT_MASK;
+            long word1 = getBase(_offset + sx + 1) & Word36.BIT_MASK;
+            LONG_BIG_ENDIAN.set(destination, dx, (word0 << 28) | (word1 >>> 8));
+            destination[dx + 8] = (byte) word1;
+            sx += 2;
+            dx += 9;
+            wordsLeft -= 2;
+            bytesLeft -= 9;
+            count += 2;
+        }
+
         while ((wordsLeft > 0) && (bytesLeft > 0)) {
             switch (partial) {
                 case 0:
@@ -477,45 +604,63 @@ public class ArraySlice {
         byte[] destination,
         final int destinationOffset
     ) {
-        int sx = _offset;
+        long sx = _offset;
         int dx = destinationOffset;
         int qwx = 0;
         int count = 0;
         boolean stop = false;
-        while ((sx < _length) && (dx < destination.length) && (!stop)) {
+
+        //  Whole words with no stop bit - a word with a stop bit is left for the frame-by-frame loop to deal with
+        while ((sx < _offset + _length) && (dx + 4 <= destination.length)) {
+            long word = getBase(sx);
+            if ((word & QUARTER_WORD_STOP_BITS) != 0) {
+                break;
+            }
+            INT_BIG_ENDIAN.set(destination,
+                               dx,
+                               (int) (((word >> 3) & 0xFF000000L)
+                                      | ((word >> 2) & 0x00FF0000L)
+                                      | ((word >> 1) & 0x0000FF00L)
+                                      | (word & 0x000000FFL)));
+            ++sx;
+            dx += 4;
+            count += 4;
+        }
+
+        while ((sx < _offset + _length) && (dx < destination.length) && (!stop)) {
             switch (qwx++) {
                 case 0:
-                    if ((Word36.getQ1(_array[sx]) & 0400) != 0) {
+                    if ((Word36.getQ1(getBase(sx)) & 0400) != 0) {
                         stop = true;
                     } else {
-                        destination[dx++] = (byte) (Word36.getQ1(_array[sx]) & 0xFF);
+                        destination[dx++] = (byte) (Word36.getQ1(getBase(sx)) & 0xFF);
                         ++count;
                     }
                     break;
 
                 case 1:
-                    if ((Word36.getQ2(_array[sx]) & 0400) != 0) {
+                    if ((Word36.getQ2(getBase(sx)) & 0400) != 0) {
                         stop = true;
                     } else {
-                        destination[dx++] = (byte) (Word36.getQ2(_array[sx]) & 0xFF);
+                        destination[dx++] = (byte) (Word36.getQ2(getBase(sx)) & 0xFF);
                         ++count;
                     }
                     break;
 
                 case 2:
-                    if ((Word36.getQ3(_array[sx]) & 0400) != 0) {
+                    if ((Word36.getQ3(getBase(sx)) & 0400) != 0) {
                         stop = true;
                     } else {
-                        destination[dx++] = (byte) (Word36.getQ3(_array[sx]) & 0xFF);
+                        destination[dx++] = (byte) (Word36.getQ3(getBase(sx)) & 0xFF);
                         ++count;
                     }
                     break;
 
                 case 3:
-                    if ((Word36.getQ4(_array[sx]) & 0400) != 0) {
+                    if ((Word36.getQ4(getBase(sx)) & 0400) != 0) {
                         stop = true;
                     } else {
-                        destination[dx++] = (byte) (Word36.getQ4(_array[sx]) & 0xFF);
+                        destination[dx++] = (byte) (Word36.getQ4(getBase(sx)) & 0xFF);
                         ++count;
                         ++sx;
                         qwx = 0;
@@ -549,39 +694,54 @@ public class ArraySlice {
         byte[] destination,
         final int destinationOffset
     ) {
-        int sx = _offset;
+        long sx = _offset;
         int dx = destinationOffset;
         int count = 0;
         int swx = 0;
-        while ((sx < _length) && (dx < destination.length)) {
+
+        //  Whole words
+        while ((sx < _offset + _length) && (dx + 6 <= destination.length)) {
+            long word = getBase(sx);
+            destination[dx] = (byte) ((word >> 30) & 077);
+            destination[dx + 1] = (byte) ((word >> 24) & 077);
+            destination[dx + 2] = (byte) ((word >> 18) & 077);
+            destination[dx + 3] = (byte) ((word >> 12) & 077);
+            destination[dx + 4] = (byte) ((word >> 6) & 077);
+            destination[dx + 5] = (byte) (word & 077);
+            ++sx;
+            dx += 6;
+            count += 6;
+        }
+
+        while ((sx < _offset + _length) && (dx < destination.length)) {
             switch (swx++) {
                 case 0:
-                    destination[dx++] = (byte) (Word36.getS1(_array[sx]) & 0x3F);
+                    destination[dx++] = (byte) (Word36.getS1(getBase(sx)) & 0x3F);
                     ++count;
                     break;
 
                 case 1:
-                    destination[dx++] = (byte) (Word36.getS2(_array[sx]) & 0x3F);
+                    destination[dx++] = (byte) (Word36.getS2(getBase(sx)) & 0x3F);
                     ++count;
                     break;
 
                 case 2:
-                    destination[dx++] = (byte) (Word36.getS3(_array[sx]) & 0x3F);
+                    destination[dx++] = (byte) (Word36.getS3(getBase(sx)) & 0x3F);
                     ++count;
                     break;
 
                 case 3:
-                    destination[dx++] = (byte) (Word36.getS4(_array[sx]) & 0x3F);
+                    destination[dx++] = (byte) (Word36.getS4(getBase(sx)) & 0x3F);
                     ++count;
                     break;
 
                 case 4:
-                    destination[dx++] = (byte) (Word36.getS5(_array[sx]) & 0x3F);
+                    destination[dx++] = (byte) (Word36.getS5(getBase(sx)) & 0x3F);
                     ++count;
                     break;
 
                 case 6:
-                    destination[dx++] = (byte) (Word36.getS6(_array[sx]) & 0x3F);
+                    destination[dx++] = (byte) (Word36.getS6(getBase(sx)) & 0x3F);
                     ++count;
                     ++sx;
                     swx = 0;
@@ -610,14 +770,18 @@ public class ArraySlice {
      * @param value value to be stored
      */
     public void set(
-        final int index,
+        final long index,
         final long value
     ) {
         if ((index < 0) || (index >= _length)){
             throw new RuntimeException(String.format("Invalid index=%d slice length=%d", index, _length));
         }
 
-        _array[index + _offset] = value;
+        if (_array != null) {
+            _array[(int) (index + _offset)] = value;
+        } else {
+            _storage.set(index + _offset, value);
+        }
     }
 
     /**
@@ -777,9 +941,31 @@ public class ArraySlice {
         int count = 0;
         int sx = backward ? sourceOffset + sourceCount : sourceOffset;
         int dx = 0;
-        int wordsLeft = getSize();
+        long wordsLeft = _length;
         int partial = 0;
 
+        //  Whole word pairs - the first eight frames are the top 64 of the 72 bits, and the ninth is the rest
+        while ((bytesLeft >= 9) && (wordsLeft >= 2)) {
+            long high;
+            long low;
+            if (backward) {
+                sx -= 9;
+                high = (long) LONG_LITTLE_ENDIAN.get(source, sx + 1);
+                low = source[sx] & 0xFFL;
+            } else {
+                high = (long) LONG_BIG_ENDIAN.get(source, sx);
+                low = source[sx + 8] & 0xFFL;
+                sx += 9;
+            }
+
+            setBase(_offset + dx, high >>> 28);
+            setBase(_offset + dx + 1, ((high & 0x0FFFFFFFL) << 8) | low);
+            dx += 2;
+            wordsLeft -= 2;
+            bytesLeft -= 9;
+            count += 9;
+        }
+
         while ((bytesLeft > 0) && (wordsLeft > 0)) {
             if (backward) --sx;
             switch (partial) {
@@ -882,7 +1068,31 @@ public class ArraySlice {
         int qw = 0;
         int bcount = 0;
         int sx = backward ? offset + length : offset;
-        for (int dcount = 0, dx = _offset; dcount < _length;) {
+        long dcount = 0;
+        long dx = _offset;
+
+        //  Whole words
+        while ((dcount < _length) && (backward ? (sx >= 4) : (sx + 4 <= offset + length))) {
+            int frames;
+            if (backward) {
+                sx -= 4;
+                frames = (int) INT_LITTLE_ENDIAN.get(source, sx);
+            } else {
+                frames = (int) INT_BIG_ENDIAN.get(source, sx);
+                sx += 4;
+            }
+
+            long value = frames & 0xFFFFFFFFL;
+            setBase(dx, ((value & 0xFF000000L) << 3)
+                        | ((value & 0x00FF0000L) << 2)
+                        | ((value & 0x0000FF00L) << 1)
+                        | (value & 0x000000FFL));
+            ++dx;
+            ++dcount;
+            bcount += 4;
+        }
+
+        while (dcount < _length) {
             if ((backward && (sx == 0))
                 || (!backward && (sx >= offset + length))) {
                 break;
@@ -891,22 +1101,22 @@ public class ArraySlice {
             if (backward) --sx;
             switch (qw) {
                 case 0:
-                    _array[dx] = (((long) source[sx]) & 0377) << 27;
+                    setBase(dx, (((long) source[sx]) & 0377) << 27);
                     ++qw;
                     break;
 
                 case 1:
-                    _array[dx] = Word36.setQ2(_array[dx], source[sx] & 0377);
+                    setBase(dx, Word36.setQ2(getBase(dx), source[sx] & 0377));
                     ++qw;
                     break;
 
                 case 2:
-                    _array[dx] = Word36.setQ3(_array[dx], source[sx] & 0377);
+                    setBase(dx, Word36.setQ3(getBase(dx), source[sx] & 0377));
                     ++qw;
                     break;
 
                 case 3:
-                    _array[dx] = Word36.setQ4(_array[dx], source[sx] & 0377);
+                    setBase(dx, Word36.setQ4(getBase(dx), source[sx] & 0377));
                     ++dx;
                     ++dcount;
                     qw = 0;
@@ -943,7 +1153,36 @@ public class ArraySlice {
     ) {
         int sw = 0;
         int sx = backward ? offset + length : offset;
-        for (int dcount = 0, dx = _offset; dcount < _length;) {
+        long dcount = 0;
+        long dx = _offset;
+
+        //  Whole words
+        while ((dcount < _length) && (backward ? (sx >= 6) : (sx + 6 <= offset + length))) {
+            long word;
+            if (backward) {
+                sx -= 6;
+                word = ((source[sx + 5] & 077L) << 30)
+                       | ((source[sx + 4] & 077L) << 24)
+                       | ((source[sx + 3] & 077L) << 18)
+                       | ((source[sx + 2] & 077L) << 12)
+                       | ((source[sx + 1] & 077L) << 6)
+                       | (source[sx] & 077L);
+            } else {
+                word = ((source[sx] & 077L) << 30)
+                       | ((source[sx + 1] & 077L) << 24)
+                       | ((source[sx + 2] & 077L) << 18)
+                       | ((source[sx + 3] & 077L) << 12)
+                       | ((source[sx + 4] & 077L) << 6)
+                       | (source[sx + 5] & 077L);
+                sx += 6;
+            }
+
+            setBase(dx, word);
+            ++dx;
+            ++dcount;
+        }
+
+        while (dcount < _length) {
             if ((backward && (sx == 0))
                 || (!backward && (sx >= offset + length))) {
                 break;
@@ -953,32 +1192,32 @@ public class ArraySlice {
             long bval = (long) (source[sx] & 077);
             switch (sw) {
                 case 0:
-                    _array[dx] = (bval << 30);
+                    setBase(dx, (bval << 30));
                     ++sw;
                     break;
 
                 case 1:
-                    _array[dx] = Word36.setS2(_array[dx], bval);
+                    setBase(dx, Word36.setS2(getBase(dx), bval));
                     ++sw;
                     break;
 
                 case 2:
-                    _array[dx] = Word36.setS3(_array[dx], bval);
+                    setBase(dx, Word36.setS3(getBase(dx), bval));
                     ++sw;
                     break;
 
                 case 3:
-                    _array[dx] = Word36.setS4(_array[dx], bval);
+                    setBase(dx, Word36.setS4(getBase(dx), bval));
                     ++sw;
                     break;
 
                 case 4:
-                    _array[dx] = Word36.setS5(_array[dx], bval);
+                    setBase(dx, Word36.setS5(getBase(dx), bval));
                     ++sw;
                     break;
 
                 case 5:
-                    _array[dx] = Word36.setS6(_array[dx], bval);
+                    setBase(dx, Word36.setS6(getBase(dx), bval));
                     ++dx;
                     ++dcount;
                     sw = 0;
@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2018-2020 by Kurt Duncan - All Rights Reserved
+ */
+
+package com.kadware.komodo.baselib;
+
+/**
+ * Backing store for the values of an ArraySlice which are not kept in a long[] on the Java heap.
+ * --
+ * Most slices are backed by a simple long[], which ArraySlice (and the hot paths of some of its clients)
+ * access directly via ArraySlice._array.  A slice backed by any other kind of storage has a null _array,
+ * and all access to its values goes through this interface.
+ * Indices are longs, so that an implementation may hold more values than a Java array can.
+ */
+public interface ArrayStorage {
+
+    /**
+     * Creates a new store of the same kind as this one, with all values set to zero
+     * @param size number of values in the new store
+     * @return new store
+     */
+    ArrayStorage create(
+        final long size
+    );
+
+    /**
+     * Sets a range of values to the given value
+     * @param index index of the first value to be set
+     * @param count number of values to be set
+     * @param value value to be stored
+     */
+    void fill(
+        final long index,
+        final long count,
+        final long value
+    );
+
+    /**
+     * Retrieves a value
+     * @param index index of the value
+     * @return the value
+     */
+    long get(
+        final long index
+    );
+
+    /**
+     * Retrieves the number of values in the store
+     */
+    long getSize();
+
+    /**
+     * Stores a value
+     * @param index index of the value
+     * @param value value to be stored
+     */
+    void set(
+        final long index,
+        final long value
+    );
+}
@@ -15,7 +15,7 @@ public class BankDescriptor extends ArraySlice {
      */
     public BankDescriptor(
         final ArraySlice base,
-        final int offset
+        final long offset
     ) {
         super(base, offset, 8);
     }
@@ -108,9 +108,10 @@ public class BankDescriptor extends ArraySlice {
 
     /**
      * @return lower limit with granularity normalized out (making this 1-word granularity)
+     *          Up to 24 bits significant
      */
-    public int getLowerLimitNormalized() {
-        return getLargeBank() ? (getLowerLimit() << 15) : (getLowerLimit() << 9);
+    public long getLowerLimitNormalized() {
+        return getLargeBank() ? ((long) getLowerLimit() << 15) : ((long) getLowerLimit() << 9);
     }
 
     /**
@@ -140,9 +141,10 @@ public class BankDescriptor extends ArraySlice {
 
     /**
      * @return upper limit with granularity normalized out (making this 1-word granularity)
+     *          Up to 33 bits significant for a very large bank, so this must be a long
      */
-    public int getUpperLimitNormalized() {
-        return getLargeBank() ? (getUpperLimit() << 6) : getUpperLimit();
+    public long getUpperLimitNormalized() {
+        return getLargeBank() ? ((long) getUpperLimit() << 6) : getUpperLimit();
     }
 
     /**
@@ -215,18 +217,18 @@ public class BankDescriptor extends ArraySlice {
     }
 
     public void setLowerLimitNormalized(
-        final int normalizedValue
+        final long normalizedValue
     ) {
         if (getLargeBank()) {
             if ((normalizedValue & 077777) != 0) {
                 throw new RuntimeException(String.format("Cannot normalize %d for large bank", normalizedValue));
             }
-            setLowerLimit(normalizedValue >> 15);
+            setLowerLimit((int) (normalizedValue >> 15));
         } else {
             if ((normalizedValue & 0777) != 0) {
                 throw new RuntimeException(String.format("Cannot normalize %d for non-large bank", normalizedValue));
             }
-            setLowerLimit(normalizedValue >> 9);
+            setLowerLimit((int) (normalizedValue >> 9));
         }
     }
 
@@ -247,15 +249,15 @@ public class BankDescriptor extends ArraySlice {
     }
 
     public void setUpperLimitNormalized(
-        final int normalizedValue
+        final long normalizedValue
     ) {
         if (getLargeBank()) {
             if ((normalizedValue & 077) != 0) {
                 throw new RuntimeException(String.format("Cannot normlize %d for large bank", normalizedValue));
             }
-            setUpperLimit(normalizedValue >> 6);
+            setUpperLimit((int) (normalizedValue >> 6));
         } else {
-            setUpperLimit(normalizedValue);
+            setUpperLimit((int) normalizedValue);
         }
     }
 
@@ -0,0 +1,294 @@
+/*
+ * Copyright (c) 2018-2020 by Kurt Duncan - All Rights Reserved
+ */
+
+package com.kadware.komodo.baselib;
+
+import java.lang.invoke.VarHandle;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * ArrayStorage which layers copy-on-write snapshots over some other ArrayStorage.
+ * --
+ * The values are divided into pages of PAGE_SIZE values.  Taking a snapshot costs next to nothing - it merely
+ * starts a new generation.  The first write to each page in a generation faults the page, copying its content
+ * into every snapshot which does not yet have it.  Thus a snapshot only ever holds copies of the pages which have
+ * been written since it was taken, and everything else is read through from the base storage.
+ * Restoring a snapshot writes its copied pages back into the base storage (faulting them on behalf of any newer
+ * snapshots first), after which the store once again holds exactly what it held when the snapshot was taken.
+ * --
+ * Taking or restoring a snapshot while other threads are writing to the store produces an inconsistent image -
+ * the caller must see to it that nothing is writing at the time.  Reading a snapshot, on the other hand,
+ * may be done while the store is in use.
+ */
+public class CopyOnWriteArrayStorage implements ArrayStorage {
+
+    public static final int PAGE_SHIFT = 12;                    //  4K values (32KB) per page
+    public static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    private final ArrayStorage _base;
+    private long _faultCount = 0;
+    private volatile int _generation = 0;                       //  bumped by each snapshot
+    private final int[] _pageGenerations;                       //  generation in which each page was last faulted
+    private final List<Snapshot> _snapshots = new LinkedList<>();
+
+    /**
+     * The content of a CopyOnWriteArrayStorage at the time the snapshot was taken
+     */
+    public static class Snapshot {
+
+        private boolean _discarded = false;
+        private final int _generation;                          //  writes in this or later generations are not in the snapshot
+        private final AtomicReferenceArray<long[]> _pages;      //  pages which have been written since the snapshot was taken
+        private int _preservedPageCount = 0;
+        private final CopyOnWriteArrayStorage _source;
+
+        private Snapshot(
+            final CopyOnWriteArrayStorage source,
+            final int generation
+        ) {
+            _generation = generation;
+            _pages = new AtomicReferenceArray<>(source._pageGenerations.length);
+            _source = source;
+        }
+
+        /**
+         * Retrieves a value as it was when the snapshot was taken
+         * @param index index of the value
+         * @return the value
+         */
+        public long get(
+            final long index
+        ) {
+            int pageIndex = (int) (index >>> PAGE_SHIFT);
+            long[] page = _pages.get(pageIndex);
+            if (page == null) {
+                //  The page may be faulted between our check and our read of the base storage - if it was,
+                //  the value we read may be newer than the snapshot, so we must look again.
+                long value = _source._base.get(index);
+                VarHandle.acquireFence();
+                page = _pages.get(pageIndex);
+                if (page == null) {
+                    return value;
+                }
+            }
+            return page[(int) (index & PAGE_MASK)];
+        }
+
+        /**
+         * Number of pages which have been copied into the snapshot since it was taken
+         */
+        public int getPreservedPageCount() {
+            synchronized (_source) {
+                return _preservedPageCount;
+            }
+        }
+
+        /**
+         * Number of values in the snapshot
+         */
+        public long getSize() {
+            return _source.getSize();
+        }
+
+        /**
+         * Store of which this is a snapshot
+         */
+        public CopyOnWriteArrayStorage getSource() {
+            return _source;
+        }
+
+        /**
+         * Indicates whether the snapshot has been discarded (in which case it must not be read)
+         */
+        public boolean isDiscarded() {
+            synchronized (_source) {
+                return _discarded;
+            }
+        }
+    }
+
+    /**
+     * Constructor
+     * @param base storage which actually holds the current values
+     */
+    public CopyOnWriteArrayStorage(
+        final ArrayStorage base
+    ) {
+        long pageCount = (base.getSize() + PAGE_SIZE - 1) >>> PAGE_SHIFT;
+        if (pageCount > Integer.MAX_VALUE) {
+            throw new RuntimeException(String.format("Invalid size=%d", base.getSize()));
+        }
+
+        _base = base;
+        _pageGenerations = new int[(int) pageCount];
+    }
+
+    /**
+     * Copies a page out of the base storage
+     */
+    private long[] copyPage(
+        final int pageIndex
+    ) {
+        long index = (long) pageIndex << PAGE_SHIFT;
+        long[] page = new long[(int) Math.min(PAGE_SIZE, _base.getSize() - index)];
+        for (int px = 0; px < page.length; ++px, ++index) {
+            page[px] = _base.get(index);
+        }
+        return page;
+    }
+
+    /**
+     * Invoked before the first write to a page in the current generation, to copy the page into
+     * every snapshot which does not yet have it.
+     */
+    private synchronized void fault(
+        final int pageIndex
+    ) {
+        int pageGeneration = _pageGenerations[pageIndex];
+        int generation = _generation;
+        if (pageGeneration != generation) {
+            long[] copy = null;
+            for (Snapshot snapshot : _snapshots) {
+                if (snapshot._generation > pageGeneration) {
+                    if (copy == null) {
+                        copy = copyPage(pageIndex);
+                    }
+                    snapshot._pages.set(pageIndex, copy);
+                    ++snapshot._preservedPageCount;
+                }
+            }
+
+            //  The copy must be visible to readers of the snapshots before anything else is written to the page
+            VarHandle.fullFence();
+            _pageGenerations[pageIndex] = generation;
+            ++_faultCount;
+        }
+    }
+
+    /**
+     * Copies every page which has not yet been copied into every outstanding snapshot, so that none of them
+     * depends any longer upon the base storage.  Used when the base storage is about to be discarded or
+     * otherwise disturbed behind our back.
+     */
+    public synchronized void detach() {
+        for (int px = 0; px < _pageGenerations.length; ++px) {
+            fault(px);
+        }
+    }
+
+    /**
+     * Discards a snapshot, so that we no longer copy pages into it
+     */
+    public synchronized void discardSnapshot(
+        final Snapshot snapshot
+    ) {
+        _snapshots.remove(snapshot);
+        snapshot._discarded = true;
+    }
+
+    /**
+     * Storage which actually holds the current values
+     */
+    public ArrayStorage getBase() {
+        return _base;
+    }
+
+    /**
+     * Number of page faults taken since the store was created
+     */
+    public synchronized long getFaultCount() {
+        return _faultCount;
+    }
+
+    /**
+     * Number of snapshots which have been taken, and not discarded
+     */
+    public synchronized int getSnapshotCount() {
+        return _snapshots.size();
+    }
+
+    /**
+     * Restores the store to the content it had when the given snapshot was taken.
+     * The snapshot remains valid, and may be restored again later.
+     */
+    public synchronized void restoreSnapshot(
+        final Snapshot snapshot
+    ) {
+        if ((snapshot._source != this) || snapshot._discarded) {
+            throw new RuntimeException("Snapshot does not belong to this storage");
+        }
+
+        for (int px = 0; px < _pageGenerations.length; ++px) {
+            long[] page = snapshot._pages.get(px);
+            if (page != null) {
+                fault(px);
+                long index = (long) px << PAGE_SHIFT;
+                for (int vx = 0; vx < page.length; ++vx, ++index) {
+                    _base.set(index, page[vx]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Takes a snapshot of the current content of the store
+     */
+    public synchronized Snapshot takeSnapshot() {
+        Snapshot snapshot = new Snapshot(this, ++_generation);
+        _snapshots.add(snapshot);
+        return snapshot;
+    }
+
+    @Override
+    public ArrayStorage create(
+        final long size
+    ) {
+        return new CopyOnWriteArrayStorage(_base.create(size));
+    }
+
+    @Override
+    public void fill(
+        final long index,
+        final long count,
+        final long value
+    ) {
+        if (count > 0) {
+            int generation = _generation;
+            int lastPage = (int) ((index + count - 1) >>> PAGE_SHIFT);
+            for (int px = (int) (index >>> PAGE_SHIFT); px <= lastPage; ++px) {
+                if (_pageGenerations[px] != generation) {
+                    fault(px);
+                }
+            }
+            _base.fill(index, count, value);
+        }
+    }
+
+    @Override
+    public long get(
+        final long index
+    ) {
+        return _base.get(index);
+    }
+
+    @Override
+    public long getSize() {
+        return _base.getSize();
+    }
+
+    @Override
+    public void set(
+        final long index,
+        final long value
+    ) {
+        int pageIndex = (int) (index >>> PAGE_SHIFT);
+        if (_pageGenerations[pageIndex] != _generation) {
+            fault(pageIndex);
+        }
+        _base.set(index, value);
+    }
+}
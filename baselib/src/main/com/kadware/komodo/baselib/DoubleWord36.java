@@ -117,6 +117,13 @@ public class DoubleWord36 {
     public static final DoubleWord36 DW36_POSITIVE_ONE              = new DoubleWord36(POSITIVE_ONE);
     public static final DoubleWord36 DW36_POSITIVE_ZERO             = new DoubleWord36(POSITIVE_ZERO);
 
+    //  Flags returned by the primitive add() method
+    public static final int ADD_CARRY               = 01;
+    public static final int ADD_OVERFLOW            = 02;
+
+    private static final long HALF_MASK             = Word36.BIT_MASK;
+    private static final long HALF_NEGATIVE_BIT     = Word36.NEGATIVE_BIT;
+
 
     //  ----------------------------------------------------------------------------------------------------------------------------
     //  Data items (not much here)
@@ -143,7 +150,7 @@ public class DoubleWord36 {
         final long high,
         final long low
     ) {
-        _value = BigInteger.valueOf(high & 0_777777_777777L).shiftLeft(36).or(BigInteger.valueOf(low & 0_777777_777777L));
+        _value = toBigInteger(high, low);
     }
 
 
@@ -248,18 +255,11 @@ public class DoubleWord36 {
         final BigInteger addend1,
         final BigInteger addend2
     ) {
-        BigInteger result = addSimple(addend1, addend2);
-        if (!result.and(CARRY_BIT).equals(BigInteger.ZERO)) {
-            result = result.and(BIT_MASK).add(BigInteger.ONE);
-        }
-
-        boolean neg1 = isNegative(addend1);
-        boolean neg2 = isNegative(addend2);
-        boolean negRes = isNegative(result);
-
-        boolean carry = result.compareTo(BigInteger.ZERO) < 0 ? (neg1 && neg2) : (neg1 || neg2);
-        boolean overflow = (neg1 == neg2) && (neg1 != negRes);
-        return new StaticAdditionResult(carry, overflow, result);
+        long[] result = new long[2];
+        int flags = add(getHigh(addend1), getLow(addend1), getHigh(addend2), getLow(addend2), result);
+        return new StaticAdditionResult((flags & ADD_CARRY) != 0,
+                                        (flags & ADD_OVERFLOW) != 0,
+                                        toBigInteger(result[0], result[1]));
     }
 
     /**
@@ -269,13 +269,9 @@ public class DoubleWord36 {
         final BigInteger addend1,
         final BigInteger addend2
     ) {
-        if (addend1.equals(NEGATIVE_ZERO) && addend2.equals(NEGATIVE_ZERO)) {
-            return NEGATIVE_ZERO;
-        }
-
-        BigInteger native1 = getTwosComplement(addend1);
-        BigInteger native2 = getTwosComplement(addend2);
-        return getOnesComplement(native1.add(native2));
+        long[] result = new long[2];
+        add(getHigh(addend1), getLow(addend1), getHigh(addend2), getLow(addend2), result);
+        return toBigInteger(result[0], result[1]);
     }
 
     /**
@@ -298,8 +294,10 @@ public class DoubleWord36 {
         final BigInteger dividend,
         final BigInteger divisor
     ) {
-        BigInteger[] tempResults = getTwosComplement(dividend).divideAndRemainder(getTwosComplement(divisor));
-        return new StaticDivisionResult(getOnesComplement(tempResults[0]), getOnesComplement(tempResults[1]));
+        long[] quotient = new long[2];
+        long[] remainder = new long[2];
+        divide(getHigh(dividend), getLow(dividend), getHigh(divisor), getLow(divisor), quotient, remainder);
+        return new StaticDivisionResult(toBigInteger(quotient[0], quotient[1]), toBigInteger(remainder[0], remainder[1]));
     }
 
     /**
@@ -326,18 +324,9 @@ public class DoubleWord36 {
         final BigInteger factor1,
         final BigInteger factor2
     ) {
-        BigInteger tcResult = getTwosComplement(factor1).multiply(getTwosComplement(factor2));
-        boolean overflow;
-        if (tcResult.compareTo(BigInteger.ZERO) < 0) {
-            //  negative result, should have leading 1's
-            overflow = !tcResult.and(NOT_BIT_MASK).equals(NOT_BIT_MASK);
-        } else {
-            //  positive result, should have leading 0's
-            overflow = !tcResult.and(NOT_BIT_MASK).equals(BigInteger.ZERO);
-        }
-
-        BigInteger result = getOnesComplement(tcResult).and(BIT_MASK);
-        return new StaticMultiplicationResult(overflow, result);
+        long[] result = new long[2];
+        boolean overflow = multiply(getHigh(factor1), getLow(factor1), getHigh(factor2), getLow(factor2), result);
+        return new StaticMultiplicationResult(overflow, toBigInteger(result[0], result[1]));
     }
 
     /**
@@ -415,17 +404,9 @@ public class DoubleWord36 {
         final BigInteger value,
         final int count
     ) {
-        if (count < 0) {
-            return rightShiftAlgebraic(value, -count);
-        } else if (count == 0) {
-            return value;
-        } else {
-            BigInteger result = value.shiftLeft(count).and(BIT_MASK.shiftRight(1));
-            if (isNegative(value)) {
-                result = result.or(NEGATIVE_BIT);
-            }
-            return result;
-        }
+        long[] result = new long[2];
+        leftShiftAlgebraic(getHigh(value), getLow(value), count, result);
+        return toBigInteger(result[0], result[1]);
     }
 
     /**
@@ -439,15 +420,9 @@ public class DoubleWord36 {
         final BigInteger value,
         final int count
     ) {
-        if (count < 0) {
-            return rightShiftCircular(value, -count);
-        } else if (count == 0) {
-            return value;
-        } else {
-            int actualCount = count % 72;
-            BigInteger residue = value.shiftRight(72 - actualCount);  // end-around shifted portion
-            return value.shiftLeft(actualCount).and(BIT_MASK).or(residue);
-        }
+        long[] result = new long[2];
+        leftShiftCircular(getHigh(value), getLow(value), count, result);
+        return toBigInteger(result[0], result[1]);
     }
 
     /**
@@ -460,13 +435,9 @@ public class DoubleWord36 {
         final BigInteger value,
         final int count
     ) {
-        if (count < 0) {
-            return rightShiftLogical(value, -count);
-        } else if (count == 0) {
-            return value;
-        } else {
-            return (count > 71) ? BigInteger.ZERO : value.shiftLeft(count).and(BIT_MASK);
-        }
+        long[] result = new long[2];
+        leftShiftLogical(getHigh(value), getLow(value), count, result);
+        return toBigInteger(result[0], result[1]);
     }
 
     /**
@@ -479,24 +450,9 @@ public class DoubleWord36 {
         final BigInteger value,
         final int count
     ) {
-        if (count < 0) {
-            return leftShiftAlgebraic(value, -count);
-        } else if (count == 0) {
-            return value;
-        } else {
-            boolean isNegative = isNegative(value);
-            if (count > 71) {
-                return isNegative ? DoubleWord36.NEGATIVE_ZERO : DoubleWord36.POSITIVE_ZERO;
-            } else {
-                if (isNegative) {
-                    int signBits = count;
-                    BigInteger signMask = BigInteger.ONE.shiftLeft(signBits).subtract(BigInteger.ONE).shiftLeft(72 - signBits);
-                    return value.shiftRight(count).or(signMask);
-                } else {
-                    return value.shiftRight(count);
-                }
-            }
-        }
+        long[] result = new long[2];
+        rightShiftAlgebraic(getHigh(value), getLow(value), count, result);
+        return toBigInteger(result[0], result[1]);
     }
 
     /**
@@ -510,16 +466,9 @@ public class DoubleWord36 {
         final BigInteger value,
         final int count
     ) {
-        if (count < 0) {
-            return leftShiftCircular(value, -count);
-        } else if (count == 0) {
-            return value;
-        } else {
-            int actualCount = (count % 72);
-            BigInteger mask = BIT_MASK.shiftRight(72 - actualCount);
-            BigInteger residue = (value.and(mask)).shiftLeft(72 - actualCount);
-            return value.shiftRight(actualCount).or(residue);
-        }
+        long[] result = new long[2];
+        rightShiftCircular(getHigh(value), getLow(value), count, result);
+        return toBigInteger(result[0], result[1]);
     }
 
     /**
@@ -532,13 +481,9 @@ public class DoubleWord36 {
         final BigInteger value,
         final int count
     ) {
-        if (count < 0) {
-            return leftShiftLogical(value, -count);
-        } else if (count == 0) {
-            return value;
-        } else {
-            return (count > 71) ? BigInteger.ZERO : value.shiftRight(count);
-        }
+        long[] result = new long[2];
+        rightShiftLogical(getHigh(value), getLow(value), count, result);
+        return toBigInteger(result[0], result[1]);
     }
 
 
@@ -575,6 +520,34 @@ public class DoubleWord36 {
         return isNegative(operand) ? negate(operand).negate() : operand;
     }
 
+    /**
+     * Retrieves the most significant 36 bits of a 72-bit value
+     */
+    public static long getHigh(
+        final BigInteger value
+    ) {
+        return value.shiftRight(36).longValue() & HALF_MASK;
+    }
+
+    /**
+     * Retrieves the least significant 36 bits of a 72-bit value
+     */
+    public static long getLow(
+        final BigInteger value
+    ) {
+        return value.longValue() & HALF_MASK;
+    }
+
+    /**
+     * Creates a 72-bit BigInteger value from its high and low 36-bit components
+     */
+    public static BigInteger toBigInteger(
+        final long high,
+        final long low
+    ) {
+        return BigInteger.valueOf(high & HALF_MASK).shiftLeft(36).or(BigInteger.valueOf(low & HALF_MASK));
+    }
+
     /**
      * Populates this object with quarter-words derived from the ASCII characters in the source string.
      * If the string does not contain at least 8 characters, we pad the resulting output with blanks as necessary.
@@ -659,4 +632,449 @@ public class DoubleWord36 {
                              Word36.toStringFromFieldata(words[0]._value),
                              Word36.toStringFromFieldata(words[1]._value));
     }
+
+
+    //  ----------------------------------------------------------------------------------------------------------------------------
+    //  Static methods - these operate on 72-bit ones-complement values held as a pair of longs, each of which
+    //  contains 36 significant bits (the high-order half first).  None of them allocate anything.
+    //  72-bit results are returned in a caller-supplied long[2], which may be the same array from which the
+    //  caller took the operands.  The BigInteger methods above are thin adapters over these.
+    //  ----------------------------------------------------------------------------------------------------------------------------
+
+    //  Tests ----------------------------------------------------------------------------------------------------------------------
+
+    public static boolean isNegative(long high, long low)       { return (high & HALF_NEGATIVE_BIT) != 0; }
+    public static boolean isNegativeZero(long high, long low)   { return (high == HALF_MASK) && (low == HALF_MASK); }
+    public static boolean isPositive(long high, long low)       { return (high & HALF_NEGATIVE_BIT) == 0; }
+    public static boolean isPositiveZero(long high, long low)   { return (high == 0) && (low == 0); }
+    public static boolean isZero(long high, long low)           { return isPositiveZero(high, low) || isNegativeZero(high, low); }
+
+
+    //  Arithmetic Operations ------------------------------------------------------------------------------------------------------
+
+    /**
+     * Adds two 72-bit ones-complement values.
+     * The operation is done on sign and magnitude, so that (for example) 5 + -5 produces positive zero,
+     * while -0 + -0 produces negative zero.
+     * @param high1 high-order half of the first addend
+     * @param low1 low-order half of the first addend
+     * @param high2 high-order half of the second addend
+     * @param low2 low-order half of the second addend
+     * @param result where we store the sum
+     * @return ADD_CARRY and/or ADD_OVERFLOW, as appropriate
+     */
+    public static int add(
+        final long high1,
+        final long low1,
+        final long high2,
+        final long low2,
+        final long[] result
+    ) {
+        boolean neg1 = isNegative(high1, low1);
+        boolean neg2 = isNegative(high2, low2);
+
+        if (isNegativeZero(high1, low1) && isNegativeZero(high2, low2)) {
+            result[0] = HALF_MASK;
+            result[1] = HALF_MASK;
+        } else {
+            //  Work with magnitudes - a negative value's magnitude is its bitwise complement
+            long mh1 = neg1 ? (~high1 & HALF_MASK) : high1;
+            long ml1 = neg1 ? (~low1 & HALF_MASK) : low1;
+            long mh2 = neg2 ? (~high2 & HALF_MASK) : high2;
+            long ml2 = neg2 ? (~low2 & HALF_MASK) : low2;
+
+            boolean negSum;
+            long sh;
+            long sl;
+            if (neg1 == neg2) {
+                negSum = neg1;
+                sl = ml1 + ml2;
+                sh = mh1 + mh2 + (sl >>> 36);
+                sl &= HALF_MASK;
+            } else if (compareMagnitudes(mh1, ml1, mh2, ml2) >= 0) {
+                negSum = neg1;
+                sl = ml1 - ml2;
+                sh = mh1 - mh2;
+                if (sl < 0) {
+                    sl += HALF_MASK + 1;
+                    --sh;
+                }
+            } else {
+                negSum = neg2;
+                sl = ml2 - ml1;
+                sh = mh2 - mh1;
+                if (sl < 0) {
+                    sl += HALF_MASK + 1;
+                    --sh;
+                }
+            }
+
+            //  A zero sum is always positive zero
+            if (negSum && ((sh | sl) != 0)) {
+                result[0] = ~sh & HALF_MASK;
+                result[1] = ~sl & HALF_MASK;
+            } else {
+                result[0] = sh;
+                result[1] = sl;
+            }
+        }
+
+        boolean negRes = isNegative(result[0], result[1]);
+        int flags = 0;
+        if (neg1 || neg2) {
+            flags |= ADD_CARRY;
+        }
+        if ((neg1 == neg2) && (neg1 != negRes)) {
+            flags |= ADD_OVERFLOW;
+        }
+        return flags;
+    }
+
+    /**
+     * Compares two values as unsigned 72-bit quantities (this is consistent with the BigInteger form of compare())
+     * @return -1 if operand1 < operand2, 1 if operand1 > operand2, 0 if they are equal
+     */
+    public static int compare(
+        final long high1,
+        final long low1,
+        final long high2,
+        final long low2
+    ) {
+        return compareMagnitudes(high1, low1, high2, low2);
+    }
+
+    /**
+     * Divides one 72-bit ones-complement value by another.
+     * The quotient is truncated toward zero, and the remainder takes the sign of the dividend
+     * (zero results are always positive zero).
+     * @param dividendHigh high-order half of the dividend
+     * @param dividendLow low-order half of the dividend
+     * @param divisorHigh high-order half of the divisor
+     * @param divisorLow low-order half of the divisor
+     * @param quotient where we store the quotient
+     * @param remainder where we store the remainder
+     * @throws ArithmeticException if the divisor is positive or negative zero
+     */
+    public static void divide(
+        final long dividendHigh,
+        final long dividendLow,
+        final long divisorHigh,
+        final long divisorLow,
+        final long[] quotient,
+        final long[] remainder
+    ) {
+        boolean negDividend = isNegative(dividendHigh, dividendLow);
+        boolean negDivisor = isNegative(divisorHigh, divisorLow);
+        long nh = negDividend ? (~dividendHigh & HALF_MASK) : dividendHigh;
+        long nl = negDividend ? (~dividendLow & HALF_MASK) : dividendLow;
+        long dh = negDivisor ? (~divisorHigh & HALF_MASK) : divisorHigh;
+        long dl = negDivisor ? (~divisorLow & HALF_MASK) : divisorLow;
+
+        if ((dh | dl) == 0) {
+            throw new ArithmeticException("DoubleWord36 divide by zero");
+        }
+
+        long qh = 0;
+        long ql = 0;
+        long rh;
+        long rl;
+        if ((nh >>> 27) == 0) {
+            //  Both magnitudes fit in 63 bits (the divisor cannot usefully be larger than the dividend)
+            long n = (nh << 36) | nl;
+            if ((dh >>> 27) == 0) {
+                long d = (dh << 36) | dl;
+                long q = n / d;
+                long r = n % d;
+                qh = q >>> 36;
+                ql = q & HALF_MASK;
+                rh = r >>> 36;
+                rl = r & HALF_MASK;
+            } else {
+                rh = nh;
+                rl = nl;
+            }
+        } else {
+            //  Restoring binary long division, one bit at a time
+            rh = 0;
+            rl = 0;
+            for (int bx = 71; bx >= 0; --bx) {
+                long nextBit = (bx >= 36) ? ((nh >>> (bx - 36)) & 01) : ((nl >>> bx) & 01);
+                rh = (rh << 1) | (rl >>> 35);
+                rl = ((rl << 1) & HALF_MASK) | nextBit;
+                qh = (qh << 1) | (ql >>> 35);
+                ql = (ql << 1) & HALF_MASK;
+                if (compareMagnitudes(rh, rl, dh, dl) >= 0) {
+                    rl -= dl;
+                    rh -= dh;
+                    if (rl < 0) {
+                        rl += HALF_MASK + 1;
+                        --rh;
+                    }
+                    ql |= 01;
+                }
+            }
+        }
+
+        if ((negDividend != negDivisor) && ((qh | ql) != 0)) {
+            quotient[0] = ~qh & HALF_MASK;
+            quotient[1] = ~ql & HALF_MASK;
+        } else {
+            quotient[0] = qh;
+            quotient[1] = ql;
+        }
+
+        if (negDividend && ((rh | rl) != 0)) {
+            remainder[0] = ~rh & HALF_MASK;
+            remainder[1] = ~rl & HALF_MASK;
+        } else {
+            remainder[0] = rh;
+            remainder[1] = rl;
+        }
+    }
+
+    /**
+     * Multiplies two 72-bit ones-complement values.
+     * The 142-bit product of the magnitudes is developed in 36-bit limbs using Math.multiplyHigh(),
+     * and the low-order 72 bits are returned with the appropriate sign.
+     * @param high1 high-order half of the first factor
+     * @param low1 low-order half of the first factor
+     * @param high2 high-order half of the second factor
+     * @param low2 low-order half of the second factor
+     * @param result where we store the (possibly truncated) product
+     * @return true if the product does not fit in 72 bits
+     */
+    public static boolean multiply(
+        final long high1,
+        final long low1,
+        final long high2,
+        final long low2,
+        final long[] result
+    ) {
+        boolean neg1 = isNegative(high1, low1);
+        boolean neg2 = isNegative(high2, low2);
+        long ah = neg1 ? (~high1 & HALF_MASK) : high1;
+        long al = neg1 ? (~low1 & HALF_MASK) : low1;
+        long bh = neg2 ? (~high2 & HALF_MASK) : high2;
+        long bl = neg2 ? (~low2 & HALF_MASK) : low2;
+
+        //  Each limb product is less than 2^72, so we split each into its low and high 36 bits
+        long p00Lo = (al * bl) & HALF_MASK;
+        long p00Hi = multiplyLimbsHigh(al, bl);
+        long p01Lo = (al * bh) & HALF_MASK;
+        long p01Hi = multiplyLimbsHigh(al, bh);
+        long p10Lo = (ah * bl) & HALF_MASK;
+        long p10Hi = multiplyLimbsHigh(ah, bl);
+        long p11Lo = (ah * bh) & HALF_MASK;
+        long p11Hi = multiplyLimbsHigh(ah, bh);
+
+        long r0 = p00Lo;
+        long r1 = p00Hi + p01Lo + p10Lo;
+        long r2 = p01Hi + p10Hi + p11Lo + (r1 >>> 36);
+        r1 &= HALF_MASK;
+        long r3 = p11Hi + (r2 >>> 36);
+        r2 &= HALF_MASK;
+
+        boolean negative = (neg1 != neg2) && ((r0 | r1 | r2 | r3) != 0);
+        boolean overflow;
+        if (negative) {
+            //  a negative product of magnitude exactly 2^72 still fits (as negative zero)
+            overflow = ((r2 | r3) != 0) && !((r3 == 0) && (r2 == 1) && (r1 == 0) && (r0 == 0));
+            result[0] = ~r1 & HALF_MASK;
+            result[1] = ~r0 & HALF_MASK;
+        } else {
+            overflow = (r2 | r3) != 0;
+            result[0] = r1;
+            result[1] = r0;
+        }
+
+        return overflow;
+    }
+
+    /**
+     * Arithmetic inverse operation
+     */
+    public static void negate(
+        final long high,
+        final long low,
+        final long[] result
+    ) {
+        result[0] = ~high & HALF_MASK;
+        result[1] = ~low & HALF_MASK;
+    }
+
+
+    //  Shift Operations -----------------------------------------------------------------------------------------------------------
+
+    /**
+     * Does an algebraic shift left - the sign bit is never altered.
+     */
+    public static void leftShiftAlgebraic(
+        final long high,
+        final long low,
+        final int count,
+        final long[] result
+    ) {
+        if (count < 0) {
+            rightShiftAlgebraic(high, low, -count, result);
+        } else {
+            boolean negative = isNegative(high, low);
+            leftShiftLogical(high, low, count, result);
+            if (count > 0) {
+                result[0] = negative ? (result[0] | HALF_NEGATIVE_BIT) : (result[0] & ~HALF_NEGATIVE_BIT);
+            }
+        }
+    }
+
+    /**
+     * Shifts the given 72-bit value left, with bit[0] rotating to bit[71] at each iteration.
+     */
+    public static void leftShiftCircular(
+        final long high,
+        final long low,
+        final int count,
+        final long[] result
+    ) {
+        if (count < 0) {
+            rightShiftCircular(high, low, -count, result);
+        } else {
+            int actualCount = count % 72;
+            leftShiftLogical(high, low, actualCount, result);
+            long resHigh = result[0];
+            long resLow = result[1];
+            rightShiftLogical(high, low, 72 - actualCount, result);
+            result[0] |= resHigh;
+            result[1] |= resLow;
+        }
+    }
+
+    /**
+     * Shifts the given 72-bit value left by a number of bits, with zeros shifted in from the right
+     */
+    public static void leftShiftLogical(
+        final long high,
+        final long low,
+        final int count,
+        final long[] result
+    ) {
+        if (count < 0) {
+            rightShiftLogical(high, low, -count, result);
+        } else if (count == 0) {
+            result[0] = high;
+            result[1] = low;
+        } else if (count > 71) {
+            result[0] = 0;
+            result[1] = 0;
+        } else if (count >= 36) {
+            result[0] = (low << (count - 36)) & HALF_MASK;
+            result[1] = 0;
+        } else {
+            result[0] = ((high << count) | (low >>> (36 - count))) & HALF_MASK;
+            result[1] = (low << count) & HALF_MASK;
+        }
+    }
+
+    /**
+     * Does an algebraic shift right - the sign bit is preserved, and is propagated to the right.
+     */
+    public static void rightShiftAlgebraic(
+        final long high,
+        final long low,
+        final int count,
+        final long[] result
+    ) {
+        if (count < 0) {
+            leftShiftAlgebraic(high, low, -count, result);
+        } else if (!isNegative(high, low)) {
+            rightShiftLogical(high, low, count, result);
+        } else if (count > 71) {
+            result[0] = HALF_MASK;
+            result[1] = HALF_MASK;
+        } else {
+            //  shift the complement in logically, then complement it back so that ones are shifted in
+            rightShiftLogical(~high & HALF_MASK, ~low & HALF_MASK, count, result);
+            result[0] = ~result[0] & HALF_MASK;
+            result[1] = ~result[1] & HALF_MASK;
+        }
+    }
+
+    /**
+     * Shifts the given 72-bit value right, with bit[71] rotating to bit[0] at each iteration.
+     */
+    public static void rightShiftCircular(
+        final long high,
+        final long low,
+        final int count,
+        final long[] result
+    ) {
+        if (count < 0) {
+            leftShiftCircular(high, low, -count, result);
+        } else {
+            int actualCount = count % 72;
+            rightShiftLogical(high, low, actualCount, result);
+            long resHigh = result[0];
+            long resLow = result[1];
+            leftShiftLogical(high, low, 72 - actualCount, result);
+            result[0] |= resHigh;
+            result[1] |= resLow;
+        }
+    }
+
+    /**
+     * Shifts the given 72-bit value right by a number of bits, with zeros shifted in from the left
+     */
+    public static void rightShiftLogical(
+        final long high,
+        final long low,
+        final int count,
+        final long[] result
+    ) {
+        if (count < 0) {
+            leftShiftLogical(high, low, -count, result);
+        } else if (count == 0) {
+            result[0] = high;
+            result[1] = low;
+        } else if (count > 71) {
+            result[0] = 0;
+            result[1] = 0;
+        } else if (count >= 36) {
+            result[0] = 0;
+            result[1] = high >>> (count - 36);
+        } else {
+            result[0] = high >>> count;
+            result[1] = ((low >>> count) | (high << (36 - count))) & HALF_MASK;
+        }
+    }
+
+
+    //  Helpers --------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Compares two non-negative 72-bit quantities
+     */
+    private static int compareMagnitudes(
+        final long high1,
+        final long low1,
+        final long high2,
+        final long low2
+    ) {
+        if (high1 != high2) {
+            return (high1 < high2) ? -1 : 1;
+        } else if (low1 != low2) {
+            return (low1 < low2) ? -1 : 1;
+        } else {
+            return 0;
+        }
+    }
+
+    /**
+     * Produces bits 36 through 71 of the product of two 36-bit unsigned values
+     */
+    private static long multiplyLimbsHigh(
+        final long factor1,
+        final long factor2
+    ) {
+        long hi = Math.multiplyHigh(factor1, factor2);
+        long lo = factor1 * factor2;
+        return (hi << 28) | (lo >>> 36);
+    }
 }
@@ -45,19 +45,19 @@ public class FloatingPointComponents {
     private static final int W36_HIGHEST_EXPONENT = 127;
     private static final long W36_NEGATIVE_ZERO = 0_777777_777777L;
 
+    //  72-bit values are handled as a pair of 36-bit halves - the characteristic and the high-order 24 bits
+    //  of the mantissa are in the high half, and the low-order 36 bits of the mantissa are in the low half.
     private static final int DW36_CHARACTERISTIC_BITS = 11;
     static final int DW36_EXPONENT_BIAS = 1024;
-    private static final BigInteger DW36BI_EXPONENT_BIAS = BigInteger.valueOf(DW36_EXPONENT_BIAS);
     private static final int DW36_EXPONENT_BITS = 11;
     private static final int DW36_MANTISSA_BITS = 60;
-    private static final BigInteger DW36_CHARACTERISTIC_MASK = BigInteger.valueOf((1L << DW36_CHARACTERISTIC_BITS) - 1).shiftLeft(DW36_MANTISSA_BITS);
-    private static final BigInteger DW36_MANTISSA_MASK = BigInteger.valueOf((1L << DW36_MANTISSA_BITS) - 1);
-    private static final BigInteger DW36_SIGN_BIT = BigInteger.ONE.shiftLeft(DW36_MANTISSA_BITS + DW36_EXPONENT_BITS);
-    private static final BigInteger DW36_FULL_MASK = DW36_CHARACTERISTIC_MASK.or(DW36_MANTISSA_MASK).or(DW36_SIGN_BIT);
+    private static final int DW36_HIGH_MANTISSA_BITS = DW36_MANTISSA_BITS - 36;
+    private static final long DW36_CHARACTERISTIC_MASK = (1L << DW36_CHARACTERISTIC_BITS) - 1;
+    private static final long DW36_HIGH_MANTISSA_MASK = (1L << DW36_HIGH_MANTISSA_BITS) - 1;
+    private static final long DW36_HALF_MASK = 0_777777_777777L;
+    private static final long DW36_HIGH_SIGN_BIT = 1L << (DW36_HIGH_MANTISSA_BITS + DW36_EXPONENT_BITS);
     private static final int DW36_LOWEST_EXPONENT = -1024;
     private static final int DW36_HIGHEST_EXPONENT = 1023;
-    private static final BigInteger DW36_NEGATIVE_ZERO = BigInteger.valueOf(0_777777_777777L).shiftLeft(36).or(BigInteger.valueOf(0_777777_777777L));
-    private static final BigInteger DW36_POSITIVE_ZERO = BigInteger.ZERO;
 
     private static final int IEEE754_SINGLE_CHARACTERISTIC_BITS = 8;
     private static final int IEEE754_SINGLE_EXPONENT_BIAS = 127;
@@ -170,20 +170,30 @@ public class FloatingPointComponents {
     public FloatingPointComponents(
         final DoubleWord36 value
     ) {
-        _isNegative = value.isNegative();
-        BigInteger absValue = value.get();
-        if (_isNegative) {
-            absValue = absValue.xor(DoubleWord36.BIT_MASK);
-        }
+        this(DoubleWord36.getHigh(value.get()), DoubleWord36.getLow(value.get()));
+    }
+
+    /**
+     * Creates a not-necessarily-normalized FPC from a 72-bit floating point value held as two 36-bit halves
+     * @param high most significant 36 bits of the value
+     * @param low least significant 36 bits of the value
+     */
+    public FloatingPointComponents(
+        final long high,
+        final long low
+    ) {
+        _isNegative = (high & DW36_HIGH_SIGN_BIT) != 0;
+        long absHigh = _isNegative ? (high ^ DW36_HALF_MASK) : high;
+        long absLow = _isNegative ? (low ^ DW36_HALF_MASK) : low;
 
-        if (absValue.equals(DW36_POSITIVE_ZERO)) {
+        if ((absHigh | absLow) == 0) {
             _integral = 0;
             _mantissa = 0;
             _exponent = 0;
         } else {
             _integral = 0;
-            _exponent = absValue.and(DW36_CHARACTERISTIC_MASK).shiftRight(DW36_MANTISSA_BITS).subtract(DW36BI_EXPONENT_BIAS).intValue();
-            _mantissa = absValue.and(DW36_MANTISSA_MASK).longValue();
+            _exponent = (int) ((absHigh >>> DW36_HIGH_MANTISSA_BITS) & DW36_CHARACTERISTIC_MASK) - DW36_EXPONENT_BIAS;
+            _mantissa = ((absHigh & DW36_HIGH_MANTISSA_MASK) << 36) | absLow;
         }
     }
 
@@ -194,13 +204,16 @@ public class FloatingPointComponents {
     public FloatingPointComponents(
         final BigInteger integerValue
     ) {
-        _isNegative = integerValue.compareTo(BigInteger.ZERO) < 0;
+        //  The common case is a value which fits in a long, for which there is no shifting to be done
+        _isNegative = integerValue.signum() < 0;
         BigInteger workingValue = integerValue.abs();
-        BigInteger highMask = BigInteger.valueOf(0xfff).shiftLeft(64);
         int exp = 0;
-        while (!workingValue.and(highMask).equals(BigInteger.ZERO)) {
-            workingValue = workingValue.shiftRight(1);
-            ++exp;
+        if (workingValue.bitLength() > 64) {
+            BigInteger highMask = BigInteger.valueOf(0xfff).shiftLeft(64);
+            while (workingValue.and(highMask).signum() != 0) {
+                workingValue = workingValue.shiftRight(1);
+                ++exp;
+            }
         }
         _integral = workingValue.longValue();
         _mantissa = 0;
@@ -334,11 +347,25 @@ public class FloatingPointComponents {
     public DoubleWord36 toDoubleWord36(
     ) throws CharacteristicOverflowException,
              CharacteristicUnderflowException {
-        BigInteger rawBits;
+        long[] result = new long[2];
+        toDoubleWord36(result);
+        return new DoubleWord36(result[0], result[1]);
+    }
+
+    /**
+     * As above, but the 72-bit result is stored as two 36-bit halves in the given array, and nothing is allocated
+     * (other than for normalizing a value which is not already normalized).
+     * @param result result[0] receives the most significant 36 bits, result[1] the least significant 36 bits
+     */
+    public void toDoubleWord36(
+        final long[] result
+    ) throws CharacteristicOverflowException,
+             CharacteristicUnderflowException {
         FloatingPointComponents normalized = normalizeNoThrow();
 
         if ((_integral == 0) && (_mantissa == 0)) {
-            rawBits = _isNegative ? DW36_NEGATIVE_ZERO : DW36_NEGATIVE_ZERO;
+            result[0] = DW36_HALF_MASK;
+            result[1] = DW36_HALF_MASK;
         } else {
             if (normalized._exponent < DW36_LOWEST_EXPONENT) {
                 throw new CharacteristicUnderflowException();
@@ -346,22 +373,19 @@ public class FloatingPointComponents {
                 throw new CharacteristicOverflowException();
             }
 
+            //  Our internal mantissa is exactly the size of the DoubleWord36 mantissa, so no shifting is needed
             long biasedExponent = normalized._exponent + DW36_EXPONENT_BIAS;
-            BigInteger sizedMantissa = BigInteger.valueOf(normalized._mantissa);
-            int shift = MANTISSA_BITS - DW36_MANTISSA_BITS;
-            if (shift < 0) {
-                sizedMantissa = sizedMantissa.shiftLeft(-shift);
-            } else if (shift > 0){
-                sizedMantissa = sizedMantissa.shiftRight(shift);
-            }
-
-            rawBits = BigInteger.valueOf(biasedExponent).shiftLeft(DW36_MANTISSA_BITS).or(sizedMantissa);
+            long sizedMantissa = normalized._mantissa;
+            long high = (biasedExponent << DW36_HIGH_MANTISSA_BITS) | (sizedMantissa >>> 36);
+            long low = sizedMantissa & DW36_HALF_MASK;
             if (normalized._isNegative) {
-                rawBits = rawBits.xor(DW36_FULL_MASK);
+                high ^= DW36_HALF_MASK;
+                low ^= DW36_HALF_MASK;
             }
-        }
 
-        return new DoubleWord36(rawBits);
+            result[0] = high;
+            result[1] = low;
+        }
     }
 
     /**
@@ -633,55 +657,54 @@ public class FloatingPointComponents {
 
         //  Zeros are out of the way.  Downshift the mantissas until the LSB is non-zero.
         //  Keep track of positions right of the decimal point
-        long thisTempMantissa = factor1Norm._mantissa;
-        int thisDecimals = MANTISSA_BITS;
-        while ((thisTempMantissa & 01) == 0) {
-            thisTempMantissa >>= 1;
-            --thisDecimals;
-        }
+        int thisShift = Long.numberOfTrailingZeros(factor1Norm._mantissa);
+        long thisTempMantissa = factor1Norm._mantissa >>> thisShift;
+        int thisDecimals = MANTISSA_BITS - thisShift;
 
-        long operandTempMantissa = factor2Norm._mantissa;
-        int operandDecimals = MANTISSA_BITS;
-        while ((operandTempMantissa & 01) == 0) {
-            operandTempMantissa >>= 1;
-            --operandDecimals;
-        }
+        int operandShift = Long.numberOfTrailingZeros(factor2Norm._mantissa);
+        long operandTempMantissa = factor2Norm._mantissa >>> operandShift;
+        int operandDecimals = MANTISSA_BITS - operandShift;
 
         //  Calculate the resulting exponent and mantissa.
-        //  Note that, since both adjusted factors have their LSB's set,
-        //  the result is guaranteed to also have its LSB set.
-        BigInteger result = BigInteger.valueOf(thisTempMantissa).multiply(BigInteger.valueOf(operandTempMantissa));
+        //  The product of two 60-bit values may have as many as 120 significant bits, so it is developed
+        //  as a 128-bit value in productHigh|productLow.  Note that, since both adjusted factors have their
+        //  LSB's set, the result is guaranteed to also have its LSB set.
+        long productHigh = Math.multiplyHigh(thisTempMantissa, operandTempMantissa);
+        long productLow = thisTempMantissa * operandTempMantissa;
         int resultDecimals = thisDecimals + operandDecimals;
-        while (result.and(BigInteger.ONE).equals(BigInteger.ZERO)) {
-            result = result.shiftRight(1);
-        }
 
-        //  Realign based on resultDecimals
+        //  Realign based on resultDecimals.
+        //  Since each adjusted factor is less than 2^decimals, the realigned product always fits in 60 bits.
+        long result;
         if (resultDecimals < MANTISSA_BITS) {
-            result = result.shiftLeft(MANTISSA_BITS - resultDecimals);
+            result = productLow << (MANTISSA_BITS - resultDecimals);
         } else if (resultDecimals > MANTISSA_BITS) {
-            result = result.shiftRight(resultDecimals - MANTISSA_BITS);
+            int shift = resultDecimals - MANTISSA_BITS;
+            if (shift >= 64) {
+                result = productHigh >>> (shift - 64);
+            } else {
+                result = (productLow >>> shift) | (productHigh << (64 - shift));
+            }
+        } else {
+            result = productLow;
         }
 
-        //  Since we're multiplying a 60-bit value by another 60-bit value, the result could have as many
-        //  as 119 significant bits.  Downshift the current result until only the bottom 60 bits are non-zero.
+        //  Make sure only the bottom 60 bits are non-zero.
         int resultExponent = factor1Norm._exponent + factor2Norm._exponent;
-        BigInteger compMask = BigInteger.valueOf(MANTISSA_MASK).shiftLeft(MANTISSA_BITS);
-        while (!result.and(compMask).equals(BigInteger.ZERO)) {
-            result = result.shiftRight(1);
+        while ((result & ~MANTISSA_MASK) != 0) {
+            result >>>= 1;
             ++resultExponent;
         }
 
         //  Now normalize - if we did anything in the previous loop, there shouldn't be anything to do here.
-        BigInteger leftBit = BigInteger.valueOf(MANTISSA_LEFTMOST_BIT);
-        while (result.and(leftBit).equals(BigInteger.ZERO)) {
-            result = result.shiftLeft(1);
+        while ((result & MANTISSA_LEFTMOST_BIT) == 0) {
+            result <<= 1;
             --resultExponent;
         }
 
         //  All done.
         checkExponent(resultExponent);
-        return new FloatingPointComponents(resultNegative, resultExponent, 0L, result.longValue());
+        return new FloatingPointComponents(resultNegative, resultExponent, 0L, result);
     }
 
     /**
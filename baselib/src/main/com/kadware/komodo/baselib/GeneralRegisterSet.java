@@ -137,7 +137,8 @@ public class GeneralRegisterSet {
         "EA12",  "EA13",  "EA14",  "EA15",  "0174",  "0175",  "0176",  "0177",
     };
 
-    private final GeneralRegister[] _registers = new GeneralRegister[128];
+    //  Register content is held as raw 36-bit values, so that register reads and writes do not allocate.
+    private final long[] _registers = new long[128];
     private static final Logger LOGGER = LogManager.getLogger(GeneralRegisterSet.class);
 
     /**
@@ -145,15 +146,6 @@ public class GeneralRegisterSet {
      */
     public GeneralRegisterSet(
     ) {
-        for (int rx = 0; rx < 128; ++rx) {
-            if ((rx >= X0) && (rx <= X15)) {
-                _registers[rx] = new IndexRegister();
-            } else if ((rx >= EX0) && (rx <= EX15)) {
-                _registers[rx] = new IndexRegister();
-            } else {
-                _registers[rx] = new GeneralRegister();
-            }
-        }
     }
 
     /**
@@ -175,9 +167,12 @@ public class GeneralRegisterSet {
     }
 
     /**
-     * Retrieves a reference to a particular GeneralRegister object according to the given register index
+     * Retrieves a snapshot of a particular register according to the given register index.
+     * Index registers are returned as IndexRegister objects, all others as GeneralRegister objects.
+     * This allocates a new object on each call, so it is intended for tests, displays, and the like.
+     * The instruction processor should use getValue() and the raw index register accessors instead.
      * @param registerIndex index of the requested register
-     * @return reference as indicated above
+     * @return snapshot object as indicated above
      */
     public GeneralRegister getRegister(
         final int registerIndex
@@ -186,11 +181,15 @@ public class GeneralRegisterSet {
             throw new RuntimeException(String.format("registerIndex=%d", registerIndex));
         }
 
-        return _registers[registerIndex];
+        if (isIndexRegister(registerIndex)) {
+            return new IndexRegister(_registers[registerIndex]);
+        } else {
+            return new GeneralRegister(_registers[registerIndex]);
+        }
     }
 
     /**
-     * Sets the value of a particular GeneralRegister to the value of the provided GeneralRegister value parameter
+     * Sets the value of a particular GeneralRegister
      * @param registerIndex indicates which GR is to be set
      * @param value contains the value to which the GR is to be set
      */
@@ -202,13 +201,93 @@ public class GeneralRegisterSet {
             throw new RuntimeException(String.format("registerIndex=%d", registerIndex));
         }
 
-        if ((registerIndex >= X0) && (registerIndex <= X15)) {
-            _registers[registerIndex] = new IndexRegister(value);
-        } else if ((registerIndex >= GeneralRegisterSet.EX0) && (registerIndex <= GeneralRegisterSet.EX15)) {
-            _registers[registerIndex] = new IndexRegister(value);
-        } else {
-            _registers[registerIndex] = new GeneralRegister(value);
-        }
+        _registers[registerIndex] = value & Word36.BIT_MASK;
+    }
+
+    /**
+     * Retrieves the raw 36-bit value of a particular register
+     * @param registerIndex index of the requested register
+     * @return register value
+     */
+    public long getValue(
+        final int registerIndex
+    ) {
+        return _registers[registerIndex];
+    }
+
+    /**
+     * Sets the raw 36-bit value of a particular register
+     * @param registerIndex indicates which GR is to be set
+     * @param value contains the value to which the GR is to be set
+     */
+    public void setValue(
+        final int registerIndex,
+        final long value
+    ) {
+        _registers[registerIndex] = value & Word36.BIT_MASK;
+    }
+
+    //  Index register accessors - these operate directly upon the raw value of the indicated register,
+    //  which is presumed to be an index register (although nothing prevents using them on other registers).
+
+    public long getXI(final int registerIndex)          { return IndexRegister.getXI(_registers[registerIndex]); }
+    public long getXI12(final int registerIndex)        { return IndexRegister.getXI12(_registers[registerIndex]); }
+    public long getXM(final int registerIndex)          { return IndexRegister.getXM(_registers[registerIndex]); }
+    public long getXM24(final int registerIndex)        { return IndexRegister.getXM24(_registers[registerIndex]); }
+    public long getSignedXI(final int registerIndex)    { return IndexRegister.getSignedXI(_registers[registerIndex]); }
+    public long getSignedXI12(final int registerIndex)  { return IndexRegister.getSignedXI12(_registers[registerIndex]); }
+    public long getSignedXM(final int registerIndex)    { return IndexRegister.getSignedXM(_registers[registerIndex]); }
+    public long getSignedXM24(final int registerIndex)  { return IndexRegister.getSignedXM24(_registers[registerIndex]); }
+
+    public void setXI(
+        final int registerIndex,
+        final long value
+    ) {
+        _registers[registerIndex] = IndexRegister.setXI(_registers[registerIndex], value);
+    }
+
+    public void setXI12(
+        final int registerIndex,
+        final long value
+    ) {
+        _registers[registerIndex] = IndexRegister.setXI12(_registers[registerIndex], value);
+    }
+
+    public void setXM(
+        final int registerIndex,
+        final long value
+    ) {
+        _registers[registerIndex] = IndexRegister.setXM(_registers[registerIndex], value);
+    }
+
+    public void setXM24(
+        final int registerIndex,
+        final long value
+    ) {
+        _registers[registerIndex] = IndexRegister.setXM24(_registers[registerIndex], value);
+    }
+
+    /**
+     * Increments the modifier portion of the indicated index register by its increment portion.
+     * @param registerIndex indicates the index register
+     * @param twentyFourBitMode true for 24-bit modifier and 12-bit increment, false for 18-bit modifier and increment
+     */
+    public void incrementModifier(
+        final int registerIndex,
+        final boolean twentyFourBitMode
+    ) {
+        long value = _registers[registerIndex];
+        _registers[registerIndex] = twentyFourBitMode ? IndexRegister.incrementModifier24(value)
+                                                      : IndexRegister.incrementModifier18(value);
+    }
+
+    /**
+     * Indicates whether the given register index refers to one of the user or exec index registers
+     */
+    public static boolean isIndexRegister(
+        final int registerIndex
+    ) {
+        return ((registerIndex >= X0) && (registerIndex <= X15)) || ((registerIndex >= EX0) && (registerIndex <= EX15));
     }
 
     /**
@@ -246,7 +325,7 @@ public class GeneralRegisterSet {
                 StringBuilder sb = new StringBuilder();
                 sb.append(String.format("  %5s:", NAMES[rx]));
                 for (int ry = 0; ry < 8; ++ry) {
-                    sb.append(String.format(" %012o", _registers[rx + ry].getW()));
+                    sb.append(String.format(" %012o", _registers[rx + ry]));
                 }
                 sb.append("\n");
                 writer.write(sb.toString());
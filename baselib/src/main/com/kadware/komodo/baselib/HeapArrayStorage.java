@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2018-2020 by Kurt Duncan - All Rights Reserved
+ */
+
+package com.kadware.komodo.baselib;
+
+import java.util.Arrays;
+
+/**
+ * ArrayStorage which is simply a long[] on the Java heap.
+ * A slice is usually given its long[] directly, which is faster - this is for those cases where all access
+ * must go through the ArrayStorage interface, such as the base of a CopyOnWriteArrayStorage.
+ */
+public class HeapArrayStorage implements ArrayStorage {
+
+    private final long[] _array;
+
+    /**
+     * Constructor
+     * @param size number of values
+     */
+    public HeapArrayStorage(
+        final long size
+    ) {
+        if ((size < 0) || (size > Integer.MAX_VALUE)) {
+            throw new RuntimeException(String.format("Invalid size=%d", size));
+        }
+
+        _array = new long[(int) size];
+    }
+
+    @Override
+    public ArrayStorage create(
+        final long size
+    ) {
+        return new HeapArrayStorage(size);
+    }
+
+    @Override
+    public void fill(
+        final long index,
+        final long count,
+        final long value
+    ) {
+        Arrays.fill(_array, (int) index, (int) (index + count), value);
+    }
+
+    @Override
+    public long get(
+        final long index
+    ) {
+        return _array[(int) index];
+    }
+
+    @Override
+    public long getSize() {
+        return _array.length;
+    }
+
+    @Override
+    public void set(
+        final long index,
+        final long value
+    ) {
+        _array[(int) index] = value;
+    }
+}
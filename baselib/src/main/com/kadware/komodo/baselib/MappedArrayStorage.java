@@ -0,0 +1,197 @@
+/*
+ * Copyright (c) 2018-2020 by Kurt Duncan - All Rights Reserved
+ */
+
+package com.kadware.komodo.baselib;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * ArrayStorage which is mapped from a file, so that its content outlives the process which created it.
+ * --
+ * The file begins with a one-page header, followed by the values in native byte order:
+ *      word 0:     MAGIC
+ *      word 1:     number of values in the store
+ * The file is never truncated - if a store is reopened with a smaller size, the trailing values simply become
+ * inaccessible, and if it is later reopened with a larger size they are zeroed.  Thus any other mappings of the same
+ * file (such as those held by older slices of a resized segment) remain valid for as long as they are referenced.
+ * --
+ * Writes become visible in the file as soon as they are made, so far as other mappings are concerned;
+ * force() must be invoked to ensure that they have reached the device before the image is relied upon.
+ */
+public class MappedArrayStorage implements ArrayStorage {
+
+    private static final long MAGIC = 0x4B4F4D4F_53544F52L;             //  "KOMOSTOR"
+    private static final int CHUNK_SHIFT = 27;                          //  128M values (1GB) per chunk
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final int HEADER_SIZE = 4096;
+
+    private final MappedByteBuffer _header;
+    private final MappedByteBuffer[] _buffers;
+    private final LongBuffer[] _chunks;
+    private final Path _path;
+    private final boolean _persistent;
+    private final long _size;
+
+    /**
+     * Opens (creating if necessary) the store in the given file
+     * @param path path of the file
+     * @param size number of values - if the file already holds fewer than this, the additional values are zeroed
+     * @throws IOException if the file cannot be opened or mapped
+     */
+    public MappedArrayStorage(
+        final Path path,
+        final long size
+    ) throws IOException {
+        this(path, size, true);
+    }
+
+    private MappedArrayStorage(
+        final Path path,
+        final long size,
+        final boolean persistent
+    ) throws IOException {
+        if (size < 0) {
+            throw new RuntimeException(String.format("Invalid size=%d", size));
+        }
+
+        _path = path;
+        _persistent = persistent;
+        _size = size;
+        _chunks = new LongBuffer[(int) ((size + CHUNK_SIZE - 1) >>> CHUNK_SHIFT)];
+        _buffers = new MappedByteBuffer[_chunks.length];
+
+        try (FileChannel channel = FileChannel.open(path,
+                                                    StandardOpenOption.CREATE,
+                                                    StandardOpenOption.READ,
+                                                    StandardOpenOption.WRITE)) {
+            _header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+            _header.order(ByteOrder.nativeOrder());
+            long previousSize = (_header.getLong(0) == MAGIC) ? _header.getLong(Long.BYTES) : 0;
+
+            long position = HEADER_SIZE;
+            for (int cx = 0; cx < _chunks.length; ++cx) {
+                int chunkBytes = (int) Math.min(CHUNK_SIZE, size - ((long) cx << CHUNK_SHIFT)) * Long.BYTES;
+                _buffers[cx] = channel.map(FileChannel.MapMode.READ_WRITE, position, chunkBytes);
+                _chunks[cx] = _buffers[cx].order(ByteOrder.nativeOrder()).asLongBuffer();
+                position += chunkBytes;
+            }
+
+            if (previousSize < size) {
+                fill(previousSize, size - previousSize, 0);
+            }
+
+            _header.putLong(0, MAGIC);
+            _header.putLong(Long.BYTES, size);
+        }
+    }
+
+    /**
+     * Opens an existing store at the size with which it was last opened
+     * @param path path of the file
+     * @return the store, or null if there is no such file or it does not contain a store
+     * @throws IOException if the file cannot be read or mapped
+     */
+    public static MappedArrayStorage open(
+        final Path path
+    ) throws IOException {
+        if (!Files.exists(path) || (Files.size(path) < HEADER_SIZE)) {
+            return null;
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(2 * Long.BYTES).order(ByteOrder.nativeOrder());
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            channel.read(header, 0);
+        }
+
+        if (header.getLong(0) != MAGIC) {
+            return null;
+        }
+
+        return new MappedArrayStorage(path, header.getLong(Long.BYTES));
+    }
+
+    /**
+     * Ensures that all values written so far have reached the file
+     */
+    public void force() {
+        for (MappedByteBuffer buffer : _buffers) {
+            buffer.force();
+        }
+        _header.force();
+    }
+
+    /**
+     * Path of the file from which the store is mapped
+     */
+    public Path getPath() {
+        return _path;
+    }
+
+    /**
+     * Indicates whether the file outlives this process (as opposed to a scratch store made by create())
+     */
+    public boolean isPersistent() {
+        return _persistent;
+    }
+
+    /**
+     * Creates a scratch store of the given size, mapped from an unlinked file in the same directory as this one.
+     * Its content does not persist - clients which want that should construct a store on a file of their choosing.
+     */
+    @Override
+    public ArrayStorage create(
+        final long size
+    ) {
+        try {
+            Path path = Files.createTempFile(_path.toAbsolutePath().getParent(), "komodo", ".scratch");
+            try {
+                return new MappedArrayStorage(path, size, false);
+            } finally {
+                Files.deleteIfExists(path);
+            }
+        } catch (IOException ex) {
+            throw new RuntimeException(String.format("Cannot create scratch storage beside %s:%s", _path, ex.getMessage()));
+        }
+    }
+
+    @Override
+    public void fill(
+        final long index,
+        final long count,
+        final long value
+    ) {
+        for (long vx = index; vx < index + count; ++vx) {
+            _chunks[(int) (vx >>> CHUNK_SHIFT)].put((int) (vx & CHUNK_MASK), value);
+        }
+    }
+
+    @Override
+    public long get(
+        final long index
+    ) {
+        return _chunks[(int) (index >>> CHUNK_SHIFT)].get((int) (index & CHUNK_MASK));
+    }
+
+    @Override
+    public long getSize() {
+        return _size;
+    }
+
+    @Override
+    public void set(
+        final long index,
+        final long value
+    ) {
+        _chunks[(int) (index >>> CHUNK_SHIFT)].put((int) (index & CHUNK_MASK), value);
+    }
+}
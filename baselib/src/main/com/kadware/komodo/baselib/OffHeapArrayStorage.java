@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2018-2020 by Kurt Duncan - All Rights Reserved
+ */
+
+package com.kadware.komodo.baselib;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * ArrayStorage which lives outside the Java heap, so that very large amounts of it neither inflate the heap
+ * nor lengthen garbage collection.
+ * --
+ * The values are kept in page-aligned direct buffers of up to CHUNK_SIZE values each, so that the store is not
+ * limited to the 2^31-1 values a single buffer (or array) can hold.
+ * If a huge page directory is given (i.e., a hugetlbfs mount point such as /dev/hugepages), the chunks are instead
+ * mapped from an unlinked file in that directory, so that they are backed by huge pages.  If that cannot be done,
+ * we say so and fall back to ordinary direct buffers.
+ * --
+ * There is no way to release the memory explicitly - it is released when the store is garbage collected,
+ * as is the case for a long[].
+ */
+public class OffHeapArrayStorage implements ArrayStorage {
+
+    private static final Logger LOGGER = LogManager.getLogger(OffHeapArrayStorage.class.getSimpleName());
+
+    private static final int CHUNK_SHIFT = 27;                          //  128M values (1GB) per chunk
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final int PAGE_SIZE = 4096;
+    private static final long HUGE_PAGE_SIZE = 2 * 1024 * 1024;
+
+    private final LongBuffer[] _chunks;
+    private final String _hugePageDirectory;        //  as requested, for create()
+    private final boolean _hugePageBacked;          //  true if we actually did get our chunks from _hugePageDirectory
+    private final long _size;
+
+    /**
+     * Constructor for a store backed by ordinary direct buffers
+     * @param size number of values
+     */
+    public OffHeapArrayStorage(
+        final long size
+    ) {
+        this(size, null);
+    }
+
+    /**
+     * Constructor
+     * @param size number of values
+     * @param hugePageDirectory hugetlbfs directory from which the store is to be mapped - null for ordinary direct buffers
+     */
+    public OffHeapArrayStorage(
+        final long size,
+        final String hugePageDirectory
+    ) {
+        if (size < 0) {
+            throw new RuntimeException(String.format("Invalid size=%d", size));
+        }
+
+        _size = size;
+        _hugePageDirectory = hugePageDirectory;
+        _chunks = new LongBuffer[(int) ((size + CHUNK_SIZE - 1) >>> CHUNK_SHIFT)];
+
+        boolean hugePageBacked = false;
+        if (hugePageDirectory != null) {
+            try {
+                mapChunks(hugePageDirectory);
+                hugePageBacked = true;
+            } catch (IOException ex) {
+                LOGGER.warn(String.format("Cannot map %d words from %s - using direct buffers instead:%s",
+                                          size,
+                                          hugePageDirectory,
+                                          ex.getMessage()));
+            }
+        }
+
+        if (!hugePageBacked) {
+            allocateChunks();
+        }
+        _hugePageBacked = hugePageBacked;
+    }
+
+    /**
+     * Allocates page-aligned direct buffers for all the chunks
+     */
+    private void allocateChunks() {
+        for (int cx = 0; cx < _chunks.length; ++cx) {
+            int chunkBytes = getChunkSize(cx) * Long.BYTES;
+            int pageBytes = (chunkBytes + PAGE_SIZE - 1) & ~(PAGE_SIZE - 1);
+            //  alignedSlice() trims both ends to a page boundary, so allow an extra page for the front
+            ByteBuffer buffer = ByteBuffer.allocateDirect(pageBytes + PAGE_SIZE).alignedSlice(PAGE_SIZE);
+            _chunks[cx] = buffer.limit(chunkBytes).slice().order(ByteOrder.nativeOrder()).asLongBuffer();
+        }
+    }
+
+    /**
+     * Maps all the chunks from a temporary file in the given directory, which is unlinked as soon as we are done -
+     * the mappings remain valid until the buffers are garbage collected.
+     * Each mapping is rounded up to a multiple of the huge page size, as hugetlbfs requires.
+     */
+    private void mapChunks(
+        final String hugePageDirectory
+    ) throws IOException {
+        Path path = Files.createTempFile(Paths.get(hugePageDirectory), "komodo", ".storage");
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long position = 0;
+            for (int cx = 0; cx < _chunks.length; ++cx) {
+                int chunkBytes = getChunkSize(cx) * Long.BYTES;
+                long mappedBytes = (chunkBytes + HUGE_PAGE_SIZE - 1) & ~(HUGE_PAGE_SIZE - 1);
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, position, mappedBytes);
+                _chunks[cx] = buffer.limit(chunkBytes).slice().order(ByteOrder.nativeOrder()).asLongBuffer();
+                position += mappedBytes;
+            }
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    /**
+     * Number of values in the indicated chunk - all but the last are full
+     */
+    private int getChunkSize(
+        final int chunkIndex
+    ) {
+        return (int) Math.min(CHUNK_SIZE, _size - ((long) chunkIndex << CHUNK_SHIFT));
+    }
+
+    /**
+     * Indicates whether the store is actually backed by huge pages
+     */
+    public boolean isHugePageBacked() {
+        return _hugePageBacked;
+    }
+
+    @Override
+    public ArrayStorage create(
+        final long size
+    ) {
+        return new OffHeapArrayStorage(size, _hugePageDirectory);
+    }
+
+    @Override
+    public void fill(
+        final long index,
+        final long count,
+        final long value
+    ) {
+        for (long vx = index; vx < index + count; ++vx) {
+            _chunks[(int) (vx >>> CHUNK_SHIFT)].put((int) (vx & CHUNK_MASK), value);
+        }
+    }
+
+    @Override
+    public long get(
+        final long index
+    ) {
+        return _chunks[(int) (index >>> CHUNK_SHIFT)].get((int) (index & CHUNK_MASK));
+    }
+
+    @Override
+    public long getSize() {
+        return _size;
+    }
+
+    @Override
+    public void set(
+        final long index,
+        final long value
+    ) {
+        _chunks[(int) (index >>> CHUNK_SHIFT)].put((int) (index & CHUNK_MASK), value);
+    }
+}
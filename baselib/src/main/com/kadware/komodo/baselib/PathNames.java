@@ -26,6 +26,7 @@ public class PathNames {
     public static final String CONFIG_ROOT_DIRECTORY = getTag("CONFIG_DIR", BASE_DIRECTORY + "config/");
     public static final String DISKS_ROOT_DIRECTORY = getTag("DISKS_DIR", BASE_DIRECTORY + "disks/");
     public static final String LOGS_ROOT_DIRECTORY = getTag("LOGS_DIR", BASE_DIRECTORY + "logs/");
+    public static final String STORAGE_ROOT_DIRECTORY = getTag("STORAGE_DIR", BASE_DIRECTORY + "storage/");
     public static final String SYMBIONTS_ROOT_DIRECTORY = getTag("SYMBIONTS_DIR", BASE_DIRECTORY + "symbionts/");
     public static final String TAPES_ROOT_DIRECTORY = getTag("TAPES_DIR", BASE_DIRECTORY + "tapes/");
     public static final String WEB_ROOT_DIRECTORY = getTag("WEB_DIR", BASE_DIRECTORY + "web/");
@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2018-2020 by Kurt Duncan - All Rights Reserved
+ */
+
+package com.kadware.komodo.baselib;
+
+/**
+ * ArrayStorage which presents a number of separate extents of other slices as one contiguous store.
+ * --
+ * Each extent is a run of values in some base slice, which may be walked forward, backward, or not at all
+ * (in which case every value in the extent refers to the same value in the base slice).  An extent with no
+ * base slice skips its values - they read as zero, and anything written to them is discarded.
+ * Nothing is copied - gets and sets go straight through to the base slices.  This is how an IO which is
+ * described by several access control words is presented to a channel module as a single buffer.
+ */
+public class ScatterGatherArrayStorage implements ArrayStorage {
+
+    /**
+     * Describes one run of values within a base slice
+     */
+    public static class Extent {
+
+        public final ArraySlice _base;      //  null to skip the values
+        public final long _firstIndex;      //  index within the base slice of the first value of the extent
+        public final long _count;           //  number of values in the extent
+        public final int _step;             //  1 to walk forward, -1 to walk backward, 0 to stay put
+
+        public Extent(
+            final ArraySlice base,
+            final long firstIndex,
+            final long count,
+            final int step
+        ) {
+            long lastIndex = firstIndex + (count - 1) * step;
+            long baseSize = (base == null) ? 0 : base._length;
+            if ((count < 0) || (step < -1) || (step > 1)
+                || ((base != null)
+                    && (count > 0)
+                    && ((Math.min(firstIndex, lastIndex) < 0) || (Math.max(firstIndex, lastIndex) >= baseSize)))) {
+                String msg = String.format("Invalid extent baseSliceSize=%d firstIndex=%d count=%d step=%d",
+                                           baseSize,
+                                           firstIndex,
+                                           count,
+                                           step);
+                throw new RuntimeException(msg);
+            }
+
+            _base = base;
+            _firstIndex = firstIndex;
+            _count = count;
+            _step = step;
+        }
+    }
+
+    private final Extent[] _extents;
+    private int _lastExtent = 0;            //  extent most recently referenced - access is nearly always sequential
+    private final long _size;
+    private final long[] _starts;           //  index in this store of the first value of each extent
+
+    /**
+     * Constructor
+     * @param extents the extents to be presented, in order
+     */
+    public ScatterGatherArrayStorage(
+        final Extent[] extents
+    ) {
+        _extents = extents.clone();
+        _starts = new long[extents.length];
+        long size = 0;
+        for (int ex = 0; ex < extents.length; ++ex) {
+            _starts[ex] = size;
+            size += extents[ex]._count;
+        }
+        _size = size;
+    }
+
+    /**
+     * Finds the extent containing the value at the given index
+     */
+    private int findExtent(
+        final long index
+    ) {
+        if ((index < 0) || (index >= _size)) {
+            throw new ArrayIndexOutOfBoundsException(String.format("Index %d out of bounds for size %d", index, _size));
+        }
+
+        //  The field may be stale if another thread is also using us, but it is only a hint and we check it
+        int ex = _lastExtent;
+        if ((index >= _starts[ex]) && (index - _starts[ex] < _extents[ex]._count)) {
+            return ex;
+        }
+
+        //  Find the last extent starting at or before the index - empty extents share their starting index
+        //  with the next one, so this always lands on one which is not empty.
+        int low = 0;
+        int high = _starts.length - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (_starts[mid] <= index) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+
+        _lastExtent = low;
+        return low;
+    }
+
+    /**
+     * Number of extents in the store
+     */
+    public int getExtentCount() {
+        return _extents.length;
+    }
+
+    /**
+     * The store cannot create another of its own kind, so it creates a simple heap store
+     */
+    @Override
+    public ArrayStorage create(
+        final long size
+    ) {
+        return new HeapArrayStorage(size);
+    }
+
+    @Override
+    public void fill(
+        final long index,
+        final long count,
+        final long value
+    ) {
+        for (long vx = index; vx < index + count; ++vx) {
+            set(vx, value);
+        }
+    }
+
+    @Override
+    public long get(
+        final long index
+    ) {
+        int ex = findExtent(index);
+        Extent extent = _extents[ex];
+        if (extent._base == null) {
+            return 0;
+        }
+        return extent._base.get(extent._firstIndex + (index - _starts[ex]) * extent._step);
+    }
+
+    @Override
+    public long getSize() {
+        return _size;
+    }
+
+    @Override
+    public void set(
+        final long index,
+        final long value
+    ) {
+        int ex = findExtent(index);
+        Extent extent = _extents[ex];
+        if (extent._base != null) {
+            extent._base.set(extent._firstIndex + (index - _starts[ex]) * extent._step, value);
+        }
+    }
+}
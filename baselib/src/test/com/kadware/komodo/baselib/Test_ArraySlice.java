@@ -4,14 +4,18 @@
 
 package com.kadware.komodo.baselib;
 
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import org.apache.logging.log4j.Level;
 import org.apache.logging.log4j.Marker;
 import org.apache.logging.log4j.message.Message;
 import org.junit.Test;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 
 public class Test_ArraySlice {
 
@@ -32,6 +36,29 @@ public class Test_ArraySlice {
         }
     }
 
+    /**
+     * Sparse storage, so that we can exercise slices beyond 2^31 values without actually having the memory
+     */
+    private static class SparseStorage implements ArrayStorage {
+
+        final Map<Long, Long> _values = new HashMap<>();
+        final long _size;
+
+        SparseStorage(long size) { _size = size; }
+
+        @Override public ArrayStorage create(long size) { return new SparseStorage(size); }
+        @Override public long get(long index) { return _values.getOrDefault(index, 0L); }
+        @Override public long getSize() { return _size; }
+        @Override public void set(long index, long value) { _values.put(index, value); }
+
+        @Override
+        public void fill(long index, long count, long value) {
+            for (long vx = index; vx < index + count; ++vx) {
+                set(vx, value);
+            }
+        }
+    }
+
     @Test
     public void testConstructor1() {
         long[] base = new long[8];
@@ -160,6 +187,70 @@ public class Test_ArraySlice {
         assertArrayEquals(comp, view);
     }
 
+    //  off-heap storage
+
+    @Test
+    public void offHeap_Coherency() {
+        ArrayStorage storage = new OffHeapArrayStorage(16);
+        ArraySlice slice1 = new ArraySlice(storage, 4, 8);
+        ArraySlice slice2 = new ArraySlice(storage, 2, 10);
+        ArraySlice slice3 = new ArraySlice(slice2, 2, 8);
+        for (int ax = 0; ax < 8; ++ax) {
+            slice1.set(ax, ax);
+        }
+        for (int ax = 2; ax < 10; ++ax) {
+            assertEquals(ax - 2, slice2.get(ax));
+        }
+        for (int ax = 0; ax < 8; ++ax) {
+            assertEquals(ax, slice3.get(ax));
+        }
+        assertNull(slice3._array);
+    }
+
+    @Test
+    public void offHeap_LoadAndGetAll() {
+        long[] base = { 2, 4, 6, 8, 10, 12, 14, 16, 18, 20 };
+        long[] comp = { 0, 0, 0, 0, 6, 8, 10, 12, 14, 16, 0, 0 };
+        ArraySlice slice = new ArraySlice(new OffHeapArrayStorage(12), 0, 12);
+        slice.load(base, 2, 6, 4);
+        assertArrayEquals(comp, slice.getAll());
+        assertEquals(new ArraySlice(comp), slice);
+
+        slice.clear();
+        assertArrayEquals(new long[12], slice.getAll());
+    }
+
+    @Test
+    public void offHeap_CopyOf() {
+        ArraySlice slice = new ArraySlice(new OffHeapArrayStorage(4), 0, 4);
+        for (int ax = 0; ax < 4; ++ax) {
+            slice.set(ax, 0_777777_000000L + ax);
+        }
+
+        ArraySlice copy = slice.copyOf(6);
+        assertNotNull(copy._storage);
+        assertArrayEquals(new long[]{ 0_777777_000000L, 0_777777_000001L, 0_777777_000002L, 0_777777_000003L, 0, 0 },
+                          copy.getAll());
+    }
+
+    @Test
+    public void offHeap_Pack() {
+        long[] rawSource = {
+            0_010203_040506L,
+            0_222324_252627L,
+        };
+
+        ArraySlice heapSource = new ArraySlice(rawSource);
+        ArraySlice offHeapSource = new ArraySlice(new OffHeapArrayStorage(2), 0, 2);
+        offHeapSource.load(heapSource, 0);
+
+        byte[] heapDest = new byte[9];
+        byte[] offHeapDest = new byte[9];
+        assertEquals(2, heapSource.pack(heapDest));
+        assertEquals(2, offHeapSource.pack(offHeapDest));
+        assertArrayEquals(heapDest, offHeapDest);
+    }
+
     //  minalib logging
 
     @Test
@@ -273,7 +364,57 @@ public class Test_ArraySlice {
         assertEquals("Hello Dork..", as.toASCII(false));
     }
 
-    //  TODO more type A, and backward
+    @Test
+    public void translateA_roundTrip(
+    ) {
+        long[] rawSource = {
+            0_001002_003004L,
+            0_177176_175174L,
+            0_010020_030040L,
+            0_123023_323123L,
+            0_377000_377000L,
+        };
+
+        ArraySlice source = new ArraySlice(rawSource);
+        byte[] byteBuffer = new byte[22];
+        assertEquals(20, source.packQuarterWords(byteBuffer, 1));
+        assertEquals(0, byteBuffer[0]);
+        assertEquals(0001, byteBuffer[1]);
+        assertEquals((byte) 0377, byteBuffer[17]);
+        assertEquals(0, byteBuffer[21]);
+
+        ArraySlice dest = new ArraySlice(new long[5]);
+        assertEquals(20, dest.unpackQuarterWords(byteBuffer, 1, 20, false));
+        assertArrayEquals(rawSource, dest.getAll());
+    }
+
+    @Test
+    public void translateA_stopBit(
+    ) {
+        long[] rawSource = {
+            0_001002_003004L,
+            0_005006_407010L,
+            0_011012_013014L,
+        };
+
+        ArraySlice source = new ArraySlice(rawSource);
+        byte[] byteBuffer = new byte[12];
+        assertEquals(6, source.packQuarterWords(byteBuffer));
+        assertArrayEquals(new byte[]{ 01, 02, 03, 04, 05, 06, 0, 0, 0, 0, 0, 0 }, byteBuffer);
+    }
+
+    @Test
+    public void translateA_backward(
+    ) {
+        byte[] byteBuffer = {
+            (byte)'!', (byte)'d', (byte)'l', (byte)'r', (byte)'o', (byte)'W',
+            (byte)' ', (byte)'o', (byte)'l', (byte)'l', (byte)'e', (byte)'H'
+        };
+
+        ArraySlice as = new ArraySlice(new long[3]);
+        assertEquals(12, as.unpackQuarterWords(byteBuffer, true));
+        assertEquals("Hello World!", as.toASCII(false));
+    }
 
     //  type B pack and unpack -----------------------------------------------------------------------------------------------------
 
@@ -303,7 +444,39 @@ public class Test_ArraySlice {
         assertEquals("HELLO DORK@@", as.toFieldata(false));
     }
 
-    //  TODO more type B, and backward
+    @Test
+    public void translateB_roundTrip(
+    ) {
+        long[] rawSource = {
+            0_010203_040506L,
+            0_777776_757473L,
+            0_121314_151617L,
+        };
+
+        ArraySlice source = new ArraySlice(rawSource);
+        byte[] byteBuffer = new byte[18];
+        assertEquals(18, source.packSixthWords(byteBuffer));
+        assertEquals(01, byteBuffer[0]);
+        assertEquals(077, byteBuffer[6]);
+        assertEquals(017, byteBuffer[17]);
+
+        ArraySlice dest = new ArraySlice(new long[3]);
+        dest.unpackSixthWords(byteBuffer, false);
+        assertArrayEquals(rawSource, dest.getAll());
+    }
+
+    @Test
+    public void translateB_backward(
+    ) {
+        byte[] byteBuffer = {
+            (byte)055, (byte)011, (byte)021, (byte)027, (byte)024, (byte)034,
+            (byte)05, (byte)024, (byte)021, (byte)021, (byte)012, (byte)015
+        };
+
+        ArraySlice as = new ArraySlice(new long[2]);
+        as.unpackSixthWords(byteBuffer, true);
+        assertEquals("HELLO WORLD!", as.toFieldata(false));
+    }
 
     //  type C pack and unpack -----------------------------------------------------------------------------------------------------
 
@@ -439,7 +612,7 @@ public class Test_ArraySlice {
         ArraySlice array = new ArraySlice(new long[comp.length]);
         assertEquals(18, array.unpack(source, 3, 18, false));
 
-        long[] result = new long[array.getSize()];
+        long[] result = new long[(int) array.getSize()];
         for (int rx = 0; rx < result.length; ++rx) {
             result[rx] = array.get(rx);
         }
@@ -447,6 +620,48 @@ public class Test_ArraySlice {
         assertArrayEquals(comp, result);
     }
 
+    @Test
+    public void pack_unpack_roundTrip() {
+        long[] rawSource = {
+            0_010203_040506L,
+            0_222324_252627L,
+            0_776655_443322L,
+            0_454545_545454L,
+            0_777777_777777L,
+            0_123456_701234L,
+            0_000000_000001L,
+        };
+
+        ArraySlice source = new ArraySlice(rawSource);
+        byte[] byteBuffer = new byte[32];
+        assertEquals(7, source.pack(byteBuffer));
+
+        ArraySlice dest = new ArraySlice(new long[7]);
+        assertEquals(31, dest.unpack(byteBuffer, 0, 32, false));
+        assertArrayEquals(rawSource, dest.getAll());
+    }
+
+    @Test
+    public void unpack_Backward() {
+        long[] rawSource = {
+            0_010203_040506L,
+            0_222324_252627L,
+            0_776655_443322L,
+            0_454545_545454L,
+        };
+
+        byte[] byteBuffer = new byte[18];
+        new ArraySlice(rawSource).pack(byteBuffer);
+        byte[] reversed = new byte[18];
+        for (int bx = 0; bx < 18; ++bx) {
+            reversed[bx] = byteBuffer[17 - bx];
+        }
+
+        ArraySlice dest = new ArraySlice(new long[4]);
+        assertEquals(18, dest.unpack(reversed, 0, 18, true));
+        assertArrayEquals(rawSource, dest.getAll());
+    }
+
     @Test
     public void unpack_Truncated() {
         byte[] source = {
@@ -465,7 +680,7 @@ public class Test_ArraySlice {
         ArraySlice array = new ArraySlice(new long[comp.length]);
         assertEquals(13, array.unpack(source, 3, 18, false));
 
-        long[] result = new long[array.getSize()];
+        long[] result = new long[(int) array.getSize()];
         for (int rx = 0; rx < result.length; ++rx) {
             result[rx] = array.get(rx);
         }
@@ -487,7 +702,7 @@ public class Test_ArraySlice {
         ArraySlice array = new ArraySlice(new long[comp.length]);
         assertEquals(1, array.unpack(source, 0, 5, false));
 
-        long[] result = new long[array.getSize()];
+        long[] result = new long[(int) array.getSize()];
         for (int rx = 0; rx < result.length; ++rx) {
             result[rx] = array.get(rx);
         }
@@ -509,7 +724,7 @@ public class Test_ArraySlice {
         ArraySlice array = new ArraySlice(new long[comp.length]);
         assertEquals(5, array.unpack(source, 0, 5, false));
 
-        long[] result = new long[array.getSize()];
+        long[] result = new long[(int) array.getSize()];
         for (int rx = 0; rx < result.length; ++rx) {
             result[rx] = array.get(rx);
         }
@@ -526,7 +741,7 @@ public class Test_ArraySlice {
         ArraySlice array = new ArraySlice(raw);
         assertEquals(1, array.unpack(source, 0, 5, false));
 
-        long[] result = new long[array.getSize()];
+        long[] result = new long[(int) array.getSize()];
         for (int rx = 0; rx < result.length; ++rx) {
             result[rx] = array.get(rx);
         }
@@ -549,7 +764,7 @@ public class Test_ArraySlice {
         ArraySlice array = new ArraySlice(raw);
         assertEquals(7, array.unpack(source, 0, 7, false));
 
-        long[] result = new long[array.getSize()];
+        long[] result = new long[(int) array.getSize()];
         for (int rx = 0; rx < result.length; ++rx) {
             result[rx] = array.get(rx);
         }
@@ -571,7 +786,7 @@ public class Test_ArraySlice {
         ArraySlice array = new ArraySlice(new long[comp.length]);
         assertEquals(0, array.unpack(source, 0, 0, false));
 
-        long[] result = new long[array.getSize()];
+        long[] result = new long[(int) array.getSize()];
         for (int rx = 0; rx < result.length; ++rx) {
             result[rx] = array.get(rx);
         }
@@ -593,11 +808,32 @@ public class Test_ArraySlice {
         ArraySlice array = new ArraySlice(new long[comp.length]);
         assertEquals(0, array.unpack(source, source.length, 1, false));
 
-        long[] result = new long[array.getSize()];
+        long[] result = new long[(int) array.getSize()];
         for (int rx = 0; rx < result.length; ++rx) {
             result[rx] = array.get(rx);
         }
 
         assertArrayEquals(comp, result);
     }
+
+    @Test
+    public void largeStorage() {
+        SparseStorage storage = new SparseStorage(1L << 34);
+        ArraySlice segment = new ArraySlice(storage, 0, storage.getSize());
+        assertEquals(1L << 34, segment.getSize());
+
+        //  A bank beyond the int range of the segment, and a subset of it
+        ArraySlice bank = new ArraySlice(segment, 3L << 31, 1L << 32);
+        bank.set((1L << 32) - 1, 0_777L);
+        assertEquals(0_777L, storage.get((3L << 31) + (1L << 32) - 1));
+
+        ArraySlice subset = new ArraySlice(bank, 1L << 31, 1000);
+        assertEquals((3L << 31) + (1L << 31), subset._offset);
+        subset.set(10, 0_555L);
+        assertEquals(0_555L, bank.get((1L << 31) + 10));
+
+        long[] values = { 1, 2, 3 };
+        bank.load(values, 0, 3, (1L << 32) - 4);
+        assertArrayEquals(new long[]{ 1, 2, 3, 0_777L }, new ArraySlice(bank, (1L << 32) - 4, 4).getAll());
+    }
 }
@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2018-2020 by Kurt Duncan - All Rights Reserved
+ */
+
+package com.kadware.komodo.baselib;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Unit tests for BankDescriptor class
+ */
+public class Test_BankDescriptor {
+
+    @Test
+    public void limits_smallBank() {
+        BankDescriptor bd = new BankDescriptor(new ArraySlice(new long[8]), 0);
+        bd.setLowerLimitNormalized(01000);
+        bd.setUpperLimitNormalized(0777777);
+        assertFalse(bd.getLargeBank());
+        assertEquals(01000, bd.getLowerLimitNormalized());
+        assertEquals(0777777, bd.getUpperLimitNormalized());
+    }
+
+    @Test
+    public void limits_veryLargeBank() {
+        BankDescriptor bd = new BankDescriptor(new ArraySlice(new long[8]), 0);
+        bd.setLargeBank(true);
+        bd.setLowerLimitNormalized(0_100000);
+        bd.setUpperLimitNormalized(0_077777_777700L);
+        assertEquals(0_100000, bd.getLowerLimitNormalized());
+        assertEquals(0_077777_777700L, bd.getUpperLimitNormalized());
+        assertEquals(0_777_777777, bd.getUpperLimit());
+    }
+
+    @Test
+    public void baseAddress_largeOffset() {
+        BankDescriptor bd = new BankDescriptor(new ArraySlice(new long[8]), 0);
+        AbsoluteAddress address = new AbsoluteAddress(5, 3, 0xFFFF_FFF0L);
+        bd.setBaseAddress(address);
+
+        AbsoluteAddress result = bd.getBaseAddress();
+        assertEquals(address, result);
+        assertEquals(5, result._upiIndex);
+        assertEquals(0xFFFF_FFF0L, result._offset);
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2018-2020 by Kurt Duncan - All Rights Reserved
+ */
+
+package com.kadware.komodo.baselib;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Unit tests for CopyOnWriteArrayStorage class
+ */
+public class Test_CopyOnWriteArrayStorage {
+
+    private static final int SIZE = 10 * CopyOnWriteArrayStorage.PAGE_SIZE + 100;     //  last page is partial
+
+    private static CopyOnWriteArrayStorage createStorage() {
+        CopyOnWriteArrayStorage storage = new CopyOnWriteArrayStorage(new HeapArrayStorage(SIZE));
+        for (int vx = 0; vx < SIZE; ++vx) {
+            storage.set(vx, vx);
+        }
+        return storage;
+    }
+
+    @Test
+    public void noSnapshots_noFaults() {
+        CopyOnWriteArrayStorage storage = createStorage();
+        assertEquals(0, storage.getFaultCount());
+        assertEquals(SIZE - 1, storage.get(SIZE - 1));
+    }
+
+    @Test
+    public void snapshot_copiesOnlyWrittenPages() {
+        CopyOnWriteArrayStorage storage = createStorage();
+        CopyOnWriteArrayStorage.Snapshot snapshot = storage.takeSnapshot();
+        assertEquals(0, snapshot.getPreservedPageCount());
+
+        storage.set(5, -1);
+        storage.set(6, -2);
+        storage.set(SIZE - 1, -3);
+
+        assertEquals(2, snapshot.getPreservedPageCount());
+        assertEquals(2, storage.getFaultCount());
+        assertEquals(-1, storage.get(5));
+        assertEquals(5, snapshot.get(5));
+        assertEquals(6, snapshot.get(6));
+        assertEquals(SIZE - 1, snapshot.get(SIZE - 1));
+        assertEquals(CopyOnWriteArrayStorage.PAGE_SIZE, snapshot.get(CopyOnWriteArrayStorage.PAGE_SIZE));
+    }
+
+    @Test
+    public void restore() {
+        CopyOnWriteArrayStorage storage = createStorage();
+        CopyOnWriteArrayStorage.Snapshot snapshot = storage.takeSnapshot();
+        storage.fill(100, 3 * CopyOnWriteArrayStorage.PAGE_SIZE, 0_777L);
+        storage.set(SIZE - 1, 0);
+
+        storage.restoreSnapshot(snapshot);
+        for (int vx = 0; vx < SIZE; ++vx) {
+            assertEquals(vx, storage.get(vx));
+        }
+
+        //  The snapshot survives restoration, and can be restored again
+        storage.set(200, 0);
+        storage.restoreSnapshot(snapshot);
+        assertEquals(200, storage.get(200));
+    }
+
+    @Test
+    public void multipleSnapshots() {
+        CopyOnWriteArrayStorage storage = createStorage();
+        CopyOnWriteArrayStorage.Snapshot first = storage.takeSnapshot();
+        storage.set(10, 1010);
+        CopyOnWriteArrayStorage.Snapshot second = storage.takeSnapshot();
+        storage.set(10, 2020);
+        storage.set(20, 2020);
+
+        assertEquals(10, first.get(10));
+        assertEquals(20, first.get(20));
+        assertEquals(1010, second.get(10));
+        assertEquals(20, second.get(20));
+
+        //  Restoring the older snapshot must not disturb the newer one
+        storage.restoreSnapshot(first);
+        assertEquals(10, storage.get(10));
+        assertEquals(1010, second.get(10));
+        storage.restoreSnapshot(second);
+        assertEquals(1010, storage.get(10));
+        assertEquals(20, storage.get(20));
+
+        storage.discardSnapshot(first);
+        assertTrue(first.isDiscarded());
+        assertEquals(1, storage.getSnapshotCount());
+    }
+
+    @Test
+    public void detach() {
+        CopyOnWriteArrayStorage storage = createStorage();
+        CopyOnWriteArrayStorage.Snapshot snapshot = storage.takeSnapshot();
+        storage.detach();
+        assertEquals(11, snapshot.getPreservedPageCount());
+
+        //  The snapshot no longer depends upon the base storage
+        storage.getBase().fill(0, SIZE, 0);
+        for (int vx = 0; vx < SIZE; ++vx) {
+            assertEquals(vx, snapshot.get(vx));
+        }
+    }
+}
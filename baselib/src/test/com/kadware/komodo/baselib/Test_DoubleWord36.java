@@ -812,6 +812,100 @@ public class Test_DoubleWord36 {
     }
 
 
+    //  Primitive (high/low pair) operations ---------------------------------------------------------------------------------------
+
+    @Test
+    public void primitive_addPosNeg() {
+        long[] result = new long[2];
+        int flags = DoubleWord36.add(0, 1234, 0_777777_777777L, ~234L & 0_777777_777777L, result);
+        assertEquals(0L, result[0]);
+        assertEquals(1000L, result[1]);
+        assertEquals(DoubleWord36.ADD_CARRY, flags);
+    }
+
+    @Test
+    public void primitive_addCrossesHalves() {
+        long[] result = new long[2];
+        int flags = DoubleWord36.add(0, 0_777777_777777L, 0, 1, result);
+        assertEquals(1L, result[0]);
+        assertEquals(0L, result[1]);
+        assertEquals(0, flags);
+    }
+
+    @Test
+    public void primitive_addNegZeroNegZero() {
+        long[] result = new long[2];
+        DoubleWord36.add(0_777777_777777L, 0_777777_777777L, 0_777777_777777L, 0_777777_777777L, result);
+        assertTrue(DoubleWord36.isNegativeZero(result[0], result[1]));
+    }
+
+    @Test
+    public void primitive_multiplyLarge() {
+        //  (2^70 - 1) * 5 does not fit - compare the truncated product with the BigInteger form
+        BigInteger factor1 = BigInteger.ONE.shiftLeft(70).subtract(BigInteger.ONE);
+        BigInteger factor2 = BigInteger.valueOf(5);
+        long[] result = new long[2];
+        boolean overflow = DoubleWord36.multiply(DoubleWord36.getHigh(factor1),
+                                                 DoubleWord36.getLow(factor1),
+                                                 0,
+                                                 5,
+                                                 result);
+        assertTrue(overflow);
+        assertEquals(factor1.multiply(factor2).and(DoubleWord36.BIT_MASK), DoubleWord36.toBigInteger(result[0], result[1]));
+    }
+
+    @Test
+    public void primitive_multiplyNegative() {
+        BigInteger factor1 = DoubleWord36.getOnesComplement(BigInteger.valueOf(-123456789012345L));
+        BigInteger factor2 = BigInteger.valueOf(2000000);
+        long[] result = new long[2];
+        boolean overflow = DoubleWord36.multiply(DoubleWord36.getHigh(factor1),
+                                                 DoubleWord36.getLow(factor1),
+                                                 DoubleWord36.getHigh(factor2),
+                                                 DoubleWord36.getLow(factor2),
+                                                 result);
+        assertFalse(overflow);
+        assertEquals(BigInteger.valueOf(-123456789012345L).multiply(factor2),
+                     DoubleWord36.getTwosComplement(DoubleWord36.toBigInteger(result[0], result[1])));
+    }
+
+    @Test
+    public void primitive_divideLarge() {
+        BigInteger dividend = BigInteger.ONE.shiftLeft(70).add(BigInteger.valueOf(12345));
+        BigInteger divisor = DoubleWord36.getOnesComplement(BigInteger.valueOf(-1000003));
+        long[] quotient = new long[2];
+        long[] remainder = new long[2];
+        DoubleWord36.divide(DoubleWord36.getHigh(dividend),
+                            DoubleWord36.getLow(dividend),
+                            DoubleWord36.getHigh(divisor),
+                            DoubleWord36.getLow(divisor),
+                            quotient,
+                            remainder);
+
+        BigInteger[] expected = dividend.divideAndRemainder(BigInteger.valueOf(-1000003));
+        assertEquals(expected[0], DoubleWord36.getTwosComplement(DoubleWord36.toBigInteger(quotient[0], quotient[1])));
+        assertEquals(expected[1], DoubleWord36.getTwosComplement(DoubleWord36.toBigInteger(remainder[0], remainder[1])));
+    }
+
+    @Test(expected = ArithmeticException.class)
+    public void primitive_divideByNegativeZero() {
+        DoubleWord36.divide(0, 5, 0_777777_777777L, 0_777777_777777L, new long[2], new long[2]);
+    }
+
+    @Test
+    public void primitive_shifts() {
+        long[] result = new long[2];
+        DoubleWord36.leftShiftCircular(0_400000_000000L, 1, 1, result);
+        assertArrayEquals(new long[]{ 0, 03 }, result);
+        DoubleWord36.rightShiftAlgebraic(0_400000_000000L, 0, 37, result);
+        assertArrayEquals(new long[]{ 0_777777_777777L, 0_600000_000000L }, result);
+        DoubleWord36.rightShiftLogical(0_400000_000000L, 0, 37, result);
+        assertArrayEquals(new long[]{ 0, 0_200000_000000L }, result);
+        DoubleWord36.leftShiftLogical(0, 0_400000_000001L, 36, result);
+        assertArrayEquals(new long[]{ 0_400000_000001L, 0 }, result);
+    }
+
+
     //  Display --------------------------------------------------------------------------------------------------------------------
 
     @Test
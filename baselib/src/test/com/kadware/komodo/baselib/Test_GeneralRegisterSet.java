@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2018-2020 by Kurt Duncan - All Rights Reserved
+ */
+
+package com.kadware.komodo.baselib;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Unit tests for GeneralRegisterSet class
+ */
+public class Test_GeneralRegisterSet {
+
+    @Test
+    public void setValue_masks(
+    ) {
+        GeneralRegisterSet grs = new GeneralRegisterSet();
+        grs.setValue(GeneralRegisterSet.A0, 0_7_112233_445566L);
+        assertEquals(0_112233_445566L, grs.getValue(GeneralRegisterSet.A0));
+    }
+
+    @Test
+    public void getRegister_snapshotTypes(
+    ) {
+        GeneralRegisterSet grs = new GeneralRegisterSet();
+        grs.setRegister(GeneralRegisterSet.X5, 0_000002_001000L);
+        grs.setRegister(GeneralRegisterSet.EX5, 0_000003_002000L);
+        grs.setRegister(GeneralRegisterSet.A5, 0_777777_777776L);
+
+        GeneralRegister x5 = grs.getRegister(GeneralRegisterSet.X5);
+        assertTrue(x5 instanceof IndexRegister);
+        assertEquals(0_001000L, ((IndexRegister) x5).getXM());
+        assertTrue(grs.getRegister(GeneralRegisterSet.EX5) instanceof IndexRegister);
+        assertFalse(grs.getRegister(GeneralRegisterSet.A5) instanceof IndexRegister);
+        assertEquals(0_777777_777776L, grs.getRegister(GeneralRegisterSet.A5).getW());
+    }
+
+    @Test
+    public void indexAccessors_18(
+    ) {
+        GeneralRegisterSet grs = new GeneralRegisterSet();
+        grs.setValue(GeneralRegisterSet.X3, 0_777776_000010L);      //  XI = -1, XM = 8
+        assertEquals(0_777776L, grs.getXI(GeneralRegisterSet.X3));
+        assertEquals(010L, grs.getXM(GeneralRegisterSet.X3));
+        assertEquals(0_777777_777776L, grs.getSignedXI(GeneralRegisterSet.X3));
+
+        grs.incrementModifier(GeneralRegisterSet.X3, false);
+        assertEquals(07L, grs.getXM(GeneralRegisterSet.X3));
+        assertEquals(0_777776L, grs.getXI(GeneralRegisterSet.X3));
+
+        grs.setXM(GeneralRegisterSet.X3, 0_123456L);
+        grs.setXI(GeneralRegisterSet.X3, 02L);
+        assertEquals(0_000002_123456L, grs.getValue(GeneralRegisterSet.X3));
+    }
+
+    @Test
+    public void indexAccessors_24(
+    ) {
+        GeneralRegisterSet grs = new GeneralRegisterSet();
+        grs.setXI12(GeneralRegisterSet.EX2, 03L);
+        grs.setXM24(GeneralRegisterSet.EX2, 0_10_000000L);
+        assertEquals(0_0003_10_000000L, grs.getValue(GeneralRegisterSet.EX2));
+        assertEquals(03L, grs.getXI12(GeneralRegisterSet.EX2));
+        assertEquals(0_10_000000L, grs.getXM24(GeneralRegisterSet.EX2));
+
+        grs.incrementModifier(GeneralRegisterSet.EX2, true);
+        assertEquals(0_10_000003L, grs.getXM24(GeneralRegisterSet.EX2));
+        assertEquals(0_10_000003L, grs.getSignedXM24(GeneralRegisterSet.EX2));
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2018-2020 by Kurt Duncan - All Rights Reserved
+ */
+
+package com.kadware.komodo.baselib;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Unit tests for ScatterGatherArrayStorage class
+ */
+public class Test_ScatterGatherArrayStorage {
+
+    private static ArraySlice createBase(
+        final int size
+    ) {
+        ArraySlice slice = new ArraySlice(new long[size]);
+        for (int vx = 0; vx < size; ++vx) {
+            slice.set(vx, vx);
+        }
+        return slice;
+    }
+
+    @Test
+    public void gather() {
+        ArraySlice base0 = createBase(20);
+        ArraySlice base1 = createBase(20);
+        ArraySlice base2 = createBase(20);
+        ScatterGatherArrayStorage.Extent[] extents = {
+            new ScatterGatherArrayStorage.Extent(base0, 5, 10, 1),
+            new ScatterGatherArrayStorage.Extent(base1, 19, 0, 1),
+            new ScatterGatherArrayStorage.Extent(base1, 19, 20, -1),
+            new ScatterGatherArrayStorage.Extent(null, 0, 3, 0),
+            new ScatterGatherArrayStorage.Extent(base2, 7, 4, 0),
+        };
+
+        ArraySlice slice = new ArraySlice(new ScatterGatherArrayStorage(extents), 0, 37);
+        assertEquals(37, slice.getSize());
+        long[] values = slice.getAll();
+        for (int vx = 0; vx < 10; ++vx) {
+            assertEquals(5 + vx, values[vx]);
+        }
+        for (int vx = 0; vx < 20; ++vx) {
+            assertEquals(19 - vx, values[10 + vx]);
+        }
+        for (int vx = 30; vx < 33; ++vx) {
+            assertEquals(0, values[vx]);
+        }
+        for (int vx = 33; vx < 37; ++vx) {
+            assertEquals(7, values[vx]);
+        }
+
+        //  Random access works as well as sequential
+        assertEquals(7, slice.get(36));
+        assertEquals(5, slice.get(0));
+        assertEquals(0, slice.get(29));
+    }
+
+    @Test
+    public void scatter() {
+        ArraySlice base0 = new ArraySlice(new long[10]);
+        ArraySlice base1 = new ArraySlice(new long[10]);
+        ScatterGatherArrayStorage.Extent[] extents = {
+            new ScatterGatherArrayStorage.Extent(base0, 2, 4, 1),
+            new ScatterGatherArrayStorage.Extent(null, 0, 2, 0),
+            new ScatterGatherArrayStorage.Extent(base1, 9, 3, -1),
+            new ScatterGatherArrayStorage.Extent(base1, 0, 3, 0),
+        };
+
+        ArraySlice slice = new ArraySlice(new ScatterGatherArrayStorage(extents), 0, 12);
+        for (int vx = 0; vx < 12; ++vx) {
+            slice.set(vx, 100 + vx);
+        }
+
+        assertArrayEquals(new long[]{ 0, 0, 100, 101, 102, 103, 0, 0, 0, 0 }, base0._array);
+        assertArrayEquals(new long[]{ 111, 0, 0, 0, 0, 0, 0, 108, 107, 106 }, base1._array);
+    }
+
+    @Test
+    public void subsetOfSlice() {
+        ArraySlice base = new ArraySlice(createBase(100), 50, 10);
+        ScatterGatherArrayStorage storage =
+            new ScatterGatherArrayStorage(new ScatterGatherArrayStorage.Extent[]{
+                new ScatterGatherArrayStorage.Extent(base, 9, 10, -1) });
+        assertEquals(59, storage.get(0));
+        assertEquals(50, storage.get(9));
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void extentOutOfRange() {
+        new ScatterGatherArrayStorage.Extent(createBase(10), 2, 4, -1);
+    }
+
+    @Test(expected = ArrayIndexOutOfBoundsException.class)
+    public void indexOutOfRange() {
+        ScatterGatherArrayStorage storage =
+            new ScatterGatherArrayStorage(new ScatterGatherArrayStorage.Extent[]{
+                new ScatterGatherArrayStorage.Extent(createBase(10), 0, 10, 1) });
+        storage.get(10);
+    }
+}
@@ -15,6 +15,12 @@ public class HardwareConfiguration extends Configuration {
     @JsonProperty("format")                     public final int _format;
     @JsonProperty("copyright")                  public final String _copyright;
     @JsonProperty("notes")                      public final String[] _notes;
+    //  If true, IPs compile hot sequences of extended mode instructions into JVM classes
+    @JsonProperty("jitEnabled")                 public final Boolean _jitEnabled;
+    //  "Local" (the default) or "Interleaved" - how dynamic storage is placed among multiple MSPs
+    @JsonProperty("storagePolicy")              public final String _storagePolicy;
+    //  "PlatformThreads" (the default) or "VirtualThreads" - how channel modules, IOPs, and device completions are run
+    @JsonProperty("executionModel")             public final String _executionModel;
     @JsonProperty("processorDefinitions")       public final ProcessorDefinition[] _processorDefinitions;
 
     @JsonCreator
@@ -22,11 +28,17 @@ public class HardwareConfiguration extends Configuration {
         @JsonProperty("format")                 final int format,
         @JsonProperty("copyright")              final String copyright,
         @JsonProperty("notes")                  final String[] notes,
+        @JsonProperty("jitEnabled")             final Boolean jitEnabled,
+        @JsonProperty("storagePolicy")          final String storagePolicy,
+        @JsonProperty("executionModel")         final String executionModel,
         @JsonProperty("processorDefinitions")   final ProcessorDefinition[] processorDefinitions
     ) {
         _format = format;
         _copyright = copyright;
         _notes = Arrays.copyOf(notes, notes.length);
+        _jitEnabled = jitEnabled;
+        _storagePolicy = storagePolicy;
+        _executionModel = executionModel;
         _processorDefinitions = processorDefinitions;
     }
 }
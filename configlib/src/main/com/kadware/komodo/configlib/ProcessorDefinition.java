@@ -14,8 +14,18 @@ public class ProcessorDefinition extends Configuration {
 
     @JsonProperty("nodeName")               public final String _nodeName;
     @JsonProperty("processorType")          public final String _processorType;
+    //  For MainStorageProcessor and InstructionProcessor - locality group, such that IPs prefer storage from MSPs
+    //  in their own group.  Null for group zero.
+    @JsonProperty("affinityGroup")          public final Integer _affinityGroup;
     //  For MainStorageProcessor
     @JsonProperty("fixedStorageSize")       public Integer _fixedStorageSize;
+    //  "Heap" (the default), "OffHeap" or "Mapped" - for OffHeap, optionally a hugetlbfs mount point such as /dev/hugepages,
+    //  and for Mapped, optionally the directory which contains the storage files
+    @JsonProperty("storageType")            public final String _storageType;
+    @JsonProperty("hugePageDirectory")      public final String _hugePageDirectory;
+    @JsonProperty("storageDirectory")       public final String _storageDirectory;
+    //  true to allow the SP to take copy-on-write snapshots of the storage
+    @JsonProperty("snapshotsEnabled")       public final Boolean _snapshotsEnabled;
     //  For SystemProcessor
     @JsonProperty("credentials")            public Credentials _adminCredentials;
     @JsonProperty("httpPort")               public final Integer _httpPort;
@@ -25,14 +35,24 @@ public class ProcessorDefinition extends Configuration {
     public ProcessorDefinition(
         @JsonProperty("nodeName")           final String nodeName,
         @JsonProperty("processorType")      final String processorType,
+        @JsonProperty("affinityGroup")      final Integer affinityGroup,
         @JsonProperty("fixedStorageSize")   final Integer fixedStorageSize,
+        @JsonProperty("storageType")        final String storageType,
+        @JsonProperty("hugePageDirectory")  final String hugePageDirectory,
+        @JsonProperty("storageDirectory")   final String storageDirectory,
+        @JsonProperty("snapshotsEnabled")   final Boolean snapshotsEnabled,
         @JsonProperty("credentials")        final Credentials credentials,
         @JsonProperty("httpPort")           final Integer httpPort,
         @JsonProperty("httpsPort")          final Integer httpsPort
     ) {
         _nodeName = nodeName;
         _processorType = processorType;
+        _affinityGroup = affinityGroup;
         _fixedStorageSize = fixedStorageSize;
+        _storageType = storageType;
+        _hugePageDirectory = hugePageDirectory;
+        _storageDirectory = storageDirectory;
+        _snapshotsEnabled = snapshotsEnabled;
         _adminCredentials = credentials;
         _httpPort = httpPort;
         _httpsPort = httpsPort;
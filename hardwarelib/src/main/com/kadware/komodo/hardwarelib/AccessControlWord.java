@@ -64,7 +64,7 @@ public class AccessControlWord extends ArraySlice {
      */
     public AccessControlWord(
         final ArraySlice baseArray,
-        final int offset
+        final long offset
     ) {
         super(baseArray, offset, 3);
     }
@@ -83,7 +83,7 @@ public class AccessControlWord extends ArraySlice {
      */
     public static void populate(
         final ArraySlice arena,
-        final int offset,
+        final long offset,
         final AbsoluteAddress bufferAddress,
         final int bufferSize,
         final AddressModifier modifier
@@ -0,0 +1,1587 @@
+/*
+ * Copyright (c) 2018-2020 by Kurt Duncan - All Rights Reserved
+ */
+
+package com.kadware.komodo.hardwarelib;
+
+import com.kadware.komodo.baselib.GeneralRegisterSet;
+import com.kadware.komodo.baselib.InstructionWord;
+import com.kadware.komodo.baselib.Word36;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Generates JVM classes for compiled blocks of extended mode instructions, on behalf of InstructionProcessor.
+ * --
+ * A compiled block is a straight-line sequence of instructions, each of which is translated directly into bytecode -
+ * the generated code does not call the instruction handlers, and does none of the per-instruction bookkeeping
+ * of the interpreter.  The generated class implements InstructionProcessor.CompiledBlockCode, with an execute() method
+ * which works as follows:
+ *  The block is translated for the designator register bits (exec register set, processor privilege, exec 24-bit indexing,
+ *      quarter-word mode, and operation trap enable) which were in effect when it was compiled, and the processor only
+ *      runs it while those bits still apply.  Thus register indices, GRS access checks, immediate operands, and
+ *      partial-word selectors are all constants in the generated code.
+ *  The relative address of the next instruction, the relative address of the last instruction completed, and the number
+ *      of instructions completed are kept in locals.  When the block exits, it passes these to
+ *      ip.completeCompiledBlock(), which updates PAR and PPAR and charges the quantum timer, once for the whole run.
+ *  For each base register through which the block refers to storage, the bank's backing array, bias, and the ranges
+ *      of relative addresses which may be read and written are loaded into locals on entry (see
+ *      ip.getCompiledBank()).  A reference outside those ranges ends the block at that instruction, before the
+ *      instruction has done anything, so that the interpreter runs the instruction and raises the proper interrupt.
+ *  Skips and jumps to instructions within the block become branches.  A branch backwards checks the number of
+ *      instructions completed against the caller's limit, and checks the attention word, so that a loop within a block
+ *      cannot hold off interrupts or quantum timer expiry.  Any other jump leaves the block.
+ *  A store which lands within the bank based on B0 might have overwritten code, so it ends the block immediately
+ *      after the store, and the processor will check the block against storage before it next runs it.
+ * The class is defined as a hidden nestmate of InstructionProcessor, so that it has access to the private
+ * methods, fields, and nested classes referenced above.
+ * The generated code holds no state, so we keep it for any other processor (or any later compilation on the same
+ * processor) which compiles the same words at the same relative address under the same designator bits - this spares
+ * the JVM from loading, and more importantly warming up, another copy of the same class.
+ * --
+ * We write the class file directly, as the generated code needs only a small part of the instruction set,
+ * and we do not want to take a dependency upon a bytecode library for it.
+ */
+class BlockCompiler {
+
+    //  ----------------------------------------------------------------------------------------------------------------------------
+    //  Class attributes
+    //  ----------------------------------------------------------------------------------------------------------------------------
+
+    private static final int CLASS_FILE_MAJOR_VERSION = 55;     //  Java 11 - the first to support nestmates
+    private static final int MAX_GENERATED_CODE_ENTRIES = 4096;
+    private static final int MAX_CODE_LENGTH = 32767;           //  so that every branch offset fits in a goto
+
+    //  Reasons for leaving a block, as passed to InstructionProcessor.completeCompiledBlock()
+    static final int EXIT_BAILED = 0x01;                        //  an instruction must be run by the interpreter
+    static final int EXIT_CODE_STORED = 0x02;                   //  a store landed in the bank based on B0
+
+    //  Previously-generated code, keyed by the designator bits, relative address, and words of the block
+    private static final Map<String, Object> _generatedCode = new ConcurrentHashMap<>();
+
+    private static final int ACC_PUBLIC = 0x0001;
+    private static final int ACC_FINAL = 0x0010;
+    private static final int ACC_SUPER = 0x0020;
+
+    private static final int CONSTANT_UTF8 = 1;
+    private static final int CONSTANT_INTEGER = 3;
+    private static final int CONSTANT_LONG = 5;
+    private static final int CONSTANT_CLASS = 7;
+    private static final int CONSTANT_FIELDREF = 9;
+    private static final int CONSTANT_METHODREF = 10;
+    private static final int CONSTANT_NAME_AND_TYPE = 12;
+
+    private static final int OP_ACONST_NULL = 0x01;
+    private static final int OP_ICONST_0 = 0x03;
+    private static final int OP_LCONST_0 = 0x09;
+    private static final int OP_BIPUSH = 0x10;
+    private static final int OP_SIPUSH = 0x11;
+    private static final int OP_LDC_W = 0x13;
+    private static final int OP_LDC2_W = 0x14;
+    private static final int OP_ILOAD = 0x15;
+    private static final int OP_LLOAD = 0x16;
+    private static final int OP_ALOAD = 0x19;
+    private static final int OP_ALOAD_0 = 0x2a;
+    private static final int OP_LALOAD = 0x2f;
+    private static final int OP_ISTORE = 0x36;
+    private static final int OP_LSTORE = 0x37;
+    private static final int OP_ASTORE = 0x3a;
+    private static final int OP_LASTORE = 0x50;
+    private static final int OP_DUP = 0x59;
+    private static final int OP_IADD = 0x60;
+    private static final int OP_IAND = 0x7e;
+    private static final int OP_LAND = 0x7f;
+    private static final int OP_LOR = 0x81;
+    private static final int OP_LXOR = 0x83;
+    private static final int OP_IINC = 0x84;
+    private static final int OP_L2I = 0x88;
+    private static final int OP_LCMP = 0x94;
+    private static final int OP_IFEQ = 0x99;
+    private static final int OP_IFNE = 0x9a;
+    private static final int OP_IFGT = 0x9d;
+    private static final int OP_IFLE = 0x9e;
+    private static final int OP_IF_ICMPLT = 0xa1;
+    private static final int OP_IF_ICMPGE = 0xa2;
+    private static final int OP_IF_ICMPGT = 0xa3;
+    private static final int OP_IF_ICMPLE = 0xa4;
+    private static final int OP_IF_ACMPNE = 0xa6;
+    private static final int OP_GOTO = 0xa7;
+    private static final int OP_IRETURN = 0xac;
+    private static final int OP_RETURN = 0xb1;
+    private static final int OP_GETFIELD = 0xb4;
+    private static final int OP_INVOKEVIRTUAL = 0xb6;
+    private static final int OP_INVOKESPECIAL = 0xb7;
+    private static final int OP_INVOKESTATIC = 0xb8;
+
+    private static final int SAME_FRAME_EXTENDED = 251;
+    private static final int FULL_FRAME = 255;
+    private static final int ITEM_INTEGER = 1;
+    private static final int ITEM_LONG = 4;
+    private static final int ITEM_OBJECT = 7;
+
+    private static final String PACKAGE_NAME = "com/kadware/komodo/hardwarelib/";
+    private static final String PROCESSOR_CLASS = PACKAGE_NAME + "InstructionProcessor";
+    private static final String BANK_CLASS = PROCESSOR_CLASS + "$CompiledBank";
+    private static final String CODE_INTERFACE = PROCESSOR_CLASS + "$CompiledBlockCode";
+    private static final String GENERATED_CLASS = PROCESSOR_CLASS + "$GeneratedBlock";
+    private static final String GRS_CLASS = "com/kadware/komodo/baselib/GeneralRegisterSet";
+    private static final String INDEX_REGISTER_CLASS = "com/kadware/komodo/baselib/IndexRegister";
+    private static final String WORD36_CLASS = "com/kadware/komodo/baselib/Word36";
+    private static final String LONG_ARRAY = "[J";
+
+    private static final String EXECUTE_METHOD = "execute";
+    private static final String EXECUTE_DESCRIPTOR = "(L" + PROCESSOR_CLASS + ";I)I";
+
+    //  Locals of the execute() method - the long locals take two slots
+    private static final int LOCAL_IP = 1;
+    private static final int LOCAL_LIMIT = 2;               //  number of instructions after which we must not loop again
+    private static final int LOCAL_GRS = 3;
+    private static final int LOCAL_COUNT = 4;               //  number of instructions completed
+    private static final int LOCAL_PC = 5;                  //  relative address at which the processor is to continue
+    private static final int LOCAL_LAST_PC = 6;            //  relative address of the last instruction completed
+    private static final int LOCAL_FLAGS = 7;               //  EXIT_* flags
+    private static final int LOCAL_OPERAND = 8;             //  operand fetched from storage, GRS, or the instruction
+    private static final int LOCAL_VALUE = 10;              //  register value used with the operand
+    private static final int LOCAL_XREG = 12;               //  index register value
+    private static final int LOCAL_ADDRESS = 14;            //  indexed relative address
+    private static final int LOCAL_INDEX = 15;              //  index into the backing array for a store
+    private static final int LOCAL_CODE_ARRAY = 16;         //  backing array of the bank based on B0
+    private static final int LOCAL_CODE_LOWER = 17;         //  first index of the bank based on B0, within that array
+    private static final int LOCAL_CODE_UPPER = 18;         //  last index of the bank based on B0, within that array
+    private static final int LOCAL_FIRST_BANK = 19;
+
+    //  Locals for each base register through which the block refers to storage, relative to the first such local
+    private static final int BANK_ARRAY = 0;
+    private static final int BANK_BIAS = 1;
+    private static final int BANK_READ_LOWER = 2;
+    private static final int BANK_READ_UPPER = 3;
+    private static final int BANK_WRITE_LOWER = 4;
+    private static final int BANK_WRITE_UPPER = 5;
+    private static final int BANK_REFERENCES = 6;           //  number of references made through the base register
+    private static final int BANK_LOCALS = 7;
+
+    private static final int MAX_STACK = 10;
+    private static final long NEGATIVE_ONE_36 = 0_777777_777776L;
+
+    private final Map<String, Integer> _constantIndices = new HashMap<>();
+    private final ByteArrayOutputStream _constantPoolBytes = new ByteArrayOutputStream();
+    private final DataOutputStream _constantPool = new DataOutputStream(_constantPoolBytes);
+    private int _constantCount = 1;
+
+    private final ByteArrayOutputStream _codeBytes = new ByteArrayOutputStream();
+    private final DataOutputStream _code = new DataOutputStream(_codeBytes);
+    private final List<Label> _labels = new ArrayList<>();
+    private final List<Stub> _stubs = new ArrayList<>();
+
+    private final InstructionProcessor.Instruction[] _instructions;
+    private final long[] _words;
+    private final int _programCounter;
+    private final boolean _execRegisterSet;
+    private final boolean _exec24BitIndexing;
+    private final int _processorPrivilege;
+    private final boolean _quarterWordMode;
+    private final int[] _bankLocals = new int[32];          //  first local for each base register, -1 if unused
+    private final List<Integer> _baseRegisterIndices = new ArrayList<>();
+    private final boolean _hasStorageStores;
+    private final Label[] _instructionLabels;
+    private final Label _exitLabel = new Label();
+
+
+    //  ----------------------------------------------------------------------------------------------------------------------------
+    //  Nested classes
+    //  ----------------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * A location in the generated code, along with the branches which refer to it
+     */
+    private static class Label {
+
+        private int _offset = -1;
+        private final List<Integer> _branches = new ArrayList<>();      //  offsets of the branch opcodes
+    }
+
+    /**
+     * A piece of code at the end of the method, which sets up the locals for a particular exit and goes to the epilogue
+     */
+    private static class Stub {
+
+        private final Label _label = new Label();
+        private final int _programCounter;          //  where the processor is to continue
+        private final int _flags;                   //  EXIT_* flags
+        private final int _completedCounter;        //  relative address of an instruction which the stub completes, or -1
+
+        private Stub(
+            final int programCounter,
+            final int flags,
+            final int completedCounter
+        ) {
+            _programCounter = programCounter;
+            _flags = flags;
+            _completedCounter = completedCounter;
+        }
+    }
+
+    private interface ConstantWriter {
+        void write() throws IOException;
+    }
+
+
+    //  ----------------------------------------------------------------------------------------------------------------------------
+    //  Constructors
+    //  ----------------------------------------------------------------------------------------------------------------------------
+
+    private BlockCompiler(
+        final InstructionProcessor.Instruction[] instructions,
+        final long[] words,
+        final int programCounter,
+        final InstructionProcessor.DesignatorRegister designatorRegister
+    ) {
+        _instructions = instructions;
+        _words = words;
+        _programCounter = programCounter;
+        _execRegisterSet = designatorRegister.getExecRegisterSetSelected();
+        _exec24BitIndexing = designatorRegister.getExecutive24BitIndexingEnabled();
+        _processorPrivilege = designatorRegister.getProcessorPrivilege();
+        _quarterWordMode = designatorRegister.getQuarterWordModeEnabled();
+
+        boolean hasStorageStores = false;
+        int nextLocal = LOCAL_FIRST_BANK;
+        Arrays.fill(_bankLocals, -1);
+        for (int ix = 0; ix < words.length; ++ix) {
+            if (hasOperand(instructions[ix]) && isStorageReference(words[ix], _processorPrivilege)) {
+                int baseRegisterIndex = getBaseRegisterIndex(words[ix], _processorPrivilege);
+                if (_bankLocals[baseRegisterIndex] < 0) {
+                    _bankLocals[baseRegisterIndex] = nextLocal;
+                    _baseRegisterIndices.add(baseRegisterIndex);
+                    nextLocal += BANK_LOCALS;
+                }
+                hasStorageStores |= isStore(instructions[ix]);
+            }
+        }
+        _hasStorageStores = hasStorageStores;
+
+        _instructionLabels = new Label[words.length];
+        for (int ix = 0; ix < words.length; ++ix) {
+            _instructionLabels[ix] = new Label();
+        }
+    }
+
+
+    //  ----------------------------------------------------------------------------------------------------------------------------
+    //  Constant pool management
+    //  ----------------------------------------------------------------------------------------------------------------------------
+
+    private int addConstant(
+        final String key,
+        final int entries,
+        final ConstantWriter writer
+    ) throws IOException {
+        Integer index = _constantIndices.get(key);
+        if (index == null) {
+            writer.write();
+            index = _constantCount;
+            _constantCount += entries;
+            _constantIndices.put(key, index);
+        }
+        return index;
+    }
+
+    private int addClass(
+        final String internalName
+    ) throws IOException {
+        int nameIndex = addUtf8(internalName);
+        return addConstant("C:" + internalName, 1, () -> {
+            _constantPool.writeByte(CONSTANT_CLASS);
+            _constantPool.writeShort(nameIndex);
+        });
+    }
+
+    private int addFieldReference(
+        final String owner,
+        final String name,
+        final String descriptor
+    ) throws IOException {
+        int classIndex = addClass(owner);
+        int nameAndTypeIndex = addNameAndType(name, descriptor);
+        return addConstant("F:" + owner + "." + name + descriptor, 1, () -> {
+            _constantPool.writeByte(CONSTANT_FIELDREF);
+            _constantPool.writeShort(classIndex);
+            _constantPool.writeShort(nameAndTypeIndex);
+        });
+    }
+
+    private int addInteger(
+        final int value
+    ) throws IOException {
+        return addConstant("I:" + value, 1, () -> {
+            _constantPool.writeByte(CONSTANT_INTEGER);
+            _constantPool.writeInt(value);
+        });
+    }
+
+    private int addLong(
+        final long value
+    ) throws IOException {
+        return addConstant("J:" + value, 2, () -> {
+            _constantPool.writeByte(CONSTANT_LONG);
+            _constantPool.writeLong(value);
+        });
+    }
+
+    private int addMethodReference(
+        final String owner,
+        final String name,
+        final String descriptor
+    ) throws IOException {
+        int classIndex = addClass(owner);
+        int nameAndTypeIndex = addNameAndType(name, descriptor);
+        return addConstant("M:" + owner + "." + name + descriptor, 1, () -> {
+            _constantPool.writeByte(CONSTANT_METHODREF);
+            _constantPool.writeShort(classIndex);
+            _constantPool.writeShort(nameAndTypeIndex);
+        });
+    }
+
+    private int addNameAndType(
+        final String name,
+        final String descriptor
+    ) throws IOException {
+        int nameIndex = addUtf8(name);
+        int descriptorIndex = addUtf8(descriptor);
+        return addConstant("T:" + name + descriptor, 1, () -> {
+            _constantPool.writeByte(CONSTANT_NAME_AND_TYPE);
+            _constantPool.writeShort(nameIndex);
+            _constantPool.writeShort(descriptorIndex);
+        });
+    }
+
+    private int addUtf8(
+        final String value
+    ) throws IOException {
+        return addConstant("U:" + value, 1, () -> {
+            _constantPool.writeByte(CONSTANT_UTF8);
+            _constantPool.writeUTF(value);
+        });
+    }
+
+
+    //  ----------------------------------------------------------------------------------------------------------------------------
+    //  Bytecode emission
+    //  ----------------------------------------------------------------------------------------------------------------------------
+
+    private void branch(
+        final int opCode,
+        final Label label
+    ) throws IOException {
+        label._branches.add(_code.size());
+        _code.writeByte(opCode);
+        _code.writeShort(0);
+    }
+
+    private void getField(
+        final String owner,
+        final String name,
+        final String descriptor
+    ) throws IOException {
+        _code.writeByte(OP_GETFIELD);
+        _code.writeShort(addFieldReference(owner, name, descriptor));
+    }
+
+    private void increment(
+        final int local
+    ) throws IOException {
+        _code.writeByte(OP_IINC);
+        _code.writeByte(local);
+        _code.writeByte(1);
+    }
+
+    private void invokeStatic(
+        final String owner,
+        final String name,
+        final String descriptor
+    ) throws IOException {
+        _code.writeByte(OP_INVOKESTATIC);
+        _code.writeShort(addMethodReference(owner, name, descriptor));
+    }
+
+    private void invokeVirtual(
+        final String owner,
+        final String name,
+        final String descriptor
+    ) throws IOException {
+        _code.writeByte(OP_INVOKEVIRTUAL);
+        _code.writeShort(addMethodReference(owner, name, descriptor));
+    }
+
+    private void load(
+        final int opCode,
+        final int local
+    ) throws IOException {
+        _code.writeByte(opCode);
+        _code.writeByte(local);
+    }
+
+    private void place(
+        final Label label
+    ) {
+        label._offset = _code.size();
+        _labels.add(label);
+    }
+
+    private void pushInteger(
+        final int value
+    ) throws IOException {
+        if ((value >= -1) && (value <= 5)) {
+            _code.writeByte(OP_ICONST_0 + value);
+        } else if ((value >= Byte.MIN_VALUE) && (value <= Byte.MAX_VALUE)) {
+            _code.writeByte(OP_BIPUSH);
+            _code.writeByte(value);
+        } else if ((value >= Short.MIN_VALUE) && (value <= Short.MAX_VALUE)) {
+            _code.writeByte(OP_SIPUSH);
+            _code.writeShort(value);
+        } else {
+            _code.writeByte(OP_LDC_W);
+            _code.writeShort(addInteger(value));
+        }
+    }
+
+    private void pushLong(
+        final long value
+    ) throws IOException {
+        if ((value == 0) || (value == 1)) {
+            _code.writeByte(OP_LCONST_0 + (int) value);
+        } else {
+            _code.writeByte(OP_LDC2_W);
+            _code.writeShort(addLong(value));
+        }
+    }
+
+    private void store(
+        final int opCode,
+        final int local
+    ) throws IOException {
+        _code.writeByte(opCode);
+        _code.writeByte(local);
+    }
+
+    private Label stub(
+        final int programCounter,
+        final int flags,
+        final int completedCounter
+    ) {
+        Stub stub = new Stub(programCounter, flags, completedCounter);
+        _stubs.add(stub);
+        return stub._label;
+    }
+
+
+    //  ----------------------------------------------------------------------------------------------------------------------------
+    //  Translation of instruction parts
+    //  ----------------------------------------------------------------------------------------------------------------------------
+
+    private int getARegisterIndex(
+        final int register
+    ) {
+        return register + (_execRegisterSet ? GeneralRegisterSet.EA0 : GeneralRegisterSet.A0);
+    }
+
+    private int getRRegisterIndex(
+        final int register
+    ) {
+        return register + (_execRegisterSet ? GeneralRegisterSet.ER0 : GeneralRegisterSet.R0);
+    }
+
+    private int getXRegisterIndex(
+        final int register
+    ) {
+        return register + (_execRegisterSet ? GeneralRegisterSet.EX0 : GeneralRegisterSet.X0);
+    }
+
+    /**
+     * Pushes the value of a GRS register
+     */
+    private void loadRegister(
+        final int grsIndex
+    ) throws IOException {
+        load(OP_ALOAD, LOCAL_GRS);
+        pushInteger(grsIndex);
+        invokeVirtual(GRS_CLASS, "getValue", "(I)J");
+    }
+
+    /**
+     * Sets a GRS register from a long local
+     */
+    private void storeRegister(
+        final int grsIndex,
+        final int local
+    ) throws IOException {
+        load(OP_ALOAD, LOCAL_GRS);
+        pushInteger(grsIndex);
+        load(OP_LLOAD, local);
+        invokeVirtual(GRS_CLASS, "setValue", "(IJ)V");
+    }
+
+    /**
+     * Replaces the content of a long local with its ones-complement negative, if the given Word36 test succeeds
+     */
+    private void negateIf(
+        final int local,
+        final String testMethod
+    ) throws IOException {
+        Label past = new Label();
+        load(OP_LLOAD, local);
+        invokeStatic(WORD36_CLASS, testMethod, "(J)Z");
+        branch(OP_IFEQ, past);
+        negate(local);
+        place(past);
+    }
+
+    private void negate(
+        final int local
+    ) throws IOException {
+        load(OP_LLOAD, local);
+        invokeStatic(WORD36_CLASS, "negate", "(J)J");
+        store(OP_LSTORE, local);
+    }
+
+    /**
+     * Leaves addend plus the signed modifier of the x register of the instruction in LOCAL_ADDRESS,
+     * as calculateRelativeAddressForGRSOrStorage() and calculateRelativeAddressForJump() do in extended mode
+     */
+    private void developIndexedAddress(
+        final long word,
+        final long addend
+    ) throws IOException {
+        loadRegister(getXRegisterIndex((int) InstructionWord.getX(word)));
+        store(OP_LSTORE, LOCAL_XREG);
+        pushLong(addend);
+        load(OP_LLOAD, LOCAL_XREG);
+        invokeStatic(INDEX_REGISTER_CLASS, isExec24BitIndexing() ? "getSignedXM24" : "getSignedXM", "(J)J");
+        invokeStatic(WORD36_CLASS, "addSimple", "(JJ)J");
+        _code.writeByte(OP_L2I);
+        store(OP_ISTORE, LOCAL_ADDRESS);
+    }
+
+    /**
+     * As incrementIndexRegisterInF0()
+     */
+    private void incrementIndexRegister(
+        final long word
+    ) throws IOException {
+        if ((InstructionWord.getX(word) != 0) && (InstructionWord.getH(word) != 0)) {
+            load(OP_ALOAD, LOCAL_GRS);
+            pushInteger(getXRegisterIndex((int) InstructionWord.getX(word)));
+            pushInteger(isExec24BitIndexing() ? 1 : 0);
+            invokeVirtual(GRS_CLASS, "incrementModifier", "(IZ)V");
+        }
+    }
+
+    private boolean isExec24BitIndexing() {
+        return _exec24BitIndexing && (_processorPrivilege < 2);
+    }
+
+    /**
+     * Pushes the relative address of a storage operand - constant if the instruction is not indexed
+     */
+    private void pushAddress(
+        final long word
+    ) throws IOException {
+        if (InstructionWord.getX(word) == 0) {
+            pushInteger((int) InstructionWord.getD(word));
+        } else {
+            load(OP_ILOAD, LOCAL_ADDRESS);
+        }
+    }
+
+    /**
+     * Branches to a bail-out stub for the instruction if its relative address is not within the given limits
+     */
+    private void checkLimits(
+        final int ix,
+        final long word,
+        final int lowerLocal,
+        final int upperLocal
+    ) throws IOException {
+        Label bail = stub(_programCounter + ix, EXIT_BAILED, -1);
+        pushAddress(word);
+        load(OP_ILOAD, lowerLocal);
+        branch(OP_IF_ICMPLT, bail);
+        pushAddress(word);
+        load(OP_ILOAD, upperLocal);
+        branch(OP_IF_ICMPGT, bail);
+    }
+
+    /**
+     * As getOperand(true, true, true, true) - leaves the operand in LOCAL_OPERAND
+     */
+    private void fetchOperand(
+        final int ix
+    ) throws IOException {
+        long word = _words[ix];
+        int jField = (int) InstructionWord.getJ(word);
+        if (jField >= 016) {
+            pushLong(getImmediateOperand(word, _exec24BitIndexing, _processorPrivilege));
+            store(OP_LSTORE, LOCAL_OPERAND);
+            return;
+        }
+
+        if (!isStorageReference(word, _processorPrivilege)) {
+            loadRegister((int) InstructionWord.getD(word));
+            store(OP_LSTORE, LOCAL_OPERAND);
+            return;
+        }
+
+        int bank = _bankLocals[getBaseRegisterIndex(word, _processorPrivilege)];
+        if (InstructionWord.getX(word) != 0) {
+            developIndexedAddress(word, InstructionWord.getD(word));
+        }
+        checkLimits(ix, word, bank + BANK_READ_LOWER, bank + BANK_READ_UPPER);
+        incrementIndexRegister(word);
+
+        load(OP_ALOAD, bank + BANK_ARRAY);
+        pushAddress(word);
+        load(OP_ILOAD, bank + BANK_BIAS);
+        _code.writeByte(OP_IADD);
+        _code.writeByte(OP_LALOAD);
+        pushInteger(jField);
+        pushInteger(_quarterWordMode ? 1 : 0);
+        invokeStatic(PROCESSOR_CLASS, "extractPartialWord", "(JIZ)J");
+        store(OP_LSTORE, LOCAL_OPERAND);
+        increment(bank + BANK_REFERENCES);
+    }
+
+    /**
+     * As storeOperand(true, true, true, true, value) for the value in LOCAL_VALUE
+     */
+    private void storeOperand(
+        final int ix
+    ) throws IOException {
+        long word = _words[ix];
+        int jField = (int) InstructionWord.getJ(word);
+        if (jField >= 016) {
+            return;
+        }
+
+        if (!isStorageReference(word, _processorPrivilege)) {
+            storeRegister((int) InstructionWord.getD(word), LOCAL_VALUE);
+            return;
+        }
+
+        int bank = _bankLocals[getBaseRegisterIndex(word, _processorPrivilege)];
+        if (InstructionWord.getX(word) != 0) {
+            developIndexedAddress(word, InstructionWord.getD(word));
+        }
+        checkLimits(ix, word, bank + BANK_WRITE_LOWER, bank + BANK_WRITE_UPPER);
+        incrementIndexRegister(word);
+
+        pushAddress(word);
+        load(OP_ILOAD, bank + BANK_BIAS);
+        _code.writeByte(OP_IADD);
+        store(OP_ISTORE, LOCAL_INDEX);
+        load(OP_ALOAD, bank + BANK_ARRAY);
+        load(OP_ILOAD, LOCAL_INDEX);
+        load(OP_ALOAD, bank + BANK_ARRAY);
+        load(OP_ILOAD, LOCAL_INDEX);
+        _code.writeByte(OP_LALOAD);
+        load(OP_LLOAD, LOCAL_VALUE);
+        pushInteger(jField);
+        pushInteger(_quarterWordMode ? 1 : 0);
+        invokeStatic(PROCESSOR_CLASS, "injectPartialWord", "(JJIZ)J");
+        _code.writeByte(OP_LASTORE);
+        increment(bank + BANK_REFERENCES);
+
+        //  If we have stored into the bank based on B0, we might have overwritten code - complete this instruction and leave
+        Label stored = stub(_programCounter + ix + 1, EXIT_CODE_STORED, _programCounter + ix);
+        Label past = new Label();
+        load(OP_ALOAD, bank + BANK_ARRAY);
+        load(OP_ALOAD, LOCAL_CODE_ARRAY);
+        branch(OP_IF_ACMPNE, past);
+        load(OP_ILOAD, LOCAL_INDEX);
+        load(OP_ILOAD, LOCAL_CODE_LOWER);
+        branch(OP_IF_ICMPLT, past);
+        load(OP_ILOAD, LOCAL_INDEX);
+        load(OP_ILOAD, LOCAL_CODE_UPPER);
+        branch(OP_IF_ICMPLE, stored);
+        place(past);
+    }
+
+    /**
+     * Counts the instruction as completed - the caller then emits the transfer to whatever comes next
+     */
+    private void complete(
+        final int ix
+    ) throws IOException {
+        increment(LOCAL_COUNT);
+        pushInteger(_programCounter + ix);
+        store(OP_ISTORE, LOCAL_LAST_PC);
+    }
+
+    /**
+     * Leaves the block, to continue at the given relative address
+     */
+    private void exit(
+        final int programCounter
+    ) throws IOException {
+        pushInteger(programCounter);
+        store(OP_ISTORE, LOCAL_PC);
+        branch(OP_GOTO, _exitLabel);
+    }
+
+    /**
+     * Goes on to the instruction following instruction ix - which is the next thing emitted, if it is in the block
+     */
+    private void fallThrough(
+        final int ix
+    ) throws IOException {
+        if (ix + 1 >= _words.length) {
+            exit(_programCounter + ix + 1);
+        }
+    }
+
+    /**
+     * @return label to which a successful test at instruction ix branches, to skip the following instruction
+     */
+    private Label getSkipLabel(
+        final int ix
+    ) {
+        return (ix + 2 < _words.length) ? _instructionLabels[ix + 2] : stub(_programCounter + ix + 2, 0, -1);
+    }
+
+    /**
+     * Transfers control to the target of the jump at instruction ix, the jump operand having been developed already.
+     * An unindexed jump to an instruction within the block becomes a branch - which, if it goes backwards, first makes sure
+     * that the caller's instruction limit has not been reached, and that nothing is waiting for the run loop.
+     */
+    private void jump(
+        final int ix
+    ) throws IOException {
+        long word = _words[ix];
+        if (InstructionWord.getX(word) != 0) {
+            load(OP_ILOAD, LOCAL_ADDRESS);
+            pushInteger(0_777777);
+            _code.writeByte(OP_IAND);
+            store(OP_ISTORE, LOCAL_PC);
+            branch(OP_GOTO, _exitLabel);
+            return;
+        }
+
+        int target = (int) InstructionWord.getU(word);
+        int tx = target - _programCounter;
+        if ((tx < 0) || (tx >= _words.length)) {
+            exit(target);
+        } else if (tx > ix) {
+            branch(OP_GOTO, _instructionLabels[tx]);
+        } else {
+            Label leave = stub(target, 0, -1);
+            load(OP_ILOAD, LOCAL_COUNT);
+            load(OP_ILOAD, LOCAL_LIMIT);
+            branch(OP_IF_ICMPGE, leave);
+            load(OP_ALOAD, LOCAL_IP);
+            invokeVirtual(PROCESSOR_CLASS, "isAttentionRequired", "()Z");
+            branch(OP_IFNE, leave);
+            branch(OP_GOTO, _instructionLabels[tx]);
+        }
+    }
+
+    /**
+     * As getJumpOperand() in extended mode - the target is left in LOCAL_ADDRESS if the instruction is indexed,
+     * else it is a constant which jump() takes from the instruction word.
+     */
+    private void developJumpOperand(
+        final long word
+    ) throws IOException {
+        if (InstructionWord.getX(word) != 0) {
+            developIndexedAddress(word, InstructionWord.getU(word));
+            incrementIndexRegister(word);
+        }
+    }
+
+
+    //  ----------------------------------------------------------------------------------------------------------------------------
+    //  Translation of instructions
+    //  ----------------------------------------------------------------------------------------------------------------------------
+
+    private void translate(
+        final int ix
+    ) throws IOException {
+        long word = _words[ix];
+        int aField = (int) InstructionWord.getA(word);
+        switch (_instructions[ix]) {
+            case LA:
+            case LNA:
+            case LMA:
+            case LNMA:
+                fetchOperand(ix);
+                if (_instructions[ix] == InstructionProcessor.Instruction.LNA) {
+                    negate(LOCAL_OPERAND);
+                } else if (_instructions[ix] == InstructionProcessor.Instruction.LMA) {
+                    negateIf(LOCAL_OPERAND, "isNegative");
+                } else if (_instructions[ix] == InstructionProcessor.Instruction.LNMA) {
+                    negateIf(LOCAL_OPERAND, "isPositive");
+                }
+                storeRegister(getARegisterIndex(aField), LOCAL_OPERAND);
+                break;
+
+            case LR:
+                fetchOperand(ix);
+                storeRegister(getRRegisterIndex(aField), LOCAL_OPERAND);
+                break;
+
+            case LX:
+                fetchOperand(ix);
+                storeRegister(getXRegisterIndex(aField), LOCAL_OPERAND);
+                break;
+
+            case SA:
+            case SNA:
+            case SMA:
+                loadRegister(getARegisterIndex(aField));
+                store(OP_LSTORE, LOCAL_VALUE);
+                if (_instructions[ix] == InstructionProcessor.Instruction.SNA) {
+                    negate(LOCAL_VALUE);
+                } else if (_instructions[ix] == InstructionProcessor.Instruction.SMA) {
+                    negateIf(LOCAL_VALUE, "isNegative");
+                }
+                storeOperand(ix);
+                break;
+
+            case SR:
+                loadRegister(getRRegisterIndex(aField));
+                store(OP_LSTORE, LOCAL_VALUE);
+                storeOperand(ix);
+                break;
+
+            case SX:
+                loadRegister(getXRegisterIndex(aField));
+                store(OP_LSTORE, LOCAL_VALUE);
+                storeOperand(ix);
+                break;
+
+            case SZ:
+                pushLong(0);
+                store(OP_LSTORE, LOCAL_VALUE);
+                storeOperand(ix);
+                break;
+
+            case AA:
+            case ANA:
+            case AMA:
+            case ANMA:
+            case AX:
+            case ANX: {
+                InstructionProcessor.Instruction instruction = _instructions[ix];
+                boolean indexRegister = (instruction == InstructionProcessor.Instruction.AX)
+                                        || (instruction == InstructionProcessor.Instruction.ANX);
+                int grsIndex = indexRegister ? getXRegisterIndex(aField) : getARegisterIndex(aField);
+                loadRegister(grsIndex);
+                store(OP_LSTORE, LOCAL_VALUE);
+                fetchOperand(ix);
+                if ((instruction == InstructionProcessor.Instruction.ANA)
+                    || (instruction == InstructionProcessor.Instruction.ANX)) {
+                    negate(LOCAL_OPERAND);
+                } else if (instruction == InstructionProcessor.Instruction.AMA) {
+                    negateIf(LOCAL_OPERAND, "isNegative");
+                } else if (instruction == InstructionProcessor.Instruction.ANMA) {
+                    negateIf(LOCAL_OPERAND, "isPositive");
+                }
+
+                load(OP_ALOAD, LOCAL_GRS);
+                pushInteger(grsIndex);
+                load(OP_ALOAD, LOCAL_IP);
+                load(OP_LLOAD, LOCAL_VALUE);
+                load(OP_LLOAD, LOCAL_OPERAND);
+                invokeVirtual(PROCESSOR_CLASS, "addCompiledOperands", "(JJ)J");
+                invokeVirtual(GRS_CLASS, "setValue", "(IJ)V");
+                break;
+            }
+
+            case AND:
+            case OR:
+            case XOR:
+                loadRegister(getARegisterIndex(aField));
+                store(OP_LSTORE, LOCAL_VALUE);
+                fetchOperand(ix);
+                load(OP_ALOAD, LOCAL_GRS);
+                pushInteger(getARegisterIndex(aField + 1));
+                load(OP_LLOAD, LOCAL_VALUE);
+                load(OP_LLOAD, LOCAL_OPERAND);
+                _code.writeByte((_instructions[ix] == InstructionProcessor.Instruction.AND) ? OP_LAND
+                                : (_instructions[ix] == InstructionProcessor.Instruction.OR) ? OP_LOR : OP_LXOR);
+                invokeVirtual(GRS_CLASS, "setValue", "(IJ)V");
+                break;
+
+            case SSA:
+            case LSSC:
+            case LSSL: {
+                String method = (_instructions[ix] == InstructionProcessor.Instruction.SSA) ? "rightShiftAlgebraic"
+                                : (_instructions[ix] == InstructionProcessor.Instruction.LSSC) ? "leftShiftCircular"
+                                : "leftShiftLogical";
+                int count = (int) getImmediateOperand(word, _exec24BitIndexing, _processorPrivilege) & 0177;
+                load(OP_ALOAD, LOCAL_GRS);
+                pushInteger(getARegisterIndex(aField));
+                loadRegister(getARegisterIndex(aField));
+                pushInteger(count);
+                invokeStatic(WORD36_CLASS, method, "(JI)J");
+                invokeVirtual(GRS_CLASS, "setValue", "(IJ)V");
+                break;
+            }
+
+            case TZ:
+            case TNZ:
+            case TP:
+            case TN: {
+                InstructionProcessor.Instruction instruction = _instructions[ix];
+                fetchOperand(ix);
+                complete(ix);
+                load(OP_LLOAD, LOCAL_OPERAND);
+                invokeStatic(WORD36_CLASS,
+                             ((instruction == InstructionProcessor.Instruction.TZ)
+                              || (instruction == InstructionProcessor.Instruction.TNZ)) ? "isZero"
+                             : (instruction == InstructionProcessor.Instruction.TP) ? "isPositive" : "isNegative",
+                             "(J)Z");
+                branch((instruction == InstructionProcessor.Instruction.TNZ) ? OP_IFEQ : OP_IFNE, getSkipLabel(ix));
+                fallThrough(ix);
+                return;
+            }
+
+            case TE:
+            case TNE:
+                loadRegister(getARegisterIndex(aField));
+                store(OP_LSTORE, LOCAL_VALUE);
+                fetchOperand(ix);
+                complete(ix);
+                load(OP_LLOAD, LOCAL_VALUE);
+                load(OP_LLOAD, LOCAL_OPERAND);
+                _code.writeByte(OP_LCMP);
+                branch((_instructions[ix] == InstructionProcessor.Instruction.TE) ? OP_IFEQ : OP_IFNE, getSkipLabel(ix));
+                fallThrough(ix);
+                return;
+
+            case TG:
+            case TLE:
+                fetchOperand(ix);
+                loadRegister(getARegisterIndex(aField));
+                store(OP_LSTORE, LOCAL_VALUE);
+                complete(ix);
+                load(OP_LLOAD, LOCAL_OPERAND);
+                load(OP_LLOAD, LOCAL_VALUE);
+                _code.writeByte(OP_LCMP);
+                branch((_instructions[ix] == InstructionProcessor.Instruction.TG) ? OP_IFGT : OP_IFLE, getSkipLabel(ix));
+                fallThrough(ix);
+                return;
+
+            case J:
+                developJumpOperand(word);
+                complete(ix);
+                jump(ix);
+                return;
+
+            case JZ:
+            case JNZ:
+            case JP:
+            case JN: {
+                InstructionProcessor.Instruction instruction = _instructions[ix];
+                Label notTaken = new Label();
+                loadRegister(getARegisterIndex(aField));
+                invokeStatic(WORD36_CLASS,
+                             ((instruction == InstructionProcessor.Instruction.JZ)
+                              || (instruction == InstructionProcessor.Instruction.JNZ)) ? "isZero"
+                             : (instruction == InstructionProcessor.Instruction.JP) ? "isPositive" : "isNegative",
+                             "(J)Z");
+                branch((instruction == InstructionProcessor.Instruction.JNZ) ? OP_IFNE : OP_IFEQ, notTaken);
+                developJumpOperand(word);
+                complete(ix);
+                jump(ix);
+                place(notTaken);
+                complete(ix);
+                fallThrough(ix);
+                return;
+            }
+
+            case JGD: {
+                //  The register is decremented whether or not we jump, but after the jump operand is developed
+                int grsIndex = getJGDRegisterIndex(word);
+                Label notTaken = new Label();
+                loadRegister(grsIndex);
+                store(OP_LSTORE, LOCAL_VALUE);
+                complete(ix);
+                load(OP_LLOAD, LOCAL_VALUE);
+                invokeStatic(WORD36_CLASS, "isPositive", "(J)Z");
+                branch(OP_IFEQ, notTaken);
+                load(OP_LLOAD, LOCAL_VALUE);
+                invokeStatic(WORD36_CLASS, "isZero", "(J)Z");
+                branch(OP_IFNE, notTaken);
+                developJumpOperand(word);
+                decrement(grsIndex);
+                jump(ix);
+                place(notTaken);
+                decrement(grsIndex);
+                fallThrough(ix);
+                return;
+            }
+
+            case NOP:
+                incrementIndexRegister(word);
+                break;
+
+            default:
+                throw new RuntimeException(String.format("Instruction %s cannot be compiled", _instructions[ix]));
+        }
+
+        complete(ix);
+        fallThrough(ix);
+    }
+
+    private void decrement(
+        final int grsIndex
+    ) throws IOException {
+        load(OP_ALOAD, LOCAL_GRS);
+        pushInteger(grsIndex);
+        load(OP_LLOAD, LOCAL_VALUE);
+        pushLong(NEGATIVE_ONE_36);
+        invokeStatic(WORD36_CLASS, "addSimple", "(JJ)J");
+        invokeVirtual(GRS_CLASS, "setValue", "(IJ)V");
+    }
+
+
+    //  ----------------------------------------------------------------------------------------------------------------------------
+    //  Class file generation
+    //  ----------------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Loads the given bank's fields into locals - the CompiledBank is on the stack, and is consumed
+     */
+    private void loadBank(
+        final String[] fields,
+        final int[] locals
+    ) throws IOException {
+        for (int fx = 0; fx < fields.length; ++fx) {
+            if (fx < fields.length - 1) {
+                _code.writeByte(OP_DUP);
+            }
+            boolean array = fields[fx].equals("_array");
+            getField(BANK_CLASS, fields[fx], array ? LONG_ARRAY : "I");
+            store(array ? OP_ASTORE : OP_ISTORE, locals[fx]);
+        }
+    }
+
+    /**
+     * Initializes every local, so that every branch target in the method has the same frame
+     */
+    private void generatePrologue(
+    ) throws IOException {
+        load(OP_ALOAD, LOCAL_IP);
+        getField(PROCESSOR_CLASS, "_generalRegisterSet", "L" + GRS_CLASS + ";");
+        store(OP_ASTORE, LOCAL_GRS);
+        pushInteger(0);
+        store(OP_ISTORE, LOCAL_COUNT);
+        pushInteger(_programCounter);
+        store(OP_ISTORE, LOCAL_PC);
+        pushInteger(_programCounter);
+        store(OP_ISTORE, LOCAL_LAST_PC);
+        pushInteger(0);
+        store(OP_ISTORE, LOCAL_FLAGS);
+        pushLong(0);
+        store(OP_LSTORE, LOCAL_OPERAND);
+        pushLong(0);
+        store(OP_LSTORE, LOCAL_VALUE);
+        pushLong(0);
+        store(OP_LSTORE, LOCAL_XREG);
+        pushInteger(0);
+        store(OP_ISTORE, LOCAL_ADDRESS);
+        pushInteger(0);
+        store(OP_ISTORE, LOCAL_INDEX);
+
+        String bankDescriptor = "(I)L" + BANK_CLASS + ";";
+        if (_hasStorageStores) {
+            load(OP_ALOAD, LOCAL_IP);
+            pushInteger(0);
+            invokeVirtual(PROCESSOR_CLASS, "getCompiledBank", bankDescriptor);
+            loadBank(new String[]{ "_array", "_storageLower", "_storageUpper" },
+                     new int[]{ LOCAL_CODE_ARRAY, LOCAL_CODE_LOWER, LOCAL_CODE_UPPER });
+        } else {
+            _code.writeByte(OP_ACONST_NULL);
+            store(OP_ASTORE, LOCAL_CODE_ARRAY);
+            pushInteger(0);
+            store(OP_ISTORE, LOCAL_CODE_LOWER);
+            pushInteger(0);
+            store(OP_ISTORE, LOCAL_CODE_UPPER);
+        }
+
+        for (int baseRegisterIndex : _baseRegisterIndices) {
+            int bank = _bankLocals[baseRegisterIndex];
+            load(OP_ALOAD, LOCAL_IP);
+            pushInteger(baseRegisterIndex);
+            invokeVirtual(PROCESSOR_CLASS, "getCompiledBank", bankDescriptor);
+            loadBank(new String[]{ "_array", "_bias", "_readLower", "_readUpper", "_writeLower", "_writeUpper" },
+                     new int[]{ bank + BANK_ARRAY, bank + BANK_BIAS, bank + BANK_READ_LOWER, bank + BANK_READ_UPPER,
+                                bank + BANK_WRITE_LOWER, bank + BANK_WRITE_UPPER });
+            pushInteger(0);
+            store(OP_ISTORE, bank + BANK_REFERENCES);
+        }
+    }
+
+    /**
+     * Emits the exit stubs, then the common epilogue which hands everything back to the processor
+     */
+    private void generateEpilogue(
+    ) throws IOException {
+        for (int sx = 0; sx < _stubs.size(); ++sx) {
+            Stub stub = _stubs.get(sx);
+            place(stub._label);
+            if (stub._completedCounter >= 0) {
+                increment(LOCAL_COUNT);
+                pushInteger(stub._completedCounter);
+                store(OP_ISTORE, LOCAL_LAST_PC);
+            }
+            if (stub._flags != 0) {
+                pushInteger(stub._flags);
+                store(OP_ISTORE, LOCAL_FLAGS);
+            }
+            exit(stub._programCounter);
+        }
+
+        place(_exitLabel);
+        for (int baseRegisterIndex : _baseRegisterIndices) {
+            load(OP_ALOAD, LOCAL_IP);
+            pushInteger(baseRegisterIndex);
+            load(OP_ILOAD, _bankLocals[baseRegisterIndex] + BANK_REFERENCES);
+            invokeVirtual(PROCESSOR_CLASS, "countCompiledReferences", "(II)V");
+        }
+        load(OP_ALOAD, LOCAL_IP);
+        load(OP_ILOAD, LOCAL_PC);
+        load(OP_ILOAD, LOCAL_LAST_PC);
+        load(OP_ILOAD, LOCAL_COUNT);
+        load(OP_ILOAD, LOCAL_FLAGS);
+        invokeVirtual(PROCESSOR_CLASS, "completeCompiledBlock", "(IIII)I");
+        _code.writeByte(OP_IRETURN);
+    }
+
+    /**
+     * Produces the StackMapTable entries - a full frame for the first branch target, describing all the locals,
+     * and the same frame for every other one
+     */
+    private byte[] generateFrames(
+        final int thisClass
+    ) throws IOException {
+        TreeSet<Integer> offsets = new TreeSet<>();
+        for (Label label : _labels) {
+            offsets.add(label._offset);
+        }
+
+        ByteArrayOutputStream framesBytes = new ByteArrayOutputStream();
+        DataOutputStream frames = new DataOutputStream(framesBytes);
+        frames.writeShort(offsets.size());
+        int previousOffset = -1;
+        for (int offset : offsets) {
+            int delta = (previousOffset < 0) ? offset : offset - previousOffset - 1;
+            if (previousOffset < 0) {
+                frames.writeByte(FULL_FRAME);
+                frames.writeShort(delta);
+                //  the three long locals take two slots apiece, but appear only once in the frame
+                frames.writeShort(LOCAL_FIRST_BANK - 3 + BANK_LOCALS * _baseRegisterIndices.size());
+                writeObjectItem(frames, thisClass);
+                writeObjectItem(frames, addClass(PROCESSOR_CLASS));
+                frames.writeByte(ITEM_INTEGER);                                 //  limit
+                writeObjectItem(frames, addClass(GRS_CLASS));
+                for (int lx = LOCAL_COUNT; lx <= LOCAL_FLAGS; ++lx) {
+                    frames.writeByte(ITEM_INTEGER);
+                }
+                frames.writeByte(ITEM_LONG);                                    //  operand
+                frames.writeByte(ITEM_LONG);                                    //  value
+                frames.writeByte(ITEM_LONG);                                    //  xreg
+                frames.writeByte(ITEM_INTEGER);                                 //  address
+                frames.writeByte(ITEM_INTEGER);                                 //  index
+                writeObjectItem(frames, addClass(LONG_ARRAY));
+                frames.writeByte(ITEM_INTEGER);
+                frames.writeByte(ITEM_INTEGER);
+                for (int bx = 0; bx < _baseRegisterIndices.size(); ++bx) {
+                    writeObjectItem(frames, addClass(LONG_ARRAY));
+                    for (int lx = 1; lx < BANK_LOCALS; ++lx) {
+                        frames.writeByte(ITEM_INTEGER);
+                    }
+                }
+                frames.writeShort(0);                                           //  stack
+            } else if (delta < 64) {
+                frames.writeByte(delta);
+            } else {
+                frames.writeByte(SAME_FRAME_EXTENDED);
+                frames.writeShort(delta);
+            }
+            previousOffset = offset;
+        }
+
+        frames.flush();
+        return framesBytes.toByteArray();
+    }
+
+    /**
+     * Produces the class file for a compiled block
+     * @return class file bytes, or null if the block is too large for the generated code to be a valid method
+     */
+    private byte[] generate(
+    ) throws IOException {
+        int thisClass = addClass(GENERATED_CLASS);
+        int superClass = addClass("java/lang/Object");
+        int codeInterface = addClass(CODE_INTERFACE);
+        int codeAttribute = addUtf8("Code");
+        int stackMapAttribute = addUtf8("StackMapTable");
+
+        //  Constructor - just invoke Object.<init>
+        ByteArrayOutputStream ctorBytes = new ByteArrayOutputStream();
+        DataOutputStream ctor = new DataOutputStream(ctorBytes);
+        int objectInit = addMethodReference("java/lang/Object", "<init>", "()V");
+        ctor.writeByte(OP_ALOAD_0);
+        ctor.writeByte(OP_INVOKESPECIAL);
+        ctor.writeShort(objectInit);
+        ctor.writeByte(OP_RETURN);
+
+        //  execute()
+        generatePrologue();
+        for (int ix = 0; ix < _words.length; ++ix) {
+            place(_instructionLabels[ix]);
+            translate(ix);
+        }
+        generateEpilogue();
+
+        _code.flush();
+        byte[] code = _codeBytes.toByteArray();
+        if (code.length > MAX_CODE_LENGTH) {
+            return null;
+        }
+
+        for (Label label : _labels) {
+            for (int branch : label._branches) {
+                int displacement = label._offset - branch;
+                code[branch + 1] = (byte) (displacement >> 8);
+                code[branch + 2] = (byte) displacement;
+            }
+        }
+
+        byte[] frames = generateFrames(thisClass);
+        int initName = addUtf8("<init>");
+        int initDescriptor = addUtf8("()V");
+        int executeName = addUtf8(EXECUTE_METHOD);
+        int executeDescriptor = addUtf8(EXECUTE_DESCRIPTOR);
+
+        ByteArrayOutputStream classBytes = new ByteArrayOutputStream();
+        DataOutputStream cls = new DataOutputStream(classBytes);
+        cls.writeInt(0xCAFEBABE);
+        cls.writeShort(0);
+        cls.writeShort(CLASS_FILE_MAJOR_VERSION);
+        cls.writeShort(_constantCount);
+        _constantPool.flush();
+        cls.write(_constantPoolBytes.toByteArray());
+        cls.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+        cls.writeShort(thisClass);
+        cls.writeShort(superClass);
+        cls.writeShort(1);
+        cls.writeShort(codeInterface);
+        cls.writeShort(0);                  //  fields
+        cls.writeShort(2);                  //  methods
+
+        writeMethod(cls, initName, initDescriptor, codeAttribute, 1, 1, ctorBytes.toByteArray(), 0, null);
+        writeMethod(cls,
+                    executeName,
+                    executeDescriptor,
+                    codeAttribute,
+                    MAX_STACK,
+                    LOCAL_FIRST_BANK + BANK_LOCALS * _baseRegisterIndices.size(),
+                    code,
+                    stackMapAttribute,
+                    frames);
+
+        cls.writeShort(0);                  //  class attributes
+        cls.flush();
+        return classBytes.toByteArray();
+    }
+
+    private static void writeMethod(
+        final DataOutputStream cls,
+        final int nameIndex,
+        final int descriptorIndex,
+        final int codeAttribute,
+        final int maxStack,
+        final int maxLocals,
+        final byte[] code,
+        final int stackMapAttribute,
+        final byte[] frames
+    ) throws IOException {
+        int stackMapLength = (frames == null) ? 0 : 6 + frames.length;
+        cls.writeShort(ACC_PUBLIC);
+        cls.writeShort(nameIndex);
+        cls.writeShort(descriptorIndex);
+        cls.writeShort(1);
+        cls.writeShort(codeAttribute);
+        cls.writeInt(2 + 2 + 4 + code.length + 2 + 2 + stackMapLength);
+        cls.writeShort(maxStack);
+        cls.writeShort(maxLocals);
+        cls.writeInt(code.length);
+        cls.write(code);
+        cls.writeShort(0);                  //  exception table
+        if (frames == null) {
+            cls.writeShort(0);
+        } else {
+            cls.writeShort(1);
+            cls.writeShort(stackMapAttribute);
+            cls.writeInt(frames.length);
+            cls.write(frames);
+        }
+    }
+
+    private static void writeObjectItem(
+        final DataOutputStream frames,
+        final int classIndex
+    ) throws IOException {
+        frames.writeByte(ITEM_OBJECT);
+        frames.writeShort(classIndex);
+    }
+
+
+    //  ----------------------------------------------------------------------------------------------------------------------------
+    //  Static methods
+    //  ----------------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * As getOperand() in extended mode - the base register through which an operand is referenced
+     */
+    private static int getBaseRegisterIndex(
+        final long word,
+        final int processorPrivilege
+    ) {
+        int baseRegisterIndex = (int) InstructionWord.getB(word);
+        if ((processorPrivilege < 2) && (InstructionWord.getI(word) != 0)) {
+            baseRegisterIndex += 16;
+        }
+        return baseRegisterIndex;
+    }
+
+    /**
+     * As getImmediateOperand(), for an instruction with no x-field
+     */
+    private static long getImmediateOperand(
+        final long word,
+        final boolean exec24BitIndexing,
+        final int processorPrivilege
+    ) {
+        boolean valueIs24Bits = ((processorPrivilege < 2) && exec24BitIndexing)
+                                || ((processorPrivilege > 1) && (InstructionWord.getI(word) != 0));
+        boolean extend = InstructionWord.getJ(word) == 017;
+        long value = InstructionWord.getHIU(word);
+        if (value == 0777777) {
+            value = 0;
+        }
+
+        if (extend && ((value & 0400000) != 0)) {
+            value |= 0_777777_000000L;
+        }
+
+        if (valueIs24Bits) {
+            value &= 077_777777L;
+            if (extend && (value & 040_000000L) != 0) {
+                value |= 0_777700_000000L;
+            }
+        } else {
+            value &= 0_777777L;
+            if (extend && (value & 0_400000) != 0) {
+                value |= 0_777777_000000L;
+            }
+        }
+
+        return value;
+    }
+
+    /**
+     * JGD names its register with the low three bits of the j-field followed by the a-field
+     */
+    private static int getJGDRegisterIndex(
+        final long word
+    ) {
+        return (int) (((InstructionWord.getJ(word) & 07) << 4) | InstructionWord.getA(word));
+    }
+
+    /**
+     * Indicates whether the instruction develops an operand via getOperand() or storeOperand()
+     */
+    private static boolean hasOperand(
+        final InstructionProcessor.Instruction instruction
+    ) {
+        switch (instruction) {
+            case LA:    case LNA:   case LMA:   case LNMA:  case LR:    case LX:
+            case SA:    case SNA:   case SMA:   case SR:    case SX:    case SZ:
+            case AA:    case ANA:   case AMA:   case ANMA:  case AX:    case ANX:
+            case AND:   case OR:    case XOR:
+            case TZ:    case TNZ:   case TP:    case TN:    case TE:    case TNE:   case TG:    case TLE:
+                return true;
+
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isStore(
+        final InstructionProcessor.Instruction instruction
+    ) {
+        switch (instruction) {
+            case SA:    case SNA:   case SMA:   case SR:    case SX:    case SZ:
+                return true;
+
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Indicates whether a non-immediate operand is in storage rather than in the GRS.
+     * An indexed reference through B0 might be either, so isCompilable() does not allow it.
+     */
+    private static boolean isStorageReference(
+        final long word,
+        final int processorPrivilege
+    ) {
+        return (InstructionWord.getJ(word) < 016)
+               && ((getBaseRegisterIndex(word, processorPrivilege) != 0)
+                   || (InstructionWord.getX(word) != 0)
+                   || (InstructionWord.getD(word) >= 0200));
+    }
+
+    /**
+     * Indicates whether we can translate the given instruction, under the given designator register
+     */
+    static boolean isCompilable(
+        final InstructionProcessor.Instruction instruction,
+        final long word,
+        final InstructionProcessor.DesignatorRegister designatorRegister
+    ) {
+        int processorPrivilege = designatorRegister.getProcessorPrivilege();
+        long xField = InstructionWord.getX(word);
+        switch (instruction) {
+            case AA:
+            case ANA:
+            case AMA:
+            case ANMA:
+            case AX:
+            case ANX:
+                //  An overflow would have to raise an operation trap interrupt - leave that to the interpreter
+                if (designatorRegister.getOperationTrapEnabled()) {
+                    return false;
+                }
+                break;
+
+            case SSA:
+            case LSSC:
+            case LSSL:
+                return xField == 0;
+
+            case J:
+            case JZ:
+            case JNZ:
+            case JP:
+            case JN:
+            case NOP:
+                return true;
+
+            case JGD: {
+                int grsIndex = getJGDRegisterIndex(word);
+                return GeneralRegisterSet.isAccessAllowed(grsIndex, processorPrivilege, false)
+                       && GeneralRegisterSet.isAccessAllowed(grsIndex, processorPrivilege, true);
+            }
+
+            default:
+                if (!hasOperand(instruction)) {
+                    return false;
+                }
+        }
+
+        if (InstructionWord.getJ(word) >= 016) {
+            return isStore(instruction) || (xField == 0);
+        }
+
+        if (getBaseRegisterIndex(word, processorPrivilege) == 0) {
+            if (xField != 0) {
+                return false;
+            } else if (InstructionWord.getD(word) < 0200) {
+                return GeneralRegisterSet.isAccessAllowed((int) InstructionWord.getD(word),
+                                                          processorPrivilege,
+                                                          isStore(instruction));
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Indicates whether the given instruction might skip the following instruction - so that an instruction
+     * which always leaves the block (J) does not end it if it follows one of these
+     */
+    static boolean isSkip(
+        final InstructionProcessor.Instruction instruction
+    ) {
+        switch (instruction) {
+            case TZ:    case TNZ:   case TP:    case TN:    case TE:    case TNE:   case TG:    case TLE:
+                return true;
+
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Generates and defines a class for a compiled block (unless we already have one), and returns an instance of it
+     * @param lookup full-privilege lookup on InstructionProcessor, which becomes the nest host of the generated class
+     * @param instructions the instruction for each word of the block, each of which must be compilable
+     * @param words the words of the block
+     * @param programCounter relative address of the first instruction of the block
+     * @param designatorRegister the designator register under which the block is to run
+     * @return instance of the generated class, which implements InstructionProcessor.CompiledBlockCode -
+     *          or null if the block is too large to be translated
+     * @throws ReflectiveOperationException if the JVM refuses the generated class
+     */
+    static Object compile(
+        final MethodHandles.Lookup lookup,
+        final InstructionProcessor.Instruction[] instructions,
+        final long[] words,
+        final int programCounter,
+        final InstructionProcessor.DesignatorRegister designatorRegister
+    ) throws ReflectiveOperationException {
+        StringBuilder sb = new StringBuilder();
+        sb.append(designatorRegister.getW()).append('@').append(programCounter);
+        for (long word : words) {
+            sb.append(':').append(word);
+        }
+        String key = sb.toString();
+        Object code = _generatedCode.get(key);
+        if (code != null) {
+            return code;
+        }
+
+        byte[] classFile;
+        try {
+            classFile = new BlockCompiler(instructions, words, programCounter, designatorRegister).generate();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);     //  cannot happen - we are writing to memory
+        }
+
+        if (classFile == null) {
+            return null;
+        }
+
+        Class<?> cls = lookup.defineHiddenClass(classFile, true, MethodHandles.Lookup.ClassOption.NESTMATE).lookupClass();
+        code = cls.getDeclaredConstructor().newInstance();
+        if (_generatedCode.size() >= MAX_GENERATED_CODE_ENTRIES) {
+            _generatedCode.clear();
+        }
+        _generatedCode.put(key, code);
+        return code;
+    }
+}
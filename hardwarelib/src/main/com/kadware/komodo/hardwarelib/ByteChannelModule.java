@@ -5,9 +5,9 @@
 package com.kadware.komodo.hardwarelib;
 
 import com.kadware.komodo.baselib.ArraySlice;
-import java.util.Iterator;
-import org.apache.logging.log4j.LogManager;
-import org.apache.logging.log4j.Logger;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * Implements a word channel module.
@@ -64,7 +64,11 @@ public class ByteChannelModule extends ChannelModule {
     //  Class attributes
     //  ----------------------------------------------------------------------------------------------------------------------------
 
-    private static final Logger LOGGER = LogManager.getLogger(ByteChannelModule.class);
+    /**
+     * Staging area for translating between word buffers and pooled direct buffers, which have no backing array.
+     * Only the worker thread uses it.
+     */
+    private byte[] _scratch = new byte[0];
 
 
     //  ----------------------------------------------------------------------------------------------------------------------------
@@ -98,7 +102,7 @@ public class ByteChannelModule extends ChannelModule {
     private static int calculateByteCount(
         final ByteTracker tracker
     ) {
-        int words = tracker._compositeBuffer.getSize();
+        int words = (int) tracker._compositeBuffer.getSize();
         switch (tracker._channelProgram.getByteTranslationFormat()) {
             case QuarterWordPerByte:
             case QuarterWordPerByteNoTermination:
@@ -116,6 +120,35 @@ public class ByteChannelModule extends ChannelModule {
         return 0;
     }
 
+    /**
+     * The device IO is done - we might need to move some data around, and we need to set some status
+     */
+    @Override
+    protected void completeIO(
+        final Tracker tracker
+    ) {
+        ChannelProgram cp = tracker._channelProgram;
+        if (tracker._ioInfo._status == Device.IOStatus.Successful) {
+            //  device io was successful.  Do we need to move input data into storage?
+            Device.IOFunction func = cp.getFunction();
+            boolean truncation = false;
+            if (func.isReadFunction() && func.requiresBuffer()) {
+                truncation = unpackByteBuffer((ByteTracker) tracker);
+            }
+
+            cp.setChannelStatus(ChannelStatus.Successful);
+            if (truncation) {
+                cp.setChannelStatus(ChannelStatus.InsufficientBuffers);
+            } else {
+                cp.setDeviceStatus(Device.IOStatus.Successful);
+            }
+        } else {
+            //  device io was unsuccessful.
+            cp.setDeviceStatus(tracker._ioInfo._status);
+            cp.setChannelStatus(ChannelStatus.DeviceError);
+        }
+    }
+
     /**
      * To be implemented by the subclass - we call this object and queue it up
      */
@@ -129,6 +162,34 @@ public class ByteChannelModule extends ChannelModule {
         return new ByteTracker(source, ioProcessor, channelProgram, compositeBuffer);
     }
 
+    /**
+     * Number of bytes transferred by a read or write, so that the device queues can coalesce IOs on contiguous blocks
+     * @return the byte count, or -1 for IOs which have no buffer
+     */
+    @Override
+    protected long getTransferBytes(
+        final Tracker tracker
+    ) {
+        Device.IOFunction func = tracker._channelProgram.getFunction();
+        if (!func.requiresBuffer() || (tracker._compositeBuffer == null)) {
+            return -1;
+        }
+
+        return calculateByteCount((ByteTracker) tracker);
+    }
+
+    /**
+     * Retrieves the staging area, growing it if necessary so that it is at least the given size
+     */
+    private byte[] getScratch(
+        final int size
+    ) {
+        if (_scratch.length < size) {
+            _scratch = new byte[size];
+        }
+        return _scratch;
+    }
+
     /**
      * Worker interface implementation
      * @return our node name
@@ -151,122 +212,91 @@ public class ByteChannelModule extends ChannelModule {
      */
     private static byte[] packByteBuffer(
         final ByteTracker tracker
+    ) {
+        byte[] result = new byte[calculateByteCount(tracker)];
+        packByteBuffer(tracker, result, 0);
+        return result;
+    }
+
+    /**
+     * Packs the content of the cumulative word buffer into the destination at the given offset, according to the
+     * controlling format specification.  There must be room for calculateByteCount() bytes, which must be zero to begin
+     * with - format A might stop short of the end of the word buffer based on bit 9 of any quarter word being set.
+     */
+    private static void packByteBuffer(
+        final ByteTracker tracker,
+        final byte[] destination,
+        final int destinationOffset
     ) {
         ChannelProgram cp = tracker._channelProgram;
-        byte[] result = null;
         switch (cp.getByteTranslationFormat()) {
             case QuarterWordPerByte:                //  Format A quarter word -> frame
             case QuarterWordPerByteNoTermination:   //  Format D quarter word -> frame
-            {
-                //  Format A might stop short of the end of the word buffer based on bit 9 of any quarter word being set.
-                //  We create a byte[] of the longest length we'll need, but we might truncate it due to stopping short.
-                result = new byte[tracker._compositeBuffer._length * 4];
-                tracker._compositeBuffer.packQuarterWords(result);
-                cp.setWordsTransferred(tracker._compositeBuffer._length);
+                tracker._compositeBuffer.packQuarterWords(destination, destinationOffset);
                 break;
-            }
 
             case SixthWordByte:                     //  Format B sixth word -> frame
-            {
-                result = new byte[tracker._compositeBuffer._length * 6];
-                tracker._compositeBuffer.packSixthWords(result);
-                cp.setWordsTransferred(tracker._compositeBuffer._length);
+                tracker._compositeBuffer.packSixthWords(destination, destinationOffset);
                 break;
-            }
 
-            case QuarterWordPacked:              //  Format C two words -> 9 frames
-            {
-                int bytes = tracker._compositeBuffer._length * 9 / 2;
-                if (tracker._compositeBuffer._length % 2 > 0) {
-                    ++bytes;
-                }
-                result = new byte[bytes];
-                tracker._compositeBuffer.pack(result);
-                cp.setWordsTransferred(tracker._compositeBuffer._length);
+            case QuarterWordPacked:                 //  Format C two words -> 9 frames
+                tracker._compositeBuffer.pack(destination, destinationOffset);
                 break;
-            }
         }
 
-        return result;
+        cp.setWordsTransferred((int) tracker._compositeBuffer._length);
     }
 
     /**
-     * Thread
+     * Packs the data for a write into a pooled direct buffer, by way of the staging area
+     * @return the pooled buffer, with its limit set to the number of bytes
      */
-    public void run() {
-        LOGGER.info("worker starting for " + _name);
-
-        while (!_workerTerminate) {
-            boolean sleepFlag = true;
-            synchronized (this) {
-                Iterator<Tracker> iter = _trackers.iterator();
-                while (iter.hasNext()) {
-                    ByteTracker tracker = (ByteTracker) iter.next();
-                    if (!tracker._started) {
-                        //  IO has not been started
-                        startIO(tracker);
-                        sleepFlag = false;
-                    } else if (tracker._completed) {
-                        //  CM IO is done - notify source, and delist it
-                        tracker._ioProcessor.finalizeIo(tracker._channelProgram, tracker._source);
-                        iter.remove();
-                        sleepFlag = false;
-                    } else if (tracker._ioInfo._status != Device.IOStatus.InProgress) {
-                        //  Dev IO is done - need to possibly move some data around and set some status
-                        if (tracker._ioInfo._status == Device.IOStatus.Successful) {
-                            //  device io was successful.  Do we need to move input data into storage?
-                            Device.IOFunction func = tracker._channelProgram.getFunction();
-                            boolean truncation = false;
-                            if (func.isReadFunction() && func.requiresBuffer()) {
-                                truncation = unpackByteBuffer(tracker);
-                            }
-
-                            tracker._channelProgram.setChannelStatus(ChannelStatus.Successful);
-                            if (truncation) {
-                                tracker._channelProgram.setChannelStatus(ChannelStatus.InsufficientBuffers);
-                            } else {
-                                tracker._channelProgram.setDeviceStatus(Device.IOStatus.Successful);
-                            }
-                        } else {
-                            //  device io was unsuccessful.
-                            tracker._channelProgram.setDeviceStatus(tracker._ioInfo._status);
-                            tracker._channelProgram.setChannelStatus(ChannelStatus.DeviceError);
-                        }
-                        tracker._completed = true;
-                        sleepFlag = false;
-                    }
-                }
-            }
-
-            if (sleepFlag) {
-                try {
-                    synchronized (this) { wait(100); }
-                } catch (InterruptedException ex) {
-                    LOGGER.catching(ex);
-                }
-            }
-        }
+    private ByteBuffer packIOBuffer(
+        final ByteTracker tracker
+    ) {
+        int bytes = calculateByteCount(tracker);
+        byte[] scratch = getScratch(bytes);
+        Arrays.fill(scratch, 0, bytes, (byte) 0);
+        packByteBuffer(tracker, scratch, 0);
+        ByteBuffer buffer = IOBufferPool.getInstance().acquire(bytes);
+        buffer.put(0, scratch, 0, bytes);
+        return buffer;
+    }
 
-        LOGGER.info("worker stopping for " + _name);
+    /**
+     * Indicates whether the device IO for the given function should use a pooled direct buffer
+     */
+    private static boolean usesIOBuffer(
+        final Device device,
+        final Device.IOFunction function
+    ) {
+        return device.hasDirectBufferInterface()
+               && ((function == Device.IOFunction.Read) || (function == Device.IOFunction.Write));
     }
 
     /**
-     * Transitions a tracker to the started state
+     * Builds the device IO for a tracker and hands it to the device
+     * @return true if the device will post the IO to us when it is done, false if it was done immediately
      */
-    private void startIO(
-        final ByteTracker tracker
+    @Override
+    protected boolean startIO(
+        final Tracker baseTracker
     ) {
+        ByteTracker tracker = (ByteTracker) baseTracker;
         ChannelProgram cp = tracker._channelProgram;
+        Device device = (Device) _descendants.get(cp.getDeviceAddress());
 
         Device.IOFunction func = cp.getFunction();
+        boolean pooled = (tracker._compositeBuffer != null) && usesIOBuffer(device, func);
         if (func.isWriteFunction() && func.requiresBuffer()) {
-            byte[] buffer = (tracker._compositeBuffer != null) ? packByteBuffer(tracker) : null;
+            byte[] buffer = ((tracker._compositeBuffer != null) && !pooled) ? packByteBuffer(tracker) : null;
             int bytes = (tracker._compositeBuffer != null) ? calculateByteCount(tracker) : 0;
             tracker._ioInfo = new Device.IOInfo.ByteTransferBuilder().setSource(this)
                                                                      .setIOFunction(cp.getFunction())
                                                                      .setBlockId(cp.getBlockId())
                                                                      .setTransferCount(bytes)
                                                                      .setBuffer(buffer)
+                                                                     .setIOBuffer(pooled ? packIOBuffer(tracker) : null)
                                                                      .build();
         } else if (func.isReadFunction() && func.requiresBuffer()) {
             int bytes = (tracker._compositeBuffer != null) ? calculateByteCount(tracker) : 0;
@@ -274,6 +304,7 @@ public class ByteChannelModule extends ChannelModule {
                                                                      .setIOFunction(cp.getFunction())
                                                                      .setBlockId(cp.getBlockId())
                                                                      .setTransferCount(bytes)
+                                                                     .setIOBuffer(pooled ? IOBufferPool.getInstance().acquire(bytes) : null)
                                                                      .build();
         } else {
             tracker._ioInfo = new Device.IOInfo.NonTransferBuilder().setSource(this)
@@ -281,9 +312,113 @@ public class ByteChannelModule extends ChannelModule {
                                                                     .build();
         }
 
-        Device device = (Device) _descendants.get(cp.getDeviceAddress());
-        device.handleIo(tracker._ioInfo);
-        tracker._started = true;
+        return device.handleIo(tracker._ioInfo);
+    }
+
+    /**
+     * Builds one device IO for a number of reads or writes of contiguous blocks, and hands it to the device.
+     * For writes, the data for each tracker is packed in the usual way, end-to-end in one buffer.
+     * @return true if the device will post the IO to us when it is done, false if it was done immediately
+     */
+    @Override
+    protected boolean startCoalescedIO(
+        final List<Tracker> trackers
+    ) {
+        ChannelProgram leadCp = trackers.get(0)._channelProgram;
+        Device device = (Device) _descendants.get(leadCp.getDeviceAddress());
+        boolean pooled = usesIOBuffer(device, leadCp.getFunction());
+        int totalBytes = 0;
+        for (Tracker tracker : trackers) {
+            totalBytes += calculateByteCount((ByteTracker) tracker);
+        }
+
+        Device.IOInfo ioInfo;
+        if (leadCp.getFunction().isWriteFunction()) {
+            byte[] buffer = pooled ? getScratch(totalBytes) : new byte[totalBytes];
+            Arrays.fill(buffer, 0, totalBytes, (byte) 0);
+            int offset = 0;
+            for (Tracker tracker : trackers) {
+                packByteBuffer((ByteTracker) tracker, buffer, offset);
+                offset += calculateByteCount((ByteTracker) tracker);
+            }
+
+            ByteBuffer ioBuffer = null;
+            if (pooled) {
+                ioBuffer = IOBufferPool.getInstance().acquire(totalBytes);
+                ioBuffer.put(0, buffer, 0, totalBytes);
+            }
+
+            ioInfo = new Device.IOInfo.ByteTransferBuilder().setSource(this)
+                                                            .setIOFunction(leadCp.getFunction())
+                                                            .setBlockId(leadCp.getBlockId())
+                                                            .setTransferCount(totalBytes)
+                                                            .setBuffer(pooled ? null : buffer)
+                                                            .setIOBuffer(ioBuffer)
+                                                            .build();
+        } else {
+            ioInfo = new Device.IOInfo.ByteTransferBuilder().setSource(this)
+                                                            .setIOFunction(leadCp.getFunction())
+                                                            .setBlockId(leadCp.getBlockId())
+                                                            .setTransferCount(totalBytes)
+                                                            .setIOBuffer(pooled ? IOBufferPool.getInstance().acquire(totalBytes) : null)
+                                                            .build();
+        }
+
+        for (Tracker tracker : trackers) {
+            tracker._ioInfo = ioInfo;
+        }
+
+        return device.handleIo(ioInfo);
+    }
+
+    /**
+     * Gives each tracker of a coalesced IO its own IOInfo, carrying the status of the device IO, and the part of
+     * the transfer (and for reads, of the data) which belongs to that tracker.  A pooled buffer is not copied -
+     * each part gets a view of its own area of it.
+     */
+    @Override
+    protected void splitCoalescedIO(
+        final List<Tracker> trackers
+    ) {
+        Device.IOInfo ioInfo = trackers.get(0)._ioInfo;
+        int offset = 0;
+        for (Tracker tracker : trackers) {
+            ChannelProgram cp = tracker._channelProgram;
+            int bytes = calculateByteCount((ByteTracker) tracker);
+            boolean pooled = ioInfo._ioBuffer != null;
+            Device.IOInfo part = new Device.IOInfo.ByteTransferBuilder().setSource(this)
+                                                                        .setIOFunction(cp.getFunction())
+                                                                        .setBlockId(cp.getBlockId())
+                                                                        .setTransferCount(bytes)
+                                                                        .setBuffer((cp.getFunction().isWriteFunction() && !pooled)
+                                                                                   ? Arrays.copyOfRange(ioInfo._byteBuffer,
+                                                                                                        offset,
+                                                                                                        offset + bytes)
+                                                                                   : null)
+                                                                        .setIOBuffer(pooled ? ioInfo._ioBuffer.slice(offset, bytes) : null)
+                                                                        .build();
+            if ((ioInfo._byteBuffer != null)
+                && (ioInfo._byteBuffer.length >= offset)
+                && cp.getFunction().isReadFunction()) {
+                part._byteBuffer = Arrays.copyOfRange(ioInfo._byteBuffer, offset, offset + bytes);
+            }
+            part._status = ioInfo._status;
+            part._transferredCount = Math.max(0, Math.min(bytes, ioInfo._transferredCount - offset));
+            tracker._ioInfo = part;
+            offset += bytes;
+        }
+    }
+
+    /**
+     * Returns the pooled buffer for a device IO, if there is one
+     */
+    @Override
+    protected void releaseIO(
+        final Device.IOInfo ioInfo
+    ) {
+        if ((ioInfo != null) && (ioInfo._ioBuffer != null)) {
+            IOBufferPool.getInstance().release(ioInfo._ioBuffer);
+        }
     }
 
     /**
@@ -295,11 +430,21 @@ public class ByteChannelModule extends ChannelModule {
         final ByteTracker tracker
     ) {
         ChannelProgram cp = tracker._channelProgram;
+
+        //  The translation routines work on byte arrays, so the content of a pooled buffer goes through the staging area
+        byte[] source = tracker._ioInfo._byteBuffer;
+        int sourceLength = (source == null) ? 0 : source.length;
+        if (tracker._ioInfo._ioBuffer != null) {
+            sourceLength = tracker._ioInfo._transferCount;
+            source = getScratch(sourceLength);
+            tracker._ioInfo._ioBuffer.get(0, source, 0, sourceLength);
+        }
+
         switch (cp.getByteTranslationFormat()) {
             case QuarterWordPerByte:                //  Format A
             case QuarterWordPerByteNoTermination:   //  Format D
             {
-                int frames = tracker._compositeBuffer.unpackQuarterWords(tracker._ioInfo._byteBuffer,
+                int frames = tracker._compositeBuffer.unpackQuarterWords(source,
                                                                          0,
                                                                          tracker._ioInfo._transferredCount,
                                                                          cp.getFunction() == Device.IOFunction.ReadBackward);
@@ -312,7 +457,7 @@ public class ByteChannelModule extends ChannelModule {
 
             case SixthWordByte:                     //  Format B
             {
-                int frames = tracker._compositeBuffer.unpackSixthWords(tracker._ioInfo._byteBuffer,
+                int frames = tracker._compositeBuffer.unpackSixthWords(source,
                                                                        0,
                                                                        tracker._ioInfo._transferredCount,
                                                                        cp.getFunction() == Device.IOFunction.ReadBackward);
@@ -328,7 +473,9 @@ public class ByteChannelModule extends ChannelModule {
                 int bytesRead = tracker._ioInfo._transferCount;
                 int wordsRequired = bytesRead * 2 / 9;
                 wordsRequired += (bytesRead * 2) % 9 == 0 ? 0 : 1;
-                int wordsRead = tracker._compositeBuffer.unpack(tracker._ioInfo._byteBuffer,
+                int wordsRead = tracker._compositeBuffer.unpack(source,
+                                                                0,
+                                                                sourceLength,
                                                                 cp.getFunction() == Device.IOFunction.ReadBackward);
                 if ((wordsRead & 01) != 0) {
                     //  Odd number of words read - we might need to do abnormal frame count stuff.
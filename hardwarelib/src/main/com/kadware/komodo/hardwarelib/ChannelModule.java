@@ -9,8 +9,17 @@ import com.kadware.komodo.baselib.Word36;
 import com.kadware.komodo.baselib.Worker;
 import java.io.BufferedWriter;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 import org.apache.logging.log4j.message.EntryMessage;
 
 /**
@@ -19,9 +28,11 @@ import org.apache.logging.log4j.message.EntryMessage;
  * ChannelModule (CM) nodes are managed lightly by InputOutputProcessor (IOP) nodes.
  * Each ChannelModule is active - that is, it is managed by a running thread.
  * When an IO is presented to our parent IOP, it is briefly validated, then it is presented to us
- * so that we can place it on the unstarted IO list.
- * Later, we pull it from that list and begin working the IO.
+ * so that we can place it on the submission queue.
+ * Later, we move it to the queue for the target device, from which it is started according to that device's scheduling
+ * (see DeviceQueue).  When the device is done, it posts the IO to our completion queue.
  * When the IO is complete, we notify our parent IOP, which then takes appropriate action.
+ * Only the submission and completion queues are shared with other threads - the device queues belong to the worker.
  */
 @SuppressWarnings("Duplicates")
 public abstract class ChannelModule extends Node implements Worker {
@@ -150,11 +161,11 @@ public abstract class ChannelModule extends Node implements Worker {
 
             if (accessControlWords != null) {
                 set(0, Word36.setS6(get(0), accessControlWords.length));
-                int dx = _offset + 4;
+                int dx = 4;
                 for (AccessControlWord acw : accessControlWords) {
-                    _array[dx++] = acw._array[acw._offset];
-                    _array[dx++] = acw._array[acw._offset + 1];
-                    _array[dx++] = acw._array[acw._offset + 2];
+                    set(dx++, acw.get(0));
+                    set(dx++, acw.get(1));
+                    set(dx++, acw.get(2));
                 }
             }
         }
@@ -164,7 +175,7 @@ public abstract class ChannelModule extends Node implements Worker {
          */
         public ChannelProgram (
             final ArraySlice baseSlice,
-            final int offset,
+            final long offset,
             final int length
         ) {
             super(baseSlice, offset, length);
@@ -179,7 +190,7 @@ public abstract class ChannelModule extends Node implements Worker {
          */
         public static ChannelProgram create(
             final ArraySlice baseSlice,
-            final int offset
+            final long offset
         ) {
             int acws = (int) baseSlice.get(offset) & 077;
             int len = 4 + (3 * acws);
@@ -313,6 +324,9 @@ public abstract class ChannelModule extends Node implements Worker {
         public Device.IOInfo _ioInfo = null;
         public boolean _started = false;
         public boolean _completed = false;
+        DeviceQueue _queue = null;
+        long _queuedNanos = 0;
+        long _startedNanos = 0;
 
         //  For writes, this is the cumulative buffer containing all the data from all the ACWs
         //  after data direction has been applied.
@@ -350,10 +364,336 @@ public abstract class ChannelModule extends Node implements Worker {
     }
 
 
+    /**
+     * Queue of IOs for a particular device.
+     * Trackers wait here in arrival order until they are started, and are then active until the device completes them.
+     * Only the worker thread changes a queue, but dump() may be invoked from elsewhere, so access is synchronized.
+     * --
+     * For disks, pending IOs are started in elevator order - ascending block id from the end of the most recently started
+     * IO, wrapping around to the lowest block id when there are none further on - unless the oldest pending IO has waited
+     * past the deadline, in which case it goes next.  No IO is started ahead of an older one (pending or active) with which
+     * it conflicts; that is, where the block ranges might overlap and either is a write, or either is not a read or write.
+     * For other devices, IOs are started strictly in arrival order.
+     * --
+     * When a disk read or write is started, any other pending IOs of the same function which continue its block range
+     * (and which could themselves be started now) are started along with it as a single device IO, up to the coalescing
+     * limit in bytes.  This requires the channel module to know the exact byte count for each IO, so it only happens
+     * for channel modules which report one via getTransferBytes().  If a coalescing delay is set, a lone IO may also be
+     * held for up to that long while the device is busy with other IOs, in the hope that a neighbor arrives.
+     */
+    protected class DeviceQueue {
+
+        final Device _device;
+        final int _deviceAddress;
+        private final List<Tracker> _active = new LinkedList<>();
+        private final List<Tracker> _pending = new ArrayList<>();
+        private long _coalesceDelayNanos = 0;
+        private int _coalesceLimit;
+        private long _deadlineNanos = DEFAULT_DEADLINE_NANOS;
+        private int _depthLimit;
+        private long _headPosition = 0;
+
+        private long _coalescedCount = 0;
+        private long _completedCount = 0;
+        private int _maxDepth = 0;
+        private long _startedCount = 0;
+        private long _totalServiceNanos = 0;
+        private long _totalWaitNanos = 0;
+
+        private DeviceQueue(
+            final Device device,
+            final int deviceAddress
+        ) {
+            _device = device;
+            _deviceAddress = deviceAddress;
+            _depthLimit = (device instanceof DiskDevice) ? DEFAULT_DISK_QUEUE_DEPTH : 1;
+            _coalesceLimit = (device instanceof DiskDevice) ? DEFAULT_COALESCE_LIMIT : 0;
+        }
+
+        /**
+         * Number of blocks which the IO might touch - if the channel module cannot tell us the byte count, we assume the
+         * least dense format.  Over-estimating only costs us some reordering.
+         */
+        private long getBlockSpan(
+            final Tracker tracker
+        ) {
+            Integer blockSize = ((DiskDevice) _device)._blockSize;
+            if ((blockSize == null) || (blockSize == 0)) {
+                return Long.MAX_VALUE;
+            }
+
+            long bytes = getTransferBytes(tracker);
+            if (bytes < 0) {
+                bytes = (tracker._compositeBuffer == null) ? 0 : tracker._compositeBuffer.getSize() * MAX_BYTES_PER_WORD;
+            }
+            return Math.max(1, (bytes + blockSize - 1) / blockSize);
+        }
+
+        /**
+         * Number of blocks which the IO transfers, if it is a read or write of an exact (nonzero) number of blocks
+         * which lies within the pack.  Otherwise zero, and the IO is not a candidate for coalescing.
+         */
+        private long getCoalesceSpan(
+            final Tracker tracker
+        ) {
+            Device.IOFunction func = tracker._channelProgram.getFunction();
+            Integer blockSize = ((DiskDevice) _device)._blockSize;
+            Long blockCount = ((DiskDevice) _device)._blockCount;
+            long bytes = getTransferBytes(tracker);
+            if (((func != Device.IOFunction.Read) && (func != Device.IOFunction.Write))
+                || (blockSize == null) || (blockSize == 0) || (blockCount == null)
+                || (bytes <= 0) || (bytes % blockSize != 0)) {
+                return 0;
+            }
+
+            long span = bytes / blockSize;
+            long blockId = tracker._channelProgram.getBlockId();
+            return ((blockId < 0) || (blockId + span > blockCount)) ? 0 : span;
+        }
+
+        private long getBlockLimit(
+            final Tracker tracker
+        ) {
+            long first = tracker._channelProgram.getBlockId();
+            long span = getBlockSpan(tracker);
+            return (span > Long.MAX_VALUE - first) ? Long.MAX_VALUE : first + span;
+        }
+
+        private boolean conflicts(
+            final Tracker tracker1,
+            final Tracker tracker2
+        ) {
+            Device.IOFunction func1 = tracker1._channelProgram.getFunction();
+            Device.IOFunction func2 = tracker2._channelProgram.getFunction();
+            if (((func1 != Device.IOFunction.Read) && (func1 != Device.IOFunction.Write))
+                || ((func2 != Device.IOFunction.Read) && (func2 != Device.IOFunction.Write))) {
+                return true;
+            }
+
+            if ((func1 == Device.IOFunction.Read) && (func2 == Device.IOFunction.Read)) {
+                return false;
+            }
+
+            return (tracker1._channelProgram.getBlockId() < getBlockLimit(tracker2))
+                   && (tracker2._channelProgram.getBlockId() < getBlockLimit(tracker1));
+        }
+
+        /**
+         * Checks whether the pending tracker at the given index may be started now
+         */
+        private boolean isStartable(
+            final int index
+        ) {
+            Tracker tracker = _pending.get(index);
+            for (Tracker active : _active) {
+                if (conflicts(tracker, active)) {
+                    return false;
+                }
+            }
+
+            for (int px = 0; px < index; ++px) {
+                if (conflicts(tracker, _pending.get(px))) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        /**
+         * Finds the index of the pending tracker which should be started next, or -1 if none should be started now
+         */
+        private int choose(
+            final long nowNanos
+        ) {
+            if (!(_device instanceof DiskDevice)) {
+                return 0;
+            }
+
+            if (nowNanos - _pending.get(0)._queuedNanos >= _deadlineNanos) {
+                return isStartable(0) ? 0 : -1;
+            }
+
+            int ahead = -1;
+            int lowest = -1;
+            int limit = Math.min(_pending.size(), ELEVATOR_WINDOW);
+            for (int px = 0; px < limit; ++px) {
+                if (isStartable(px)) {
+                    long blockId = _pending.get(px)._channelProgram.getBlockId();
+                    if ((blockId >= _headPosition)
+                        && ((ahead < 0) || (blockId < _pending.get(ahead)._channelProgram.getBlockId()))) {
+                        ahead = px;
+                    }
+                    if ((lowest < 0) || (blockId < _pending.get(lowest)._channelProgram.getBlockId())) {
+                        lowest = px;
+                    }
+                }
+            }
+
+            return (ahead >= 0) ? ahead : lowest;
+        }
+
+        private synchronized void complete(
+            final Tracker tracker,
+            final long nowNanos
+        ) {
+            _active.remove(tracker);
+            _totalServiceNanos += nowNanos - tracker._startedNanos;
+            ++_completedCount;
+        }
+
+        private synchronized void enqueue(
+            final Tracker tracker,
+            final long nowNanos
+        ) {
+            tracker._queue = this;
+            tracker._queuedNanos = nowNanos;
+            _pending.add(tracker);
+            _maxDepth = Math.max(_maxDepth, _pending.size() + _active.size());
+        }
+
+        /**
+         * Picks the next tracker to be started, along with any which are to be coalesced with it, and moves them
+         * to the active list.
+         * @return the trackers in ascending block order, or null if none are to be started now
+         */
+        private synchronized List<Tracker> startNext(
+            final long nowNanos
+        ) {
+            if (_pending.isEmpty() || (_active.size() >= _depthLimit)) {
+                return null;
+            }
+
+            int px = choose(nowNanos);
+            if (px < 0) {
+                return null;
+            }
+
+            List<Integer> indices = new ArrayList<>();
+            indices.add(px);
+            if (_device instanceof DiskDevice) {
+                Tracker lead = _pending.get(px);
+                long span = (_coalesceLimit > 0) ? getCoalesceSpan(lead) : 0;
+                if (span > 0) {
+                    long bytes = getTransferBytes(lead);
+                    long nextBlockId = lead._channelProgram.getBlockId() + span;
+                    int limit = Math.min(_pending.size(), ELEVATOR_WINDOW);
+                    boolean found = true;
+                    while (found) {
+                        found = false;
+                        for (int fx = 0; fx < limit; ++fx) {
+                            Tracker follower = _pending.get(fx);
+                            long followerSpan = getCoalesceSpan(follower);
+                            if ((followerSpan > 0)
+                                && (follower._channelProgram.getBlockId() == nextBlockId)
+                                && (follower._channelProgram.getFunction() == lead._channelProgram.getFunction())
+                                && (bytes + getTransferBytes(follower) <= _coalesceLimit)
+                                && !indices.contains(fx)
+                                && isStartable(fx)) {
+                                indices.add(fx);
+                                bytes += getTransferBytes(follower);
+                                nextBlockId += followerSpan;
+                                found = true;
+                                break;
+                            }
+                        }
+                    }
+
+                    //  Nothing to go with it - if the device is busy anyway, we may hold it a while for a neighbor
+                    if ((indices.size() == 1)
+                        && !_active.isEmpty()
+                        && (nowNanos - lead._queuedNanos < _coalesceDelayNanos)) {
+                        return null;
+                    }
+                }
+            }
+
+            List<Tracker> trackers = new ArrayList<>();
+            for (int ix : indices) {
+                trackers.add(_pending.get(ix));
+            }
+            for (Tracker tracker : trackers) {
+                _pending.remove(tracker);
+                tracker._startedNanos = nowNanos;
+                _totalWaitNanos += nowNanos - tracker._queuedNanos;
+                ++_startedCount;
+                _active.add(tracker);
+            }
+
+            if (_device instanceof DiskDevice) {
+                _headPosition = getBlockLimit(trackers.get(trackers.size() - 1));
+            }
+            _coalescedCount += trackers.size() - 1;
+            return trackers;
+        }
+
+        public synchronized long getCoalescedCount() { return _coalescedCount; }
+        public synchronized int getCoalesceLimit() { return _coalesceLimit; }
+        public synchronized int getDepth() { return _pending.size() + _active.size(); }
+        public synchronized int getDepthLimit() { return _depthLimit; }
+        public synchronized long getCompletedCount() { return _completedCount; }
+        public synchronized int getMaxDepth() { return _maxDepth; }
+        public synchronized long getStartedCount() { return _startedCount; }
+        public synchronized long getTotalServiceNanos() { return _totalServiceNanos; }
+        public synchronized long getTotalWaitNanos() { return _totalWaitNanos; }
+
+        synchronized void setCoalescing(
+            final int limit,
+            final long delayNanos
+        ) {
+            _coalesceLimit = limit;
+            _coalesceDelayNanos = delayNanos;
+        }
+
+        synchronized void setDeadline(
+            final long nanos
+        ) {
+            _deadlineNanos = nanos;
+        }
+
+        synchronized void setDepthLimit(
+            final int limit
+        ) {
+            _depthLimit = limit;
+        }
+
+        public synchronized void dump(
+            final BufferedWriter writer
+        ) {
+            try {
+                writer.write(String.format("    Dev:%d Depth:%d Max:%d Limit:%d Started:%d Coalesced:%d Completed:%d AvgWait:%dus AvgService:%dus\n",
+                                           _deviceAddress,
+                                           _pending.size() + _active.size(),
+                                           _maxDepth,
+                                           _depthLimit,
+                                           _startedCount,
+                                           _coalescedCount,
+                                           _completedCount,
+                                           (_startedCount == 0) ? 0 : _totalWaitNanos / _startedCount / 1000,
+                                           (_completedCount == 0) ? 0 : _totalServiceNanos / _completedCount / 1000));
+                for (Tracker tracker : _active) {
+                    tracker.dump(writer);
+                }
+                for (Tracker tracker : _pending) {
+                    tracker.dump(writer);
+                }
+            } catch (IOException ex) {
+                _logger.catching(ex);
+            }
+        }
+    }
+
+
     //  ----------------------------------------------------------------------------------------------------------------------------
     //  Class attributes
     //  ----------------------------------------------------------------------------------------------------------------------------
 
+    private static final int DEFAULT_COALESCE_LIMIT = 64 * 1024;     //  largest coalesced disk IO, in bytes
+    private static final long DEFAULT_DEADLINE_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+    private static final int DEFAULT_DISK_QUEUE_DEPTH = 4;
+    private static final int ELEVATOR_WINDOW = 64;     //  how far into a device queue we look for the next IO
+    private static final int MAX_BYTES_PER_WORD = 6;
+
     public final ChannelModuleType _channelModuleType;
 
     /**
@@ -364,12 +704,33 @@ public abstract class ChannelModule extends Node implements Worker {
     /**
      * Set this flag so the worker thread can self-terminate
      */
-    protected boolean _workerTerminate;
+    protected volatile boolean _workerTerminate;
+
+    /**
+     * In-flight IOs which have been started on a device, keyed by the IOInfo which the device will post on completion.
+     * There is more than one tracker only for coalesced IOs.  Only the worker thread touches this.
+     */
+    private final Map<Device.IOInfo, List<Tracker>> _activeTrackers = new IdentityHashMap<>();
+
+    /**
+     * IOs which devices have completed, waiting for the worker thread
+     */
+    private final Queue<Device.IOInfo> _completions = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Per-device queues, created as devices are first used
+     */
+    private final Map<Integer, DeviceQueue> _deviceQueues = new ConcurrentHashMap<>();
+
+    /**
+     * Number of IOs which have been scheduled and not yet finalized
+     */
+    private final AtomicInteger _inFlightCount = new AtomicInteger(0);
 
     /**
-     * List of in-flight IOs
+     * IOs which have been scheduled, but not yet placed on their device queues by the worker thread
      */
-    protected final List<Tracker> _trackers = new LinkedList<>();
+    protected final Queue<Tracker> _submissions = new ConcurrentLinkedQueue<>();
 
 
     //  ----------------------------------------------------------------------------------------------------------------------------
@@ -382,7 +743,7 @@ public abstract class ChannelModule extends Node implements Worker {
     ) {
         super(NodeCategory.ChannelModule, name);
         _channelModuleType = channelModuleType;
-        _workerThread = new Thread(this);
+        _workerThread = WorkerThreads.createThread(this, name);
         _workerTerminate = false;
     }
 
@@ -402,10 +763,65 @@ public abstract class ChannelModule extends Node implements Worker {
     );
 
     /**
-     * To be implemented by the subclass - this is the worker thread entry point.
+     * To be implemented by the subclass - sets the channel status (and moves any input data) for a tracker
+     * whose device IO is done.
      */
-    @Override
-    public abstract void run();
+    protected abstract void completeIO(
+        final Tracker tracker
+    );
+
+    /**
+     * To be implemented by the subclass - builds the device IO for the tracker, and presents it to the device.
+     * @return true if the device will post the IO to us when it is done, false if it was done immediately
+     */
+    protected abstract boolean startIO(
+        final Tracker tracker
+    );
+
+
+    //  ----------------------------------------------------------------------------------------------------------------------------
+    //  Coalescing support - subclasses which can give us exact byte counts override all of these
+    //  ----------------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Number of bytes which the tracker's IO transfers to or from a byte device.
+     * @return the byte count, or -1 if it is not known - in which case the IO is never coalesced with another
+     */
+    protected long getTransferBytes(
+        final Tracker tracker
+    ) {
+        return -1;
+    }
+
+    /**
+     * Builds one device IO covering all the given trackers (which are reads or writes of contiguous block ranges,
+     * in ascending block order), sets the _ioInfo of each tracker to it, and presents it to the device.
+     * @return true if the device will post the IO to us when it is done, false if it was done immediately
+     */
+    protected boolean startCoalescedIO(
+        final List<Tracker> trackers
+    ) {
+        throw new RuntimeException(String.format("%s cannot coalesce IOs", _name));
+    }
+
+    /**
+     * Once a coalesced IO is done, gives each of the trackers an IOInfo describing its own part of the IO,
+     * so that completeIO() may then be invoked for each of them in the usual way.
+     */
+    protected void splitCoalescedIO(
+        final List<Tracker> trackers
+    ) {
+        throw new RuntimeException(String.format("%s cannot coalesce IOs", _name));
+    }
+
+    /**
+     * Invoked once a device IO is done, and completeIO() has been invoked for all the trackers involved in it -
+     * subclasses which attach resources (such as pooled buffers) to device IOs may override this to release them.
+     * @param ioInfo the device IO, or null if no device IO was built
+     */
+    protected void releaseIO(
+        final Device.IOInfo ioInfo
+    ) {}
 
 
     //  ----------------------------------------------------------------------------------------------------------------------------
@@ -431,7 +847,11 @@ public abstract class ChannelModule extends Node implements Worker {
     @Override
     public void clear() {
         EntryMessage em = _logger.traceEntry("clear()");
-        _trackers.clear();
+        _submissions.clear();
+        _completions.clear();
+        _activeTrackers.clear();
+        _deviceQueues.clear();
+        _inFlightCount.set(0);
         _logger.traceExit(em);
     }
 
@@ -444,8 +864,12 @@ public abstract class ChannelModule extends Node implements Worker {
     ) {
         try {
             super.dump(writer);
-            writer.write("  Trackers:\n");
-            for (Tracker tracker : _trackers) {
+            writer.write("  Device Queues:\n");
+            for (DeviceQueue queue : _deviceQueues.values()) {
+                queue.dump(writer);
+            }
+            writer.write("  Unqueued Trackers:\n");
+            for (Tracker tracker : _submissions) {
                 tracker.dump(writer);
             }
         } catch (IOException ex) {
@@ -453,6 +877,50 @@ public abstract class ChannelModule extends Node implements Worker {
         }
     }
 
+    /**
+     * Indicates whether there are any in-flight IOs
+     */
+    public boolean isIdle() {
+        return _inFlightCount.get() == 0;
+    }
+
+    /**
+     * Finalizes the trackers for a device IO which is done
+     */
+    private void finishIO(
+        final List<Tracker> trackers
+    ) {
+        Device.IOInfo ioInfo = trackers.get(0)._ioInfo;
+        if (trackers.size() > 1) {
+            splitCoalescedIO(trackers);
+        }
+
+        for (Tracker tracker : trackers) {
+            completeIO(tracker);
+            tracker._queue.complete(tracker, System.nanoTime());
+            tracker._completed = true;
+            tracker._ioProcessor.finalizeIo(tracker._channelProgram, tracker._source);
+            _inFlightCount.decrementAndGet();
+        }
+
+        releaseIO(ioInfo);
+    }
+
+    /**
+     * Retrieves the queue for the device at the given address, creating it if necessary.
+     * @return the queue, or null if there is no such device
+     */
+    DeviceQueue getDeviceQueue(
+        final int deviceAddress
+    ) {
+        Node node = _descendants.get(deviceAddress);
+        if (!(node instanceof Device)) {
+            return null;
+        }
+
+        return _deviceQueues.computeIfAbsent(deviceAddress, address -> new DeviceQueue((Device) node, address));
+    }
+
     /**
      * Worker interface implementation
      * @return our node name
@@ -477,6 +945,78 @@ public abstract class ChannelModule extends Node implements Worker {
         _logger.traceExit(em);
     }
 
+    /**
+     * One pass of the worker thread - places newly-scheduled IOs on their device queues, finalizes completed IOs,
+     * and starts whatever IOs the device queues are ready to start.
+     * @return true if anything was done
+     */
+    protected final boolean processIOs() {
+        boolean result = false;
+
+        Tracker tracker;
+        while ((tracker = _submissions.poll()) != null) {
+            DeviceQueue queue = getDeviceQueue(tracker._channelProgram.getDeviceAddress());
+            if (queue != null) {
+                queue.enqueue(tracker, System.nanoTime());
+            } else {
+                //  The device was there when the IO was scheduled, but it is gone now
+                tracker._channelProgram.setChannelStatus(ChannelStatus.UnconfiguredDevice);
+                tracker._ioProcessor.finalizeIo(tracker._channelProgram, tracker._source);
+                _inFlightCount.decrementAndGet();
+            }
+            result = true;
+        }
+
+        Device.IOInfo ioInfo;
+        while ((ioInfo = _completions.poll()) != null) {
+            List<Tracker> trackers = _activeTrackers.remove(ioInfo);
+            if (trackers != null) {
+                finishIO(trackers);
+                result = true;
+            }
+        }
+
+        long nowNanos = System.nanoTime();
+        for (DeviceQueue queue : _deviceQueues.values()) {
+            List<Tracker> trackers;
+            while ((trackers = queue.startNext(nowNanos)) != null) {
+                for (Tracker started : trackers) {
+                    started._started = true;
+                }
+
+                tracker = trackers.get(0);
+                boolean pending = (trackers.size() == 1) ? startIO(tracker) : startCoalescedIO(trackers);
+                if (pending) {
+                    //  Should the device complete the IO before we get here, it waits in the completion queue for us
+                    if (tracker._ioInfo != null) {
+                        _activeTrackers.put(tracker._ioInfo, trackers);
+                    }
+                } else {
+                    finishIO(trackers);
+                }
+                result = true;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Worker thread
+     */
+    @Override
+    public void run() {
+        _logger.info("worker starting for " + _name);
+
+        while (!_workerTerminate) {
+            if (!processIOs()) {
+                waitForWork(100);
+            }
+        }
+
+        _logger.info("worker stopping for " + _name);
+    }
+
     /**
      * Put a channel program on our list of unstarted IOs and wake up the channel module thread.
      * If we find an obvious problem, we kill the IO here instead of scheduling it.
@@ -501,10 +1041,9 @@ public abstract class ChannelModule extends Node implements Worker {
         } else {
 
             channelProgram.setChannelStatus(ChannelStatus.InProgress);
-            synchronized (this) {
-                _trackers.add(createTracker(source, ioProcessor, channelProgram, compositeBuffer));
-                notify();
-            }
+            _inFlightCount.incrementAndGet();
+            _submissions.add(createTracker(source, ioProcessor, channelProgram, compositeBuffer));
+            wake();
             result = true;
         }
 
@@ -512,14 +1051,66 @@ public abstract class ChannelModule extends Node implements Worker {
         return result;
     }
 
+    /**
+     * Sets the coalescing parameters for the queue for the disk device at the given address.
+     * @param limit largest number of bytes which contiguous reads or writes may be coalesced into - zero disables coalescing
+     * @param delayMilliseconds longest time for which a lone IO may be held, while the device is busy, for a neighbor to arrive
+     */
+    void setDeviceQueueCoalescing(
+        final int deviceAddress,
+        final int limit,
+        final long delayMilliseconds
+    ) {
+        DeviceQueue queue = getDeviceQueue(deviceAddress);
+        if ((queue == null) || (limit < 0) || (delayMilliseconds < 0)) {
+            throw new RuntimeException(String.format("Invalid device address %d or coalescing limit %d or delay %d",
+                                                     deviceAddress,
+                                                     limit,
+                                                     delayMilliseconds));
+        }
+        queue.setCoalescing(limit, TimeUnit.MILLISECONDS.toNanos(delayMilliseconds));
+    }
+
+    /**
+     * Sets how long an IO may wait in the queue for the disk device at the given address before it is started ahead of
+     * any IOs which the elevator would otherwise prefer.
+     */
+    void setDeviceQueueDeadline(
+        final int deviceAddress,
+        final long milliseconds
+    ) {
+        DeviceQueue queue = getDeviceQueue(deviceAddress);
+        if ((queue == null) || (milliseconds < 0)) {
+            throw new RuntimeException(String.format("Invalid device address %d or deadline %d", deviceAddress, milliseconds));
+        }
+        queue.setDeadline(TimeUnit.MILLISECONDS.toNanos(milliseconds));
+    }
+
+    /**
+     * Sets the number of IOs which may be in progress on the device at the given address at any one time.
+     * IOs beyond this number wait in the device queue, where they are subject to scheduling.
+     */
+    void setDeviceQueueDepth(
+        final int deviceAddress,
+        final int depthLimit
+    ) {
+        DeviceQueue queue = getDeviceQueue(deviceAddress);
+        if ((queue == null) || (depthLimit < 1)) {
+            throw new RuntimeException(String.format("Invalid device address %d or depth %d", deviceAddress, depthLimit));
+        }
+        queue.setDepthLimit(depthLimit);
+    }
+
     /**
      * For the descendent device to signal the channel module when an IO has completed
+     * @param ioInfo the completed IO
      */
-    final void signal() {
+    final void signal(
+        final Device.IOInfo ioInfo
+    ) {
         EntryMessage em = _logger.traceEntry("signal()");
-        synchronized(_workerThread) {
-            _workerThread.notify();
-        }
+        _completions.add(ioInfo);
+        wake();
         _logger.traceExit(em);
     }
 
@@ -531,9 +1122,7 @@ public abstract class ChannelModule extends Node implements Worker {
         EntryMessage em = _logger.traceEntry("terminate()");
 
         _workerTerminate = true;
-        synchronized(_workerThread) {
-            _workerThread.notify();
-        }
+        wake();
 
         while (_workerThread.isAlive()) {
             Thread.onSpinWait();
@@ -541,4 +1130,24 @@ public abstract class ChannelModule extends Node implements Worker {
 
         _logger.traceExit(em);
     }
+
+    /**
+     * Parks the worker thread until it is woken via wake(), or until the given timeout expires.
+     * Spurious returns are possible, so the worker must re-check its trackers upon return.
+     * Must only be invoked by the worker thread.
+     * @param timeoutMillis maximum time to wait, in milliseconds
+     */
+    protected final void waitForWork(
+        final long timeoutMillis
+    ) {
+        LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(timeoutMillis));
+    }
+
+    /**
+     * Wakes the worker thread if it is parked in waitForWork().
+     * A wakeup posted while the worker is busy is retained, so that the next waitForWork() returns immediately.
+     */
+    private void wake() {
+        LockSupport.unpark(_workerThread);
+    }
 }
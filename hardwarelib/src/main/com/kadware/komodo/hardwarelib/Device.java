@@ -8,6 +8,7 @@ import com.kadware.komodo.baselib.ArraySlice;
 import com.kadware.komodo.baselib.Word36;
 import java.io.BufferedWriter;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import org.apache.logging.log4j.message.EntryMessage;
 
 /**
@@ -254,6 +255,13 @@ public abstract class Device extends Node {
          */
         byte[] _byteBuffer;
 
+        /**
+         * Pooled direct buffer for byte data transfers, for devices which have a direct buffer interface.
+         * If present, it is used instead of _byteBuffer, in both directions - the channel module provides it for reads
+         * as well as for writes, and returns it to the pool once the IO is done.  The limit is set to _transferCount.
+         */
+        ByteBuffer _ioBuffer;
+
         /**
          * Reference to a word buffer for word data transfers for word devices
          * Required for writes, should be null for reads - the device should create this.
@@ -286,6 +294,7 @@ public abstract class Device extends Node {
             ChannelModule source,
             IOFunction function,
             byte[] byteBuffer,
+            ByteBuffer ioBuffer,
             ArraySlice wordBuffer,
             int transferCount,
             Long blockId
@@ -293,6 +302,7 @@ public abstract class Device extends Node {
             _source = source;
             _ioFunction = function;
             _byteBuffer = byteBuffer;
+            _ioBuffer = ioBuffer;
             _wordBuffer = wordBuffer;
             _transferCount = transferCount;
             _blockId = (blockId == null) ? 0 : blockId;
@@ -313,7 +323,7 @@ public abstract class Device extends Node {
                     throw new RuntimeException("No ioFunction parameter");
                 }
 
-                return new IOInfo(_source, _ioFunction, null, null, 0, null);
+                return new IOInfo(_source, _ioFunction, null, null, null, 0, null);
             }
         }
 
@@ -322,12 +332,14 @@ public abstract class Device extends Node {
             private ChannelModule _source = null;
             private IOFunction _ioFunction = null;
             private byte[] _buffer = null;
+            private ByteBuffer _ioBuffer = null;
             Integer _transferCount = null;
             Long _blockId = null;
 
             ByteTransferBuilder setSource(ChannelModule value) { _source = value; return this; }
             ByteTransferBuilder setIOFunction(IOFunction value) { _ioFunction = value; return this; }
             ByteTransferBuilder setBuffer(byte[] value) { _buffer = value; return this; }
+            ByteTransferBuilder setIOBuffer(ByteBuffer value) { _ioBuffer = value; return this; }
             ByteTransferBuilder setTransferCount(int value) { _transferCount = value; return this; }
             ByteTransferBuilder setBlockId(long value) { _blockId = value; return this; }
 
@@ -336,16 +348,21 @@ public abstract class Device extends Node {
                     throw new RuntimeException("No source parameter");
                 } else if (_ioFunction == null) {
                     throw new RuntimeException("No ioFunction parameter");
-                } else if (_ioFunction.isWriteFunction() && _ioFunction.requiresBuffer() && (_buffer == null)) {
+                } else if (_ioFunction.isWriteFunction() && _ioFunction.requiresBuffer()
+                           && (_buffer == null) && (_ioBuffer == null)) {
                     throw new RuntimeException("No buffer parameter");
                 } else if ((_ioFunction.isReadFunction() || (!_ioFunction.requiresBuffer()))
                            && (_buffer != null)) {
                     throw new RuntimeException("Buffer wrongly provided");
+                } else if ((_ioBuffer != null) && ((_buffer != null) || !_ioFunction.requiresBuffer())) {
+                    throw new RuntimeException("IO buffer wrongly provided");
                 } else if (_transferCount == null) {
                     throw new RuntimeException("No transferCount parameter");
+                } else if ((_ioBuffer != null) && (_ioBuffer.capacity() < _transferCount)) {
+                    throw new RuntimeException("IO buffer too small");
                 }
 
-                return new IOInfo(_source, _ioFunction, _buffer, null, _transferCount, _blockId);
+                return new IOInfo(_source, _ioFunction, _buffer, _ioBuffer, null, _transferCount, _blockId);
             }
         }
 
@@ -377,7 +394,7 @@ public abstract class Device extends Node {
                     throw new RuntimeException("No transferCount parameter");
                 }
 
-                return new IOInfo(_source, _ioFunction, null, _buffer, _transferCount, _blockId);
+                return new IOInfo(_source, _ioFunction, null, null, _buffer, _transferCount, _blockId);
             }
         }
 
@@ -480,6 +497,11 @@ public abstract class Device extends Node {
      */
     public abstract boolean hasWordInterface();
 
+    /**
+     * Does this device take pooled direct buffers (see IOInfo._ioBuffer) for byte transfers?
+     */
+    public boolean hasDirectBufferInterface() { return false; }
+
     /**
      * Initializes the subclass if/as necessary
      */
@@ -0,0 +1,305 @@
+/*
+ * Copyright (c) 2018-2020 by Kurt Duncan - All Rights Reserved
+ */
+
+package com.kadware.komodo.hardwarelib;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Host-side cache of logical blocks for FileSystemDiskDevice objects.
+ * --
+ * A cache may be given to a single device, or shared among any number of them, in which case the devices
+ * compete for the one memory budget.  Blocks are evicted in least-recently-used order once the total size
+ * of the cached blocks exceeds the budget.
+ * --
+ * For WriteThrough, the cache is updated and the data is written to the host file as well, so no cached block
+ * is ever dirty.  For WriteBack, the data goes only to the cache, and the host file is updated when a dirty
+ * block is evicted, or when the owning device flushes (on reset, unload, and termination).
+ * Dirty blocks which are evicted are written synchronously, while the cache lock is held.
+ */
+public class DiskBlockCache {
+
+    public enum WritePolicy {
+        WriteThrough,
+        WriteBack,
+    }
+
+    private static class Key {
+
+        private final FileSystemDiskDevice _owner;
+        private final long _blockId;
+
+        private Key(
+            final FileSystemDiskDevice owner,
+            final long blockId
+        ) {
+            _owner = owner;
+            _blockId = blockId;
+        }
+
+        @Override
+        public boolean equals(
+            final Object obj
+        ) {
+            return (obj instanceof Key)
+                   && (((Key) obj)._owner == _owner)
+                   && (((Key) obj)._blockId == _blockId);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(_owner) + Long.hashCode(_blockId);
+        }
+    }
+
+    private static class Block {
+
+        private final byte[] _data;
+        private boolean _isDirty;
+
+        private Block(
+            final byte[] data,
+            final boolean isDirty
+        ) {
+            _data = data;
+            _isDirty = isDirty;
+        }
+    }
+
+    //  Access-ordered, so iteration begins with the least-recently-used block
+    private final LinkedHashMap<Key, Block> _blocks = new LinkedHashMap<>(1024, 0.75f, true);
+    private final long _budget;
+    private long _evictions = 0;
+    private long _usedBytes = 0;
+    private long _writeBacks = 0;
+    private final WritePolicy _writePolicy;
+
+    /**
+     * Constructor
+     * @param budget maximum number of bytes of block data to be cached
+     * @param writePolicy determines whether writes are passed on to the host file immediately
+     */
+    public DiskBlockCache(
+        final long budget,
+        final WritePolicy writePolicy
+    ) {
+        _budget = budget;
+        _writePolicy = writePolicy;
+    }
+
+
+    //  ----------------------------------------------------------------------------------------------------------------------------
+    //  Non-public methods
+    //  ----------------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Evicts least-recently-used blocks until we are within budget.
+     * If a dirty block cannot be written, it is left in the cache (still dirty) and the exception is rethrown.
+     */
+    private void evict(
+    ) throws IOException {
+        Iterator<Map.Entry<Key, Block>> iter = _blocks.entrySet().iterator();
+        while ((_usedBytes > _budget) && iter.hasNext()) {
+            Map.Entry<Key, Block> entry = iter.next();
+            Block block = entry.getValue();
+            if (block._isDirty) {
+                entry.getKey()._owner.writeCachedBlock(entry.getKey()._blockId, block._data);
+                ++_writeBacks;
+            }
+
+            iter.remove();
+            _usedBytes -= block._data.length;
+            ++_evictions;
+        }
+    }
+
+    /**
+     * Stores the given block, replacing any block already cached for the same owner and block id
+     */
+    private void store(
+        final Key key,
+        final ByteBuffer buffer,
+        final int bufferOffset,
+        final int blockSize,
+        final boolean isDirty
+    ) {
+        byte[] data = new byte[blockSize];
+        buffer.get(bufferOffset, data, 0, blockSize);
+        Block previous = _blocks.put(key, new Block(data, isDirty));
+        if (previous != null) {
+            _usedBytes -= previous._data.length;
+        }
+        _usedBytes += blockSize;
+    }
+
+    /**
+     * Called after the owner has read a range of blocks from the host file.
+     * Any blocks we already hold are copied over the corresponding areas of the buffer - they are at least as recent
+     * as the host file, and if they are dirty, the host file is stale.  The remaining blocks are cached.
+     * @param owner device which did the read
+     * @param blockId first block id of the range
+     * @param blockSize size of each block, in bytes
+     * @param buffer buffer containing the data read from the host file
+     * @param blockCount number of blocks in the range
+     * @throws IOException if a dirty block could not be written back during eviction
+     */
+    synchronized void fill(
+        final FileSystemDiskDevice owner,
+        final long blockId,
+        final int blockSize,
+        final ByteBuffer buffer,
+        final int blockCount
+    ) throws IOException {
+        for (int bx = 0; bx < blockCount; ++bx) {
+            Key key = new Key(owner, blockId + bx);
+            Block block = _blocks.get(key);
+            if (block != null) {
+                buffer.put(bx * blockSize, block._data, 0, blockSize);
+            } else {
+                store(key, buffer, bx * blockSize, blockSize, false);
+            }
+        }
+
+        evict();
+    }
+
+    /**
+     * Writes all the dirty blocks for the given owner to its host file
+     * @throws IOException if any block cannot be written - blocks which were not written remain dirty
+     */
+    synchronized void flush(
+        final FileSystemDiskDevice owner
+    ) throws IOException {
+        for (Map.Entry<Key, Block> entry : _blocks.entrySet()) {
+            Block block = entry.getValue();
+            if (block._isDirty && (entry.getKey()._owner == owner)) {
+                owner.writeCachedBlock(entry.getKey()._blockId, block._data);
+                block._isDirty = false;
+                ++_writeBacks;
+            }
+        }
+    }
+
+    /**
+     * Drops the given range of blocks for the given owner, dirty or not.
+     * Used when a write-through write fails, since we no longer know what is in the host file.
+     */
+    synchronized void invalidate(
+        final FileSystemDiskDevice owner,
+        final long blockId,
+        final int blockCount
+    ) {
+        for (int bx = 0; bx < blockCount; ++bx) {
+            Block block = _blocks.remove(new Key(owner, blockId + bx));
+            if (block != null) {
+                _usedBytes -= block._data.length;
+            }
+        }
+    }
+
+    /**
+     * Copies whatever blocks we have in the given range into the corresponding areas of the buffer
+     * @param owner device which is reading
+     * @param blockId first block id of the range
+     * @param blockSize size of each block, in bytes
+     * @param buffer buffer to be populated
+     * @param blockCount number of blocks in the range
+     * @return number of blocks found - if this equals blockCount, the buffer is completely populated
+     */
+    synchronized int read(
+        final FileSystemDiskDevice owner,
+        final long blockId,
+        final int blockSize,
+        final ByteBuffer buffer,
+        final int blockCount
+    ) {
+        int found = 0;
+        for (int bx = 0; bx < blockCount; ++bx) {
+            Block block = _blocks.get(new Key(owner, blockId + bx));
+            if (block != null) {
+                buffer.put(bx * blockSize, block._data, 0, blockSize);
+                ++found;
+            }
+        }
+
+        return found;
+    }
+
+    /**
+     * Flushes, then forgets, all the blocks for the given owner.  The blocks are forgotten even if the flush fails,
+     * since the owner is about to let go of its host file.
+     * @throws IOException if any dirty block could not be written
+     */
+    synchronized void release(
+        final FileSystemDiskDevice owner
+    ) throws IOException {
+        try {
+            flush(owner);
+        } finally {
+            Iterator<Map.Entry<Key, Block>> iter = _blocks.entrySet().iterator();
+            while (iter.hasNext()) {
+                Map.Entry<Key, Block> entry = iter.next();
+                if (entry.getKey()._owner == owner) {
+                    _usedBytes -= entry.getValue()._data.length;
+                    iter.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Caches a range of blocks which the owner is writing.
+     * For WriteBack the blocks are marked dirty, and the caller need not write them to the host file.
+     * @param owner device which is writing
+     * @param blockId first block id of the range
+     * @param blockSize size of each block, in bytes
+     * @param buffer buffer containing the data to be written
+     * @param blockCount number of blocks in the range
+     * @throws IOException if a dirty block could not be written back during eviction
+     */
+    synchronized void write(
+        final FileSystemDiskDevice owner,
+        final long blockId,
+        final int blockSize,
+        final ByteBuffer buffer,
+        final int blockCount
+    ) throws IOException {
+        boolean isDirty = _writePolicy == WritePolicy.WriteBack;
+        for (int bx = 0; bx < blockCount; ++bx) {
+            store(new Key(owner, blockId + bx), buffer, bx * blockSize, blockSize, isDirty);
+        }
+
+        evict();
+    }
+
+
+    //  ----------------------------------------------------------------------------------------------------------------------------
+    //  Public methods
+    //  ----------------------------------------------------------------------------------------------------------------------------
+
+    public long getBudget() { return _budget; }
+    public synchronized long getEvictions() { return _evictions; }
+    public synchronized long getUsedBytes() { return _usedBytes; }
+    public synchronized long getWriteBacks() { return _writeBacks; }
+    public WritePolicy getWritePolicy() { return _writePolicy; }
+
+    /**
+     * Number of dirty blocks held for the given owner
+     */
+    public synchronized int getDirtyBlockCount(
+        final FileSystemDiskDevice owner
+    ) {
+        int count = 0;
+        for (Map.Entry<Key, Block> entry : _blocks.entrySet()) {
+            if (entry.getValue()._isDirty && (entry.getKey()._owner == owner)) {
+                ++count;
+            }
+        }
+        return count;
+    }
+}
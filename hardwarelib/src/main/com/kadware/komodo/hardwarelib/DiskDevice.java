@@ -248,6 +248,10 @@ public abstract class DiskDevice extends Device {
     ) {
         if (ioInfo._byteBuffer != null) {
             logBuffer(LOGGER, Level.INFO, "IO Buffer", ioInfo._byteBuffer);
+        } else if (ioInfo._ioBuffer != null) {
+            byte[] data = new byte[ioInfo._transferCount];
+            ioInfo._ioBuffer.get(0, data);
+            logBuffer(LOGGER, Level.INFO, "IO Buffer", data);
         } else if (ioInfo._wordBuffer != null) {
             logBuffer(LOGGER, Level.INFO, "IO Buffer", ioInfo._wordBuffer);
         }
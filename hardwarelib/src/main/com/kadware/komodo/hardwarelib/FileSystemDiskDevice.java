@@ -15,6 +15,7 @@ import java.nio.channels.CompletionHandler;
 import java.nio.file.FileSystems;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
+import java.util.EnumSet;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import org.apache.logging.log4j.Logger;
@@ -124,6 +125,9 @@ public class FileSystemDiskDevice extends DiskDevice implements CompletionHandle
     }
 
     private static final Logger LOGGER = LogManager.getLogger(FileSystemDiskDevice.class);
+    private DiskBlockCache _blockCache = null;      //  null if blocks are not cached
+    private long _cacheHits = 0;                    //  in blocks
+    private long _cacheMisses = 0;                  //  in blocks
     private AsynchronousFileChannel _channel;
     private String _fileName;       //  only valid if mounted
 
@@ -148,22 +152,46 @@ public class FileSystemDiskDevice extends DiskDevice implements CompletionHandle
     //  ----------------------------------------------------------------------------------------------------------------------------
 
     public void completed(Integer value, IOInfo attachment) {
-        attachment._transferredCount = value;
-        attachment._status = IOStatus.Successful;
-        attachment._source.signal();
+        //  Update the statistics before posting the status, since the status is what the requester waits on
         if (attachment._ioFunction.isReadFunction()) {
+            if ((attachment._ioBuffer != null) && (value < attachment._transferCount)) {
+                //  A pooled buffer still holds whatever it was last used for, beyond what we have just read
+                for (int bx = Math.max(value, 0); bx < attachment._transferCount; ++bx) {
+                    attachment._ioBuffer.put(bx, (byte) 0);
+                }
+            }
+
+            DiskBlockCache cache = _blockCache;
+            if (cache != null) {
+                //  Blocks beyond the end of the host file have never been written, and are logically zero.
+                //  The buffer already contains zeroes for them, so the entire transfer is good.
+                value = attachment._transferCount;
+                try {
+                    cache.fill(this, attachment._blockId, _blockSize, getHostBuffer(attachment), value / _blockSize);
+                } catch (IOException ex) {
+                    LOGGER.error(String.format("Device %s block cache write-back failed:%s", _name, ex.getMessage()));
+                }
+            }
             _readBytes += value;
         } else {
             _writeBytes += value;
         }
+        attachment._transferredCount = value;
+        attachment._status = IOStatus.Successful;
+        attachment._source.signal(attachment);
     }
 
     /**
      * Async io failed
      */
     public void failed(Throwable t, IOInfo attachment) {
+        DiskBlockCache cache = _blockCache;
+        if ((cache != null) && attachment._ioFunction.isWriteFunction()) {
+            //  We no longer know what the host file contains for these blocks
+            cache.invalidate(this, attachment._blockId, attachment._transferCount / _blockSize);
+        }
         attachment._status = IOStatus.SystemException;
-        attachment._source.signal();
+        attachment._source.signal(attachment);
         LOGGER.error(String.format("Device %s IO failed:%s", _name, t.getMessage()));
     }
 
@@ -189,6 +217,12 @@ public class FileSystemDiskDevice extends DiskDevice implements CompletionHandle
     @Override
     public boolean hasByteInterface() { return true; }
 
+    /**
+     * We read and write host files directly from and to pooled direct buffers
+     */
+    @Override
+    public boolean hasDirectBufferInterface() { return true; }
+
     /**
      * We are NOT a word interface device
      */
@@ -217,9 +251,18 @@ public class FileSystemDiskDevice extends DiskDevice implements CompletionHandle
 
     /**
      * Invoked just before tearing down the configuration.
+     * Anything which has not yet been written to the host file, is written now.
      */
     @Override
-    public void terminate() {}
+    public void terminate() {
+        if (_isMounted && (_blockCache != null)) {
+            try {
+                _blockCache.flush(this);
+            } catch (IOException ex) {
+                LOGGER.error(String.format("Device %s block cache flush failed:%s", _name, ex.getMessage()));
+            }
+        }
+    }
 
 
     //  ----------------------------------------------------------------------------------------------------------------------------
@@ -241,7 +284,7 @@ public class FileSystemDiskDevice extends DiskDevice implements CompletionHandle
         as.pack(ioInfo._byteBuffer);
         ioInfo._status = IOStatus.Successful;
         _unitAttentionFlag = false;
-        ioInfo._source.signal();
+        ioInfo._source.signal(ioInfo);
     }
 
     /**
@@ -255,13 +298,13 @@ public class FileSystemDiskDevice extends DiskDevice implements CompletionHandle
 
         if (!_readyFlag) {
             ioInfo._status = IOStatus.NotReady;
-            ioInfo._source.signal();
+            ioInfo._source.signal(ioInfo);
             return;
         }
 
         if (_unitAttentionFlag) {
             ioInfo._status = IOStatus.UnitAttention;
-            ioInfo._source.signal();
+            ioInfo._source.signal(ioInfo);
             return;
         }
 
@@ -269,14 +312,14 @@ public class FileSystemDiskDevice extends DiskDevice implements CompletionHandle
         //  and if it has that, it is already hardware-prepped.
         if (!isPrepped()) {
             ioInfo._status = IOStatus.NotPrepped;
-            ioInfo._source.signal();
+            ioInfo._source.signal(ioInfo);
             return;
         }
 
         long reqByteCount = ioInfo._transferCount;
         if ((reqByteCount % _blockSize) != 0) {
             ioInfo._status = IOStatus.InvalidBlockSize;
-            ioInfo._source.signal();
+            ioInfo._source.signal(ioInfo);
             return;
         }
 
@@ -285,24 +328,40 @@ public class FileSystemDiskDevice extends DiskDevice implements CompletionHandle
 
         if (reqBlockId >= _blockCount) {
             ioInfo._status = IOStatus.InvalidBlockId;
-            ioInfo._source.signal();
+            ioInfo._source.signal(ioInfo);
             return;
         }
 
         if (reqBlockId + reqBlockCount > _blockCount) {
             ioInfo._status = IOStatus.InvalidBlockCount;
-            ioInfo._source.signal();
+            ioInfo._source.signal(ioInfo);
             return;
         }
 
         ioInfo._status = IOStatus.InProgress;
-        ioInfo._byteBuffer = new byte[ioInfo._transferCount];
+        if (ioInfo._ioBuffer == null) {
+            ioInfo._byteBuffer = new byte[ioInfo._transferCount];
+        }
+        ByteBuffer buffer = getHostBuffer(ioInfo);
+        if (_blockCache != null) {
+            int found = _blockCache.read(this, reqBlockId, _blockSize, buffer, (int) reqBlockCount);
+            _cacheHits += found;
+            _cacheMisses += reqBlockCount - found;
+            if (found == reqBlockCount) {
+                _readBytes += ioInfo._transferCount;
+                ioInfo._transferredCount = ioInfo._transferCount;
+                ioInfo._status = IOStatus.Successful;
+                ioInfo._source.signal(ioInfo);
+                return;
+            }
+        }
+
         long byteOffset = calculateByteOffset(reqBlockId);
-        _channel.read(ByteBuffer.wrap(ioInfo._byteBuffer), byteOffset, ioInfo, this);
+        _channel.read(buffer, byteOffset, ioInfo, this);
     }
 
     /**
-     * Resets the device - not much to be done
+     * Resets the device - not much to be done, other than flushing any dirty cached blocks
      */
     @Override
     protected void ioReset(
@@ -314,9 +373,17 @@ public class FileSystemDiskDevice extends DiskDevice implements CompletionHandle
             ioInfo._status = IOStatus.NotReady;
         } else {
             ioInfo._status = IOStatus.Successful;
+            if (_blockCache != null) {
+                try {
+                    _blockCache.flush(this);
+                } catch (IOException ex) {
+                    LOGGER.error(String.format("Device %s block cache flush failed:%s", _name, ex.getMessage()));
+                    ioInfo._status = IOStatus.SystemException;
+                }
+            }
         }
 
-        ioInfo._source.signal();
+        ioInfo._source.signal(ioInfo);
     }
 
     /**
@@ -331,11 +398,10 @@ public class FileSystemDiskDevice extends DiskDevice implements CompletionHandle
         if (!_readyFlag) {
             ioInfo._status = IOStatus.NotReady;
         } else {
-            unmount();
-            ioInfo._status = IOStatus.Successful;
+            ioInfo._status = unmount() ? IOStatus.Successful : IOStatus.SystemException;
         }
 
-        ioInfo._source.signal();
+        ioInfo._source.signal(ioInfo);
     }
 
     /**
@@ -349,13 +415,13 @@ public class FileSystemDiskDevice extends DiskDevice implements CompletionHandle
 
         if (!_readyFlag) {
             ioInfo._status = IOStatus.NotReady;
-            ioInfo._source.signal();
+            ioInfo._source.signal(ioInfo);
             return;
         }
 
         if (_unitAttentionFlag) {
             ioInfo._status = IOStatus.UnitAttention;
-            ioInfo._source.signal();
+            ioInfo._source.signal(ioInfo);
             return;
         }
 
@@ -363,26 +429,27 @@ public class FileSystemDiskDevice extends DiskDevice implements CompletionHandle
         //  and if it has that, it is already hardware-prepped.
         if (!isPrepped()) {
             ioInfo._status = IOStatus.NotPrepped;
-            ioInfo._source.signal();
+            ioInfo._source.signal(ioInfo);
             return;
         }
 
         if (_isWriteProtected) {
             ioInfo._status = IOStatus.WriteProtected;
-            ioInfo._source.signal();
+            ioInfo._source.signal(ioInfo);
             return;
         }
 
-        if (ioInfo._byteBuffer.length < ioInfo._transferCount) {
+        int bufferSize = (ioInfo._ioBuffer != null) ? ioInfo._ioBuffer.capacity() : ioInfo._byteBuffer.length;
+        if (bufferSize < ioInfo._transferCount) {
             ioInfo._status = IOStatus.BufferTooSmall;
-            ioInfo._source.signal();
+            ioInfo._source.signal(ioInfo);
             return;
         }
 
         long reqByteCount = ioInfo._transferCount;
         if ((reqByteCount % _blockSize) != 0) {
             ioInfo._status = IOStatus.InvalidBlockSize;
-            ioInfo._source.signal();
+            ioInfo._source.signal(ioInfo);
             return;
         }
 
@@ -391,19 +458,39 @@ public class FileSystemDiskDevice extends DiskDevice implements CompletionHandle
 
         if (reqBlockId >= _blockCount) {
             ioInfo._status = IOStatus.InvalidBlockId;
-            ioInfo._source.signal();
+            ioInfo._source.signal(ioInfo);
             return;
         }
 
         if (reqBlockId + reqBlockCount > _blockCount) {
             ioInfo._status = IOStatus.InvalidBlockCount;
-            ioInfo._source.signal();
+            ioInfo._source.signal(ioInfo);
             return;
         }
 
         ioInfo._status = IOStatus.InProgress;
+        ByteBuffer buffer = getHostBuffer(ioInfo);
+        if (_blockCache != null) {
+            try {
+                _blockCache.write(this, reqBlockId, _blockSize, buffer, (int) reqBlockCount);
+            } catch (IOException ex) {
+                LOGGER.error(String.format("Device %s block cache write-back failed:%s", _name, ex.getMessage()));
+                ioInfo._status = IOStatus.SystemException;
+                ioInfo._source.signal(ioInfo);
+                return;
+            }
+
+            if (_blockCache.getWritePolicy() == DiskBlockCache.WritePolicy.WriteBack) {
+                _writeBytes += ioInfo._transferCount;
+                ioInfo._transferredCount = ioInfo._transferCount;
+                ioInfo._status = IOStatus.Successful;
+                ioInfo._source.signal(ioInfo);
+                return;
+            }
+        }
+
         long byteOffset = calculateByteOffset(reqBlockId);
-        _channel.write(ByteBuffer.wrap(ioInfo._byteBuffer), byteOffset, ioInfo, this);
+        _channel.write(buffer, byteOffset, ioInfo, this);
     }
 
 
@@ -421,6 +508,19 @@ public class FileSystemDiskDevice extends DiskDevice implements CompletionHandle
         return _blockSize == null ? 0 : (blockId + 1) * _blockSize;
     }
 
+    /**
+     * Presents the data area for a byte transfer as a ByteBuffer, positioned at the start of the transfer -
+     * this is the pooled buffer if there is one, else a wrapping of the byte array.
+     */
+    private static ByteBuffer getHostBuffer(
+        final IOInfo ioInfo
+    ) {
+        if (ioInfo._ioBuffer != null) {
+            return ioInfo._ioBuffer.clear().limit(ioInfo._transferCount);
+        }
+        return ByteBuffer.wrap(ioInfo._byteBuffer, 0, ioInfo._transferCount);
+    }
+
     /**
      * Mounts the media for this device.
      * For a FileSystemDiskDevice, this entails opening a filesystem file.
@@ -437,7 +537,7 @@ public class FileSystemDiskDevice extends DiskDevice implements CompletionHandle
 
         try {
             Path path = FileSystems.getDefault().getPath(mediaName);
-            _channel = AsynchronousFileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            _channel = WorkerThreads.openChannel(path, EnumSet.of(StandardOpenOption.READ, StandardOpenOption.WRITE));
 
             //  Read scratch pad to determine pack geometry.
             //  We don't know the block size at this point, which is something of a problem for us.
@@ -500,6 +600,24 @@ public class FileSystemDiskDevice extends DiskDevice implements CompletionHandle
         return true;
     }
 
+    /**
+     * Writes one block on behalf of the block cache, waiting for the write to complete
+     */
+    void writeCachedBlock(
+        final long blockId,
+        final byte[] data
+    ) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        long byteOffset = calculateByteOffset(blockId);
+        try {
+            while (buffer.hasRemaining()) {
+                byteOffset += _channel.write(buffer, byteOffset).get();
+            }
+        } catch (ExecutionException | InterruptedException ex) {
+            throw new IOException(ex);
+        }
+    }
+
     private ScratchPad readScratchPad(
     ) {
         int bufferSize = 128;
@@ -544,11 +662,46 @@ public class FileSystemDiskDevice extends DiskDevice implements CompletionHandle
         super.dump(writer);
         try {
             writer.write(String.format("  File Name:       %s\n", String.valueOf(_fileName)));
+            if (_blockCache != null) {
+                long lookups = _cacheHits + _cacheMisses;
+                writer.write(String.format("  Block Cache:     %s budget=%d used=%d evictions=%d writeBacks=%d\n",
+                                           _blockCache.getWritePolicy(),
+                                           _blockCache.getBudget(),
+                                           _blockCache.getUsedBytes(),
+                                           _blockCache.getEvictions(),
+                                           _blockCache.getWriteBacks()));
+                writer.write(String.format("  Cache Hits:      %d\n", _cacheHits));
+                writer.write(String.format("  Cache Misses:    %d\n", _cacheMisses));
+                writer.write(String.format("  Cache Hit Ratio: %.2f%%\n", lookups == 0 ? 0.0 : 100.0 * _cacheHits / lookups));
+                writer.write(String.format("  Dirty Blocks:    %d\n", _blockCache.getDirtyBlockCount(this)));
+            }
         } catch (IOException ex) {
             LOGGER.catching(ex);
         }
     }
 
+    public DiskBlockCache getBlockCache() { return _blockCache; }
+    long getCacheHits() { return _cacheHits; }
+    long getCacheMisses() { return _cacheMisses; }
+
+    /**
+     * Establishes the block cache for this device, or null for none.  Give the same cache to several devices to share it.
+     * Should be done while the device is not ready.  Any blocks held for us by the previous cache are written back and dropped.
+     * @throws IOException if dirty blocks in the previous cache could not be written
+     */
+    public void setBlockCache(
+        final DiskBlockCache cache
+    ) throws IOException {
+        DiskBlockCache previous = _blockCache;
+        try {
+            if ((previous != null) && (previous != cache) && _isMounted) {
+                previous.release(this);
+            }
+        } finally {
+            _blockCache = cache;
+        }
+    }
+
     /**
      * Unmounts the currently-mounted media
      * @return true if successful, else false
@@ -563,6 +716,17 @@ public class FileSystemDiskDevice extends DiskDevice implements CompletionHandle
         //  Clear ready flag to prevent any more IOs from coming in.
         setReady(false);
 
+        //  Write back and forget any cached blocks - they belong to this pack, not to the next one
+        boolean result = true;
+        if (_blockCache != null) {
+            try {
+                _blockCache.release(this);
+            } catch (IOException ex) {
+                LOGGER.error(String.format("Device %s block cache flush failed:%s", _name, ex.getMessage()));
+                result = false;
+            }
+        }
+
         // Release the host system file
         try {
             _channel.close();
@@ -578,7 +742,7 @@ public class FileSystemDiskDevice extends DiskDevice implements CompletionHandle
         _isWriteProtected = true;
         _fileName = null;
 
-        return true;
+        return result;
     }
 
     /**
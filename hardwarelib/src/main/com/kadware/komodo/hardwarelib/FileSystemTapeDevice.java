@@ -9,7 +9,17 @@ import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.LinkedList;
+import java.util.Queue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.LogManager;
@@ -77,9 +87,11 @@ import org.apache.logging.log4j.LogManager;
  * Every file begins with a scratch pad which identifies the file as a virtual tape volume
  * and indicates the file size limit (if one exists) for the particular volume.
  *
- * Currently IO is synchronous, which will hold up the channel module.
- * For this reason, it is recommended that tape devices be on a channel module apart
- * from anything else, or at least from all disk devices.
+ * IO is asynchronous, so a tape does not hold up its channel module.  A tape does one thing at a time, so IOs
+ * which arrive while another is in progress are queued behind it.  Forward and backward reads and moves are
+ * satisfied from a read-ahead window which generally holds a block, its control words, and the following block,
+ * so that sequential reading usually costs one host IO for every couple of blocks.  A write sends a block and both
+ * of its control words to the host file in a single IO.
  */
 @SuppressWarnings("Duplicates")
 public class FileSystemTapeDevice extends TapeDevice {
@@ -185,10 +197,16 @@ public class FileSystemTapeDevice extends TapeDevice {
     static final int MIN_FILE_SIZE = 40 * 1024 * 1024;      //  40MBytes
     private static final Logger LOGGER = LogManager.getLogger(FileSystemTapeDevice.class);
 
+    /**
+     * Size of the read-ahead window - large enough for the largest block with its control words,
+     * and for the next block (and its control words) as well.
+     */
+    static final int READ_AHEAD_SIZE = 2 * (MAX_BLOCK_SIZE + 8);
+
     /**
      * Backing file for the currently-mounted volume (if any)
      */
-    private RandomAccessFile _file;
+    private AsynchronousFileChannel _channel;
 
     /**
      * Currently-mounted media name (if any) - includes full path if provided
@@ -197,7 +215,7 @@ public class FileSystemTapeDevice extends TapeDevice {
 
     /**
      * Current byte position - corresponds to the next frame to be read.
-     * Not so important for sync IO, but if we ever transition to async, it will be critical.
+     * This is the position as of the completion of the IO in progress (if any).
      */
     private long _position;
 
@@ -211,6 +229,25 @@ public class FileSystemTapeDevice extends TapeDevice {
      */
     private int _endOfTapeWarning;
 
+    /**
+     * The IO currently being worked on, if any.  A tape drive does one thing at a time, so any IO which arrives
+     * while another is in progress is queued until that IO completes.
+     */
+    private IOInfo _activeIo = null;
+    private final Queue<IOInfo> _queuedIos = new LinkedList<>();
+
+    /**
+     * Read-ahead window - a copy of the content of the file, READ_AHEAD_SIZE bytes (or fewer, at the end of
+     * the file) beginning at _readAheadPosition.  Reads and moves are satisfied from here wherever possible,
+     * so that a sequential read usually finds its control words, its data, and the next block already in memory.
+     * Any write invalidates the window.
+     */
+    private final byte[] _readAheadBuffer = new byte[READ_AHEAD_SIZE];
+    private long _readAheadFetches = 0;
+    private int _readAheadLength = 0;
+    private long _readAheadPosition = 0;
+    private boolean _readAheadReachesEnd = false;   //  window extends to the end of the file
+
 
     //  ----------------------------------------------------------------------------------------------------------------------------
     //  Constructors
@@ -226,78 +263,472 @@ public class FileSystemTapeDevice extends TapeDevice {
     }
 
 
+    //  ----------------------------------------------------------------------------------------------------------------------------
+    //  CompletionHandler implementations
+    //  ----------------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Handles completion of a read into the read-ahead window, by resuming the IO which asked for it
+     */
+    private class ReadAheadHandler implements CompletionHandler<Integer, IOInfo> {
+
+        @Override
+        public void completed(Integer value, IOInfo attachment) {
+            synchronized (FileSystemTapeDevice.this) {
+                if (_channel == null) {
+                    failed(new IOException("Volume was unmounted"), attachment);
+                    return;
+                }
+
+                _readAheadLength = Math.max(value, 0);
+                try {
+                    _readAheadReachesEnd = _readAheadPosition + _readAheadLength >= _channel.size();
+                } catch (IOException ex) {
+                    _readAheadReachesEnd = true;
+                }
+
+                if (advance(attachment)) {
+                    complete(attachment);
+                }
+            }
+        }
+
+        @Override
+        public void failed(Throwable t, IOInfo attachment) {
+            synchronized (FileSystemTapeDevice.this) {
+                LOGGER.error(String.format("Device %s IO failed:%s", _name, t.getMessage()));
+                invalidateReadAhead();
+                _lostPositionFlag = true;
+                attachment._status = IOStatus.SystemException;
+                complete(attachment);
+            }
+        }
+    }
+
+    /**
+     * Handles completion of a write, continuing it if the channel did not write the whole buffer at once
+     */
+    private class WriteHandler implements CompletionHandler<Integer, IOInfo> {
+
+        private final ByteBuffer _buffer;
+        private final long _filePosition;
+        private final IOStatus _status;     //  status to be posted when the write is complete
+
+        WriteHandler(
+            final ByteBuffer buffer,
+            final long filePosition,
+            final IOStatus status
+        ) {
+            _buffer = buffer;
+            _filePosition = filePosition;
+            _status = status;
+        }
+
+        @Override
+        public void completed(Integer value, IOInfo attachment) {
+            synchronized (FileSystemTapeDevice.this) {
+                if (_channel == null) {
+                    failed(new IOException("Volume was unmounted"), attachment);
+                } else if (_buffer.hasRemaining() && (value > 0)) {
+                    _channel.write(_buffer, _filePosition + _buffer.position(), attachment, this);
+                } else if (_buffer.hasRemaining()) {
+                    failed(new IOException("Incomplete write"), attachment);
+                } else {
+                    attachment._status = _status;
+                    complete(attachment);
+                }
+            }
+        }
+
+        @Override
+        public void failed(Throwable t, IOInfo attachment) {
+            synchronized (FileSystemTapeDevice.this) {
+                LOGGER.error(String.format("Device %s IO failed:%s", _name, t.getMessage()));
+                _lostPositionFlag = true;
+                attachment._status = IOStatus.SystemException;
+                complete(attachment);
+            }
+        }
+    }
+
+    private final ReadAheadHandler _readAheadHandler = new ReadAheadHandler();
+
+
     //  ----------------------------------------------------------------------------------------------------------------------------
     //  Private methods
     //  ----------------------------------------------------------------------------------------------------------------------------
 
     /**
-     * Reads a 32-bit signed integer from the mounted file.
-     * Does not update any state information.
-     * @return control word
-     * @throws BadControlWordException if we read an invalid control word
-     * @throws IOException if we cannot read from the file
-     * @throws OutOfDataException if we are apparently at the end of the file and cannot read a control word
+     * Works on the active IO for as long as it can without waiting for the host file.
+     * Called when the IO is started, and again whenever a read it needed is complete.
+     * Each step function picks up from the current tape position, and only updates the position once it has
+     * the data it needs - so it may be called any number of times for the same IO.
+     * @return true if the IO is finished (its status is set), false if it is waiting on the host file
      */
-    private int readControlWord(
-    ) throws BadControlWordException,
-             IOException,
-             OutOfDataException {
-        //  Read 4 bytes - if there aren't 4 bytes left, set lost position flag.
-        //  If something worse happens, we propogate the exception to the caller,
-        //  who may choose to catch it or propogate it, as appropriate.
-        _file.seek(_position);
-        byte[] buffer = new byte[4];
-        int bytes = _file.read(buffer);
-        if (bytes != 4) {
-            throw new OutOfDataException(_position);
+    private boolean advance(
+        final IOInfo ioInfo
+    ) {
+        try {
+            switch (ioInfo._ioFunction) {
+                case MoveBlock:             return stepMoveBlock(ioInfo);
+                case MoveBlockBackward:     return stepMoveBlockBackward(ioInfo);
+                case MoveFile:              return stepMoveFile(ioInfo);
+                case MoveFileBackward:      return stepMoveFileBackward(ioInfo);
+                case Read:                  return stepRead(ioInfo);
+                case ReadBackward:          return stepReadBackward(ioInfo);
+                default:
+                    ioInfo._status = IOStatus.InvalidFunction;
+                    return true;
+            }
+        } catch (BadControlWordException | OutOfDataException ex) {
+            LOGGER.error("Caught:" + ex.getMessage());
+            _lostPositionFlag = true;
+            ioInfo._status = IOStatus.LostPosition;
+            return true;
         }
-        _position += 4;
+    }
 
-        // Convert the bytes to the 32-bit control word value
-        int cw = ByteBuffer.wrap(buffer).getInt();
+    /**
+     * Finishes an IO which completed asynchronously, and starts whatever was queued behind it.
+     * The status must already be set.
+     */
+    private void complete(
+        final IOInfo ioInfo
+    ) {
+        ioInfo._source.signal(ioInfo);
+        _activeIo = null;
+        startQueuedIos();
+    }
+
+    /**
+     * Hands an IO to the superclass for dispatching to the appropriate io* method, as the active IO.
+     * If the IO is accepted but finishes without waiting for the host file, it is signalled here,
+     * since the channel module finds out about accepted IOs only through signal().
+     * Must be called with the device lock held, and with no other IO active.
+     */
+    private boolean dispatch(
+        final IOInfo ioInfo
+    ) {
+        _activeIo = ioInfo;
+        boolean result = super.handleIo(ioInfo);
+        if (ioInfo._status != IOStatus.InProgress) {
+            _activeIo = null;
+            if (result) {
+                ioInfo._source.signal(ioInfo);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Ensures that the given range of bytes is in the read-ahead window.
+     * If it is not, a read is started to fill the window - forward from the start of the range,
+     * or backward from the end of the range - and the active IO is resumed via advance() when it is complete.
+     * @param ioInfo the active IO
+     * @param start file position of the first byte required
+     * @param count number of bytes required (not more than READ_AHEAD_SIZE)
+     * @param backward true if we are moving backward, so that the window should precede the range
+     * @return true if the range is in the window, false if a read is in progress
+     * @throws OutOfDataException if the range extends beyond either end of the file
+     */
+    private boolean fetch(
+        final IOInfo ioInfo,
+        final long start,
+        final int count,
+        final boolean backward
+    ) throws OutOfDataException {
+        long end = start + count;
+        long windowEnd = _readAheadPosition + _readAheadLength;
+        if (start < 0) {
+            throw new OutOfDataException(start);
+        } else if ((start >= _readAheadPosition) && (end <= windowEnd)) {
+            return true;
+        } else if (_readAheadReachesEnd && (start >= _readAheadPosition) && (start <= windowEnd)) {
+            throw new OutOfDataException(windowEnd);
+        }
+
+        _readAheadPosition = backward ? Math.max(0, end - READ_AHEAD_SIZE) : start;
+        _readAheadLength = 0;
+        _readAheadReachesEnd = false;
+        ++_readAheadFetches;
+        _channel.read(ByteBuffer.wrap(_readAheadBuffer), _readAheadPosition, ioInfo, _readAheadHandler);
+        return false;
+    }
+
+    /**
+     * Retrieves and validates the control word at the given position, which must be in the read-ahead window
+     * @throws BadControlWordException if the control word is not valid
+     */
+    private int getControlWord(
+        final long position
+    ) throws BadControlWordException {
+        int cw = ByteBuffer.wrap(_readAheadBuffer, (int) (position - _readAheadPosition), 4).getInt();
         if ((cw < 0) && (cw != FILE_MARK_CONTROL_WORD)) {
-            throw new BadControlWordException(_position, cw);
+            throw new BadControlWordException(position, cw);
         } else if (cw > MAX_BLOCK_SIZE) {
-            throw new BadControlWordException(_position, cw);
+            throw new BadControlWordException(position, cw);
         }
 
         return cw;
     }
 
     /**
-     * Reads the previous control word, leaving the file pointer at the position of the control word.
-     * Effectively reads backwards one control word, leaving tape position *at* the control word.
-     * @return control word
-     * @throws BadControlWordException if we read an invalid control word
-     * @throws IOException if we cannot read from the file
-     * @throws OutOfDataException if we are at the end of the file and cannot read a control word,
-     * or we are at (or ahead of) load point, and there is no previous control word.
+     * Discards the content of the read-ahead window
      */
-    private int readPreceedingControlWord(
+    private void invalidateReadAhead() {
+        _readAheadLength = 0;
+        _readAheadPosition = 0;
+        _readAheadReachesEnd = false;
+    }
+
+    /**
+     * Starts queued IOs until one of them has to wait for the host file, or there are no more
+     */
+    private void startQueuedIos() {
+        while ((_activeIo == null) && !_queuedIos.isEmpty()) {
+            IOInfo ioInfo = _queuedIos.poll();
+            if (!dispatch(ioInfo)) {
+                //  finished by the superclass without our involvement
+                ioInfo._source.signal(ioInfo);
+            }
+        }
+    }
+
+    /**
+     * Starts writing a buffer at the current position, which is then advanced past the buffer.
+     * The given status is posted when the write is complete.
+     */
+    private void startWrite(
+        final IOInfo ioInfo,
+        final ByteBuffer buffer,
+        final IOStatus status
+    ) {
+        invalidateReadAhead();
+        long filePosition = _position;
+        _position += buffer.remaining();
+        _channel.write(buffer, filePosition, ioInfo, new WriteHandler(buffer, filePosition, status));
+    }
+
+    private boolean stepMoveBlock(
+        final IOInfo ioInfo
     ) throws BadControlWordException,
-             IOException,
              OutOfDataException {
-        if (_position < SCRATCH_PAD_BUFFER_SIZE + 4) {
-            throw new OutOfDataException(_position);
+        if (!fetch(ioInfo, _position, 4, false)) {
+            return false;
         }
 
-        _file.seek(_position - 4);
-        byte[] buffer = new byte[4];
-        int bytes = _file.read(buffer);
-        if (bytes != 4) {
+        int controlWord = getControlWord(_position);
+        _position += 4;
+        _loadPointFlag = false;
+        if (controlWord == FILE_MARK_CONTROL_WORD) {
+            ioInfo._status = IOStatus.FileMark;     //  over-rides EOT status
+            _endOfTapeFlag = _position > _endOfTapeWarning;
+            _blocksExtended = 0;
+            ++_filesExtended;
+        } else {
+            //  We have a valid block, but we don't want to read it, just skip the block and the terminating control word.
+            _position += controlWord + 4;
+            ioInfo._transferredCount = 0;
+            ++_blocksExtended;
+            _endOfTapeFlag = _position > _endOfTapeWarning;
+            ioInfo._status = _endOfTapeFlag ? IOStatus.EndOfTape : IOStatus.Successful;
+        }
+
+        return true;
+    }
+
+    private boolean stepMoveBlockBackward(
+        final IOInfo ioInfo
+    ) throws BadControlWordException,
+             OutOfDataException {
+        if (_position < SCRATCH_PAD_BUFFER_SIZE + 4) {
             throw new OutOfDataException(_position);
+        } else if (!fetch(ioInfo, _position - 4, 4, true)) {
+            return false;
         }
 
+        int controlWord = getControlWord(_position - 4);
         _position -= 4;
-        // Convert the bytes to the 32-bit control word value
-        int cw = ByteBuffer.wrap(buffer).getInt();
-        if ((cw < 0) && (cw != FILE_MARK_CONTROL_WORD)) {
-            throw new BadControlWordException(_position, cw);
-        } else if (cw > MAX_BLOCK_SIZE) {
-            throw new BadControlWordException(_position, cw);
+        if (controlWord == FILE_MARK_CONTROL_WORD) {
+            ioInfo._status = IOStatus.FileMark;
+            _blocksExtended = 0;
+            ++_filesExtended;
+        } else {
+            _position -= controlWord + 4;
+            if (_position < SCRATCH_PAD_BUFFER_SIZE) {
+                throw new OutOfDataException(_position);
+            }
+            ioInfo._status = IOStatus.Successful;
+            ++_blocksExtended;
         }
 
-        return cw;
+        _endOfTapeFlag = _position > _endOfTapeWarning;
+        _loadPointFlag = _position <= SCRATCH_PAD_BUFFER_SIZE;
+        ioInfo._transferredCount = 0;
+        return true;
+    }
+
+    private boolean stepMoveFile(
+        final IOInfo ioInfo
+    ) throws BadControlWordException,
+             OutOfDataException {
+        //  Loop until we get a file mark, or lose position, or something
+        while (true) {
+            if (!fetch(ioInfo, _position, 4, false)) {
+                return false;
+            }
+
+            int controlWord = getControlWord(_position);
+            _position += 4;
+            _loadPointFlag = false;
+            if (controlWord == FILE_MARK_CONTROL_WORD) {
+                break;
+            }
+
+            //  Skip this block and the following control word
+            _position += controlWord + 4;
+            ++_blocksExtended;
+        }
+
+        _endOfTapeFlag = _position > _endOfTapeWarning;
+        _blocksExtended = 0;
+        ++_filesExtended;
+        ioInfo._status = _endOfTapeFlag ? IOStatus.EndOfTape : IOStatus.Successful;
+        return true;
+    }
+
+    private boolean stepMoveFileBackward(
+        final IOInfo ioInfo
+    ) throws BadControlWordException,
+             OutOfDataException {
+        //  Loop until we get a file mark, or lose position, or something
+        while (true) {
+            if (_position < SCRATCH_PAD_BUFFER_SIZE) {
+                throw new OutOfDataException(_position);
+            } else if (_position == SCRATCH_PAD_BUFFER_SIZE) {
+                _loadPointFlag = true;
+                ioInfo._status = IOStatus.EndOfTape;
+                return true;
+            } else if (_position < SCRATCH_PAD_BUFFER_SIZE + 4) {
+                throw new OutOfDataException(_position);
+            } else if (!fetch(ioInfo, _position - 4, 4, true)) {
+                return false;
+            }
+
+            int controlWord = getControlWord(_position - 4);
+            _position -= 4;
+            if (controlWord == FILE_MARK_CONTROL_WORD) {
+                _blocksExtended = 0;
+                ++_filesExtended;
+                ioInfo._status = IOStatus.Successful;
+                return true;
+            }
+
+            _position -= controlWord + 4;
+            if (_position < SCRATCH_PAD_BUFFER_SIZE) {
+                throw new OutOfDataException(_position);
+            }
+            ++_blocksExtended;
+        }
+    }
+
+    private boolean stepRead(
+        final IOInfo ioInfo
+    ) throws BadControlWordException,
+             OutOfDataException {
+        //  Loop until we get a valid block, or lose position, or something
+        while (true) {
+            if (!fetch(ioInfo, _position, 4, false)) {
+                return false;
+            }
+
+            int controlWord = getControlWord(_position);
+            _loadPointFlag = false;
+            if (controlWord == FILE_MARK_CONTROL_WORD) {
+                _position += 4;
+                ioInfo._status = IOStatus.FileMark;
+                _blocksExtended = 0;
+                ++_filesExtended;
+                return true;
+            } else if (controlWord < _noiseConstant) {
+                //  Ignore a block which is too small - that is, skip the block and both control words.
+                _position += controlWord + 8;
+            } else {
+                //  We have a valid block to read - it is usually already in the read-ahead window
+                if (!fetch(ioInfo, _position + 4, controlWord, false)) {
+                    return false;
+                }
+
+                int windowOffset = (int) (_position + 4 - _readAheadPosition);
+                ioInfo._byteBuffer = Arrays.copyOfRange(_readAheadBuffer, windowOffset, windowOffset + controlWord);
+                _readBytes += controlWord;
+                _position += controlWord + 8;
+                ioInfo._transferredCount = controlWord;
+                _endOfTapeFlag = _position > _endOfTapeWarning;
+                ioInfo._status = _endOfTapeFlag ? IOStatus.EndOfTape : IOStatus.Successful;
+                return true;
+            }
+        }
+    }
+
+    private boolean stepReadBackward(
+        final IOInfo ioInfo
+    ) throws BadControlWordException,
+             OutOfDataException {
+        //  Loop until we get a valid block, or lose position, or something
+        while (true) {
+            if (_position < SCRATCH_PAD_BUFFER_SIZE) {
+                throw new OutOfDataException(_position);
+            } else if (_position == SCRATCH_PAD_BUFFER_SIZE) {
+                _loadPointFlag = true;
+                ioInfo._status = IOStatus.EndOfTape;
+                return true;
+            } else if (_position < SCRATCH_PAD_BUFFER_SIZE + 4) {
+                throw new OutOfDataException(_position);
+            } else if (!fetch(ioInfo, _position - 4, 4, true)) {
+                return false;
+            }
+
+            int controlWord = getControlWord(_position - 4);
+            if (controlWord == FILE_MARK_CONTROL_WORD) {
+                _position -= 4;
+                ioInfo._status = IOStatus.FileMark;
+                _blocksExtended = 0;
+                ++_filesExtended;
+                return true;
+            }
+
+            long dataPosition = _position - 4 - controlWord;
+            if (dataPosition - 4 < SCRATCH_PAD_BUFFER_SIZE) {
+                throw new OutOfDataException(_position);
+            } else if (controlWord < _noiseConstant) {
+                //  Ignore a block which is too small - that is, skip the block and both control words.
+                _position = dataPosition - 4;
+            } else {
+                //  We have a valid block to read.
+                //  One slight trick - we are reading backwards, so the buffer we send back to the
+                //  initiator needs to start with the last byte in the block, and proceed accordingly.
+                //  Thus, if the transfer count is less than the block size, the front of the block
+                //  will be truncated (instead of the back).
+                if (!fetch(ioInfo, dataPosition, controlWord, true)) {
+                    return false;
+                }
+
+                ioInfo._byteBuffer = new byte[controlWord];
+                for (int sx = (int) (dataPosition - _readAheadPosition) + controlWord - 1, dx = 0;
+                     dx < controlWord;
+                     --sx, ++dx) {
+                    ioInfo._byteBuffer[dx] = _readAheadBuffer[sx];
+                }
+
+                _readBytes += controlWord;
+                _position = dataPosition - 4;
+                _loadPointFlag = _position == SCRATCH_PAD_BUFFER_SIZE;
+                ioInfo._transferredCount = controlWord;
+                ioInfo._status = IOStatus.Successful;
+                return true;
+            }
+        }
     }
 
 
@@ -320,7 +751,7 @@ public class FileSystemTapeDevice extends TapeDevice {
      * For debugging purposes
      */
     @Override
-    public void dump(
+    public synchronized void dump(
         final BufferedWriter writer
     ) {
         super.dump(writer);
@@ -334,6 +765,8 @@ public class FileSystemTapeDevice extends TapeDevice {
                 writer.write(String.format("  EOT Warning:     %d\n", _endOfTapeWarning));
                 writer.write(String.format("  Position:        %d\n", _position));
             }
+            writer.write(String.format("  Read-ahead fetches: %d\n", _readAheadFetches));
+            writer.write(String.format("  Queued IOs:      %d\n", _queuedIos.size()));
         } catch (IOException ex) {
             LOGGER.error("Caught:" + ex.getMessage());
         }
@@ -342,6 +775,29 @@ public class FileSystemTapeDevice extends TapeDevice {
     @Override
     public int getMaxBlockSize() { return MAX_BLOCK_SIZE; }
 
+    /**
+     * Number of reads which have been issued to fill the read-ahead window
+     */
+    synchronized long getReadAheadFetches() { return _readAheadFetches; }
+
+    /**
+     * Starts an IO if the device is idle, otherwise queues it behind the IO in progress.
+     * Either way, the IO will be completed asynchronously if it has to wait for the host file.
+     */
+    @Override
+    public synchronized boolean handleIo(
+        final IOInfo ioInfo
+    ) {
+        if (_activeIo != null) {
+            ioInfo._transferredCount = 0;
+            ioInfo._status = IOStatus.InProgress;
+            _queuedIos.add(ioInfo);
+            return true;
+        }
+
+        return dispatch(ioInfo);
+    }
+
     @Override
     public boolean hasByteInterface() { return true; }
 
@@ -366,7 +822,6 @@ public class FileSystemTapeDevice extends TapeDevice {
         as.pack(ioInfo._byteBuffer);
         ioInfo._status = IOStatus.Successful;
         _unitAttentionFlag = false;
-        ioInfo._source.signal();
     }
 
     /**
@@ -393,32 +848,7 @@ public class FileSystemTapeDevice extends TapeDevice {
             return;
         }
 
-        try {
-            int controlWord = readControlWord();
-            _loadPointFlag = false;
-            if (controlWord == FILE_MARK_CONTROL_WORD) {
-                ioInfo._status = IOStatus.FileMark;     //  over-rides EOT status
-                _endOfTapeFlag = _position > _endOfTapeWarning;
-                _blocksExtended = 0;
-                ++_filesExtended;
-            } else {
-                //  We have a valid block, but we don't want to read it, just skip the block and the terminating control word.
-                _position += controlWord;
-                _position += 4;
-                ioInfo._transferredCount = 0;
-                ++_blocksExtended;
-                _endOfTapeFlag = _position > _endOfTapeWarning;
-                ioInfo._status = _endOfTapeFlag ? IOStatus.EndOfTape : IOStatus.Successful;
-            }
-        } catch (BadControlWordException | OutOfDataException ex) {
-            LOGGER.error("Caught:" + ex.getMessage());
-            _lostPositionFlag = true;
-            ioInfo._status = IOStatus.LostPosition;
-        } catch (IOException ex) {
-            LOGGER.error(String.format("Device %s IO failed:%s", _name, ex.getMessage()));
-            _lostPositionFlag = true;
-            ioInfo._status = IOStatus.SystemException;
-        }
+        advance(ioInfo);
     }
 
     /**
@@ -450,33 +880,7 @@ public class FileSystemTapeDevice extends TapeDevice {
             return;
         }
 
-        try {
-            int controlWord = readPreceedingControlWord();
-            if (controlWord == FILE_MARK_CONTROL_WORD) {
-                ioInfo._status = IOStatus.FileMark;
-                _blocksExtended = 0;
-                ++_filesExtended;
-            } else {
-                _position -= controlWord + 4;
-                if (_position < SCRATCH_PAD_BUFFER_SIZE) {
-                    throw new OutOfDataException(_position);
-                }
-                ioInfo._status = IOStatus.Successful;
-                ++_blocksExtended;
-            }
-
-            _endOfTapeFlag = _position > _endOfTapeWarning;
-            _loadPointFlag = _position <= SCRATCH_PAD_BUFFER_SIZE;
-            ioInfo._transferredCount = (0);
-        } catch (BadControlWordException | OutOfDataException ex) {
-            LOGGER.error("Caught:" + ex.getMessage());
-            _lostPositionFlag = true;
-            ioInfo._status = IOStatus.LostPosition;
-        } catch (IOException ex) {
-            LOGGER.error(String.format("Device %s IO failed:%s", _name, ex.getMessage()));
-            _lostPositionFlag = true;
-            ioInfo._status = IOStatus.SystemException;
-        }
+        advance(ioInfo);
     }
 
     /**
@@ -503,31 +907,7 @@ public class FileSystemTapeDevice extends TapeDevice {
             return;
         }
 
-        try {
-            //  Loop until we get a file mark, or lose position, or something
-            int controlWord = readControlWord();
-            _loadPointFlag = false;
-            while (controlWord != FILE_MARK_CONTROL_WORD) {
-                //  Skip this block and the following control word, then read the next control word.
-                _position += controlWord + 4;
-                controlWord = readControlWord();
-                ++_blocksExtended;
-            }
-
-            _endOfTapeFlag = _position > _endOfTapeWarning;
-            _loadPointFlag = false;
-            _blocksExtended = 0;
-            ++_filesExtended;
-            ioInfo._status = _endOfTapeFlag ? IOStatus.EndOfTape : IOStatus.Successful;
-        } catch (BadControlWordException | OutOfDataException ex) {
-            LOGGER.error("Caught:" + ex.getMessage());
-            _lostPositionFlag = true;
-            ioInfo._status = IOStatus.LostPosition;
-        } catch (IOException ex) {
-            LOGGER.error(String.format("Device %s IO failed:%s", _name, ex.getMessage()));
-            _lostPositionFlag = true;
-            ioInfo._status = IOStatus.SystemException;
-        }
+        advance(ioInfo);
     }
 
     /**
@@ -559,41 +939,7 @@ public class FileSystemTapeDevice extends TapeDevice {
             return;
         }
 
-        try {
-            //  Loop until we get a file mark, or lose position, or something
-            boolean done = false;
-            while (!done) {
-                if (_position < SCRATCH_PAD_BUFFER_SIZE) {
-                    throw new OutOfDataException(_position);
-                } else if (_position == SCRATCH_PAD_BUFFER_SIZE) {
-                    _loadPointFlag = true;
-                    ioInfo._status = IOStatus.EndOfTape;
-                    done = true;
-                } else {
-                    int controlWord = readPreceedingControlWord();
-                    if (controlWord == FILE_MARK_CONTROL_WORD) {
-                        _blocksExtended = 0;
-                        ++_filesExtended;
-                        ioInfo._status = IOStatus.Successful;
-                        done = true;
-                    } else {
-                        _position -= controlWord + 4;
-                        if (_position < SCRATCH_PAD_BUFFER_SIZE) {
-                            throw new OutOfDataException(_position);
-                        }
-                        ++_blocksExtended;
-                    }
-                }
-            }
-        } catch (BadControlWordException | OutOfDataException ex) {
-            LOGGER.error("Caught:" + ex.getMessage());
-            _lostPositionFlag = true;
-            ioInfo._status = IOStatus.LostPosition;
-        } catch (IOException ex) {
-            LOGGER.error(String.format("Device %s IO failed:%s", _name, ex.getMessage()));
-            _lostPositionFlag = true;
-            ioInfo._status = IOStatus.SystemException;
-        }
+        advance(ioInfo);
     }
 
     /**
@@ -620,55 +966,11 @@ public class FileSystemTapeDevice extends TapeDevice {
             return;
         }
 
-        try {
-            //  Loop until we get a valid block, or lose position, or something
-            boolean done = false;
-            while (!done) {
-                int controlWord = readControlWord();
-                _loadPointFlag = false;
-                if (controlWord == FILE_MARK_CONTROL_WORD) {
-                    ioInfo._status = IOStatus.FileMark;
-                    _blocksExtended = 0;
-                    ++_filesExtended;
-                    done = true;
-                } else if (controlWord < _noiseConstant) {
-                    //  Ignore a block which is too small - that is, skip the block and the terminating control word.
-                    _position += controlWord + 4;
-                } else {
-                    //  We have a valid block to read.
-                    ioInfo._byteBuffer = new byte[controlWord];
-                    _file.seek(_position);
-                    int bytes = _file.read(ioInfo._byteBuffer, 0, controlWord);
-                    _readBytes += bytes;
-                    _position += controlWord + 4;
-                    ioInfo._transferredCount = bytes;
-                    _endOfTapeFlag = _position > _endOfTapeWarning;
-
-                    if (bytes != controlWord) {
-                        //  We didn't read as many bytes as the control word indicated were available
-                        ioInfo._byteBuffer = Arrays.copyOf(ioInfo._byteBuffer, ioInfo._transferCount);
-                        _lostPositionFlag = true;
-                        ioInfo._status = IOStatus.LostPosition;
-                    } else {
-                        ioInfo._status = _endOfTapeFlag ? IOStatus.EndOfTape : IOStatus.Successful;
-                    }
-
-                    done = true;
-                }
-            }
-        } catch (BadControlWordException | OutOfDataException ex) {
-            LOGGER.error("Caught:" + ex.getMessage());
-            _lostPositionFlag = true;
-            ioInfo._status = IOStatus.LostPosition;
-        } catch (IOException ex) {
-            LOGGER.error(String.format("Device %s IO failed:%s", _name, ex.getMessage()));
-            _lostPositionFlag = true;
-            ioInfo._status = IOStatus.SystemException;
-        }
+        advance(ioInfo);
     }
 
     /**
-     * Handles (or rather, doesn't handle) the ReadBackward command
+     * Reads logical records backward from the underlying data store.
      */
     @Override
     protected void ioReadBackward(
@@ -691,64 +993,7 @@ public class FileSystemTapeDevice extends TapeDevice {
             return;
         }
 
-        try {
-            //  Loop until we get a valid block, or lose position, or something
-            boolean done = false;
-            while (!done) {
-                if (_position < SCRATCH_PAD_BUFFER_SIZE) {
-                    throw new OutOfDataException(_position);
-                } else if (_position == SCRATCH_PAD_BUFFER_SIZE) {
-                    _loadPointFlag = true;
-                    ioInfo._status = IOStatus.EndOfTape;
-                    done = true;
-                } else {
-                    int controlWord = readPreceedingControlWord();
-                    if (controlWord == FILE_MARK_CONTROL_WORD) {
-                        ioInfo._status = IOStatus.FileMark;
-                        _blocksExtended = 0;
-                        ++_filesExtended;
-                        done = true;
-                    } else if (controlWord < _noiseConstant) {
-                        //  Ignore a block which is too small - that is, skip the block and the terminating control word.
-                        _position -= controlWord + 4;
-                    } else {
-                        //  We have a valid block to read.
-                        //  One slight trick - we are reading backwards, so the buffer we send back to the
-                        //  initiator needs to start with the last byte in the block, and proceed accordingly.
-                        //  Thus, if the transfer count is less than the block size, the front of the block
-                        //  will be truncated (instead of the back).
-                        ioInfo._byteBuffer = new byte[controlWord];
-                        if (_position - controlWord - 4 < SCRATCH_PAD_BUFFER_SIZE) {
-                            throw new OutOfDataException(_position);
-                        }
-
-                        _position -= controlWord;
-                        _file.seek(_position);
-                        int bytes = _file.read(ioInfo._byteBuffer, 0, controlWord);
-                        _readBytes += bytes;
-                        for (int sx = 0, dx = controlWord - 1; sx < dx; ++sx, --dx) {
-                            byte b = ioInfo._byteBuffer[sx];
-                            ioInfo._byteBuffer[sx] = ioInfo._byteBuffer[dx];
-                            ioInfo._byteBuffer[dx] = b;
-                        }
-
-                        _position -= controlWord + 4;
-                        _loadPointFlag = _position == SCRATCH_PAD_BUFFER_SIZE;
-                        ioInfo._transferredCount = bytes;
-                        ioInfo._status = IOStatus.Successful;
-                        done = true;
-                    }
-                }
-            }
-        } catch (BadControlWordException | OutOfDataException ex) {
-            LOGGER.error("Caught:" + ex.getMessage());
-            _lostPositionFlag = true;
-            ioInfo._status = IOStatus.LostPosition;
-        } catch (IOException ex) {
-            LOGGER.error(String.format("Device %s IO failed:%s", _name, ex.getMessage()));
-            _lostPositionFlag = true;
-            ioInfo._status = IOStatus.SystemException;
-        }
+        advance(ioInfo);
     }
 
     /**
@@ -831,7 +1076,8 @@ public class FileSystemTapeDevice extends TapeDevice {
     }
 
     /**
-     * Writes a data block to the media
+     * Writes a data block to the media.
+     * The block and both of its control words are written in a single IO.
      */
     @Override
     protected void ioWrite(
@@ -880,36 +1126,19 @@ public class FileSystemTapeDevice extends TapeDevice {
             return;
         }
 
-        try {
-            //  write leading control word
-            _file.seek(_position);
-            ByteBuffer bb = ByteBuffer.wrap(new byte[4]);
-            bb.putInt(ioInfo._transferCount);
-            _file.write(bb.array());
-            _position += 4;
-            _loadPointFlag = false;
-
-            //  write data block
-            _file.seek(_position);
-            _file.write(ioInfo._byteBuffer, 0, ioInfo._transferCount);
-            _position += ioInfo._transferCount;
-            _writeBytes += ioInfo._transferCount;
+        ByteBuffer bb = ByteBuffer.allocate(ioInfo._transferCount + 8);
+        bb.putInt(ioInfo._transferCount);
+        bb.put(ioInfo._byteBuffer, 0, ioInfo._transferCount);
+        bb.putInt(ioInfo._transferCount);
+        bb.flip();
 
-            //  write terminating control word
-            _file.seek(_position);
-            _file.write(bb.array());
-            _position += 4;
-
-            _writeFlag = true;
-            _writeMarkFlag = false;
-            ioInfo._transferredCount = (ioInfo._transferCount);
-            _endOfTapeFlag = _position > _endOfTapeWarning;
-            ioInfo._status = _endOfTapeFlag ? IOStatus.EndOfTape : IOStatus.Successful;
-        } catch (IOException ex) {
-            LOGGER.error(String.format("Device %s IO failed:%s", _name, ex.getMessage()));
-            ioInfo._status = IOStatus.SystemException;
-            _lostPositionFlag = true;
-        }
+        _loadPointFlag = false;
+        _writeBytes += ioInfo._transferCount;
+        _writeFlag = true;
+        _writeMarkFlag = false;
+        ioInfo._transferredCount = ioInfo._transferCount;
+        _endOfTapeFlag = _position + bb.remaining() > _endOfTapeWarning;
+        startWrite(ioInfo, bb, _endOfTapeFlag ? IOStatus.EndOfTape : IOStatus.Successful);
     }
 
     /**
@@ -923,13 +1152,11 @@ public class FileSystemTapeDevice extends TapeDevice {
 
         if (!_readyFlag) {
             ioInfo._status = IOStatus.NotReady;
-            ioInfo._source.signal();
             return;
         }
 
         if (_unitAttentionFlag) {
             ioInfo._status = IOStatus.UnitAttention;
-            ioInfo._source.signal();
             return;
         }
 
@@ -940,7 +1167,6 @@ public class FileSystemTapeDevice extends TapeDevice {
 
         if (isWriteProtected()) {
             ioInfo._status = IOStatus.WriteProtected;
-            ioInfo._source.signal();
             return;
         }
 
@@ -954,24 +1180,16 @@ public class FileSystemTapeDevice extends TapeDevice {
             return;
         }
 
-        try {
-            ByteBuffer bb = ByteBuffer.wrap(new byte[4]);
-            bb.putInt(FILE_MARK_CONTROL_WORD);
-            _file.seek(_position);
-            _file.write(bb.array());
-            _position += 4;
+        ByteBuffer bb = ByteBuffer.allocate(4);
+        bb.putInt(FILE_MARK_CONTROL_WORD);
+        bb.flip();
 
-            _writeFlag = false;
-            _writeMarkFlag = true;
-            _loadPointFlag = false;
-            ioInfo._transferredCount = (0);
-            _endOfTapeFlag = _position > _endOfTapeWarning;
-            ioInfo._status = _endOfTapeFlag ? IOStatus.EndOfTape : IOStatus.Successful;
-        } catch (IOException ex) {
-            LOGGER.error(String.format("Device %s IO failed:%s", _name, ex.getMessage()));
-            ioInfo._status = IOStatus.SystemException;
-            _lostPositionFlag = true;
-        }
+        _writeFlag = false;
+        _writeMarkFlag = true;
+        _loadPointFlag = false;
+        ioInfo._transferredCount = 0;
+        _endOfTapeFlag = _position + 4 > _endOfTapeWarning;
+        startWrite(ioInfo, bb, _endOfTapeFlag ? IOStatus.EndOfTape : IOStatus.Successful);
     }
 
     /**
@@ -980,7 +1198,7 @@ public class FileSystemTapeDevice extends TapeDevice {
      * @param mediaName full path and file name for the volume to be mounted
      * @return true if successful, else false
      */
-    public boolean mount(
+    public synchronized boolean mount(
         final String mediaName
     ) {
         if (isMounted()) {
@@ -990,19 +1208,20 @@ public class FileSystemTapeDevice extends TapeDevice {
 
         try {
             //  Open the file
-            _file = new RandomAccessFile(mediaName, "rw");
+            Path path = Paths.get(mediaName);
+            _channel = WorkerThreads.openChannel(path, EnumSet.of(StandardOpenOption.READ, StandardOpenOption.WRITE));
 
             //  Read and verify the scratch pad area
             byte[] buffer = new byte[SCRATCH_PAD_BUFFER_SIZE];
-            _file.seek(0);
-            int bytes = _file.read(buffer);
+            Future<Integer> f = _channel.read(ByteBuffer.wrap(buffer), 0);
+            int bytes = f.get();
             if (bytes != SCRATCH_PAD_BUFFER_SIZE) {
                 LOGGER.error(String.format("Device %s Cannot mount %s:Failed to read %d bytes of scratch pad",
                                            _name,
                                            mediaName,
                                            SCRATCH_PAD_BUFFER_SIZE));
-                _file.close();
-                _file = null;
+                _channel.close();
+                _channel = null;
                 return false;
             }
 
@@ -1015,8 +1234,8 @@ public class FileSystemTapeDevice extends TapeDevice {
                                            mediaName,
                                            ScratchPad.EXPECTED_IDENTIFIER,
                                            _scratchPad._identifier));
-                _file.close();
-                _file = null;
+                _channel.close();
+                _channel = null;
                 _scratchPad = null;
                 return false;
             }
@@ -1027,8 +1246,8 @@ public class FileSystemTapeDevice extends TapeDevice {
                                            mediaName,
                                            ScratchPad.EXPECTED_MAJOR_VERSION,
                                            _scratchPad._majorVersion));
-                _file.close();
-                _file = null;
+                _channel.close();
+                _channel = null;
                 _scratchPad = null;
                 return false;
             }
@@ -1043,6 +1262,7 @@ public class FileSystemTapeDevice extends TapeDevice {
             //  Things are good - set up our local state and we're done.
             _endOfTapeWarning = _scratchPad._fileSizeLimit - 64 * 1024; //  64kb grace limit
             _mediaName = mediaName;
+            invalidateReadAhead();
             setIsMounted(true);
             _position = SCRATCH_PAD_BUFFER_SIZE;
             _loadPointFlag = true;
@@ -1050,8 +1270,16 @@ public class FileSystemTapeDevice extends TapeDevice {
             _writeFlag = false;
             _writeMarkFlag = false;
             LOGGER.info(String.format("Device %s Mount %s successful", _name, mediaName));
-        } catch (IOException ex) {
+        } catch (ExecutionException | InterruptedException | IOException ex) {
             LOGGER.error(String.format("Device %s Cannot mount %s:Caught %s", _name, mediaName, ex.getMessage()));
+            if (_channel != null) {
+                try {
+                    _channel.close();
+                } catch (IOException ex2) {
+                    LOGGER.error("Caught:" + ex2.getMessage());
+                }
+                _channel = null;
+            }
             return false;
         }
 
@@ -1081,7 +1309,7 @@ public class FileSystemTapeDevice extends TapeDevice {
     /**
      * Unmounts the currently-mounted media
      */
-    boolean unmount(
+    synchronized boolean unmount(
     ) {
         if (!isMounted()) {
             LOGGER.error(String.format("Device %s Cannot unmount pack - no pack mounted", _name));
@@ -1093,13 +1321,14 @@ public class FileSystemTapeDevice extends TapeDevice {
 
         // Release the host system file
         try {
-            _file.close();
+            _channel.close();
         } catch (IOException ex) {
             LOGGER.error("Caught:" + ex.getMessage());
             return false;
         }
 
-        _file = null;
+        _channel = null;
+        invalidateReadAhead();
         _loadPointFlag = false;
         _lostPositionFlag = false;
         _mediaName = null;
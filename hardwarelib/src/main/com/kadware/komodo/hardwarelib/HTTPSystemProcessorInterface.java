@@ -12,6 +12,7 @@ import com.kadware.komodo.baselib.PathNames;
 import com.kadware.komodo.baselib.SecureWebServer;
 import com.kadware.komodo.baselib.WebServer;
 import com.kadware.komodo.baselib.Word36;
+import com.kadware.komodo.hardwarelib.exceptions.CheckpointException;
 import com.sun.net.httpserver.Headers;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
@@ -330,6 +331,42 @@ public class HTTPSystemProcessorInterface implements SystemProcessorInterface {
         }
     }
 
+    /**
+     * Object describing an outstanding snapshot, returned for GET on /snapshots
+     */
+    private static class SnapshotInfo {
+        @JsonProperty("name")                   public String _name;
+        @JsonProperty("timestamp")              public String _timestamp;
+        @JsonProperty("preservedPages")         public Long _preservedPages;    //  storage pages copied since it was taken
+
+        SnapshotInfo(
+            final SystemProcessor.SystemSnapshot snapshot
+        ) {
+            _name = snapshot.getName();
+            _timestamp = snapshot.getTimestamp();
+            _preservedPages = snapshot.getPreservedPageCount();
+        }
+    }
+
+    /**
+     * Object requesting an operation upon a snapshot, sent with POST on /snapshots
+     */
+    private static class SnapshotRequest {
+        @JsonProperty("name")                   final String _name;
+        @JsonProperty("operation")              final String _operation;        //  take, restore, fork, or discard
+        @JsonProperty("directory")              final String _directory;        //  for fork, where the new system is written
+
+        SnapshotRequest(
+            @JsonProperty("name")               final String name,
+            @JsonProperty("operation")          final String operation,
+            @JsonProperty("directory")          final String directory
+        ) {
+            _name = name;
+            _operation = operation;
+            _directory = directory;
+        }
+    }
+
     /**
      * Object describing a log entry we've caught from the system logger, to be sent on to the client
      */
@@ -1060,6 +1097,67 @@ public class HTTPSystemProcessorInterface implements SystemProcessorInterface {
     //  Endpoint handlers, to be attached to the HTTP listeners
     //  ----------------------------------------------------------------------------------------------------------------------------
 
+    /**
+     * Handles POST requests against the /checkpoint path, which checkpoints the system for a warm restart
+     * (leaving the IPs stopped), and against the /resume path, which resumes the system from that checkpoint.
+     */
+    private class APICheckpointHandler extends SCIHttpHandler {
+
+        private final Logger LOGGER = LogManager.getLogger(APICheckpointHandler.class.getSimpleName());
+        private final boolean _resume;
+
+        APICheckpointHandler(
+            final boolean resume
+        ) {
+            _resume = resume;
+        }
+
+        @Override
+        public void handle(
+            final HttpExchange exchange
+        ) {
+            EntryMessage em = LOGGER.traceEntry("handle()");
+
+            final Headers requestHeaders = exchange.getRequestHeaders();
+            final String requestMethod = exchange.getRequestMethod();
+            final String requestURI = exchange.getRequestURI().toString();
+            LOGGER.trace("<--" + requestMethod + " " + requestURI);
+
+            try {
+                SessionInfo sessionInfo = findClient(requestHeaders);
+                if (sessionInfo == null) {
+                    respondNoSession(exchange);
+                    LOGGER.traceExit(em);
+                    return;
+                }
+
+                sessionInfo._lastActivity = System.currentTimeMillis();
+                if (!requestMethod.equals(HttpMethod.POST._value)) {
+                    respondBadMethod(exchange, requestMethod);
+                    LOGGER.traceExit(em);
+                    return;
+                }
+
+                try {
+                    if (_resume) {
+                        _parentSystemProcessor.resumeFromCheckpoint();
+                        respondWithText(exchange, HttpURLConnection.HTTP_OK, "Resumed from checkpoint");
+                    } else {
+                        _parentSystemProcessor.checkpoint();
+                        respondWithText(exchange, HttpURLConnection.HTTP_CREATED, "Checkpoint taken");
+                    }
+                } catch (CheckpointException ex) {
+                    respondWithText(exchange, HttpURLConnection.HTTP_CONFLICT, ex.getMessage());
+                }
+            } catch (Throwable t) {
+                LOGGER.catching(t);
+                respondServerError(exchange, getStackTrace(t));
+            }
+
+            LOGGER.traceExit(em);
+        }
+    }
+
     /**
      * Handles requests against the /dump path
      */
@@ -1217,6 +1315,99 @@ public class HTTPSystemProcessorInterface implements SystemProcessorInterface {
         }
     }
 
+    /**
+     * Handles requests against the /snapshots path
+     * GET retrieves a list of the outstanding snapshots.
+     * POST accepts a SnapshotRequest, which takes, restores, forks, or discards a snapshot.
+     */
+    private class APISnapshotHandler extends SCIHttpHandler {
+
+        private final Logger LOGGER = LogManager.getLogger(APISnapshotHandler.class.getSimpleName());
+
+        @Override
+        public void handle(
+            final HttpExchange exchange
+        ) {
+            EntryMessage em = LOGGER.traceEntry("handle()");
+
+            final InputStream requestBody = exchange.getRequestBody();
+            final Headers requestHeaders = exchange.getRequestHeaders();
+            final String requestMethod = exchange.getRequestMethod();
+            final String requestURI = exchange.getRequestURI().toString();
+            LOGGER.trace("<--" + requestMethod + " " + requestURI);
+
+            try {
+                SessionInfo sessionInfo = findClient(requestHeaders);
+                if (sessionInfo == null) {
+                    respondNoSession(exchange);
+                    LOGGER.traceExit(em);
+                    return;
+                }
+
+                sessionInfo._lastActivity = System.currentTimeMillis();
+
+                if (requestMethod.equalsIgnoreCase(HttpMethod.GET._value)) {
+                    SnapshotInfo[] snapshots = _parentSystemProcessor.getSnapshots()
+                                                                     .stream()
+                                                                     .map(SnapshotInfo::new)
+                                                                     .toArray(SnapshotInfo[]::new);
+                    respondWithJSON(exchange, HttpURLConnection.HTTP_OK, snapshots);
+                } else if (requestMethod.equalsIgnoreCase(HttpMethod.POST._value)) {
+                    SnapshotRequest content;
+                    try {
+                        content = new ObjectMapper().readValue(requestBody, SnapshotRequest.class);
+                    } catch (IOException ex) {
+                        respondBadRequest(exchange, ex.getMessage());
+                        LOGGER.traceExit(em);
+                        return;
+                    }
+
+                    if ((content._name == null) || (content._operation == null)) {
+                        respondBadRequest(exchange, "Requires name and operation");
+                        LOGGER.traceExit(em);
+                        return;
+                    }
+
+                    try {
+                        switch (content._operation) {
+                            case "take" -> {
+                                _parentSystemProcessor.takeSnapshot(content._name);
+                                respondWithText(exchange, HttpURLConnection.HTTP_CREATED, "Snapshot taken");
+                            }
+                            case "restore" -> {
+                                _parentSystemProcessor.restoreSnapshot(content._name);
+                                respondWithText(exchange, HttpURLConnection.HTTP_OK, "Snapshot restored");
+                            }
+                            case "fork" -> {
+                                if (content._directory == null) {
+                                    respondBadRequest(exchange, "Fork requires a directory");
+                                } else {
+                                    _parentSystemProcessor.forkSnapshot(content._name, content._directory);
+                                    respondWithText(exchange, HttpURLConnection.HTTP_CREATED, "Snapshot forked");
+                                }
+                            }
+                            case "discard" -> {
+                                _parentSystemProcessor.discardSnapshot(content._name);
+                                respondWithText(exchange, HttpURLConnection.HTTP_OK, "Snapshot discarded");
+                            }
+                            default -> respondBadRequest(exchange, "Invalid operation " + content._operation);
+                        }
+                    } catch (CheckpointException ex) {
+                        respondWithText(exchange, HttpURLConnection.HTTP_CONFLICT, ex.getMessage());
+                    }
+                } else {
+                    //  Neither a GET or a POST - this is not allowed.
+                    respondBadMethod(exchange, requestMethod);
+                }
+            } catch (Throwable t) {
+                LOGGER.catching(t);
+                respondServerError(exchange, getStackTrace(t));
+            }
+
+            LOGGER.traceExit(em);
+        }
+    }
+
     /**
      * Provides a method for injecting input to the system via POST to /message
      */
@@ -1555,11 +1746,14 @@ public class HTTPSystemProcessorInterface implements SystemProcessorInterface {
 
             super.setup();
             appendHandler("/", new WebHandler());
+            appendHandler("/checkpoint", new APICheckpointHandler(false));
             appendHandler("/dump", new APIDumpHandler());
             appendHandler("/jumpkeys", new APIJumpKeysHandler());
             appendHandler("/message", new APIMessageHandler());
             appendHandler("/poll", new APIPollRequestHandler());
+            appendHandler("/resume", new APICheckpointHandler(true));
             appendHandler("/session", new APISessionRequestHandler());
+            appendHandler("/snapshots", new APISnapshotHandler());
             start();
 
             LOGGER.traceExit(em);
@@ -1618,11 +1812,14 @@ public class HTTPSystemProcessorInterface implements SystemProcessorInterface {
             String keystoreFullFilename = _keystoreDirectory + KEYSTORE_FILENAME;
             super.setup(keystoreFullFilename, KEYENTRY_ALIAS, KEYSTORE_PASSWORD, KEYENTRY_PASSWORD);
             appendHandler("/", new WebHandler());
+            appendHandler("/checkpoint", new APICheckpointHandler(false));
             appendHandler("/dump", new APIDumpHandler());
             appendHandler("/jumpkeys", new APIJumpKeysHandler());
             appendHandler("/message", new APIMessageHandler());
             appendHandler("/poll", new APIPollRequestHandler());
+            appendHandler("/resume", new APICheckpointHandler(true));
             appendHandler("/session", new APISessionRequestHandler());
+            appendHandler("/snapshots", new APISnapshotHandler());
             start();
 
             LOGGER.traceExit(em);
@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2018-2020 by Kurt Duncan - All Rights Reserved
+ */
+
+package com.kadware.komodo.hardwarelib;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Pool of direct ByteBuffers for byte device IO, shared by channel modules and devices.
+ * --
+ * Buffers come in size classes which are powers of two, from MIN_CLASS_SIZE to MAX_CLASS_SIZE bytes.  A request is
+ * satisfied with a buffer of the smallest class which is large enough, with its limit set to the requested size.
+ * Released buffers are kept for reuse, up to a fixed number per class - beyond that, they are left for the garbage
+ * collector.  Requests larger than the largest class get a direct buffer of exactly the requested size,
+ * which is never kept.
+ * --
+ * Since the buffers are direct, a device may pass them straight to host file IO without the JDK copying the data
+ * through a temporary direct buffer of its own.
+ */
+public class IOBufferPool {
+
+    //  ----------------------------------------------------------------------------------------------------------------------------
+    //  Class attributes
+    //  ----------------------------------------------------------------------------------------------------------------------------
+
+    private static final int MIN_CLASS_SHIFT = 9;
+    private static final int MAX_CLASS_SHIFT = 20;
+    private static final int MIN_CLASS_SIZE = 1 << MIN_CLASS_SHIFT;
+    private static final int MAX_CLASS_SIZE = 1 << MAX_CLASS_SHIFT;
+    private static final int DEFAULT_RETAINED_PER_CLASS = 32;
+
+    private static final Logger LOGGER = LogManager.getLogger(IOBufferPool.class);
+    private static final IOBufferPool _instance = new IOBufferPool(DEFAULT_RETAINED_PER_CLASS);
+
+    private final long _createdNanos = System.nanoTime();
+    private final ArrayDeque<ByteBuffer>[] _freeLists;
+    private final int _retainedPerClass;
+
+    private long _allocatedBytes = 0;
+    private long _allocations = 0;
+    private long _discards = 0;
+    private long _hits = 0;
+    private long _oversizeRequests = 0;
+    private long _releases = 0;
+    private long _requests = 0;
+
+
+    //  ----------------------------------------------------------------------------------------------------------------------------
+    //  Constructor
+    //  ----------------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Constructor
+     * @param retainedPerClass maximum number of released buffers to be kept for reuse, in each size class
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public IOBufferPool(
+        final int retainedPerClass
+    ) {
+        _retainedPerClass = retainedPerClass;
+        _freeLists = new ArrayDeque[MAX_CLASS_SHIFT - MIN_CLASS_SHIFT + 1];
+        for (int cx = 0; cx < _freeLists.length; ++cx) {
+            _freeLists[cx] = new ArrayDeque<>();
+        }
+    }
+
+
+    //  ----------------------------------------------------------------------------------------------------------------------------
+    //  Non-public methods
+    //  ----------------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Finds the size class for a request of the given number of bytes
+     * @return index of the class, or -1 if the request is too large for any class
+     */
+    private static int getClassIndex(
+        final int size
+    ) {
+        if (size > MAX_CLASS_SIZE) {
+            return -1;
+        } else if (size <= MIN_CLASS_SIZE) {
+            return 0;
+        } else {
+            return 32 - Integer.numberOfLeadingZeros(size - 1) - MIN_CLASS_SHIFT;
+        }
+    }
+
+
+    //  ----------------------------------------------------------------------------------------------------------------------------
+    //  Public methods
+    //  ----------------------------------------------------------------------------------------------------------------------------
+
+    public static IOBufferPool getInstance() { return _instance; }
+
+    public synchronized long getAllocatedBytes() { return _allocatedBytes; }
+    public synchronized long getAllocations() { return _allocations; }
+    public synchronized long getDiscards() { return _discards; }
+    public synchronized long getHits() { return _hits; }
+    public synchronized long getOversizeRequests() { return _oversizeRequests; }
+    public synchronized long getReleases() { return _releases; }
+    public synchronized long getRequests() { return _requests; }
+
+    /**
+     * Retrieves a buffer with at least the given capacity, with position zero and limit set to the given size.
+     * The content of the buffer is undefined.
+     */
+    public synchronized ByteBuffer acquire(
+        final int size
+    ) {
+        if (size < 0) {
+            throw new RuntimeException(String.format("Invalid buffer size %d", size));
+        }
+
+        ++_requests;
+        int cx = getClassIndex(size);
+        ByteBuffer buffer = (cx < 0) ? null : _freeLists[cx].pollFirst();
+        if (buffer != null) {
+            ++_hits;
+        } else {
+            int capacity = (cx < 0) ? size : MIN_CLASS_SIZE << cx;
+            if (cx < 0) {
+                ++_oversizeRequests;
+            }
+            ++_allocations;
+            _allocatedBytes += capacity;
+            buffer = ByteBuffer.allocateDirect(capacity);
+        }
+
+        buffer.clear().limit(size);
+        return buffer;
+    }
+
+    /**
+     * Returns a buffer to the pool.  Buffers which did not come from a pool (or which came from one, but were too
+     * large for any class) are quietly dropped, as are buffers for which the pool has no more room.
+     */
+    public synchronized void release(
+        final ByteBuffer buffer
+    ) {
+        ++_releases;
+        int capacity = buffer.capacity();
+        int cx = getClassIndex(capacity);
+        if (!buffer.isDirect()
+            || (cx < 0)
+            || ((MIN_CLASS_SIZE << cx) != capacity)
+            || (_freeLists[cx].size() >= _retainedPerClass)) {
+            ++_discards;
+            return;
+        }
+
+        _freeLists[cx].addFirst(buffer);
+    }
+
+    /**
+     * For debugging purposes - the statistics, including the rate of allocation since the pool was created
+     */
+    public synchronized void dump(
+        final BufferedWriter writer
+    ) {
+        try {
+            long elapsedMillis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - _createdNanos));
+            writer.write(String.format("  Requests:        %d\n", _requests));
+            writer.write(String.format("  Hits:            %d\n", _hits));
+            writer.write(String.format("  Hit Ratio:       %s\n",
+                                       (_requests == 0) ? "n/a" : String.format("%d%%", _hits * 100 / _requests)));
+            writer.write(String.format("  Allocations:     %d\n", _allocations));
+            writer.write(String.format("  Allocated Bytes: %d\n", _allocatedBytes));
+            writer.write(String.format("  Allocation Rate: %d bytes/sec\n", _allocatedBytes * 1000 / elapsedMillis));
+            writer.write(String.format("  Oversize:        %d\n", _oversizeRequests));
+            writer.write(String.format("  Releases:        %d\n", _releases));
+            writer.write(String.format("  Discards:        %d\n", _discards));
+            for (int cx = 0; cx < _freeLists.length; ++cx) {
+                if (!_freeLists[cx].isEmpty()) {
+                    writer.write(String.format("  Free %7d:    %d\n", MIN_CLASS_SIZE << cx, _freeLists[cx].size()));
+                }
+            }
+        } catch (IOException ex) {
+            LOGGER.catching(ex);
+        }
+    }
+}
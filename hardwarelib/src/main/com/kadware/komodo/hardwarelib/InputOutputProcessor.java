@@ -6,6 +6,7 @@ package com.kadware.komodo.hardwarelib;
 
 import com.kadware.komodo.baselib.AbsoluteAddress;
 import com.kadware.komodo.baselib.ArraySlice;
+import com.kadware.komodo.baselib.ScatterGatherArrayStorage;
 import com.kadware.komodo.hardwarelib.exceptions.*;
 import com.kadware.komodo.hardwarelib.interrupts.AddressingExceptionInterrupt;
 import java.io.BufferedWriter;
@@ -69,9 +70,8 @@ public class InputOutputProcessor extends Processor {
 
     /**
      * ChanneProgram calls here to notify us that it is finished with a channel program.
-     * If it is a successful read, and if we created an interim word buffer, we need to populate
-     * the ACW buffers from the interim buffer.
-     * In any case, notify an IP via broadcast UPI interrupt that we are done.
+     * Read data has already been delivered directly into the ACW buffers (see startIO()), so all that remains
+     * is to notify an IP via broadcast UPI interrupt (or the initiating SP) that we are done.
      * @param channelProgram the channel program of interest
      * @param source the Processor which initiated the channel program (an IP or an SP)
      */
@@ -79,24 +79,6 @@ public class InputOutputProcessor extends Processor {
         final ChannelModule.ChannelProgram channelProgram,
         final Processor source
     ) {
-        if (channelProgram.getFunction().isReadFunction()) {
-            int acwCount = channelProgram.getAccessControlWordCount();
-            //  If acwCount is zero, there are no buffers and no copy is needed.
-            //  If one, and if we are strictly incrementing, the buffer points directly to storage, and again no copy is needed.
-            //  If more than one, or if we are not strictly incrementing, we need to copy data from the temporary buffer to storage.
-            if (acwCount > 0) {
-                AccessControlWord.AddressModifier mod = channelProgram.getAccessControlWord(0).getAddressModifier();
-                if ((acwCount > 1) || (mod != AccessControlWord.AddressModifier.Increment)) {
-                    //  The composite buffer is interim - distribute the results from the read accordingly
-                    int wordsToCopy = channelProgram.getWordsTransferred();
-                    for (int acwx = 0; acwx < channelProgram.getAccessControlWordCount(); ++acwx) {
-                        AccessControlWord acw = channelProgram.getAccessControlWord(acwx);
-                        //TODO
-                    }
-                }
-            }
-        }
-
         switch (source._Type) {
             case InstructionProcessor:
                 //  The IO was initiated by an IP - send a broadcast.
@@ -127,6 +109,19 @@ public class InputOutputProcessor extends Processor {
         }
     }
 
+    /**
+     * Indicates whether none of our channel modules have in-flight IOs.
+     * We have no state of our own beyond that, so an idle IOP can be checkpointed and resumed trivially.
+     */
+    public boolean isIdle() {
+        for (Node node : _descendants.values()) {
+            if ((node instanceof ChannelModule) && !((ChannelModule) node).isIdle()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * IOP thread - we pick up UPI traffic and handle it appropriately
      */
@@ -137,13 +132,7 @@ public class InputOutputProcessor extends Processor {
 
         _isReady = true;
         while (!_workerTerminate) {
-            boolean waitFlag = true;
-
             //  We don't care about ACKs, they're not relevant in the architecture for IOPs.
-            synchronized (_upiPendingAcknowledgements) {
-                _upiPendingAcknowledgements.clear();
-            }
-
             //  We DO care about SENDs - they indicate that an IO should be scheduled.
             //  Use the communication area to retrieve a two-word absolute address.
             //  This is the address of a channel program in storage.
@@ -152,9 +141,11 @@ public class InputOutputProcessor extends Processor {
             int broadcastCount = 0;
             List<Processor> sendList = new LinkedList<>();
 
-            synchronized (_upiPendingInterrupts) {
-                waitFlag = _upiPendingInterrupts.isEmpty();
-                for (Processor source : _upiPendingInterrupts) {
+            boolean waitFlag = true;
+            for (UPIMailbox.Message msg = _upiMailbox.drain(); msg != null; msg = msg.getNext()) {
+                waitFlag = false;
+                if (msg._kind == UPIMailbox.Kind.Interrupt) {
+                    Processor source = msg._source;
                     try {
                         AbsoluteAddress addr = _upiCommunicationLookup.get(new UPIIndexPair(source._upiIndex, this._upiIndex));
                         MainStorageProcessor msp = InventoryManager.getInstance().getMainStorageProcessor(addr._upiIndex);
@@ -168,7 +159,6 @@ public class InputOutputProcessor extends Processor {
                                 ++broadcastCount;
                             }
                         }
-                        waitFlag = false;
                         ackList.add(source);
                     } catch (AddressingExceptionInterrupt
                         |  UPINotAssignedException
@@ -199,11 +189,7 @@ public class InputOutputProcessor extends Processor {
             for (int bx = 0; bx < broadcastCount; ++bx) {
                 try {
                     while (!upiSendBroadcast()) {
-                        try {
-                            synchronized (this) { wait(10); }
-                        } catch (InterruptedException ex) {
-                            LOGGER.catching(ex);
-                        }
+                        waitForWork(10);
                     }
                 } catch (InvalidSystemConfigurationException ex) {
                     //  this should never happen
@@ -216,11 +202,7 @@ public class InputOutputProcessor extends Processor {
             for (Processor sp : sendList) {
                 try {
                     while (!upiSendDirected(sp._upiIndex)) {
-                        try {
-                            synchronized (this) { wait(10); }
-                        } catch (InterruptedException ex) {
-                            LOGGER.catching(ex);
-                        }
+                        waitForWork(10);
                     }
                 } catch (UPINotAssignedException ex) {
                     //  this should never happen
@@ -228,13 +210,9 @@ public class InputOutputProcessor extends Processor {
                 }
             }
 
-            //  If we didn't do anything, sleep for a bit
+            //  If we didn't do anything, park until something is sent to us
             if (waitFlag) {
-                try {
-                    synchronized (this) { wait(100); }
-                } catch (InterruptedException ex) {
-                    LOGGER.catching(ex);
-                }
+                waitForWork(100);
             }
         }
 
@@ -243,6 +221,27 @@ public class InputOutputProcessor extends Processor {
         _isRunning = false;
     }
 
+    /**
+     * Checks whether the words an ACW describes lie entirely within the given storage
+     * @param storage storage for the segment containing the ACW buffer
+     * @param firstIndex index of the first word of the buffer, within the storage
+     * @param count number of words described by the ACW
+     * @param step 1 if the ACW increments, -1 if it decrements, 0 if it does neither
+     */
+    private static boolean isWithinStorage(
+        final ArraySlice storage,
+        final long firstIndex,
+        final int count,
+        final int step
+    ) {
+        if (count == 0) {
+            return (firstIndex >= 0) && (firstIndex <= storage._length);
+        }
+
+        long lastIndex = firstIndex + (long) (count - 1) * step;
+        return (Math.min(firstIndex, lastIndex) >= 0) && (Math.max(firstIndex, lastIndex) < storage._length);
+    }
+
     /**
      * Starts an IO as defined by the channel program at the given absolute address
      * @return true if the IO was scheduled, false if something immediately wrong was discovered
@@ -258,60 +257,63 @@ public class InputOutputProcessor extends Processor {
             return false;
         }
 
-        //  If there is exactly one ACW and it is incrementing, construct an absolute address to
-        //  describe the buffer and stuff it in the channel program.
-        //  If more than one, build a consilidated buffer the size of the various individual ACW buffers,
-        //  and if this is a write function, populate the buffer from the component ACW buffers.
+        //  If there is exactly one ACW and it is incrementing, the buffer is simply a slice of the storage it describes.
+        //  Otherwise, it is a scatter/gather view over the storage described by all of the ACWs, in order,
+        //  so that the channel module reads from and writes to the ACW buffers without any interim copy.
+        ArraySlice wordBuffer = null;
         try {
-            ArraySlice wordBuffer = null;
             int acwCount = channelProgram.getAccessControlWordCount();
             if ((acwCount == 1)
                 && (channelProgram.getAccessControlWord(0).getAddressModifier() == AccessControlWord.AddressModifier.Increment)) {
                 AccessControlWord acw = channelProgram.getAccessControlWord(0);
-                if (acw.getAddressModifier() == AccessControlWord.AddressModifier.Increment) {
-                    AbsoluteAddress bufferAddress = acw.getBufferAddress();
-                    int bufferSize = acw.getBufferSize();
-                    MainStorageProcessor msp = InventoryManager.getInstance().getMainStorageProcessor(bufferAddress._upiIndex);
-                    ArraySlice mspStorage = msp.getStorage(bufferAddress._segment);
-                    wordBuffer = new ArraySlice(mspStorage._array,
-                                                mspStorage._offset + bufferAddress._offset,
-                                                bufferSize);
+                AbsoluteAddress bufferAddress = acw.getBufferAddress();
+                int bufferSize = acw.getBufferSize();
+                MainStorageProcessor msp = InventoryManager.getInstance().getMainStorageProcessor(bufferAddress._upiIndex);
+                ArraySlice mspStorage = msp.getStorage(bufferAddress._segment);
+                if (!isWithinStorage(mspStorage, bufferAddress._offset, bufferSize, 1)) {
+                    channelProgram.setChannelStatus(ChannelModule.ChannelStatus.InvalidAddress);
+                    return false;
                 }
+                wordBuffer = new ArraySlice(mspStorage, bufferAddress._offset, bufferSize);
             } else if (acwCount > 0) {
-                int bufferWords = channelProgram.getCumulativeTransferWords();
-                wordBuffer = new ArraySlice(new long[bufferWords]);
-
-                if (channelProgram.getFunction().isWriteFunction()) {
-                    int dx = 0;
-                    for (int acwx = 0; acwx < acwCount; ++acwx) {
-                        AccessControlWord acw = channelProgram.getAccessControlWord(acwx);
-                        int inc = 0;
-                        if (acw.getAddressModifier() == AccessControlWord.AddressModifier.Increment) {
-                            inc = 1;
-                        } else if (acw.getAddressModifier() == AccessControlWord.AddressModifier.Decrement) {
-                            inc = 2;
-                        }
+                ScatterGatherArrayStorage.Extent[] extents = new ScatterGatherArrayStorage.Extent[acwCount];
+                for (int acwx = 0; acwx < acwCount; ++acwx) {
+                    AccessControlWord acw = channelProgram.getAccessControlWord(acwx);
+                    if (acw.getAddressModifier() == AccessControlWord.AddressModifier.SkipData) {
+                        extents[acwx] = new ScatterGatherArrayStorage.Extent(null, 0, acw.getBufferSize(), 0);
+                        continue;
+                    }
 
-                        AbsoluteAddress bufferAddress = acw.getBufferAddress();
-                        int bufferSize = acw.getBufferSize();
-                        MainStorageProcessor msp = InventoryManager.getInstance().getMainStorageProcessor(bufferAddress._upiIndex);
-                        ArraySlice mspStorage = msp.getStorage(bufferAddress._segment);
+                    int step = 0;
+                    if (acw.getAddressModifier() == AccessControlWord.AddressModifier.Increment) {
+                        step = 1;
+                    } else if (acw.getAddressModifier() == AccessControlWord.AddressModifier.Decrement) {
+                        step = -1;
+                    }
 
-                        for (int sc = 0, sx = mspStorage._offset + bufferAddress._offset;
-                             sc < bufferSize;
-                             ++sc, ++dx, sx += inc) {
-                            wordBuffer._array[dx] = mspStorage._array[sx];
-                        }
+                    AbsoluteAddress bufferAddress = acw.getBufferAddress();
+                    MainStorageProcessor msp = InventoryManager.getInstance().getMainStorageProcessor(bufferAddress._upiIndex);
+                    ArraySlice mspStorage = msp.getStorage(bufferAddress._segment);
+                    if (!isWithinStorage(mspStorage, bufferAddress._offset, acw.getBufferSize(), step)) {
+                        channelProgram.setChannelStatus(ChannelModule.ChannelStatus.InvalidAddress);
+                        return false;
                     }
+                    extents[acwx] = new ScatterGatherArrayStorage.Extent(mspStorage,
+                                                                         bufferAddress._offset,
+                                                                         acw.getBufferSize(),
+                                                                         step);
                 }
-            }
 
-            return channelModule.scheduleChannelProgram(source, this, channelProgram, wordBuffer);
+                ScatterGatherArrayStorage storage = new ScatterGatherArrayStorage(extents);
+                wordBuffer = new ArraySlice(storage, 0, storage.getSize());
+            }
         } catch (AddressingExceptionInterrupt
             | UPINotAssignedException
             | UPIProcessorTypeException ex) {
             channelProgram.setChannelStatus(ChannelModule.ChannelStatus.InvalidAddress);
             return false;
         }
+
+        return channelModule.scheduleChannelProgram(source, this, channelProgram, wordBuffer);
     }
 }
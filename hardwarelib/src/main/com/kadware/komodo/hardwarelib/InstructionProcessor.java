@@ -40,11 +40,12 @@ import com.kadware.komodo.hardwarelib.interrupts.UPIInitialInterrupt;
 import com.kadware.komodo.hardwarelib.interrupts.UPINormalInterrupt;
 import java.io.BufferedWriter;
 import java.io.IOException;
-import java.math.BigInteger;
-import java.util.HashMap;
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.HashSet;
-import java.util.Iterator;
-import java.util.Map;
+import java.util.List;
 import java.util.Set;
 import org.apache.logging.log4j.message.EntryMessage;
 
@@ -77,6 +78,7 @@ public class InstructionProcessor extends Processor implements Worker {
         Debug,
         Development,
         Breakpoint,
+        Checkpoint,
         HaltJumpExecuted,
         ICSBaseRegisterInvalid,
         ICSOverflow,
@@ -128,13 +130,14 @@ public class InstructionProcessor extends Processor implements Worker {
         public final AbsoluteAddress _baseAddress;                  //  physical location of the described bank
         public final AccessPermissions _generalAccessPermissions;   //  ERW permissions for access from a key of lower privilege
         public final boolean _largeSizeFlag;                        //  If true, area does not exceed 2^24 bytes - else 2^18 bytes
-        public final int _lowerLimitNormalized;                     //  Relative address, lower limit - 24 bits significant.
+        public final long _lowerLimitNormalized;                    //  Relative address, lower limit - 24 bits significant.
                                                                     //      Corresponds to first word/value in the storage subset
                                                                     //      one-word-granularity normalized form of the lower limit,
                                                                     //      accounting for large size flag
         public final AccessPermissions _specialAccessPermissions;   //  ERW permissions for access from a key of higher or equal privilege
         public final ArraySlice _storage;                           //  describes the extent of the storage for this bank - null for void flag
-        public final int _upperLimitNormalized;                     //  Relative address, upper limit - 24 bits significant
+        public final long _upperLimitNormalized;                    //  Relative address, upper limit - up to 33 bits significant
+                                                                    //      for a very large bank, hence long
                                                                     //      one-word-granularity normalized form of the upper limit,
                                                                     //      accounting for large size flag
         public final boolean _voidFlag;                             //  if true, this is a void bank (no storage)
@@ -151,7 +154,7 @@ public class InstructionProcessor extends Processor implements Worker {
             }
 
             try {
-                int bankSize = (_upperLimitNormalized - _lowerLimitNormalized + 1);
+                long bankSize = (_upperLimitNormalized - _lowerLimitNormalized + 1);
                 MainStorageProcessor msp = InventoryManager.getInstance().getMainStorageProcessor(_baseAddress._upiIndex);
                 ArraySlice mspStorage = msp.getStorage(_baseAddress._segment);
                 return new ArraySlice(mspStorage, _baseAddress._offset, bankSize);
@@ -191,8 +194,8 @@ public class InstructionProcessor extends Processor implements Worker {
         public BaseRegister(
             final AbsoluteAddress baseAddress,
             final boolean largeSizeFlag,
-            final int lowerLimitNormalized,
-            final int upperLimitNormalized,
+            final long lowerLimitNormalized,
+            final long upperLimitNormalized,
             final AccessInfo accessLock,
             final AccessPermissions generalAccessPermissions,
             final AccessPermissions specialAccessPermissions
@@ -251,7 +254,7 @@ public class InstructionProcessor extends Processor implements Worker {
                                                               bankDescriptor.getGeneraAccessPermissions()._write);
             _largeSizeFlag = bankDescriptor.getLargeBank();
 
-            int bdLowerNorm = bankDescriptor.getLowerLimitNormalized();
+            long bdLowerNorm = bankDescriptor.getLowerLimitNormalized();
             _lowerLimitNormalized = (bdLowerNorm > offset) ? bdLowerNorm - offset : 0;
             _specialAccessPermissions = new AccessPermissions(false,
                                                               bankDescriptor.getSpecialAccessPermissions()._read,
@@ -294,8 +297,8 @@ public class InstructionProcessor extends Processor implements Worker {
                                                               (values[0] & 0_010000_000000L) != 0);
             _largeSizeFlag = (values[0] & 0_000004_000000L) != 0;
             _accessLock = new AccessInfo(values[0] & 0777777);
-            _lowerLimitNormalized =(int)(((values[1] >> 27) & 0777) << (_largeSizeFlag ? 15 : 9));
-            _upperLimitNormalized = (int) ((values[1] & 0777777) << (_largeSizeFlag ? 6 : 0)) | (_largeSizeFlag ? 077 : 0);
+            _lowerLimitNormalized = ((values[1] >> 27) & 0777) << (_largeSizeFlag ? 15 : 9);
+            _upperLimitNormalized = ((values[1] & 0777777) << (_largeSizeFlag ? 6 : 0)) | (_largeSizeFlag ? 077 : 0);
             _baseAddress = new AbsoluteAddress(values, 2);
             _voidFlag = ((values[0] & 0_000200_000000L) != 0) || (_lowerLimitNormalized > _upperLimitNormalized);
             _storage = _voidFlag ? null : getStorage();
@@ -316,6 +319,18 @@ public class InstructionProcessor extends Processor implements Worker {
             }
         }
 
+        /**
+         * Chooses the GAP or SAP for this bank, depending upon the caller's ring and domain
+         * @param accessInfo access info of the client
+         * @return the permissions which apply to the client
+         */
+        AccessPermissions getEffectivePermissions(
+            final AccessInfo accessInfo
+        ) {
+            boolean useSAP = ((accessInfo._ring < _accessLock._ring) || (accessInfo._domain == _accessLock._domain));
+            return useSAP ? _specialAccessPermissions : _generalAccessPermissions;
+        }
+
         /**
          * Checks a particular key against this bank's limits.
          * @param fetchFlag true if this is related to an instruction fetch, else false
@@ -332,8 +347,7 @@ public class InstructionProcessor extends Processor implements Worker {
         ) throws ReferenceViolationInterrupt {
             //  Choose GAP or SAP based on caller's accessInfo, but only if necessary
             if (readFlag || writeFlag) {
-                boolean useSAP = ((accessInfo._ring < _accessLock._ring) || (accessInfo._domain == _accessLock._domain));
-                AccessPermissions bankPermissions = useSAP ? _specialAccessPermissions : _generalAccessPermissions;
+                AccessPermissions bankPermissions = getEffectivePermissions(accessInfo);
 
                 if (readFlag && !bankPermissions._read) {
                     throw new ReferenceViolationInterrupt(ReferenceViolationInterrupt.ErrorType.ReadAccessViolation, fetchFlag);
@@ -452,8 +466,8 @@ public class InstructionProcessor extends Processor implements Worker {
             result[0] |= (_accessLock._ring) << 16;
             result[0] |= _accessLock._domain;
 
-            result[1] = ((long)_lowerLimitNormalized >> (_largeSizeFlag ? 15 : 9)) << 27;
-            result[1] |= (long)_upperLimitNormalized >> (_largeSizeFlag ? 6 : 0);
+            result[1] = (_lowerLimitNormalized >> (_largeSizeFlag ? 15 : 9)) << 27;
+            result[1] |= _upperLimitNormalized >> (_largeSizeFlag ? 6 : 0);
 
             result[2] = _baseAddress._segment;
             result[3] = ((long) (_baseAddress._upiIndex) << 32) | _baseAddress._offset;
@@ -466,14 +480,14 @@ public class InstructionProcessor extends Processor implements Worker {
          */
         public int getLowerLimit(
         ) {
-            return (_largeSizeFlag ? _lowerLimitNormalized >> 15 : _lowerLimitNormalized >> 9);
+            return (int) (_largeSizeFlag ? _lowerLimitNormalized >> 15 : _lowerLimitNormalized >> 9);
         }
 
         /**
          * @return upper limit with granularity depending upon large size flag
          */
         public int getUpperLimit() {
-            return (_largeSizeFlag ? _upperLimitNormalized >> 6 : _upperLimitNormalized);
+            return (int) (_largeSizeFlag ? _upperLimitNormalized >> 6 : _upperLimitNormalized);
         }
 
         @Override public int hashCode() { return _voidFlag ? 0 : _baseAddress.hashCode(); }
@@ -925,9 +939,9 @@ public class InstructionProcessor extends Processor implements Worker {
                     _lxjXRegisterIndex = (int) _currentInstruction.getA();
 
                     if (_lxjInstruction) {
-                        IndexRegister xRegister = getExecOrUserXRegister(_lxjXRegisterIndex);
-                        _lxjInterfaceSpec = (int) (xRegister.getW() >> 30) & 03;
-                        _lxjBankSelector = (int) (xRegister.getW() >> 33) & 03;
+                        long xRegister = getExecOrUserXRegisterValue(_lxjXRegisterIndex);
+                        _lxjInterfaceSpec = (int) (xRegister >> 30) & 03;
+                        _lxjBankSelector = (int) (xRegister >> 33) & 03;
                     }
 
                     _callOperation =
@@ -1074,11 +1088,11 @@ public class InstructionProcessor extends Processor implements Worker {
                                                                             0);
                     }
 
-                    IndexRegister rcsXReg = getExecOrUserXRegister(InstructionProcessor.RCS_INDEX_REGISTER);
-                    if (rcsXReg.getXM() > rcsBReg._upperLimitNormalized) {
+                    long rcsXReg = getExecOrUserXRegisterValue(InstructionProcessor.RCS_INDEX_REGISTER);
+                    if (IndexRegister.getXM(rcsXReg) > rcsBReg._upperLimitNormalized) {
                         throw new RCSGenericStackUnderflowOverflowInterrupt(RCSGenericStackUnderflowOverflowInterrupt.Reason.Underflow,
                                                                             InstructionProcessor.RCS_BASE_REGISTER,
-                                                                            (int) rcsXReg.getXM());
+                                                                            (int) IndexRegister.getXM(rcsXReg));
                     }
 
                     if (rcsBReg._storage == null) {
@@ -1087,12 +1101,12 @@ public class InstructionProcessor extends Processor implements Worker {
                                                                0);
                     }
 
-                    int framePointer = (int) rcsXReg.getXM();
-                    int offset = framePointer - rcsBReg._lowerLimitNormalized;
+                    int framePointer = (int) IndexRegister.getXM(rcsXReg);
+                    int offset = (int) (framePointer - rcsBReg._lowerLimitNormalized);
                     long[] frame = { rcsBReg._storage.get(offset), rcsBReg._storage.get(offset + 1) };
                     bmInfo._rcsFrame = new ReturnControlStackFrame(frame);
                     setExecOrUserXRegister(InstructionProcessor.RCS_INDEX_REGISTER,
-                                           IndexRegister.setXM(rcsXReg.getW(), framePointer + 2));
+                                           IndexRegister.setXM(rcsXReg, framePointer + 2));
 
                     bmInfo._sourceBankLevel = bmInfo._rcsFrame._reentryPointBankLevel;
                     bmInfo._sourceBankDescriptorIndex = bmInfo._rcsFrame._reentryPointBankDescriptorIndex;
@@ -1100,7 +1114,7 @@ public class InstructionProcessor extends Processor implements Worker {
                 } else if (bmInfo._lxjInstruction) {
                     //  source L,BDI comes from basic mode X(a) E,LS,BDI
                     //  offset comes from operand
-                    long bmSpec = getExecOrUserXRegister(bmInfo._lxjXRegisterIndex).getW();
+                    long bmSpec = getExecOrUserXRegisterValue(bmInfo._lxjXRegisterIndex);
                     boolean execFlag = (bmSpec & 0_400000_000000L) != 0;
                     boolean levelSpec = (bmSpec & 0_040000_000000L) != 0;
                     bmInfo._sourceBankLevel = execFlag ? (levelSpec ? 0 : 2) : (levelSpec ? 6 : 4);
@@ -1638,9 +1652,9 @@ public class InstructionProcessor extends Processor implements Worker {
                             0);
                     }
 
-                    IndexRegister rcsXReg = (IndexRegister) _generalRegisterSet.getRegister(InstructionProcessor.RCS_INDEX_REGISTER);
+                    long rcsXReg = _generalRegisterSet.getValue(InstructionProcessor.RCS_INDEX_REGISTER);
 
-                    int framePointer = (int) rcsXReg.getXM() - 2;
+                    int framePointer = (int) IndexRegister.getXM(rcsXReg) - 2;
                     if (framePointer < rcsBReg._lowerLimitNormalized) {
                         throw new RCSGenericStackUnderflowOverflowInterrupt(
                             RCSGenericStackUnderflowOverflowInterrupt.Reason.Overflow,
@@ -1683,11 +1697,11 @@ public class InstructionProcessor extends Processor implements Worker {
                                                                                    _indicatorKeyRegister.getAccessInfo());
                     long[] rcsData = rcsFrame.get();
 
-                    int offset = framePointer - rcsBReg._lowerLimitNormalized;
+                    int offset = (int) (framePointer - rcsBReg._lowerLimitNormalized);
                     rcsBReg._storage.set(offset, rcsData[0]);
                     rcsBReg._storage.set(offset + 1, rcsData[1]);
-                    _generalRegisterSet.setRegister(InstructionProcessor.RCS_INDEX_REGISTER,
-                                                    IndexRegister.setXM(rcsXReg.getW(), framePointer));
+                    _generalRegisterSet.setValue(InstructionProcessor.RCS_INDEX_REGISTER,
+                                                 IndexRegister.setXM(rcsXReg, framePointer));
                 }
 
                 bmInfo._nextStep++;
@@ -1742,7 +1756,7 @@ public class InstructionProcessor extends Processor implements Worker {
                 if (bmInfo._callOperation) {
                     long value = _designatorRegister.getBasicModeEnabled() ? 0_400000_000000L : 0;
                     value |= _indicatorKeyRegister.getAccessKey();
-                    _generalRegisterSet.setRegister(GeneralRegisterSet.X0, value);
+                    _generalRegisterSet.setValue(GeneralRegisterSet.X0, value);
                 }
 
                 bmInfo._nextStep++;
@@ -1771,10 +1785,12 @@ public class InstructionProcessor extends Processor implements Worker {
                         long temp = _designatorRegister.getW() & 0_777702_777777L;
                         temp |= bmInfo._gateBank._designatorBits12_17.getW() & 0_000075_000000L;
                         _designatorRegister.setW(temp);
+                        _operandCache.flush();
                     }
 
                     if (!bmInfo._gateBank._accessKeyInhibit) {
                         _indicatorKeyRegister.setAccessKey((int) bmInfo._gateBank._accessKey.get());
+                        _operandCache.flush();
                     }
 
                     if (!bmInfo._gateBank._latentParameter0Inhibit) {
@@ -1833,6 +1849,7 @@ public class InstructionProcessor extends Processor implements Worker {
                     _designatorRegister = newDR;
 
                     _indicatorKeyRegister.setW(0);
+                    _operandCache.flush();
                     bmInfo._nextStep = 18;
                 } else if (bmInfo._instruction == Instruction.UR) {
                     //  Entire ASP is loaded from 7 consecutive operand words.
@@ -1843,6 +1860,7 @@ public class InstructionProcessor extends Processor implements Worker {
                     IndicatorKeyRegister ikr = new IndicatorKeyRegister(bmInfo._operands[2]);
                     ikr.setShortStatusField(_indicatorKeyRegister.getShortStatusField());
                     _indicatorKeyRegister = ikr;
+                    _operandCache.flush();
 
                     _quantumTimer = bmInfo._operands[3];
                     _currentInstruction = new InstructionWord(bmInfo._operands[4]);
@@ -1850,6 +1868,7 @@ public class InstructionProcessor extends Processor implements Worker {
                 } else if (bmInfo._returnOperation) {
                     _indicatorKeyRegister.setAccessKey((int) bmInfo._rcsFrame._accessKey.get());
                     _designatorRegister.setS4(bmInfo._rcsFrame._designatorRegisterDB12To17.getS4());
+                    _operandCache.flush();
                     //  Special code for RTN instruction (per architecture document for emulated systems):
                     //  On return, we clear DB15, and if DB14 is set, we clear DB17.
                     //  What this means, is that returned-to PPrivilege 1 -> 0 and 3 -> 2,
@@ -1861,14 +1880,17 @@ public class InstructionProcessor extends Processor implements Worker {
                     //      all four processor privileges properly, I'm going to NOT implement that.
                     if (_designatorRegister.getProcessorPrivilege() > 1) {
                         _designatorRegister.setExecRegisterSetSelected(false);
+                        _operandCache.flush();
                     }
                 } else if ((bmInfo._instruction == Instruction.GOTO)
                            || (bmInfo._instruction == Instruction.CALL)) {
                     if (bmInfo._transferMode == TransferMode.ExtendedToBasic) {
                         _designatorRegister.setBasicModeEnabled(true);
+                        _operandCache.flush();
                     }
                 } else if ((bmInfo._lxjInstruction) && (bmInfo._transferMode == TransferMode.BasicToExtended)) {
                     _designatorRegister.setBasicModeEnabled(false);
+                    _operandCache.flush();
                 }
 
                 bmInfo._nextStep++;
@@ -1935,12 +1957,14 @@ public class InstructionProcessor extends Processor implements Worker {
                 if (bmInfo._targetBankDescriptor == null) {
                     //  There is no bank descriptor - set up a void base register
                     _baseRegisters[bmInfo._baseRegisterIndex] = new BaseRegister();
+                    _operandCache.flush();
                 } else if (bmInfo._loadInstruction && (bmInfo._targetBankOffset != 0)) {
                     //  we have subsetting info (in targetBankOffset)
                     //  set up a real Base Register with subsetting.
                     try {
                         _baseRegisters[bmInfo._baseRegisterIndex] =
                             new BaseRegister(bmInfo._targetBankDescriptor, bmInfo._targetBankOffset);
+                        _operandCache.flush();
 
                     } catch (AddressingExceptionInterrupt ex) {
                         throw new AddressingExceptionInterrupt(AddressingExceptionInterrupt.Reason.FatalAddressingException,
@@ -1951,6 +1975,7 @@ public class InstructionProcessor extends Processor implements Worker {
                     //  A normal non-subsetting base register - make it so.
                     try {
                         _baseRegisters[bmInfo._baseRegisterIndex] = new BaseRegister(bmInfo._targetBankDescriptor);
+                        _operandCache.flush();
                     } catch (AddressingExceptionInterrupt ex) {
                         throw new AddressingExceptionInterrupt(AddressingExceptionInterrupt.Reason.FatalAddressingException,
                                                                ex.getBankLevel(),
@@ -2216,7 +2241,7 @@ public class InstructionProcessor extends Processor implements Worker {
     //  Function handler and function table
     //  ----------------------------------------------------------------------------------------------------------------------------
 
-    private enum Instruction {
+    enum Instruction {
         AA,     AAIJ,   ACEL,   ACK,    ADD1,   ADE,    AH,     AMA,
         ANA,    AND,    ANH,    ANMA,   ANT,    ANU,    ANX,    AT,
         AU,     AX,     BAO,    BBN,    BDE,    BIC,    BICL,   BIM,
@@ -3288,6 +3313,412 @@ public class InstructionProcessor extends Processor implements Worker {
         }
     }
 
+    /**
+     * Represents an instruction word which has been fetched from storage and decoded, for a particular mode.
+     * Entries are immutable - the cache replaces them rather than updating them.
+     */
+    private static class DecodedInstruction {
+
+        private final Object _base;                 //  backing array (or ArrayStorage) from which we were fetched
+        private final long _index;                  //  absolute index into _base
+        private final long _word;                   //  raw instruction word, as it existed in storage
+        private final boolean _basicMode;           //  mode under which we were decoded
+        private final InstructionWord _instruction;
+        private final FunctionHandler _handler;     //  null for undefined function codes
+        private final boolean _batchable;           //  true if the instruction may be run in a batch - see runInstructionBatch()
+
+        private DecodedInstruction(
+            final Object base,
+            final long index,
+            final long word,
+            final boolean basicMode,
+            final FunctionTable functionTable
+        ) {
+            _base = base;
+            _index = index;
+            _word = word;
+            _basicMode = basicMode;
+            _instruction = new InstructionWord(word);
+            _handler = functionTable.lookup(_instruction, basicMode);
+            _batchable = (_handler instanceof InstructionHandler)
+                         && BATCHABLE_INSTRUCTIONS.contains(((InstructionHandler) _handler).getInstruction());
+        }
+    }
+
+    /**
+     * Direct-mapped cache of decoded instructions, keyed on absolute storage location.
+     * A hit requires that the location, the mode, and the raw word currently in storage all match the entry,
+     * so writes to storage by any processor (self-modifying code, IPL loads, IO) can never produce a stale decode.
+     * The whole cache is discarded whenever any MSP releases or replaces storage, so that we do not hold on
+     * to arrays which no longer back any segment.
+     */
+    private static class InstructionCache {
+
+        private static final int SIZE = 4096;   //  must be a power of two
+        private static final int MASK = SIZE - 1;
+
+        private final DecodedInstruction[] _entries = new DecodedInstruction[SIZE];
+        private long _storageGeneration = MainStorageProcessor.getStorageGeneration();
+        private long _hits = 0;
+        private long _misses = 0;
+
+        /**
+         * Discards all entries
+         */
+        void clear() {
+            Arrays.fill(_entries, null);
+        }
+
+        /**
+         * Retrieves the decoded form of the instruction at the given offset of the given storage,
+         * decoding it (and replacing whatever entry was in the slot) if necessary.
+         * @param storage storage from which the instruction is fetched
+         * @param offset offset of the instruction within the storage
+         * @param basicMode true if we are in basic mode, false if extended mode
+         * @param functionTable function table to be used for resolving a handler on a miss
+         * @return decoded instruction
+         */
+        DecodedInstruction fetch(
+            final ArraySlice storage,
+            final int offset,
+            final boolean basicMode,
+            final FunctionTable functionTable
+        ) {
+            long generation = MainStorageProcessor.getStorageGeneration();
+            if (generation != _storageGeneration) {
+                clear();
+                _storageGeneration = generation;
+            }
+
+            long word = storage.get(offset);
+            Object base = (storage._array != null) ? storage._array : storage._storage;
+            long index = storage._offset + offset;
+            int slot = ((int) index ^ System.identityHashCode(base)) & MASK;
+
+            DecodedInstruction entry = _entries[slot];
+            if ((entry != null)
+                && (entry._base == base)
+                && (entry._index == index)
+                && (entry._word == word)
+                && (entry._basicMode == basicMode)) {
+                ++_hits;
+                return entry;
+            }
+
+            ++_misses;
+            entry = new DecodedInstruction(base, index, word, basicMode, functionTable);
+            _entries[slot] = entry;
+            return entry;
+        }
+    }
+
+    /**
+     * Implemented by the classes which BlockCompiler generates for compiled blocks
+     */
+    private interface CompiledBlockCode {
+
+        /**
+         * Executes the instructions of the block, until control leaves the block, an instruction must be left
+         * to the interpreter, or a jump back within the block finds the limit reached or anything needing the attention
+         * of the run loop.
+         * @param ip the processor which is executing the block
+         * @param limit number of instructions after which the block must not jump back within itself
+         * @return the value returned by completeCompiledBlock() - non-zero if the processor may go straight on
+         *          to the compiled block (if any) at PAR.PC
+         */
+        int execute(
+            final InstructionProcessor ip,
+            final int limit
+        );
+    }
+
+    /**
+     * A straight-line sequence of extended mode instructions, along with the generated code which executes it.
+     * A block is tied to the storage from which it was compiled and to the relative address at which it was found;
+     * it is usable only so long as that storage still contains the very words from which it was compiled.
+     */
+    private static class CompiledBlock {
+
+        private final long[] _array;                        //  backing array of the storage containing the block
+        private final int _index;                           //  absolute index of the first instruction in _array
+        private final int _programCounter;                  //  relative address of the first instruction
+        private final long[] _words;                        //  instruction words, as compiled
+        private final long _designatorBits;                 //  COMPILED_BLOCK_DESIGNATOR_BITS under which we compiled
+        private final CompiledBlockCode _code;
+
+        private CompiledBlock(
+            final long[] array,
+            final int index,
+            final int programCounter,
+            final long[] words,
+            final long designatorBits,
+            final CompiledBlockCode code
+        ) {
+            _array = array;
+            _index = index;
+            _programCounter = programCounter;
+            _words = words;
+            _designatorBits = designatorBits;
+            _code = code;
+        }
+
+        /**
+         * @return true if storage still contains the instructions from which this block was compiled
+         */
+        boolean isCurrent() {
+            for (int ix = 0; ix < _words.length; ++ix) {
+                if (_array[_index + ix] != _words[ix]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * The view which compiled blocks have of the bank based on a particular base register - the backing array,
+     * the bias which converts a relative address into an index of that array, and the ranges of relative addresses
+     * which the current access key may read and write (empty if it may not, or if the bank is void or is not
+     * backed by a long[]).  Each entry records the base register and the operand cache flush count from which
+     * it was built, and is rebuilt by getCompiledBank() when either changes.
+     */
+    private static class CompiledBank {
+
+        private BaseRegister _baseRegister = null;
+        private long _flushCount = -1;
+        private long[] _array = null;
+        private int _bias = 0;
+        private int _readLower = 1;
+        private int _readUpper = 0;
+        private int _writeLower = 1;
+        private int _writeUpper = 0;
+        private int _storageLower = 1;                      //  index of the first word of the bank, within _array
+        private int _storageUpper = 0;                      //  index of the last word of the bank, within _array
+        private int _upiIndex = 0;
+
+        /**
+         * Rebuilds the entry
+         * @param baseRegister base register from which we build the entry
+         * @param accessInfo current access key
+         * @param flushCount current flush count of the operand cache
+         */
+        void load(
+            final BaseRegister baseRegister,
+            final AccessInfo accessInfo,
+            final long flushCount
+        ) {
+            _baseRegister = baseRegister;
+            _flushCount = flushCount;
+            _upiIndex = baseRegister._baseAddress._upiIndex;
+
+            ArraySlice storage = baseRegister._storage;
+            if (baseRegister._voidFlag || (storage == null) || (storage._array == null)) {
+                _array = null;
+                _bias = 0;
+                _readLower = _writeLower = _storageLower = 1;
+                _readUpper = _writeUpper = _storageUpper = 0;
+                return;
+            }
+
+            //  As for OperandCache.load(), none of the narrowing conversions can lose anything -
+            //  large banks simply clip to the int range.
+            AccessPermissions permissions = baseRegister.getEffectivePermissions(accessInfo);
+            int lower = (int) baseRegister._lowerLimitNormalized;
+            int upper = (int) Math.min(baseRegister._upperLimitNormalized, Integer.MAX_VALUE);
+            _array = storage._array;
+            _bias = (int) (storage._offset - baseRegister._lowerLimitNormalized);
+            _readLower = permissions._read ? lower : 1;
+            _readUpper = permissions._read ? upper : 0;
+            _writeLower = permissions._write ? lower : 1;
+            _writeUpper = permissions._write ? upper : 0;
+            _storageLower = (int) storage._offset;
+            _storageUpper = (int) (storage._offset + storage._length - 1);
+        }
+    }
+
+    /**
+     * Direct-mapped table of compiled blocks, keyed on absolute storage location as is the InstructionCache.
+     * Locations which do not yet have a block carry a count of the number of times the processor has looked for one there;
+     * when that count reaches the threshold the location is considered hot, and the processor tries to compile a block for it.
+     * The whole table is discarded whenever any MSP releases or replaces storage.
+     */
+    private static class CompiledBlockCache {
+
+        private static final int SIZE = 1024;           //  must be a power of two
+        private static final int MASK = SIZE - 1;
+        private static final int HOT_THRESHOLD = 64;    //  number of entries to a location before we compile a block there
+
+        private final long[][] _arrays = new long[SIZE][];
+        private final int[] _indices = new int[SIZE];
+        private final int[] _counts = new int[SIZE];
+        private final CompiledBlock[] _blocks = new CompiledBlock[SIZE];
+        private long _storageGeneration = MainStorageProcessor.getStorageGeneration();
+        private long _blocksCompiled = 0;
+        private long _instructions = 0;                 //  number of instructions completed via compiled blocks
+
+        /**
+         * Discards all entries
+         */
+        void clear() {
+            Arrays.fill(_arrays, null);
+            Arrays.fill(_blocks, null);
+        }
+
+        /**
+         * Discards the block (if any) in the given slot, and restarts the count for its location
+         */
+        void discard(
+            final int slot
+        ) {
+            _blocks[slot] = null;
+            _counts[slot] = 0;
+        }
+
+        /**
+         * Counts an entry to the given location, which is not known to have a block
+         * @return true if the location has just become hot
+         */
+        boolean isHot(
+            final int slot
+        ) {
+            return ++_counts[slot] == HOT_THRESHOLD;
+        }
+
+        /**
+         * Finds the slot for the given location, taking it over (and thus discarding any block or count it had)
+         * if it currently belongs to some other location.
+         * @param array backing array of the storage containing PAR.PC
+         * @param index absolute index into array corresponding to PAR.PC
+         * @param programCounter PAR.PC
+         * @return slot number
+         */
+        int probe(
+            final long[] array,
+            final int index,
+            final int programCounter
+        ) {
+            long generation = MainStorageProcessor.getStorageGeneration();
+            if (generation != _storageGeneration) {
+                clear();
+                _storageGeneration = generation;
+            }
+
+            int slot = (index ^ System.identityHashCode(array)) & MASK;
+            if ((_arrays[slot] != array) || (_indices[slot] != index)) {
+                _arrays[slot] = array;
+                _indices[slot] = index;
+                discard(slot);
+            } else if ((_blocks[slot] != null) && (_blocks[slot]._programCounter != programCounter)) {
+                //  Same storage, but based at a different relative address
+                discard(slot);
+            }
+
+            return slot;
+        }
+    }
+
+    /**
+     * Direct-mapped translation cache for operand references, keyed on base register index and relative page.
+     * Each entry records the base register which was in effect when the entry was built, the range of relative addresses
+     * within the page which passed the limits check, the read/write permissions which applied to the access key at that time,
+     * and the bias which converts a relative address directly into an index of the backing long[] array.
+     * Entries are kept in parallel primitive arrays so that a hit costs nothing but a few array loads.
+     * The owning IP must flush the cache whenever a base register, the designator register, or the access key changes.
+     * As a further safeguard, a hit also requires that the base register be the very object from which the entry was built.
+     */
+    private static class OperandCache {
+
+        private static final int PAGE_SHIFT = 9;    //  512-word pages
+        private static final int SIZE = 1024;       //  must be a power of two
+        private static final int MASK = SIZE - 1;
+
+        private final BaseRegister[] _baseRegisters = new BaseRegister[SIZE];   //  null for an empty slot
+        private final long[][] _arrays = new long[SIZE][];
+        private final int[] _biases = new int[SIZE];
+        private final int[] _lowerLimits = new int[SIZE];
+        private final int[] _upperLimits = new int[SIZE];
+        private final boolean[] _readFlags = new boolean[SIZE];
+        private final boolean[] _writeFlags = new boolean[SIZE];
+        private long _hits = 0;
+        private long _misses = 0;
+        private long _flushCount = 0;                   //  lets CompiledBank entries know when they, too, are stale
+
+        private static int getSlot(
+            final int baseRegisterIndex,
+            final int relativeAddress
+        ) {
+            return (((relativeAddress >>> PAGE_SHIFT) << 5) | baseRegisterIndex) & MASK;
+        }
+
+        /**
+         * Discards all entries
+         */
+        void flush() {
+            Arrays.fill(_baseRegisters, null);
+            Arrays.fill(_arrays, null);
+            ++_flushCount;
+        }
+
+        /**
+         * Looks for a valid translation
+         * @param baseRegisterIndex index of the base register through which the reference is made
+         * @param baseRegister the base register itself
+         * @param relativeAddress relative address of the reference
+         * @param writeFlag true for a store, false for a read
+         * @return slot of the entry if it exists and permits the access, else -1
+         */
+        int lookup(
+            final int baseRegisterIndex,
+            final BaseRegister baseRegister,
+            final int relativeAddress,
+            final boolean writeFlag
+        ) {
+            int slot = getSlot(baseRegisterIndex, relativeAddress);
+            if ((_baseRegisters[slot] == baseRegister)
+                && (relativeAddress >= _lowerLimits[slot])
+                && (relativeAddress <= _upperLimits[slot])
+                && (writeFlag ? _writeFlags[slot] : _readFlags[slot])) {
+                ++_hits;
+                return slot;
+            }
+
+            ++_misses;
+            return -1;
+        }
+
+        /**
+         * Creates (or replaces) the entry for the page containing the given relative address.
+         * Caller must already have verified that the address is within the limits of the base register.
+         * @param baseRegisterIndex index of the base register through which the reference is made
+         * @param baseRegister the base register itself
+         * @param relativeAddress relative address of the reference
+         * @param permissions permissions which apply to the current access key for this bank
+         */
+        void load(
+            final int baseRegisterIndex,
+            final BaseRegister baseRegister,
+            final int relativeAddress,
+            final AccessPermissions permissions
+        ) {
+            if (baseRegister._storage._array == null) {
+                return;                         //  storage not in a long[] - references always take the slow path
+            }
+
+            int slot = getSlot(baseRegisterIndex, relativeAddress);
+            int pageLower = relativeAddress & ~((1 << PAGE_SHIFT) - 1);
+            int pageUpper = pageLower + (1 << PAGE_SHIFT) - 1;
+            _baseRegisters[slot] = baseRegister;
+            _arrays[slot] = baseRegister._storage._array;
+            //  A long[] never exceeds the int range, and the limits were checked against an int relative address,
+            //  so none of these narrowing conversions can lose anything - large banks simply clip to the page.
+            _biases[slot] = (int) (baseRegister._storage._offset - baseRegister._lowerLimitNormalized);
+            _lowerLimits[slot] = (int) Math.max(pageLower, baseRegister._lowerLimitNormalized);
+            _upperLimits[slot] = (int) Math.min(pageUpper, baseRegister._upperLimitNormalized);
+            _readFlags[slot] = permissions._read;
+            _writeFlags[slot] = permissions._write;
+        }
+    }
+
 
     //  ----------------------------------------------------------------------------------------------------------------------------
     //  Actual Function Handlers
@@ -3300,7 +3731,7 @@ public class InstructionProcessor extends Processor implements Worker {
 
         @Override public void handle() throws MachineInterrupt, UnresolvedAddressException {
             int iaReg = (int) _currentInstruction.getA();
-            long operand1 = getExecOrUserARegister(iaReg).getW();
+            long operand1 = getExecOrUserARegisterValue(iaReg);
             long operand2 = getOperand(true, true, true, true);
             Word36.StaticAdditionResult sar = Word36.add(operand1, operand2);
 
@@ -3390,7 +3821,7 @@ public class InstructionProcessor extends Processor implements Worker {
     private class AHFunctionHandler extends InstructionHandler {
 
         @Override public void handle() throws MachineInterrupt, UnresolvedAddressException {
-            long operand1 = getExecOrUserARegister((int) _currentInstruction.getA()).getW();
+            long operand1 = getExecOrUserARegisterValue((int) _currentInstruction.getA());
             long operand2 = getOperand(true, true, false, false);
 
             long op1h1 = Word36.getSignExtended18(Word36.getH1(operand1));
@@ -3414,7 +3845,7 @@ public class InstructionProcessor extends Processor implements Worker {
     private class AMAFunctionHandler extends InstructionHandler {
 
         @Override public void handle() throws MachineInterrupt, UnresolvedAddressException {
-            long operand1 = getExecOrUserARegister((int) _currentInstruction.getA()).getW();
+            long operand1 = getExecOrUserARegisterValue((int) _currentInstruction.getA());
             long operand2 = getOperand(true, true, true, true);
             if (Word36.isNegative(operand2)) {
                 operand2 = Word36.negate(operand2);
@@ -3439,7 +3870,7 @@ public class InstructionProcessor extends Processor implements Worker {
     private class ANAFunctionHandler extends InstructionHandler {
 
         @Override public void handle() throws MachineInterrupt, UnresolvedAddressException {
-            long operand1 = getExecOrUserARegister((int) _currentInstruction.getA()).getW();
+            long operand1 = getExecOrUserARegisterValue((int) _currentInstruction.getA());
             long operand2 = Word36.negate(getOperand(true, true, true, true));
 
             Word36.StaticAdditionResult sar = Word36.add(operand1, operand2);
@@ -3461,7 +3892,7 @@ public class InstructionProcessor extends Processor implements Worker {
     private class ANDFunctionHandler extends InstructionHandler {
 
         @Override public void handle() throws MachineInterrupt, UnresolvedAddressException {
-            long operand1 = getExecOrUserARegister((int) _currentInstruction.getA()).getW();
+            long operand1 = getExecOrUserARegisterValue((int) _currentInstruction.getA());
             long operand2 = getOperand(true, true, true, true);
             setExecOrUserARegister((int) _currentInstruction.getA() + 1, operand1 & operand2);
         }
@@ -3475,7 +3906,7 @@ public class InstructionProcessor extends Processor implements Worker {
     private class ANHFunctionHandler extends InstructionHandler {
 
         @Override public void handle() throws MachineInterrupt, UnresolvedAddressException {
-            long operand1 = getExecOrUserARegister((int) _currentInstruction.getA()).getW();
+            long operand1 = getExecOrUserARegisterValue((int) _currentInstruction.getA());
             long operand2 = getOperand(true, true, false, false);
 
             long op1h1 = Word36.getSignExtended18(Word36.getH1(operand1));
@@ -3499,7 +3930,7 @@ public class InstructionProcessor extends Processor implements Worker {
     private class ANMAFunctionHandler extends InstructionHandler {
 
         @Override public void handle() throws MachineInterrupt, UnresolvedAddressException {
-            long operand1 = getExecOrUserARegister((int) _currentInstruction.getA()).getW();
+            long operand1 = getExecOrUserARegisterValue((int) _currentInstruction.getA());
             long operand2 = getOperand(true, true, true, true);
             if (Word36.isPositive(operand2)) {
                 operand2 = Word36.negate(operand2);
@@ -3524,7 +3955,7 @@ public class InstructionProcessor extends Processor implements Worker {
     private class ANTFunctionHandler extends InstructionHandler {
 
         @Override public void handle() throws MachineInterrupt, UnresolvedAddressException {
-            long operand1 = getExecOrUserARegister((int) _currentInstruction.getA()).getW();
+            long operand1 = getExecOrUserARegisterValue((int) _currentInstruction.getA());
             long operand2 = getOperand(true, true, false, false);
 
             long op1t1 = Word36.getSignExtended12(Word36.getT1(operand1));
@@ -3551,7 +3982,7 @@ public class InstructionProcessor extends Processor implements Worker {
     private class ANUFunctionHandler extends InstructionHandler {
 
         @Override public void handle() throws MachineInterrupt, UnresolvedAddressException {
-            long operand1 = getExecOrUserARegister((int) _currentInstruction.getA()).getW();
+            long operand1 = getExecOrUserARegisterValue((int) _currentInstruction.getA());
             long operand2 = Word36.negate(getOperand(true, true, true, true));
 
             Word36.StaticAdditionResult sar = Word36.add(operand1, operand2);
@@ -3573,7 +4004,7 @@ public class InstructionProcessor extends Processor implements Worker {
     private class ANXFunctionHandler extends InstructionHandler {
 
         @Override public void handle() throws MachineInterrupt, UnresolvedAddressException {
-            long operand1 = getExecOrUserXRegister((int) _currentInstruction.getA()).getW();
+            long operand1 = getExecOrUserXRegisterValue((int) _currentInstruction.getA());
             long operand2 = Word36.negate(getOperand(true, true, true, true));
 
             Word36.StaticAdditionResult sar = Word36.add(operand1, operand2);
@@ -3595,7 +4026,7 @@ public class InstructionProcessor extends Processor implements Worker {
     private class ATFunctionHandler extends InstructionHandler {
 
         @Override public void handle() throws MachineInterrupt, UnresolvedAddressException {
-            long operand1 = getExecOrUserARegister((int) _currentInstruction.getA()).getW();
+            long operand1 = getExecOrUserARegisterValue((int) _currentInstruction.getA());
             long operand2 = getOperand(true, true, false, false);
 
             long op1t1 = Word36.getSignExtended12(Word36.getT1(operand1));
@@ -3622,7 +4053,7 @@ public class InstructionProcessor extends Processor implements Worker {
     private class AUFunctionHandler extends InstructionHandler {
 
         @Override public void handle() throws MachineInterrupt, UnresolvedAddressException {
-            long operand1 = getExecOrUserARegister((int) _currentInstruction.getA()).getW();
+            long operand1 = getExecOrUserARegisterValue((int) _currentInstruction.getA());
             long operand2 = getOperand(true, true, true, true);
 
             Word36.StaticAdditionResult sar = Word36.add(operand1, operand2);
@@ -3644,7 +4075,7 @@ public class InstructionProcessor extends Processor implements Worker {
     private class AXFunctionHandler extends InstructionHandler {
 
         @Override public void handle() throws MachineInterrupt, UnresolvedAddressException {
-            long operand1 = getExecOrUserXRegister((int) _currentInstruction.getA()).getW();
+            long operand1 = getExecOrUserXRegisterValue((int) _currentInstruction.getA());
             long operand2 = getOperand(true, true, true, true);
 
             Word36.StaticAdditionResult sar = Word36.add(operand1, operand2);
@@ -3668,11 +4099,11 @@ public class InstructionProcessor extends Processor implements Worker {
         @Override public void handle() throws MachineInterrupt, UnresolvedAddressException {
             boolean longModifier = _designatorRegister.getExecutive24BitIndexingEnabled();
             int ixReg = (int) _currentInstruction.getX();
-            IndexRegister xReg = getExecOrUserXRegister(ixReg);
+            long xReg = getExecOrUserXRegisterValue(ixReg);
             BaseRegister bReg = _baseRegisters[(int) _currentInstruction.getB()];
 
-            long subtrahend = _currentInstruction.getD() + (longModifier ? xReg.getXI12() : xReg.getXI());
-            long newModifier = (longModifier ? xReg.getXM24() : xReg.getXM()) - subtrahend;
+            long subtrahend = _currentInstruction.getD() + (longModifier ? IndexRegister.getXI12(xReg) : IndexRegister.getXI(xReg));
+            long newModifier = (longModifier ? IndexRegister.getXM24(xReg) : IndexRegister.getXM(xReg)) - subtrahend;
             if (bReg._voidFlag
                 || (newModifier < bReg._lowerLimitNormalized)
                 || (newModifier > bReg._upperLimitNormalized)) {
@@ -3682,9 +4113,9 @@ public class InstructionProcessor extends Processor implements Worker {
             }
 
             if (longModifier) {
-                setExecOrUserXRegister(ixReg, IndexRegister.setXM24(xReg.getW(), newModifier));
+                setExecOrUserXRegister(ixReg, IndexRegister.setXM24(xReg, newModifier));
             } else {
-                setExecOrUserXRegister(ixReg, IndexRegister.setXM(xReg.getW(), newModifier));
+                setExecOrUserXRegister(ixReg, IndexRegister.setXM(xReg, newModifier));
             }
         }
 
@@ -3734,9 +4165,9 @@ public class InstructionProcessor extends Processor implements Worker {
                 throw new ReferenceViolationInterrupt(ReferenceViolationInterrupt.ErrorType.ReadAccessViolation, false);
             }
 
-            if (value == getExecOrUserARegister((int) _currentInstruction.getA()).getW()) {
+            if (value == getExecOrUserARegisterValue((int) _currentInstruction.getA())) {
                 checkBreakpoint(BreakpointComparison.Write, absAddress);
-                long newValue = getExecOrUserARegister((int) _currentInstruction.getA() + 1).getW();
+                long newValue = getExecOrUserARegisterValue((int) _currentInstruction.getA() + 1);
                 try {
                     setStorageValue(absAddress, newValue);
                     skipNextInstruction();
@@ -3760,28 +4191,24 @@ public class InstructionProcessor extends Processor implements Worker {
 
         @Override public void handle() throws MachineInterrupt, UnresolvedAddressException {
             long[] operand1 = {
-                getExecOrUserARegister((int) _currentInstruction.getA()).getW(),
-                getExecOrUserARegister((int) _currentInstruction.getA() + 1).getW()
+                getExecOrUserARegisterValue((int) _currentInstruction.getA()),
+                getExecOrUserARegisterValue((int) _currentInstruction.getA() + 1)
             };
-            DoubleWord36 dwOperand1 = new DoubleWord36(operand1[0], operand1[1]);
 
             long[] operand2 = new long[2];
             getConsecutiveOperands(true, operand2, false);
-            DoubleWord36 dwOperand2 = new DoubleWord36(operand2[0], operand2[1]);
 
-            DoubleWord36.AdditionResult ar = dwOperand1.add(dwOperand2);
-
-            long[] result = {
-                ar._value.get().shiftRight(36).longValue() & Word36.BIT_MASK,
-                ar._value.get().longValue() & Word36.BIT_MASK
-            };
+            long[] result = new long[2];
+            int flags = DoubleWord36.add(operand1[0], operand1[1], operand2[0], operand2[1], result);
+            boolean carry = (flags & DoubleWord36.ADD_CARRY) != 0;
+            boolean overflow = (flags & DoubleWord36.ADD_OVERFLOW) != 0;
 
             setExecOrUserARegister((int) _currentInstruction.getA(), result[0]);
             setExecOrUserARegister((int) _currentInstruction.getA() + 1, result[1]);
 
-            _designatorRegister.setCarry(ar._carry);
-            _designatorRegister.setOverflow(ar._overflow);
-            if (_designatorRegister.getOperationTrapEnabled() && ar._overflow) {
+            _designatorRegister.setCarry(carry);
+            _designatorRegister.setOverflow(overflow);
+            if (_designatorRegister.getOperationTrapEnabled() && overflow) {
                 throw new OperationTrapInterrupt(OperationTrapInterrupt.Reason.FixedPointBinaryIntegerOverflow);
             }
         }
@@ -3818,28 +4245,25 @@ public class InstructionProcessor extends Processor implements Worker {
 
         @Override public void handle() throws MachineInterrupt, UnresolvedAddressException {
             long[] operand1 = {
-                getExecOrUserARegister((int) _currentInstruction.getA()).getW(),
-                getExecOrUserARegister((int) _currentInstruction.getA() + 1).getW()
+                getExecOrUserARegisterValue((int) _currentInstruction.getA()),
+                getExecOrUserARegisterValue((int) _currentInstruction.getA() + 1)
             };
-            DoubleWord36 dwOperand1 = new DoubleWord36(operand1[0], operand1[1]);
 
             long[] operand2 = new long[2];
             getConsecutiveOperands(true, operand2, false);
-            DoubleWord36 dwOperand2 = new DoubleWord36(operand2[0], operand2[1]).negate();
-
-            DoubleWord36.AdditionResult ar = dwOperand1.add(dwOperand2);
+            DoubleWord36.negate(operand2[0], operand2[1], operand2);
 
-            long[] result = {
-                ar._value.get().shiftRight(36).longValue() & Word36.BIT_MASK,
-                ar._value.get().longValue() & Word36.BIT_MASK
-            };
+            long[] result = new long[2];
+            int flags = DoubleWord36.add(operand1[0], operand1[1], operand2[0], operand2[1], result);
+            boolean carry = (flags & DoubleWord36.ADD_CARRY) != 0;
+            boolean overflow = (flags & DoubleWord36.ADD_OVERFLOW) != 0;
 
             setExecOrUserARegister((int) _currentInstruction.getA(), result[0]);
             setExecOrUserARegister((int) _currentInstruction.getA() + 1, result[1]);
 
-            _designatorRegister.setCarry(ar._carry);
-            _designatorRegister.setOverflow(ar._overflow);
-            if (_designatorRegister.getOperationTrapEnabled() && ar._overflow) {
+            _designatorRegister.setCarry(carry);
+            _designatorRegister.setOverflow(overflow);
+            if (_designatorRegister.getOperationTrapEnabled() && overflow) {
                 throw new OperationTrapInterrupt(OperationTrapInterrupt.Reason.FixedPointBinaryIntegerOverflow);
             }
         }
@@ -3860,13 +4284,13 @@ public class InstructionProcessor extends Processor implements Worker {
             long[] ops = new long[48];
             int opx = 0;
             for (int grsx = GeneralRegisterSet.X0; grsx <= GeneralRegisterSet.X11; ++grsx) {
-                ops[opx++] = _generalRegisterSet.getRegister(grsx).getW();
+                ops[opx++] = _generalRegisterSet.getValue(grsx);
             }
             for (int grsx = GeneralRegisterSet.A0; grsx <= GeneralRegisterSet.A15 + 4; ++grsx) {
-                ops[opx++] = _generalRegisterSet.getRegister(grsx).getW();
+                ops[opx++] = _generalRegisterSet.getValue(grsx);
             }
             for (int grsx = GeneralRegisterSet.R0; grsx <= GeneralRegisterSet.R15; ++grsx) {
-                ops[opx++] = _generalRegisterSet.getRegister(grsx).getW();
+                ops[opx++] = _generalRegisterSet.getValue(grsx);
             }
 
             storeConsecutiveOperands(false, ops);
@@ -3926,8 +4350,8 @@ public class InstructionProcessor extends Processor implements Worker {
 
         @Override public void handle() throws MachineInterrupt, UnresolvedAddressException {
             long[] dividend = {
-                getExecOrUserARegister((int) _currentInstruction.getA()).getW(),
-                getExecOrUserARegister((int) _currentInstruction.getA() + 1).getW()
+                getExecOrUserARegisterValue((int) _currentInstruction.getA()),
+                getExecOrUserARegisterValue((int) _currentInstruction.getA() + 1)
             };
 
             long[] divisor = new long[2];
@@ -3937,19 +4361,18 @@ public class InstructionProcessor extends Processor implements Worker {
             long quotient = 0;
             long remainder = 0;
 
-            DoubleWord36 dwDividend = new DoubleWord36(dividend[0], dividend[1]).rightShiftAlgebraic(1);
-            DoubleWord36 dwDivisor = new DoubleWord36(divisor[0], divisor[1]);
-            BigInteger compDividend = dwDividend.get().abs();
-            BigInteger compDivisor = dwDivisor.get().abs().shiftLeft(35);
-            if (dwDivisor.isZero() || (compDividend.compareTo(compDivisor) >= 0)) {
+            DoubleWord36.rightShiftAlgebraic(dividend[0], dividend[1], 1, dividend);
+            if (isDivideCheck(dividend, divisor)) {
                 _designatorRegister.setDivideCheck(true);
                 if (_designatorRegister.getArithmeticExceptionEnabled() ) {
                     throw new ArithmeticExceptionInterrupt(ArithmeticExceptionInterrupt.Reason.DivideCheck);
                 }
             } else {
-                DoubleWord36.DivisionResult dr = dwDividend.divide(dwDivisor);
-                quotient = dr._result.get().longValue() & Word36.BIT_MASK;
-                remainder = dr._remainder.get().longValue() & Word36.BIT_MASK;
+                long[] dwQuotient = new long[2];
+                long[] dwRemainder = new long[2];
+                DoubleWord36.divide(dividend[0], dividend[1], divisor[0], divisor[1], dwQuotient, dwRemainder);
+                quotient = dwQuotient[1];
+                remainder = dwRemainder[1];
             }
 
             setExecOrUserARegister((int) _currentInstruction.getA(), quotient);
@@ -3969,8 +4392,8 @@ public class InstructionProcessor extends Processor implements Worker {
 
         @Override public void handle() throws MachineInterrupt, UnresolvedAddressException {
             long[] dividend = {
-                getExecOrUserARegister((int) _currentInstruction.getA()).getW(),
-                getExecOrUserARegister((int) _currentInstruction.getA() + 1).getW()
+                getExecOrUserARegisterValue((int) _currentInstruction.getA()),
+                getExecOrUserARegisterValue((int) _currentInstruction.getA() + 1)
             };
 
             long[] divisor = new long[2];
@@ -3980,19 +4403,17 @@ public class InstructionProcessor extends Processor implements Worker {
             long quotient = 0;
             long remainder = 0;
 
-            DoubleWord36 dwDividend = new DoubleWord36(dividend[0], dividend[1]);
-            DoubleWord36 dwDivisor = new DoubleWord36(divisor[0], divisor[1]);
-            BigInteger compDividend = dwDividend.get().abs();
-            BigInteger compDivisor = dwDivisor.get().abs().shiftLeft(35);
-            if (dwDivisor.isZero() || (compDividend.compareTo(compDivisor) >= 0)) {
+            if (isDivideCheck(dividend, divisor)) {
                 _designatorRegister.setDivideCheck(true);
                 if (_designatorRegister.getArithmeticExceptionEnabled()) {
                     throw new ArithmeticExceptionInterrupt(ArithmeticExceptionInterrupt.Reason.DivideCheck);
                 }
             } else {
-                DoubleWord36.DivisionResult dr = dwDividend.divide(dwDivisor);
-                quotient = dr._result.get().longValue() & Word36.BIT_MASK;
-                remainder = dr._remainder.get().longValue() & Word36.BIT_MASK;
+                long[] dwQuotient = new long[2];
+                long[] dwRemainder = new long[2];
+                DoubleWord36.divide(dividend[0], dividend[1], divisor[0], divisor[1], dwQuotient, dwRemainder);
+                quotient = dwQuotient[1];
+                remainder = dwRemainder[1];
             }
 
             setExecOrUserARegister((int) _currentInstruction.getA(), quotient);
@@ -4008,9 +4429,8 @@ public class InstructionProcessor extends Processor implements Worker {
     private class DJZFunctionHandler extends InstructionHandler {
 
         @Override public void handle() throws MachineInterrupt, UnresolvedAddressException {
-            DoubleWord36 dw36 = new DoubleWord36(getExecOrUserARegister((int) _currentInstruction.getA()).getW(),
-                                                 getExecOrUserARegister((int) _currentInstruction.getA() + 1).getW());
-            if (dw36.isZero()) {
+            if (DoubleWord36.isZero(getExecOrUserARegisterValue((int) _currentInstruction.getA()),
+                                    getExecOrUserARegisterValue((int) _currentInstruction.getA() + 1))) {
                 int counter = getJumpOperand(true);
                 setProgramCounter(counter, true);
             }
@@ -4089,25 +4509,23 @@ public class InstructionProcessor extends Processor implements Worker {
 
             long[] operand = new long[2];
             getConsecutiveOperands(true, operand, false);
-            DoubleWord36 dwOperand = new DoubleWord36(operand[0], operand[1]);
 
             int baseIndex = (int) _currentInstruction.getA();
-            if (dwOperand.equals(DoubleWord36.DW36_POSITIVE_ZERO) || dwOperand.equals(DoubleWord36.DW36_NEGATIVE_ZERO)) {
-                setExecOrUserARegister(baseIndex, dwOperand.getWords()[0].getW());
-                setExecOrUserARegister(baseIndex + 1, dwOperand.getWords()[1].getW());
+            if (DoubleWord36.isZero(operand[0], operand[1])) {
+                setExecOrUserARegister(baseIndex, operand[0]);
+                setExecOrUserARegister(baseIndex + 1, operand[1]);
                 setExecOrUserARegister(baseIndex + 2, 71);
             } else {
                 long count = 0;
-                long test = dwOperand.getWords()[0].getW() & 0_600000_000000L;
+                long test = operand[0] & 0_600000_000000L;
                 while ((test == 0L) || (test == 0_600000_000000L)) {
-                    dwOperand = dwOperand.leftShiftCircular(1);
-                    test = dwOperand.getWords()[0].getW() & 0_600000_000000L;
+                    DoubleWord36.leftShiftCircular(operand[0], operand[1], 1, operand);
+                    test = operand[0] & 0_600000_000000L;
                     ++count;
                 }
 
-                Word36[] w36 = dwOperand.getWords();
-                setExecOrUserARegister((int) _currentInstruction.getA(), w36[0].getW());
-                setExecOrUserARegister((int) _currentInstruction.getA() + 1, w36[1].getW());
+                setExecOrUserARegister((int) _currentInstruction.getA(), operand[0]);
+                setExecOrUserARegister((int) _currentInstruction.getA() + 1, operand[1]);
                 setExecOrUserARegister((int) _currentInstruction.getA() + 2, count);
             }
         }
@@ -4123,8 +4541,8 @@ public class InstructionProcessor extends Processor implements Worker {
         @Override public void handle() throws MachineInterrupt, UnresolvedAddressException {
             int grsIndex = getExecOrUserARegisterIndex((int) _currentInstruction.getA());
             long[] operands = new long[2];
-            operands[0] = getGeneralRegister(grsIndex).getW();
-            operands[1] = getGeneralRegister(grsIndex + 1).getW();
+            operands[0] = getGeneralRegisterValue(grsIndex);
+            operands[1] = getGeneralRegisterValue(grsIndex + 1);
             storeConsecutiveOperands(true, operands);
         }
 
@@ -4138,17 +4556,15 @@ public class InstructionProcessor extends Processor implements Worker {
 
         @Override public void handle() throws MachineInterrupt, UnresolvedAddressException {
             long[] operand = new long[2];
-            operand[0] = getExecOrUserARegister((int) _currentInstruction.getA()).getW();
-            operand[1] = getExecOrUserARegister((int) _currentInstruction.getA() + 1).getW();
+            operand[0] = getExecOrUserARegisterValue((int) _currentInstruction.getA());
+            operand[1] = getExecOrUserARegisterValue((int) _currentInstruction.getA() + 1);
 
             int count = (int) getImmediateOperand() & 0177;
-            DoubleWord36 dw36 = new DoubleWord36(operand[0], operand[1]);
-            DoubleWord36 result = dw36.rightShiftAlgebraic(count);
-            Word36[] components = result.getWords();
+            DoubleWord36.rightShiftAlgebraic(operand[0], operand[1], count, operand);
 
             int baseIndex = (int) _currentInstruction.getA();
-            setExecOrUserARegister(baseIndex, components[0].getW());
-            setExecOrUserARegister(baseIndex + 1, components[1].getW());
+            setExecOrUserARegister(baseIndex, operand[0]);
+            setExecOrUserARegister(baseIndex + 1, operand[1]);
             setExecOrUserARegister(baseIndex + 2, count);
         }
 
@@ -4162,16 +4578,14 @@ public class InstructionProcessor extends Processor implements Worker {
 
         @Override public void handle() throws MachineInterrupt, UnresolvedAddressException {
             long[] operand = new long[2];
-            operand[0] = getExecOrUserARegister((int) _currentInstruction.getA()).getW();
-            operand[1] = getExecOrUserARegister((int) _currentInstruction.getA() + 1).getW();
+            operand[0] = getExecOrUserARegisterValue((int) _currentInstruction.getA());
+            operand[1] = getExecOrUserARegisterValue((int) _currentInstruction.getA() + 1);
 
             int count = (int) getImmediateOperand() & 0177;
-            DoubleWord36 dw36 = new DoubleWord36(operand[0], operand[1]);
-            DoubleWord36 result = dw36.rightShiftCircular(count);
-            Word36[] components = result.getWords();
+            DoubleWord36.rightShiftCircular(operand[0], operand[1], count, operand);
 
-            setExecOrUserARegister((int) _currentInstruction.getA(), components[0].getW());
-            setExecOrUserARegister((int) _currentInstruction.getA() + 1, components[1].getW());
+            setExecOrUserARegister((int) _currentInstruction.getA(), operand[0]);
+            setExecOrUserARegister((int) _currentInstruction.getA() + 1, operand[1]);
         }
 
         @Override public Instruction getInstruction() { return Instruction.DSC; }
@@ -4188,7 +4602,7 @@ public class InstructionProcessor extends Processor implements Worker {
 
         @Override public void handle() throws MachineInterrupt, UnresolvedAddressException {
             long[] dividend = new long[2];
-            dividend[0] = getExecOrUserARegister((int) _currentInstruction.getA()).getW();
+            dividend[0] = getExecOrUserARegisterValue((int) _currentInstruction.getA());
             dividend[1] = Word36.isNegative(dividend[0]) ? Word36.BIT_MASK : 0;
 
             long[] divisor = new long[2];
@@ -4196,16 +4610,17 @@ public class InstructionProcessor extends Processor implements Worker {
             divisor[0] = Word36.isNegative(divisor[1]) ? Word36.NEGATIVE_ZERO : Word36.POSITIVE_ZERO;
 
             long quotient = 0;
-            DoubleWord36 dwDividend = new DoubleWord36(dividend[0], dividend[1]).rightShiftAlgebraic(1);
-            DoubleWord36 dwDivisor = new DoubleWord36(divisor[0], divisor[1]);
-            if (dwDivisor.isZero() || (dividend[0] >= divisor[1])) {
+            if (DoubleWord36.isZero(divisor[0], divisor[1]) || (dividend[0] >= divisor[1])) {
                 _designatorRegister.setDivideCheck(true);
                 if (_designatorRegister.getArithmeticExceptionEnabled()) {
                     throw new ArithmeticExceptionInterrupt(ArithmeticExceptionInterrupt.Reason.DivideCheck);
                 }
             } else {
-                DoubleWord36.DivisionResult dr = dwDividend.divide(dwDivisor);
-                quotient = dr._result.get().longValue() & Word36.BIT_MASK;
+                long[] dwQuotient = new long[2];
+                long[] dwRemainder = new long[2];
+                DoubleWord36.rightShiftAlgebraic(dividend[0], dividend[1], 1, dividend);
+                DoubleWord36.divide(dividend[0], dividend[1], divisor[0], divisor[1], dwQuotient, dwRemainder);
+                quotient = dwQuotient[1];
             }
 
             setExecOrUserARegister((int) _currentInstruction.getA() + 1, quotient);
@@ -4221,16 +4636,14 @@ public class InstructionProcessor extends Processor implements Worker {
 
         @Override public void handle() throws MachineInterrupt, UnresolvedAddressException {
             long[] operand = new long[2];
-            operand[0] = getExecOrUserARegister((int) _currentInstruction.getA()).getW();
-            operand[1] = getExecOrUserARegister((int) _currentInstruction.getA() + 1).getW();
+            operand[0] = getExecOrUserARegisterValue((int) _currentInstruction.getA());
+            operand[1] = getExecOrUserARegisterValue((int) _currentInstruction.getA() + 1);
 
             int count = (int) getImmediateOperand() & 0177;
-            DoubleWord36 dw36 = new DoubleWord36(operand[0], operand[1]);
-            DoubleWord36 result = dw36.rightShiftLogical(count);
-            Word36[] components = result.getWords();
+            DoubleWord36.rightShiftLogical(operand[0], operand[1], count, operand);
 
-            setExecOrUserARegister((int) _currentInstruction.getA(), components[0].getW());
-            setExecOrUserARegister((int) _currentInstruction.getA() + 1, components[1].getW());
+            setExecOrUserARegister((int) _currentInstruction.getA(), operand[0]);
+            setExecOrUserARegister((int) _currentInstruction.getA() + 1, operand[1]);
         }
 
         @Override public Instruction getInstruction() { return Instruction.DSL; }
@@ -4245,8 +4658,8 @@ public class InstructionProcessor extends Processor implements Worker {
             //  Skip NI if U,U+1 == A(a),A(a+1) - for this test, -0 is not equal to +0
             long[] uOperand = new long[2];
             long[] aOperand = new long[2];
-            aOperand[0] = getExecOrUserARegister((int) _currentInstruction.getA()).getW();
-            aOperand[1] = getExecOrUserARegister((int) _currentInstruction.getA() + 1).getW();
+            aOperand[0] = getExecOrUserARegisterValue((int) _currentInstruction.getA());
+            aOperand[1] = getExecOrUserARegisterValue((int) _currentInstruction.getA() + 1);
             getConsecutiveOperands(true, uOperand, false);
             if ((uOperand[0] == aOperand[0]) && (uOperand[1] == aOperand[1])) {
                 skipNextInstruction();
@@ -4266,12 +4679,13 @@ public class InstructionProcessor extends Processor implements Worker {
 
             long[] uValue = new long[2];
             getConsecutiveOperands(true, uValue, false);
-            DoubleWord36 dwu = new DoubleWord36(uValue[0], uValue[1]);
-            if (dwu.isNegative()) { dwu = dwu.negate(); }
+            if (DoubleWord36.isNegative(uValue[0], uValue[1])) {
+                DoubleWord36.negate(uValue[0], uValue[1], uValue);
+            }
 
-            DoubleWord36 dwa = new DoubleWord36(getExecOrUserARegister((int) _currentInstruction.getA()).getW(),
-                                                getExecOrUserARegister((int) _currentInstruction.getA() + 1).getW());
-            if (dwu.compareTo(dwa) > 0) {
+            long aHigh = getExecOrUserARegisterValue((int) _currentInstruction.getA());
+            long aLow = getExecOrUserARegisterValue((int) _currentInstruction.getA() + 1);
+            if (DoubleWord36.compare(uValue[0], uValue[1], aHigh, aLow) > 0) {
                 skipNextInstruction();
             }
         }
@@ -4457,6 +4871,7 @@ public class InstructionProcessor extends Processor implements Worker {
 
                 case 1: //  enable conditionalJump-history-full interrupt
                     _jumpHistoryFullInterruptEnabled = true;
+                    postAttention(ATTENTION_CONDITION);
                     break;
 
                 case 2: //  disable conditionalJump-history-full interrupt
@@ -4501,7 +4916,7 @@ public class InstructionProcessor extends Processor implements Worker {
     private class JBFunctionHandler extends InstructionHandler {
 
         @Override public void handle() throws MachineInterrupt, UnresolvedAddressException {
-            if ((getExecOrUserARegister((int) _currentInstruction.getA()).getW() & 0x01) == 0x01) {
+            if ((getExecOrUserARegisterValue((int) _currentInstruction.getA()) & 0x01) == 0x01) {
                 int counter = getJumpOperand(true);
                 setProgramCounter(counter, true);
             }
@@ -4583,13 +4998,13 @@ public class InstructionProcessor extends Processor implements Worker {
             //  If the associated register is greater than zero, we effect a conditionalJump to U.
             //  In any case, the register value is decremented by 1
             int regIndex = (int) (((_currentInstruction.getJ() & 07) << 4) | _currentInstruction.getA());
-            GeneralRegister reg = getGeneralRegister(regIndex);
-            if (reg.isPositive() && !reg.isZero()) {
+            long reg = getGeneralRegisterValue(regIndex);
+            if (Word36.isPositive(reg) && !Word36.isZero(reg)) {
                 int counter = getJumpOperand(true);
                 setProgramCounter(counter, true);
             }
 
-            long result = Word36.addSimple(reg.getW(), 0_777777_777776L);
+            long result = Word36.addSimple(reg, 0_777777_777776L);
             setGeneralRegister(regIndex, result);
         }
 
@@ -4621,14 +5036,14 @@ public class InstructionProcessor extends Processor implements Worker {
             //  X(0) is used for X(a) if a == 0 (contrast to F0.x == 0 -> no indexing)
             //  In Extended Mode, X(a) incrementation is always 18 bits.
             int iaReg = (int) _currentInstruction.getA();
-            IndexRegister xreg = getExecOrUserXRegister(iaReg);
-            long modValue = xreg.getSignedXM();
+            long xreg = getExecOrUserXRegisterValue(iaReg);
+            long modValue = IndexRegister.getSignedXM(xreg);
             if (Word36.isPositive(modValue) && !Word36.isZero(modValue)) {
                 int counter = getJumpOperand(true);
                 setProgramCounter(counter, true);
             }
 
-            setExecOrUserXRegister(iaReg, IndexRegister.incrementModifier18(xreg.getW()));
+            setExecOrUserXRegister(iaReg, IndexRegister.incrementModifier18(xreg));
         }
 
         @Override public Instruction getInstruction() { return Instruction.JMGI; }
@@ -4640,7 +5055,7 @@ public class InstructionProcessor extends Processor implements Worker {
     private class JNFunctionHandler extends InstructionHandler {
 
         @Override public void handle() throws MachineInterrupt, UnresolvedAddressException {
-            if (getExecOrUserARegister((int) _currentInstruction.getA()).isNegative()) {
+            if (Word36.isNegative(getExecOrUserARegisterValue((int) _currentInstruction.getA()))) {
                 setProgramCounter(getJumpOperand(true), true);
             }
         }
@@ -4654,7 +5069,7 @@ public class InstructionProcessor extends Processor implements Worker {
     private class JNBFunctionHandler extends InstructionHandler {
 
         @Override public void handle() throws MachineInterrupt, UnresolvedAddressException {
-            if ((getExecOrUserARegister((int) _currentInstruction.getA()).getW() & 0x01) == 0x0) {
+            if ((getExecOrUserARegisterValue((int) _currentInstruction.getA()) & 0x01) == 0x0) {
                 setProgramCounter(getJumpOperand(true), true);
             }
         }
@@ -4743,8 +5158,8 @@ public class InstructionProcessor extends Processor implements Worker {
 
         @Override public void handle() throws MachineInterrupt, UnresolvedAddressException {
             int iaReg = (int) _currentInstruction.getA();
-            GeneralRegister reg = getExecOrUserARegister(iaReg);
-            long operand = reg.getW();
+            long reg = getExecOrUserARegisterValue(iaReg);
+            long operand = reg;
             if (Word36.isNegative(operand)) {
                 setProgramCounter(getJumpOperand(true), true);
             }
@@ -4761,7 +5176,7 @@ public class InstructionProcessor extends Processor implements Worker {
     private class JNZFunctionHandler extends InstructionHandler {
 
         @Override public void handle() throws MachineInterrupt, UnresolvedAddressException {
-            if (!getExecOrUserARegister((int) _currentInstruction.getA()).isZero()) {
+            if (!Word36.isZero(getExecOrUserARegisterValue((int) _currentInstruction.getA()))) {
                 setProgramCounter(getJumpOperand(true), true);
             }
         }
@@ -4789,7 +5204,7 @@ public class InstructionProcessor extends Processor implements Worker {
     private class JPFunctionHandler extends InstructionHandler {
 
         @Override public void handle() throws MachineInterrupt, UnresolvedAddressException {
-            if (getExecOrUserARegister((int) _currentInstruction.getA()).isPositive()) {
+            if (Word36.isPositive(getExecOrUserARegisterValue((int) _currentInstruction.getA()))) {
                 setProgramCounter(getJumpOperand(true), true);
             }
         }
@@ -4804,8 +5219,8 @@ public class InstructionProcessor extends Processor implements Worker {
 
         @Override public void handle() throws MachineInterrupt, UnresolvedAddressException {
             int iaReg = (int) _currentInstruction.getA();
-            GeneralRegister reg = getExecOrUserARegister(iaReg);
-            long operand = reg.getW();
+            long reg = getExecOrUserARegisterValue(iaReg);
+            long operand = reg;
             if (Word36.isPositive(operand)) {
                 setProgramCounter(getJumpOperand(true), true);
             }
@@ -4822,7 +5237,7 @@ public class InstructionProcessor extends Processor implements Worker {
     private class JZFunctionHandler extends InstructionHandler {
 
         @Override public void handle() throws MachineInterrupt, UnresolvedAddressException {
-            if (getExecOrUserARegister((int) _currentInstruction.getA()).isZero()) {
+            if (Word36.isZero(getExecOrUserARegisterValue((int) _currentInstruction.getA()))) {
                 setProgramCounter(getJumpOperand(true), true);
             }
         }
@@ -4846,6 +5261,7 @@ public class InstructionProcessor extends Processor implements Worker {
             _designatorRegister.setQuantumTimerEnabled((operand & 040) != 0);
             _designatorRegister.setDeferrableInterruptEnabled((operand & 020) != 0);
             _designatorRegister.setExecRegisterSetSelected((operand & 01) != 0);
+            _operandCache.flush();
         }
 
         @Override public Instruction getInstruction() { return Instruction.KCHG; }
@@ -4894,7 +5310,7 @@ public class InstructionProcessor extends Processor implements Worker {
     private class LAQWFunctionHandler extends InstructionHandler {
 
         @Override public void handle() throws MachineInterrupt, UnresolvedAddressException {
-            int designator = (int) getExecOrUserXRegister((int) _currentInstruction.getX()).getS1() & 03;
+            int designator = (int) Word36.getS1(getExecOrUserXRegisterValue((int) _currentInstruction.getX())) & 03;
             int jField = QW_J_FIELDS[designator];
             long operand = getPartialOperand(jField, true);
             setGeneralRegister(getExecOrUserARegisterIndex((int) _currentInstruction.getA()), operand);
@@ -4934,6 +5350,7 @@ public class InstructionProcessor extends Processor implements Worker {
             long[] data = new long[4];
             getConsecutiveOperands(false, data, false);
             _baseRegisters[brIndex] = new BaseRegister(data);
+            _operandCache.flush();
 
             //  Clear any active base table entries which have a level value corresponding
             //  to the exec register being loaded (because that exec register points to the BDTable for that level).
@@ -5055,6 +5472,7 @@ public class InstructionProcessor extends Processor implements Worker {
             long[] data = new long[4];
             getConsecutiveOperands(false, data, false);
             _baseRegisters[brIndex] = new BaseRegister(data);
+            _operandCache.flush();
             _activeBaseTableEntries[brIndex] = new ActiveBaseTableEntry(0);
         }
 
@@ -5074,6 +5492,7 @@ public class InstructionProcessor extends Processor implements Worker {
 
             long operand = getOperand(false, true, false, false);
             _designatorRegister = new DesignatorRegister(operand);
+            _operandCache.flush();
             if (_designatorRegister.getBasicModeEnabled()) {
                 findBasicModeBank(_programAddressRegister.getProgramCounter(), true);
             }
@@ -5102,16 +5521,14 @@ public class InstructionProcessor extends Processor implements Worker {
 
         @Override public void handle() throws MachineInterrupt, UnresolvedAddressException {
             long[] operand = new long[2];
-            operand[0] = getExecOrUserARegister((int) _currentInstruction.getA()).getW();
-            operand[1] = getExecOrUserARegister((int) _currentInstruction.getA() + 1).getW();
+            operand[0] = getExecOrUserARegisterValue((int) _currentInstruction.getA());
+            operand[1] = getExecOrUserARegisterValue((int) _currentInstruction.getA() + 1);
 
             int count = (int) getImmediateOperand() & 0177;
-            DoubleWord36 dw36 = new DoubleWord36(operand[0], operand[1]);
-            DoubleWord36 result = dw36.leftShiftCircular(count);
-            Word36[] components = result.getWords();
+            DoubleWord36.leftShiftCircular(operand[0], operand[1], count, operand);
 
-            setExecOrUserARegister((int) _currentInstruction.getA(), components[0].getW());
-            setExecOrUserARegister((int) _currentInstruction.getA() + 1, components[1].getW());
+            setExecOrUserARegister((int) _currentInstruction.getA(), operand[0]);
+            setExecOrUserARegister((int) _currentInstruction.getA() + 1, operand[1]);
         }
 
         @Override public Instruction getInstruction() { return Instruction.LDSC; }
@@ -5124,16 +5541,14 @@ public class InstructionProcessor extends Processor implements Worker {
 
         @Override public void handle() throws MachineInterrupt, UnresolvedAddressException {
             long[] operand = new long[2];
-            operand[0] = getExecOrUserARegister((int) _currentInstruction.getA()).getW();
-            operand[1] = getExecOrUserARegister((int) _currentInstruction.getA() + 1).getW();
+            operand[0] = getExecOrUserARegisterValue((int) _currentInstruction.getA());
+            operand[1] = getExecOrUserARegisterValue((int) _currentInstruction.getA() + 1);
 
             int count = (int) getImmediateOperand() & 0177;
-            DoubleWord36 dw36 = new DoubleWord36(operand[0], operand[1]);
-            DoubleWord36 result = dw36.leftShiftLogical(count);
-            Word36[] components = result.getWords();
+            DoubleWord36.leftShiftLogical(operand[0], operand[1], count, operand);
 
-            setExecOrUserARegister((int) _currentInstruction.getA(), components[0].getW());
-            setExecOrUserARegister((int) _currentInstruction.getA() + 1, components[1].getW());
+            setExecOrUserARegister((int) _currentInstruction.getA(), operand[0]);
+            setExecOrUserARegister((int) _currentInstruction.getA() + 1, operand[1]);
         }
 
         @Override public Instruction getInstruction() { return Instruction.LDSL; }
@@ -5180,7 +5595,7 @@ public class InstructionProcessor extends Processor implements Worker {
 
             getJumpOperand(false);  //  Get U, and throw it
             int regx = (int) _currentInstruction.getA();
-            long micros = (getExecOrUserARegister(regx).getH2() << 36) | getExecOrUserARegister(regx + 1).getW();
+            long micros = (Word36.getH2(getExecOrUserARegisterValue(regx)) << 36) | getExecOrUserARegisterValue(regx + 1);
             _systemProcessor.dayclockSetComparatorMicros(micros);
         }
 
@@ -5196,8 +5611,8 @@ public class InstructionProcessor extends Processor implements Worker {
             //  Increment PAR.PC and store it in X(a)Modifier, then set PAR.PC to U
             long op = getJumpOperand(true);
             int ixReg = (int) _currentInstruction.getA();
-            IndexRegister xReg = getExecOrUserXRegister(ixReg);
-            setExecOrUserXRegister(ixReg, IndexRegister.setH2(xReg.getW(),
+            long xReg = getExecOrUserXRegisterValue(ixReg);
+            setExecOrUserXRegister(ixReg, IndexRegister.setH2(xReg,
                                                               _programAddressRegister.getProgramCounter() + 1));
             setProgramCounter(op, true);
         }
@@ -5243,8 +5658,8 @@ public class InstructionProcessor extends Processor implements Worker {
 
         @Override public void handle() throws MachineInterrupt, UnresolvedAddressException {
             rcsPush(0);
-            IndexRegister xReg = getExecOrUserXRegister(0);
-            long newXValue = IndexRegister.setH1(xReg.getW(), _designatorRegister.getBasicModeEnabled() ? 0_400000_000000L : 0);
+            long xReg = getExecOrUserXRegisterValue(0);
+            long newXValue = IndexRegister.setH1(xReg, _designatorRegister.getBasicModeEnabled() ? 0_400000_000000L : 0);
             newXValue = IndexRegister.setH2(newXValue, _indicatorKeyRegister.getAccessInfo().get());
             setExecOrUserXRegister(0, newXValue);
 
@@ -5262,6 +5677,7 @@ public class InstructionProcessor extends Processor implements Worker {
         @Override public void handle() throws MachineInterrupt, UnresolvedAddressException {
             long operand = getJumpOperand(false);
             _designatorRegister = new DesignatorRegister(operand & 0157);
+            _operandCache.flush();
         }
 
         @Override public Instruction getInstruction() { return Instruction.LPD; }
@@ -5292,7 +5708,7 @@ public class InstructionProcessor extends Processor implements Worker {
 
             getJumpOperand(false);
             int regx = (int) _currentInstruction.getA();
-            long micros = (getExecOrUserARegister(regx).getH2() << 36) | getExecOrUserARegister(regx + 1).getW();
+            long micros = (Word36.getH2(getExecOrUserARegisterValue(regx)) << 36) | getExecOrUserARegisterValue(regx + 1);
             _systemProcessor.dayclockSetMicros(micros);
         }
 
@@ -5331,7 +5747,7 @@ public class InstructionProcessor extends Processor implements Worker {
         @Override public void handle() throws MachineInterrupt, UnresolvedAddressException {
             //  Grab descriptor first
             int descriptorRegisterIndex = getExecOrUserARegisterIndex((int) _currentInstruction.getA());
-            long descriptor = getGeneralRegister(descriptorRegisterIndex).getW();
+            long descriptor = getGeneralRegisterValue(descriptorRegisterIndex);
 
             int address1 = (int)descriptor & 0177;
             int count1 = (int)(descriptor >> 9) & 0177;
@@ -5368,8 +5784,8 @@ public class InstructionProcessor extends Processor implements Worker {
         @Override public void handle() throws MachineInterrupt, UnresolvedAddressException {
             long operand = getOperand(true, true, true, true);
             int ixReg = (int) _currentInstruction.getA();
-            IndexRegister xReg = getExecOrUserXRegister(ixReg);
-            setExecOrUserXRegister(ixReg, Word36.setS2(xReg.getW(), operand));
+            long xReg = getExecOrUserXRegisterValue(ixReg);
+            setExecOrUserXRegister(ixReg, Word36.setS2(xReg, operand));
         }
 
         @Override public Instruction getInstruction() { return Instruction.LSBL; }
@@ -5382,8 +5798,8 @@ public class InstructionProcessor extends Processor implements Worker {
 
         @Override public void handle() throws MachineInterrupt, UnresolvedAddressException {
             long operand = getOperand(true, true, true, true);
-            IndexRegister xReg = getExecOrUserXRegister((int) _currentInstruction.getA());
-            setExecOrUserXRegister((int) _currentInstruction.getA(), Word36.setS1(xReg.getW(), operand));
+            long xReg = getExecOrUserXRegisterValue((int) _currentInstruction.getA());
+            setExecOrUserXRegister((int) _currentInstruction.getA(), Word36.setS1(xReg, operand));
         }
 
         @Override public Instruction getInstruction() { return Instruction.LSBO; }
@@ -5423,7 +5839,7 @@ public class InstructionProcessor extends Processor implements Worker {
     private class LSSCFunctionHandler extends InstructionHandler {
 
         @Override public void handle() throws MachineInterrupt, UnresolvedAddressException {
-            long operand = getExecOrUserARegister((int) _currentInstruction.getA()).getW();
+            long operand = getExecOrUserARegisterValue((int) _currentInstruction.getA());
             int count = (int) getImmediateOperand() & 0177;
             Word36 w36 = new Word36(operand);
             Word36 result = w36.leftShiftCircular(count);
@@ -5439,7 +5855,7 @@ public class InstructionProcessor extends Processor implements Worker {
     private class LSSLFunctionHandler extends InstructionHandler {
 
         @Override public void handle() throws MachineInterrupt, UnresolvedAddressException {
-            long operand = getExecOrUserARegister((int) _currentInstruction.getA()).getW();
+            long operand = getExecOrUserARegisterValue((int) _currentInstruction.getA());
             int count = (int) getImmediateOperand() & 0177;
             Word36 w36 = new Word36(operand);
             Word36 result = w36.leftShiftLogical(count);
@@ -5457,6 +5873,7 @@ public class InstructionProcessor extends Processor implements Worker {
         @Override public void handle() throws MachineInterrupt, UnresolvedAddressException {
             long operand = getOperand(false, true, false, false);
             _designatorRegister = new DesignatorRegister(operand & 0670157);
+            _operandCache.flush();
         }
 
         @Override public Instruction getInstruction() { return Instruction.LUD; }
@@ -5483,8 +5900,8 @@ public class InstructionProcessor extends Processor implements Worker {
         @Override public void handle() throws MachineInterrupt, UnresolvedAddressException {
             long operand = getOperand(true, true, true, true);
             int regIndex = (int) _currentInstruction.getA();
-            IndexRegister xReg = getExecOrUserXRegister(regIndex);
-            setExecOrUserXRegister(regIndex, IndexRegister.setXI(xReg.getW(), operand));
+            long xReg = getExecOrUserXRegisterValue(regIndex);
+            setExecOrUserXRegister(regIndex, IndexRegister.setXI(xReg, operand));
         }
 
         @Override public Instruction getInstruction() { return Instruction.LXI; }
@@ -5502,8 +5919,8 @@ public class InstructionProcessor extends Processor implements Worker {
 
             long operand = getOperand(true, true, false, false);
             int ixReg = (int) _currentInstruction.getA();
-            IndexRegister xReg = getExecOrUserXRegister(ixReg);
-            setExecOrUserXRegister(ixReg, IndexRegister.setXM24(xReg.getW(), operand));
+            long xReg = getExecOrUserXRegisterValue(ixReg);
+            setExecOrUserXRegister(ixReg, IndexRegister.setXM24(xReg, operand));
         }
 
         @Override public Instruction getInstruction() { return Instruction.LXLM; }
@@ -5517,8 +5934,8 @@ public class InstructionProcessor extends Processor implements Worker {
         @Override public void handle() throws MachineInterrupt, UnresolvedAddressException {
             long operand = getOperand(true, true, true, true);
             int ixReg = (int) _currentInstruction.getA();
-            IndexRegister xReg = getExecOrUserXRegister(ixReg);
-            setExecOrUserXRegister(ixReg, IndexRegister.setXM(xReg.getW(), operand));
+            long xReg = getExecOrUserXRegisterValue(ixReg);
+            setExecOrUserXRegister(ixReg, IndexRegister.setXM(xReg, operand));
         }
 
         @Override public Instruction getInstruction() { return Instruction.LXM; }
@@ -5532,8 +5949,8 @@ public class InstructionProcessor extends Processor implements Worker {
         @Override public void handle() throws MachineInterrupt, UnresolvedAddressException {
             long operand = getOperand(true, true, true, true);
             int ixReg = (int) _currentInstruction.getA();
-            IndexRegister xReg = getExecOrUserXRegister(ixReg);
-            setExecOrUserXRegister(ixReg, IndexRegister.setXI12(xReg.getW(), operand));
+            long xReg = getExecOrUserXRegisterValue(ixReg);
+            setExecOrUserXRegister(ixReg, IndexRegister.setXI12(xReg, operand));
         }
 
         @Override public Instruction getInstruction() { return Instruction.LXSI; }
@@ -5547,8 +5964,8 @@ public class InstructionProcessor extends Processor implements Worker {
 
         @Override public void handle() throws MachineInterrupt, UnresolvedAddressException {
             long uValue = getOperand(true, true, false, false);
-            long aValue = getExecOrUserARegister((int) _currentInstruction.getA()).getW();
-            long opMask = getExecOrUserRRegister(2).getW();
+            long aValue = getExecOrUserARegisterValue((int) _currentInstruction.getA());
+            long opMask = getExecOrUserRRegisterValue(2);
 
             if ((uValue & opMask) > (aValue & opMask)) {
                 skipNextInstruction();
@@ -5566,8 +5983,8 @@ public class InstructionProcessor extends Processor implements Worker {
 
         @Override public void handle() throws MachineInterrupt, UnresolvedAddressException {
             long uValue = getOperand(true, true, false, false);
-            long aValue = getExecOrUserARegister((int) _currentInstruction.getA()).getW();
-            long opMask = getExecOrUserRRegister(2).getW();
+            long aValue = getExecOrUserARegisterValue((int) _currentInstruction.getA());
+            long opMask = getExecOrUserRRegisterValue(2);
 
             if ((uValue & opMask) <= (aValue & opMask)) {
                 skipNextInstruction();
@@ -5590,17 +6007,14 @@ public class InstructionProcessor extends Processor implements Worker {
     private class MFFunctionHandler extends InstructionHandler {
 
         @Override public void handle() throws MachineInterrupt, UnresolvedAddressException {
-            BigInteger operand1 = BigInteger.valueOf(getExecOrUserARegister((int) _currentInstruction.getA()).getW());
-            BigInteger operand2 = BigInteger.valueOf(getOperand(true,
-                                                                   true,
-                                                                   true,
-                                                                   true));
-            DoubleWord36.StaticMultiplicationResult smr = DoubleWord36.multiply(operand1, operand2);
-            DoubleWord36 result = new DoubleWord36(DoubleWord36.leftShiftCircular(smr._value, 1));
-            Word36[] components = result.getWords();
+            long operand1 = getExecOrUserARegisterValue((int) _currentInstruction.getA());
+            long operand2 = getOperand(true, true, true, true);
+            long[] result = new long[2];
+            DoubleWord36.multiply(0, operand1, 0, operand2, result);
+            DoubleWord36.leftShiftCircular(result[0], result[1], 1, result);
 
-            setExecOrUserARegister((int) _currentInstruction.getA(), components[0].getW());
-            setExecOrUserARegister((int) _currentInstruction.getA() + 1, components[1].getW());
+            setExecOrUserARegister((int) _currentInstruction.getA(), result[0]);
+            setExecOrUserARegister((int) _currentInstruction.getA() + 1, result[1]);
         }
 
         @Override public Instruction getInstruction() { return Instruction.MF; }
@@ -5612,15 +6026,17 @@ public class InstructionProcessor extends Processor implements Worker {
     private class MIFunctionHandler extends InstructionHandler {
 
         @Override public void handle() throws MachineInterrupt, UnresolvedAddressException {
-            BigInteger factor1 = BigInteger.valueOf(getExecOrUserARegister((int) _currentInstruction.getA()).getW());
-            BigInteger sgnExFactor1 = DoubleWord36.extendSign(factor1, 36);
-            BigInteger factor2 = BigInteger.valueOf(getOperand(true, true, true, true));
-            BigInteger sgnExFactor2 = DoubleWord36.extendSign(factor2, 36);
-            DoubleWord36.StaticMultiplicationResult smr = DoubleWord36.multiply(sgnExFactor1, sgnExFactor2);
-            Word36[] resultWords = DoubleWord36.getWords(smr._value);
+            long factor1 = getExecOrUserARegisterValue((int) _currentInstruction.getA());
+            long factor2 = getOperand(true, true, true, true);
+            long[] result = new long[2];
+            DoubleWord36.multiply(Word36.isNegative(factor1) ? Word36.BIT_MASK : 0,
+                                  factor1,
+                                  Word36.isNegative(factor2) ? Word36.BIT_MASK : 0,
+                                  factor2,
+                                  result);
 
-            setExecOrUserARegister((int) _currentInstruction.getA(), resultWords[0].getW());
-            setExecOrUserARegister((int) _currentInstruction.getA() + 1, resultWords[1].getW());
+            setExecOrUserARegister((int) _currentInstruction.getA(), result[0]);
+            setExecOrUserARegister((int) _currentInstruction.getA() + 1, result[1]);
         }
 
         @Override public Instruction getInstruction() { return Instruction.MI; }
@@ -5632,8 +6048,8 @@ public class InstructionProcessor extends Processor implements Worker {
     private class MLUFunctionHandler extends InstructionHandler {
 
         @Override public void handle() throws MachineInterrupt, UnresolvedAddressException {
-            long opAa = getExecOrUserARegister((int) _currentInstruction.getA()).getW();
-            long opR2 = getExecOrUserRRegister(2).getW();
+            long opAa = getExecOrUserARegisterValue((int) _currentInstruction.getA());
+            long opR2 = getExecOrUserRRegisterValue(2);
             long compR2 = Word36.negate(opR2);
             long opU = getOperand(true, true, true, true);
             long result = (opU & opR2) | (opAa & compR2);
@@ -5649,16 +6065,16 @@ public class InstructionProcessor extends Processor implements Worker {
     private class MSIFunctionHandler extends InstructionHandler {
 
         @Override public void handle() throws MachineInterrupt, UnresolvedAddressException {
-            DoubleWord36 factor1 = new DoubleWord36(0, getExecOrUserARegister((int) _currentInstruction.getA()).getW());
-            DoubleWord36 factor2 = new DoubleWord36(0, getOperand(true, true, true, true));
+            long factor1 = getExecOrUserARegisterValue((int) _currentInstruction.getA());
+            long factor2 = getOperand(true, true, true, true);
 
-            DoubleWord36.MultiplicationResult mr = factor1.multiply(factor2);
-            Word36[] resultWords = mr._value.getWords();
-            setExecOrUserARegister((int) _currentInstruction.getA(), resultWords[1].getW());
+            long[] result = new long[2];
+            DoubleWord36.multiply(0, factor1, 0, factor2, result);
+            setExecOrUserARegister((int) _currentInstruction.getA(), result[1]);
 
             //  check for overflow conditions.
             //  result[0] must be positive or negative zero, and the signs of result[0] and result[1] must match.
-            if (!resultWords[0].isZero() || (resultWords[1].isPositive() != resultWords[0].isPositive())) {
+            if (!Word36.isZero(result[0]) || (Word36.isPositive(result[1]) != Word36.isPositive(result[0]))) {
                 throw new OperationTrapInterrupt(OperationTrapInterrupt.Reason.MultiplySingleIntegerOverflow);
             }
         }
@@ -5673,9 +6089,9 @@ public class InstructionProcessor extends Processor implements Worker {
     private class MTEFunctionHandler extends InstructionHandler {
 
         @Override public void handle() throws MachineInterrupt, UnresolvedAddressException {
-            long op1 = getExecOrUserARegister((int) _currentInstruction.getA()).getW();
+            long op1 = getExecOrUserARegisterValue((int) _currentInstruction.getA());
             long op2 = getOperand(true, true, false, false);
-            long opMask = getExecOrUserRRegister(2).getW();
+            long opMask = getExecOrUserRRegisterValue(2);
 
             if ((op1 & opMask) == (op2 & opMask)) {
                 skipNextInstruction();
@@ -5693,8 +6109,8 @@ public class InstructionProcessor extends Processor implements Worker {
 
         @Override public void handle() throws MachineInterrupt, UnresolvedAddressException {
             long uValue = getOperand(true, true, false, false);
-            long aValue = getExecOrUserARegister((int) _currentInstruction.getA()).getW();
-            long opMask = getExecOrUserRRegister(2).getW();
+            long aValue = getExecOrUserARegisterValue((int) _currentInstruction.getA());
+            long opMask = getExecOrUserRRegisterValue(2);
 
             if (Word36.compare(uValue & opMask, aValue & opMask) > 0) {
                 skipNextInstruction();
@@ -5711,9 +6127,9 @@ public class InstructionProcessor extends Processor implements Worker {
     private class MTLEFunctionHandler extends InstructionHandler {
 
         @Override public void handle() throws MachineInterrupt, UnresolvedAddressException {
-            long aValue = getExecOrUserARegister((int) _currentInstruction.getA()).getW();
+            long aValue = getExecOrUserARegisterValue((int) _currentInstruction.getA());
             long uValue = getOperand(true, true, false, false);
-            long opMask = getExecOrUserRRegister(2).getW();
+            long opMask = getExecOrUserRRegisterValue(2);
 
             if (Word36.compare(uValue & opMask, aValue & opMask) <= 0) {
                 skipNextInstruction();
@@ -5730,9 +6146,9 @@ public class InstructionProcessor extends Processor implements Worker {
     private class MTNEFunctionHandler extends InstructionHandler {
 
         @Override public void handle() throws MachineInterrupt, UnresolvedAddressException {
-            long op1 = getExecOrUserARegister((int) _currentInstruction.getA()).getW();
+            long op1 = getExecOrUserARegisterValue((int) _currentInstruction.getA());
             long op2 = getOperand(true, true, false, false);
-            long opMask = getExecOrUserRRegister(2).getW();
+            long opMask = getExecOrUserRRegisterValue(2);
 
             if ((op1 & opMask) != (op2 & opMask)) {
                 skipNextInstruction();
@@ -5750,9 +6166,9 @@ public class InstructionProcessor extends Processor implements Worker {
 
         @Override public void handle() throws MachineInterrupt, UnresolvedAddressException {
             long uValue = getOperand(true, true, false, false);
-            long aValueLow = getExecOrUserARegister((int) _currentInstruction.getA()).getW();
-            long aValueHigh = getExecOrUserARegister((int) _currentInstruction.getA() + 1).getW();
-            long opMask = getExecOrUserRRegister(2).getW();
+            long aValueLow = getExecOrUserARegisterValue((int) _currentInstruction.getA());
+            long aValueHigh = getExecOrUserARegisterValue((int) _currentInstruction.getA() + 1);
+            long opMask = getExecOrUserRRegisterValue(2);
 
             long maskedU = uValue & opMask;
             long maskedALow = aValueLow & opMask;
@@ -5775,9 +6191,9 @@ public class InstructionProcessor extends Processor implements Worker {
 
         @Override public void handle() throws MachineInterrupt, UnresolvedAddressException {
             long uValue = getOperand(true, true, false, false);
-            long aValueLow = getExecOrUserARegister((int) _currentInstruction.getA()).getW();
-            long aValueHigh = getExecOrUserARegister((int) _currentInstruction.getA() + 1).getW();
-            long opMask = getExecOrUserRRegister(2).getW();
+            long aValueLow = getExecOrUserARegisterValue((int) _currentInstruction.getA());
+            long aValueHigh = getExecOrUserARegisterValue((int) _currentInstruction.getA() + 1);
+            long opMask = getExecOrUserRRegisterValue(2);
 
             long maskedU = uValue & opMask;
             long maskedALow = aValueLow & opMask;
@@ -5809,7 +6225,7 @@ public class InstructionProcessor extends Processor implements Worker {
     private class ORFunctionHandler extends InstructionHandler {
 
         @Override public void handle() throws MachineInterrupt, UnresolvedAddressException {
-            long operand1 = getExecOrUserARegister((int) _currentInstruction.getA()).getW();
+            long operand1 = getExecOrUserARegisterValue((int) _currentInstruction.getA());
             long operand2 = getOperand(true, true, true, true);
             setExecOrUserARegister((int) _currentInstruction.getA() + 1, operand1 | operand2);
         }
@@ -5913,7 +6329,7 @@ public class InstructionProcessor extends Processor implements Worker {
     private class SAFunctionHandler extends InstructionHandler {
 
         @Override public void handle() throws MachineInterrupt, UnresolvedAddressException {
-            long value = getExecOrUserARegister((int) _currentInstruction.getA()).getW();
+            long value = getExecOrUserARegisterValue((int) _currentInstruction.getA());
             storeOperand(true, true, true, true, value);
         }
 
@@ -5928,9 +6344,9 @@ public class InstructionProcessor extends Processor implements Worker {
     private class SAQWFunctionHandler extends InstructionHandler {
 
         @Override public void handle() throws MachineInterrupt, UnresolvedAddressException {
-            int designator = (int) getExecOrUserXRegister((int) _currentInstruction.getX()).getS1() & 03;
+            int designator = (int) Word36.getS1(getExecOrUserXRegisterValue((int) _currentInstruction.getX())) & 03;
             int jField = QW_J_FIELDS[designator];
-            long value = getGeneralRegister(getExecOrUserARegisterIndex((int) _currentInstruction.getA())).getW();
+            long value = getGeneralRegisterValue(getExecOrUserARegisterIndex((int) _currentInstruction.getA()));
             storePartialOperand(value, jField, true);
         }
 
@@ -6096,9 +6512,9 @@ public class InstructionProcessor extends Processor implements Worker {
         @Override public void handle() throws MachineInterrupt, UnresolvedAddressException {
             boolean longModifier = _designatorRegister.getExecutive24BitIndexingEnabled();
             int ixReg = (int) _currentInstruction.getX();
-            IndexRegister xReg = getExecOrUserXRegister(ixReg);
+            long xReg = getExecOrUserXRegisterValue(ixReg);
             BaseRegister bReg = _baseRegisters[(int) _currentInstruction.getB()];
-            long oldModifier = longModifier ? xReg.getXM24() : xReg.getXM();
+            long oldModifier = longModifier ? IndexRegister.getXM24(xReg) : IndexRegister.getXM(xReg);
 
             if (bReg._voidFlag
                 || (oldModifier < bReg._lowerLimitNormalized)
@@ -6108,12 +6524,12 @@ public class InstructionProcessor extends Processor implements Worker {
                                                                     (int) oldModifier);
             }
 
-            long addend = _currentInstruction.getD() + (longModifier ? xReg.getXI12() : xReg.getXI());
+            long addend = _currentInstruction.getD() + (longModifier ? IndexRegister.getXI12(xReg) : IndexRegister.getXI(xReg));
             long newModifier = oldModifier + addend;
             if (longModifier) {
-                setExecOrUserXRegister(ixReg, IndexRegister.setXM24(xReg.getW(), newModifier));
+                setExecOrUserXRegister(ixReg, IndexRegister.setXM24(xReg, newModifier));
             } else {
-                setExecOrUserXRegister(ixReg, IndexRegister.setXM(xReg.getW(), newModifier));
+                setExecOrUserXRegister(ixReg, IndexRegister.setXM(xReg, newModifier));
             }
         }
 
@@ -6198,7 +6614,7 @@ public class InstructionProcessor extends Processor implements Worker {
     private class SMAFunctionHandler extends InstructionHandler {
 
         @Override public void handle() throws MachineInterrupt, UnresolvedAddressException {
-            long op = getExecOrUserARegister((int) _currentInstruction.getA()).getW();
+            long op = getExecOrUserARegisterValue((int) _currentInstruction.getA());
             if (Word36.isNegative(op)) {
                 op = Word36.negate(op);
             }
@@ -6243,7 +6659,7 @@ public class InstructionProcessor extends Processor implements Worker {
     private class SNAFunctionHandler extends InstructionHandler {
 
         @Override public void handle() throws MachineInterrupt, UnresolvedAddressException {
-            long op = getExecOrUserARegister((int) _currentInstruction.getA()).getW();
+            long op = getExecOrUserARegisterValue((int) _currentInstruction.getA());
             storeOperand(true, true, true, true, Word36.negate(op));
         }
 
@@ -6326,7 +6742,7 @@ public class InstructionProcessor extends Processor implements Worker {
     private class SRFunctionHandler extends InstructionHandler {
 
         @Override public void handle() throws MachineInterrupt, UnresolvedAddressException {
-            storeOperand(true, true, true, true, getExecOrUserRRegister((int) _currentInstruction.getA()).getW());
+            storeOperand(true, true, true, true, getExecOrUserRRegisterValue((int) _currentInstruction.getA()));
         }
 
         @Override public Instruction getInstruction() { return Instruction.SR; }
@@ -6361,7 +6777,7 @@ public class InstructionProcessor extends Processor implements Worker {
         @Override public void handle() throws MachineInterrupt, UnresolvedAddressException {
             //  Grab descriptor first
             int descriptorRegisterIndex = getExecOrUserARegisterIndex((int) _currentInstruction.getA());
-            long descriptor = getGeneralRegister(descriptorRegisterIndex).getW();
+            long descriptor = getGeneralRegisterValue(descriptorRegisterIndex);
 
             int address1 = (int)descriptor & 0177;
             int count1 = (int)(descriptor >> 9) & 0177;
@@ -6373,7 +6789,7 @@ public class InstructionProcessor extends Processor implements Worker {
             int ox = 0;
             int grsx = address1;
             for (int rx = 0; rx < count1; ++rx) {
-                operands[ox++] = getGeneralRegister(grsx++).getW();
+                operands[ox++] = getGeneralRegisterValue(grsx++);
                 if (grsx == 0200) {
                     grsx = 0;
                 }
@@ -6381,7 +6797,7 @@ public class InstructionProcessor extends Processor implements Worker {
 
             grsx = address2;
             for (int rx = 0; rx < count2; ++rx) {
-                operands[ox++] = getGeneralRegister(grsx++).getW();
+                operands[ox++] = getGeneralRegisterValue(grsx++);
                 if (grsx == 0200) {
                     grsx = 0;
                 }
@@ -6400,7 +6816,7 @@ public class InstructionProcessor extends Processor implements Worker {
     private class SSAFunctionHandler extends InstructionHandler {
 
         @Override public void handle() throws MachineInterrupt, UnresolvedAddressException {
-            long operand = getExecOrUserARegister((int) _currentInstruction.getA()).getW();
+            long operand = getExecOrUserARegisterValue((int) _currentInstruction.getA());
             int count = (int) getImmediateOperand() & 0177;
             Word36 w36 = new Word36(operand);
             Word36 result = w36.rightShiftAlgebraic(count);
@@ -6416,7 +6832,7 @@ public class InstructionProcessor extends Processor implements Worker {
     public class SSCFunctionHandler extends InstructionHandler {
 
         @Override public void handle() throws MachineInterrupt, UnresolvedAddressException {
-            long operand = getExecOrUserARegister((int) _currentInstruction.getA()).getW();
+            long operand = getExecOrUserARegisterValue((int) _currentInstruction.getA());
             int count = (int) getImmediateOperand() & 0177;
             Word36 w36 = new Word36(operand);
             Word36 result = w36.rightShiftCircular(count);
@@ -6432,7 +6848,7 @@ public class InstructionProcessor extends Processor implements Worker {
     public class SSLFunctionHandler extends InstructionHandler {
 
         @Override public void handle() throws MachineInterrupt, UnresolvedAddressException {
-            long operand = getExecOrUserARegister((int) _currentInstruction.getA()).getW();
+            long operand = getExecOrUserARegisterValue((int) _currentInstruction.getA());
             int count = (int) getImmediateOperand() & 0177;
             Word36 w36 = new Word36(operand);
             Word36 result = w36.rightShiftLogical(count);
@@ -6480,7 +6896,7 @@ public class InstructionProcessor extends Processor implements Worker {
     private class SXFunctionHandler extends InstructionHandler {
 
         @Override public void handle() throws MachineInterrupt, UnresolvedAddressException {
-            storeOperand(true, true, true, true, getExecOrUserXRegister((int) _currentInstruction.getA()).getW());
+            storeOperand(true, true, true, true, getExecOrUserXRegisterValue((int) _currentInstruction.getA()));
         }
 
         @Override public Instruction getInstruction() { return Instruction.SX; }
@@ -6511,6 +6927,8 @@ public class InstructionProcessor extends Processor implements Worker {
         private static final int SF_MEMORY_FREE = 021;
         private static final int SF_MEMORY_REALLOC = 022;
 
+        private static final int ANY_MSP_UPI = 077;
+
         private static final int SS_SUCCESSFUL = 0;
         private static final int SS_BAD_UPI = 01;
         private static final int SS_BAD_SEGMENT = 02;
@@ -6590,20 +7008,31 @@ public class InstructionProcessor extends Processor implements Worker {
                     //  Packet size is 3 words
                     //  U+0,S1          Subfunction
                     //  U+0,S2:         Status
-                    //  U+0,S3:         UPI of target MSP
+                    //  U+0,S3:         UPI of target MSP, or 077 to let the hardware choose
+                    //                      (the UPI of the chosen MSP is returned here)
+                    //  U+0,S4:         Locality hint when the hardware chooses - 0 for the affinity group of this IP,
+                    //                      otherwise the affinity group plus one
                     //  U+1,W:          Newly-assigned segment index if status is zero
-                    //  U+2,W:          Requested size of memory in words, range 0:0x7FFFFFF = 0_17777_777777 (31 bits)
+                    //  U+2,W:          Requested size of memory in words, range 0:0xFFFFFFFF = 0_37777_777777 (32 bits)
                     long[] operands = new long[3];
                     DevelopedAddresses devAddr = getConsecutiveOperands(false, operands, true);
                     int status = SS_SUCCESSFUL;
                     try {
                         int upi = (int) Word36.getS3(operands[0]);
-                        MainStorageProcessor msp = InventoryManager.getInstance().getMainStorageProcessor(upi);
-                        long words = operands[2] & 0_17777_777777;
+                        MainStorageProcessor msp;
+                        if (upi == ANY_MSP_UPI) {
+                            int hint = (int) Word36.getS4(operands[0]);
+                            int group = (hint == 0) ? getAffinityGroup() : hint - 1;
+                            msp = InventoryManager.getInstance().selectMainStorageProcessor(group);
+                            operands[0] = Word36.setS3(operands[0], msp._upiIndex);
+                        } else {
+                            msp = InventoryManager.getInstance().getMainStorageProcessor(upi);
+                        }
+                        long words = operands[2] & 0_37777_777777L;
                         if (words != operands[2]) {
                             status = SS_INVALID_SIZE;
                         } else {
-                            operands[1] = msp.createSegment((int) words);
+                            operands[1] = msp.createSegment(words);
                         }
                     } catch (UPINotAssignedException | UPIProcessorTypeException ex) {
                         status = SS_BAD_UPI;
@@ -6646,7 +7075,7 @@ public class InstructionProcessor extends Processor implements Worker {
                     //  U+0,S2:         Status
                     //  U+0,S3:         UPI of target MSP
                     //  U+1,W:          Segment index of block to be resized
-                    //  U+2,W:          Requested size of memory in words, range 0:0x7FFFFFF = 0_17777_777777 (31 bits)
+                    //  U+2,W:          Requested size of memory in words, range 0:0xFFFFFFFF = 0_37777_777777 (32 bits)
                     long[] operands = new long[3];
                     DevelopedAddresses devAddr = getConsecutiveOperands(false, operands, true);
                     int status = SS_SUCCESSFUL;
@@ -6654,11 +7083,11 @@ public class InstructionProcessor extends Processor implements Worker {
                         int upi = (int) Word36.getS3(operands[0]);
                         int segIndex = (int) (operands[1] & 0_37777_777777L);
                         MainStorageProcessor msp = InventoryManager.getInstance().getMainStorageProcessor(upi);
-                        long words = operands[2] & 0_17777_777777;
+                        long words = operands[2] & 0_37777_777777L;
                         if (words != operands[2]) {
                             status = SS_INVALID_SIZE;
                         } else {
-                            msp.resizeSegment(segIndex, (int) words);
+                            msp.resizeSegment(segIndex, words);
                         }
                     } catch (AddressingExceptionInterrupt ex) {
                         status = SS_BAD_SEGMENT;
@@ -6962,7 +7391,7 @@ public class InstructionProcessor extends Processor implements Worker {
     private class TEFunctionHandler extends InstructionHandler {
 
         @Override public void handle() throws MachineInterrupt, UnresolvedAddressException {
-            long op1 = getExecOrUserARegister((int) _currentInstruction.getA()).getW();
+            long op1 = getExecOrUserARegisterValue((int) _currentInstruction.getA());
             long op2 = getOperand(true, true, true, true);
             if (op1 == op2) {
                 skipNextInstruction();
@@ -6980,7 +7409,7 @@ public class InstructionProcessor extends Processor implements Worker {
     private class TEPFunctionHandler extends InstructionHandler {
 
         @Override public void handle() throws MachineInterrupt, UnresolvedAddressException {
-            long op1 = getExecOrUserARegister((int) _currentInstruction.getA()).getW();
+            long op1 = getExecOrUserARegisterValue((int) _currentInstruction.getA());
             long op2 = getOperand(true, true, true, true);
             int bitCount = Long.bitCount(op1 & op2);
             if ((bitCount & 0_01) == 0) {
@@ -6999,7 +7428,7 @@ public class InstructionProcessor extends Processor implements Worker {
 
         @Override public void handle() throws MachineInterrupt, UnresolvedAddressException {
             long uValue = getOperand(true, true, true, true);
-            long aValue = getExecOrUserARegister((int) _currentInstruction.getA()).getW();
+            long aValue = getExecOrUserARegisterValue((int) _currentInstruction.getA());
             if (Word36.compare(uValue, aValue) > 0) {
                 skipNextInstruction();
             }
@@ -7020,7 +7449,7 @@ public class InstructionProcessor extends Processor implements Worker {
                 uValue = Word36.negate(uValue);
             }
 
-            long aValue = getExecOrUserARegister((int) _currentInstruction.getA()).getW();
+            long aValue = getExecOrUserARegisterValue((int) _currentInstruction.getA());
             if (Word36.compare(uValue, aValue) > 0) {
                 skipNextInstruction();
             }
@@ -7053,7 +7482,7 @@ public class InstructionProcessor extends Processor implements Worker {
 
         @Override public void handle() throws MachineInterrupt, UnresolvedAddressException {
             long uValue = getOperand(true, true, true, true);
-            long aValue = getExecOrUserARegister((int) _currentInstruction.getA()).getW();
+            long aValue = getExecOrUserARegisterValue((int) _currentInstruction.getA());
             if (Word36.compare(uValue, aValue) <= 0) {
                 skipNextInstruction();
             }
@@ -7075,9 +7504,9 @@ public class InstructionProcessor extends Processor implements Worker {
 
         @Override public void handle() throws MachineInterrupt, UnresolvedAddressException {
             int ixReg = (int) _currentInstruction.getA();
-            IndexRegister xreg = getExecOrUserXRegister(ixReg);
+            long xreg = getExecOrUserXRegisterValue(ixReg);
             long uValue = (getOperand(true, true, true, true) & 0_777777);
-            long modValue = xreg.getXM();
+            long modValue = IndexRegister.getXM(xreg);
             if (uValue <= modValue) {
                 skipNextInstruction();
             }
@@ -7085,7 +7514,7 @@ public class InstructionProcessor extends Processor implements Worker {
             if (!_designatorRegister.getBasicModeEnabled()
                 || (_currentInstruction.getA() != _currentInstruction.getX())
                 || (_currentInstruction.getH() == 0)) {
-                setExecOrUserXRegister(ixReg, IndexRegister.incrementModifier18(xreg.getW()));
+                setExecOrUserXRegister(ixReg, IndexRegister.incrementModifier18(xreg));
             }
         }
 
@@ -7164,7 +7593,7 @@ public class InstructionProcessor extends Processor implements Worker {
     private class TNEFunctionHandler extends InstructionHandler {
 
         @Override public void handle() throws MachineInterrupt, UnresolvedAddressException {
-            long op1 = getExecOrUserARegister((int) _currentInstruction.getA()).getW();
+            long op1 = getExecOrUserARegisterValue((int) _currentInstruction.getA());
             long op2 = getOperand(true, true, true, true);
             if (op1 != op2) {
                 skipNextInstruction();
@@ -7259,8 +7688,8 @@ public class InstructionProcessor extends Processor implements Worker {
 
         @Override public void handle() throws MachineInterrupt, UnresolvedAddressException {
             long uValue = getOperand(true, true, true, true);
-            long aValueLow = getExecOrUserARegister((int) _currentInstruction.getA()).getW();
-            long aValueHigh = getExecOrUserARegister((int) _currentInstruction.getA() + 1).getW();
+            long aValueLow = getExecOrUserARegisterValue((int) _currentInstruction.getA());
+            long aValueHigh = getExecOrUserARegisterValue((int) _currentInstruction.getA() + 1);
 
             if ((Word36.compare(uValue, aValueLow) <= 0) || (Word36.compare(uValue, aValueHigh) > 0)) {
                 skipNextInstruction();
@@ -7294,7 +7723,7 @@ public class InstructionProcessor extends Processor implements Worker {
     private class TOPFunctionHandler extends InstructionHandler {
 
         @Override public void handle() throws MachineInterrupt, UnresolvedAddressException {
-            long op1 = getExecOrUserARegister((int) _currentInstruction.getA()).getW();
+            long op1 = getExecOrUserARegisterValue((int) _currentInstruction.getA());
             long op2 = getOperand(true, true, true, true);
             int bitCount = Long.bitCount(op1 & op2);
             if ((bitCount & 0x01) != 0) {
@@ -7423,10 +7852,10 @@ public class InstructionProcessor extends Processor implements Worker {
             //  This is still 33 bits, which is more than an int, and all our relative addresses are expected
             //  to fit in an int (which might be wrong, but there it is).  We use 31, not 33 bits for relative
             //  address (because ints are signed in idiot Java)
-            IndexRegister xReg1 = getExecOrUserXRegister((int) _currentInstruction.getA());
-            IndexRegister xReg2 = getExecOrUserXRegister((int) _currentInstruction.getA() + 1);
-            int lowerRelAddr = (int) (xReg1.getW() & 0x7FFF);
-            int upperRelAddr = (int) (xReg2.getW() & 0x7FFF);
+            long xReg1 = getExecOrUserXRegisterValue((int) _currentInstruction.getA());
+            long xReg2 = getExecOrUserXRegisterValue((int) _currentInstruction.getA() + 1);
+            int lowerRelAddr = (int) (xReg1 & 0x7FFF);
+            int upperRelAddr = (int) (xReg2 & 0x7FFF);
             AccessInfo accessKey = packetIndicatorKeyRegister.getAccessInfo();
 
             int count = upperRelAddr - lowerRelAddr + 1;
@@ -7448,7 +7877,7 @@ public class InstructionProcessor extends Processor implements Worker {
 
                                 long value = 0_400000_000000L;
                                 value |= ((long) (brIndex & 03)) << 33;
-                                xReg1.setW(value);
+                                setExecOrUserXRegister((int) _currentInstruction.getA(), value);
 
                                 try {
                                     //  If we have read/write access, skip next instruction.
@@ -7469,7 +7898,7 @@ public class InstructionProcessor extends Processor implements Worker {
                 }
             }
 
-            xReg1.setW(0);
+            setExecOrUserXRegister((int) _currentInstruction.getA(), 0);
         }
 
         @Override public Instruction getInstruction() { return Instruction.TRARS; }
@@ -7595,14 +8024,14 @@ public class InstructionProcessor extends Processor implements Worker {
                 //  Get the virtual address to be checked from X(a) and the various flags and alternate key from X(a+1).
                 //  If a==15, then X(a) is A(3), and X(a+1) is A(4).
                 int aField = (int) scratchPad._instructionWord.getA();
-                scratchPad._virtualAddress = new VirtualAddress(getExecOrUserXRegister(aField).getW());
+                scratchPad._virtualAddress = new VirtualAddress(getExecOrUserXRegisterValue(aField));
                 scratchPad._checkLevel = scratchPad._virtualAddress.getLevel();
                 scratchPad._checkBankDescriptorIndex = scratchPad._virtualAddress.getBankDescriptorIndex();
                 scratchPad._checkOffset = scratchPad._virtualAddress.getOffset();
 
                 long options = (aField < 15) ?
-                               getExecOrUserXRegister(aField + 1).getW() :
-                               getExecOrUserARegister(4).getW();
+                               getExecOrUserXRegisterValue(aField + 1) :
+                               getExecOrUserARegisterValue(4);
 
                 //  Get the options
                 scratchPad._queueBDCheckRequested = (options & 0_020000_000000L) != 0;
@@ -8091,8 +8520,8 @@ public class InstructionProcessor extends Processor implements Worker {
 
         @Override public void handle() throws MachineInterrupt, UnresolvedAddressException {
             long uValue = getOperand(true, true, true, true);
-            long aValue = getExecOrUserARegister((int) _currentInstruction.getA()).getW();
-            long aValuePlus = getExecOrUserARegister((int) _currentInstruction.getA() + 1).getW();
+            long aValue = getExecOrUserARegisterValue((int) _currentInstruction.getA());
+            long aValuePlus = getExecOrUserARegisterValue((int) _currentInstruction.getA() + 1);
 
             if ((Word36.compare(aValue, uValue) < 0) && (Word36.compare(uValue, aValuePlus) <= 0)) {
                 skipNextInstruction();
@@ -8143,7 +8572,7 @@ public class InstructionProcessor extends Processor implements Worker {
     private class XORFunctionHandler extends InstructionHandler {
 
         @Override public void handle() throws MachineInterrupt, UnresolvedAddressException {
-            long operand1 = getExecOrUserARegister((int) _currentInstruction.getA()).getW();
+            long operand1 = getExecOrUserARegisterValue((int) _currentInstruction.getA());
             long operand2 = getOperand(true, true, true, true);
             setExecOrUserARegister((int) _currentInstruction.getA() + 1, operand1 ^ operand2);
         }
@@ -8169,6 +8598,46 @@ public class InstructionProcessor extends Processor implements Worker {
     //  des==0 -> Q1, des==1 -> Q2, etc. - used by LAQW and SAQW instructions
     private static final int[] QW_J_FIELDS = { 7, 4, 6, 5 };
 
+    /**
+     * Loads, stores, adds, logicals, shifts, tests, and jumps which remain within the current bank, none of which alter
+     * the addressing environment, nor the designator or indicator/key registers (other than carry and overflow).
+     * The interpreter runs these in a batch without rechecking for interrupt conditions, and BlockCompiler
+     * translates a subset of them (see BlockCompiler.isCompilable()).
+     */
+    private static final Set<Instruction> BATCHABLE_INSTRUCTIONS = EnumSet.of(
+        Instruction.LA, Instruction.LNA, Instruction.LMA, Instruction.LNMA, Instruction.LR, Instruction.LX,
+        Instruction.LXI, Instruction.LXM, Instruction.LXLM, Instruction.LXSI, Instruction.DL, Instruction.DLN,
+        Instruction.DLM, Instruction.SA, Instruction.SNA, Instruction.SMA, Instruction.SR, Instruction.SX,
+        Instruction.SZ, Instruction.SNZ, Instruction.SP1, Instruction.SN1, Instruction.SFS, Instruction.SFZ,
+        Instruction.SAS, Instruction.SAZ, Instruction.DS, Instruction.AA, Instruction.ANA, Instruction.AMA,
+        Instruction.ANMA, Instruction.AU, Instruction.ANU, Instruction.AX, Instruction.ANX, Instruction.AH,
+        Instruction.ANH, Instruction.AT, Instruction.ANT, Instruction.DA, Instruction.DAN, Instruction.ADD1,
+        Instruction.SUB1, Instruction.INC, Instruction.INC2, Instruction.DEC, Instruction.DEC2, Instruction.ENZ,
+        Instruction.AND, Instruction.OR, Instruction.XOR, Instruction.MLU, Instruction.SSC, Instruction.DSC,
+        Instruction.SSL, Instruction.DSL, Instruction.SSA, Instruction.DSA, Instruction.LSSC, Instruction.LDSC,
+        Instruction.LSSL, Instruction.LDSL, Instruction.LSC, Instruction.DLSC, Instruction.TZ, Instruction.TNZ,
+        Instruction.TP, Instruction.TN, Instruction.TE, Instruction.TNE, Instruction.TG, Instruction.TLE,
+        Instruction.TW, Instruction.TNW, Instruction.TOP, Instruction.TNOP, Instruction.J, Instruction.JZ,
+        Instruction.JNZ, Instruction.JP, Instruction.JN, Instruction.JB, Instruction.JNB, Instruction.JC,
+        Instruction.JNC, Instruction.JO, Instruction.JNO, Instruction.JGD, Instruction.JMGI, Instruction.DJZ,
+        Instruction.LMJ, Instruction.NOP);
+
+    private static final int MAX_COMPILED_BLOCK_SIZE = 64;
+    private static final int MIN_COMPILED_BLOCK_SIZE = 2;
+    private static final int MAX_CHAINED_BLOCKS = 64;
+    private static final int MAX_COMPILED_INSTRUCTIONS = 4096;     //  per run of a compiled block
+    private static final int COMPILED_INSTRUCTION_CHARGE = 20;     //  quantum charge of every compilable instruction
+    private static final int MAX_BATCHED_INSTRUCTIONS = 256;
+
+    //  Designator register bits which BlockCompiler builds into a compiled block - exec 24-bit indexing,
+    //  processor privilege, exec register set selection, operation trap enable, and quarter-word mode
+    private static final long COMPILED_BLOCK_DESIGNATOR_BITS = Word36.MASK_B11 | Word36.MASK_B14 | Word36.MASK_B15
+                                                               | Word36.MASK_B17 | Word36.MASK_B27 | Word36.MASK_B32;
+
+    //  Attention word flags specific to IPs (see Processor._attention)
+    private static final int ATTENTION_INTERRUPT = 0x02;    //  raiseInterrupt() has set a pending interrupt
+    private static final int ATTENTION_CONDITION = 0x04;    //  breakpoint match, jump history threshold, or quantum timer expiry
+
     /**
      * Raise interrupt when this many new entries exist
      */
@@ -8179,6 +8648,23 @@ public class InstructionProcessor extends Processor implements Worker {
      */
     private static final int JUMP_HISTORY_TABLE_SIZE        = 128;
 
+    /**
+     * Layout of the processor state saved by saveState() and reinstated by restoreState()
+     */
+    private static final int STATE_PAR                      = 0;
+    private static final int STATE_DESIGNATOR_REGISTER      = 1;
+    private static final int STATE_INDICATOR_KEY_REGISTER   = 2;
+    private static final int STATE_QUANTUM_TIMER            = 3;
+    private static final int STATE_FLAGS                    = 4;
+    private static final int STATE_ACTIVE_BASE_TABLE        = 5;
+    private static final int STATE_GENERAL_REGISTERS        = STATE_ACTIVE_BASE_TABLE + 16;
+    private static final int STATE_BASE_REGISTERS           = STATE_GENERAL_REGISTERS + 128;
+    private static final int STATE_BASE_REGISTER_WORDS      = 6;
+    private static final int STATE_SIZE                     = STATE_BASE_REGISTERS + (32 * STATE_BASE_REGISTER_WORDS);
+
+    private static final long STATE_FLAG_IO_COMPLETION      = 01;
+    private static final long STATE_FLAG_BROADCAST_ELIGIBLE = 02;
+
     /**
      * Order of base register selection for Basic Mode address resolution
      * when the Basic Mode Base Register Selection Designator Register bit is false
@@ -8198,25 +8684,35 @@ public class InstructionProcessor extends Processor implements Worker {
     private final ActiveBaseTableEntry[] _activeBaseTableEntries = new ActiveBaseTableEntry[16];
 
     /**
-     * Storage locks...
+     * Storage locks for all IPs in the partition, and the (encoded) addresses which this IP currently holds.
      */
-    private static final Map<InstructionProcessor, HashSet<AbsoluteAddress>> _storageLocks = new HashMap<>();
+    private static final StorageLockTable _storageLocks = new StorageLockTable();
+    private long[] _heldStorageLocks = new long[4];
+    private int _heldStorageLockCount = 0;
 
     private final BaseRegister[]            _baseRegisters = new BaseRegister[32];
     private final AbsoluteAddress           _breakpointAddress = new AbsoluteAddress((short)0, 0, 0);
     private final BreakpointRegister        _breakpointRegister = null;
     private boolean                         _broadcastInterruptEligibility = false;
+    private boolean                         _checkpointIOCompletion = false;    //  IO completed while stopped for checkpoint
+    private volatile boolean                _workerStopped = true;              //  worker thread has noticed that we are stopped
+    private final CompiledBank[]            _compiledBanks = new CompiledBank[32];
+    private final CompiledBlockCache        _compiledBlockCache = new CompiledBlockCache();
     protected InstructionWord                _currentInstruction = null;
-    private InstructionHandler              _currentInstructionHandler = null;  //  TODO do we need this?
-    private RunMode                         _currentRunMode = RunMode.Stopped;
+    private DecodedInstruction              _currentDecodedInstruction = null;
+    private InstructionHandler              _currentInstructionHandler = null;
+    private volatile RunMode                _currentRunMode = RunMode.Stopped;
     private DesignatorRegister              _designatorRegister = new DesignatorRegister();
     private final FunctionTable             _functionTable = new FunctionTable();
     private final GeneralRegisterSet        _generalRegisterSet = new GeneralRegisterSet();
     private IndicatorKeyRegister            _indicatorKeyRegister = new IndicatorKeyRegister();
+    private final InstructionCache          _instructionCache = new InstructionCache();
+    private final OperandCache              _operandCache = new OperandCache();
     private boolean                         _jumpHistoryFullInterruptEnabled = false;
     private final Word36[]                  _jumpHistoryTable = new Word36[JUMP_HISTORY_TABLE_SIZE];
     private int                             _jumpHistoryTableNext = 0;
     private boolean                         _jumpHistoryThresholdReached = false;
+    private boolean                         _jitEnabled = false;
     private MachineInterrupt                _lastInterrupt = null;    //  must always be != _pendingInterrupt
     private long                            _latestStopDetail = 0;
     private StopReason                      _latestStopReason = StopReason.Initial;
@@ -8226,6 +8722,7 @@ public class InstructionProcessor extends Processor implements Worker {
     private boolean                         _preventProgramCounterIncrement = false;
     private final ProgramAddressRegister    _programAddressRegister = new ProgramAddressRegister();
     private long                            _quantumTimer = 0;
+    private final long[]                    _storageReferences = new long[16];    //  operand references, by MSP UPI
     private SystemProcessor                 _systemProcessor = null;
 
     private final Set<Processor> _pendingUPISends = new HashSet<>();
@@ -8250,8 +8747,6 @@ public class InstructionProcessor extends Processor implements Worker {
     ) {
         super(ProcessorType.InstructionProcessor, name, upiIndex);
 
-        _storageLocks.put(this, new HashSet<AbsoluteAddress>());
-
         for (int bx = 0; bx < _baseRegisters.length; ++bx) {
             _baseRegisters[bx] = new BaseRegister();
         }
@@ -8273,8 +8768,14 @@ public class InstructionProcessor extends Processor implements Worker {
     public ActiveBaseTableEntry[] getActiveBaseTableEntries() { return _activeBaseTableEntries; }
     public BaseRegister getBaseRegister(final int index) { return _baseRegisters[index]; }
     boolean getBroadcastInterruptEligibility() { return _broadcastInterruptEligibility; }
+    public long getCompiledBlockCount() { return _compiledBlockCache._blocksCompiled; }
+    public long getCompiledInstructionCount() { return _compiledBlockCache._instructions; }
     public DesignatorRegister getDesignatorRegister() { return _designatorRegister; }
 
+    /**
+     * Retrieves a snapshot of a general register, for tests and displays.
+     * Instruction handlers should use getGeneralRegisterValue() instead, which does not allocate.
+     */
     public GeneralRegister getGeneralRegister(
         final int index
     ) throws MachineInterrupt {
@@ -8284,21 +8785,45 @@ public class InstructionProcessor extends Processor implements Worker {
         return _generalRegisterSet.getRegister(index);
     }
 
+    long getGeneralRegisterValue(
+        final int index
+    ) throws MachineInterrupt {
+        if (!GeneralRegisterSet.isAccessAllowed(index, _designatorRegister.getProcessorPrivilege(), false)) {
+            throw new ReferenceViolationInterrupt(ReferenceViolationInterrupt.ErrorType.ReadAccessViolation, false);
+        }
+        return _generalRegisterSet.getValue(index);
+    }
+
+    public long getInstructionCacheHits() { return _instructionCache._hits; }
+    public long getInstructionCacheMisses() { return _instructionCache._misses; }
+    public long getOperandCacheHits() { return _operandCache._hits; }
+    public long getOperandCacheMisses() { return _operandCache._misses; }
+    public long getLocalStorageReferences() { return getStorageReferences(true); }
+    public long getRemoteStorageReferences() { return getStorageReferences(false); }
     public MachineInterrupt getLastInterrupt() { return _lastInterrupt; }
     public StopReason getLatestStopReason() { return _latestStopReason; }
     public long getLatestStopDetail() { return _latestStopDetail; }
     public ProgramAddressRegister getProgramAddressRegister() { return _programAddressRegister; }
+    public static StorageLockTable getStorageLockTable() { return _storageLocks; }
     public boolean isCleared() { return (_currentRunMode == RunMode.Stopped) && (_latestStopReason == StopReason.Cleared); }
+    public boolean isJitEnabled() { return _jitEnabled; }
     public boolean isStopped() { return _currentRunMode == RunMode.Stopped; }
 
+    /**
+     * Indicates that we are stopped, and that the worker thread has finished whatever it was doing when we were stopped
+     */
+    public boolean isQuiescent() { return isStopped() && _workerStopped; }
+
     public void setBaseRegister(
         final int index,
         final BaseRegister baseRegister
     ) {
         _baseRegisters[index] = baseRegister;
+        _operandCache.flush();
     }
 
     public void setDevelopmentMode(final boolean value) { _developmentMode = value; }
+    public void setJitEnabled(final boolean value) { _jitEnabled = value; }
 
     public void setGeneralRegister(
         final int index,
@@ -8375,6 +8900,23 @@ public class InstructionProcessor extends Processor implements Worker {
      *  +7 - ?  Reserved for software
      */
 
+    /**
+     * Invoked by a compiled block for AA and its kin, to add two operands and set carry and overflow accordingly.
+     * BlockCompiler does not compile these while operation trap is enabled, so there is nothing else to do.
+     * @param operand1 register value
+     * @param operand2 operand value
+     * @return sum
+     */
+    private long addCompiledOperands(
+        final long operand1,
+        final long operand2
+    ) {
+        Word36.StaticAdditionResult sar = Word36.add(operand1, operand2);
+        _designatorRegister.setCarry(sar._flags._carry);
+        _designatorRegister.setOverflow(sar._flags._overflow);
+        return sar._value;
+    }
+
     /**
      * Calculates the raw relative address (the U) for the current instruction.
      * Does NOT increment any x registers, even if their content contributes to the result.
@@ -8382,28 +8924,25 @@ public class InstructionProcessor extends Processor implements Worker {
      */
     private int calculateRelativeAddressForGRSOrStorage(
     ) {
-        IndexRegister xReg = null;
         int xx = (int)_currentInstruction.getX();
-        if (xx != 0) {
-            xReg = getExecOrUserXRegister(xx);
-        }
+        long xReg = (xx != 0) ? getExecOrUserXRegisterValue(xx) : 0;
 
         long addend1;
         long addend2 = 0;
         if (_designatorRegister.getBasicModeEnabled()) {
             addend1 = _currentInstruction.getU();
-            if (xReg != null) {
-                addend2 = xReg.getSignedXM();
+            if (xx != 0) {
+                addend2 = IndexRegister.getSignedXM(xReg);
             }
         } else {
             addend1 = _currentInstruction.getD();
-            if (xReg != null) {
+            if (xx != 0) {
                 if (_designatorRegister.getExecutive24BitIndexingEnabled()
                         && (_designatorRegister.getProcessorPrivilege() < 2)) {
                     //  Exec 24-bit indexing is requested
-                    addend2 = xReg.getSignedXM24();
+                    addend2 = IndexRegister.getSignedXM24(xReg);
                 } else {
-                    addend2 = xReg.getSignedXM();
+                    addend2 = IndexRegister.getSignedXM(xReg);
                 }
             }
         }
@@ -8419,28 +8958,25 @@ public class InstructionProcessor extends Processor implements Worker {
      */
     private int calculateRelativeAddressForJump(
     ) {
-        IndexRegister xReg = null;
         int xx = (int)_currentInstruction.getX();
-        if (xx != 0) {
-            xReg = getExecOrUserXRegister(xx);
-        }
+        long xReg = (xx != 0) ? getExecOrUserXRegisterValue(xx) : 0;
 
         long addend1;
         long addend2 = 0;
         if (_designatorRegister.getBasicModeEnabled()) {
             addend1 = _currentInstruction.getU();
-            if (xReg != null) {
-                addend2 = xReg.getSignedXM();
+            if (xx != 0) {
+                addend2 = IndexRegister.getSignedXM(xReg);
             }
         } else {
             addend1 = _currentInstruction.getU();
-            if (xReg != null) {
+            if (xx != 0) {
                 if (_designatorRegister.getExecutive24BitIndexingEnabled()
                     && (_designatorRegister.getProcessorPrivilege() < 2)) {
                     //  Exec 24-bit indexing is requested
-                    addend2 = xReg.getSignedXM24();
+                    addend2 = IndexRegister.getSignedXM24(xReg);
                 } else {
-                    addend2 = xReg.getSignedXM();
+                    addend2 = IndexRegister.getSignedXM(xReg);
                 }
             }
         }
@@ -8448,6 +8984,22 @@ public class InstructionProcessor extends Processor implements Worker {
         return (int) Word36.addSimple(addend1, addend2);
     }
 
+    /**
+     * Charges the quantum timer for (part of) an instruction, if the quantum timer is enabled.
+     * If the timer expires, we post the condition to the attention word.
+     * @param charge amount to be subtracted from the timer
+     */
+    private void chargeQuantumTimer(
+        final long charge
+    ) {
+        if (_designatorRegister.getQuantumTimerEnabled()) {
+            _quantumTimer -= charge;
+            if (_quantumTimer < 0) {
+                postAttention(ATTENTION_CONDITION);
+            }
+        }
+    }
+
     /**
      * Checks the given absolute address and comparison type against the breakpoint register to see whether
      * we should take a breakpoint.  Updates IKR appropriately.
@@ -8465,6 +9017,7 @@ public class InstructionProcessor extends Processor implements Worker {
             //TODO Per doc, 2.4.1.2 Breakpoint_Register - we need to halt if Halt Enable is set
             //      which means Stop Right Now... how do we do that for all callers of this code?
             _indicatorKeyRegister.setBreakpointRegisterMatchCondition(true);
+            postAttention(ATTENTION_CONDITION);
         }
     }
 
@@ -8501,6 +9054,116 @@ public class InstructionProcessor extends Processor implements Worker {
         }
     }
 
+    /**
+     * Compiles a block of instructions beginning at the given location, which has been found to be hot.
+     * The block extends for as long as BlockCompiler can translate the instructions we find, ending after any
+     * unconditional jump (unless it might be skipped), and never extending beyond the upper limit of the bank.
+     * @param storage storage for the bank based on B0
+     * @param offset offset from the start of storage of the first instruction of the block
+     * @param programCounter relative address of the first instruction
+     * @param upperLimit upper limit of the bank based on B0
+     * @return compiled block, or null if there are not enough compilable instructions at this location
+     */
+    private CompiledBlock compileBlock(
+        final ArraySlice storage,
+        final int offset,
+        final int programCounter,
+        final long upperLimit
+    ) {
+        DesignatorRegister designatorRegister =
+            new DesignatorRegister(_designatorRegister.getW() & COMPILED_BLOCK_DESIGNATOR_BITS);
+        List<Instruction> instructions = new ArrayList<>();
+        int limit = (int) Math.min(MAX_COMPILED_BLOCK_SIZE, upperLimit - programCounter + 1);
+        long[] words = new long[Math.max(limit, 0)];
+        Instruction previous = null;
+        for (int ix = 0; ix < limit; ++ix) {
+            long word = storage.get(offset + ix);
+            words[ix] = word;
+            FunctionHandler handler = _functionTable.lookup(new InstructionWord(word), false);
+            if (!(handler instanceof InstructionHandler)) {
+                break;
+            }
+
+            Instruction instruction = ((InstructionHandler) handler).getInstruction();
+            if (!BlockCompiler.isCompilable(instruction, word, designatorRegister)) {
+                break;
+            }
+
+            instructions.add(instruction);
+            if ((instruction == Instruction.J) && ((previous == null) || !BlockCompiler.isSkip(previous))) {
+                break;
+            }
+            previous = instruction;
+        }
+
+        if (instructions.size() < MIN_COMPILED_BLOCK_SIZE) {
+            return null;
+        }
+
+        words = Arrays.copyOf(words, instructions.size());
+        try {
+            CompiledBlockCode code = (CompiledBlockCode) BlockCompiler.compile(MethodHandles.lookup(),
+                                                                                instructions.toArray(new Instruction[0]),
+                                                                                words,
+                                                                                programCounter,
+                                                                                designatorRegister);
+            if (code == null) {
+                return null;
+            }
+
+            ++_compiledBlockCache._blocksCompiled;
+            return new CompiledBlock(storage._array,
+                                     (int) (storage._offset + offset),
+                                     programCounter,
+                                     words,
+                                     designatorRegister.getW(),
+                                     code);
+        } catch (ReflectiveOperationException ex) {
+            _logger.catching(ex);
+            return null;
+        }
+    }
+
+    /**
+     * Invoked by a compiled block as it exits, to bring the processor up to date with everything the block has done,
+     * as the interpreter would have left it after the same instructions.
+     * @param programCounter relative address of the next instruction to be executed
+     * @param lastProgramCounter relative address of the last instruction completed (meaningless if count is zero)
+     * @param count number of instructions completed
+     * @param flags BlockCompiler.EXIT_* flags
+     * @return non-zero if we may go straight on to the compiled block (if any) at the new PAR.PC -
+     *          zero if the block left an instruction to the interpreter, or might have overwritten code,
+     *          or if the run loop has anything to attend to
+     */
+    private int completeCompiledBlock(
+        final int programCounter,
+        final int lastProgramCounter,
+        final int count,
+        final int flags
+    ) {
+        _programAddressRegister.setProgramCounter(programCounter);
+        if (count > 0) {
+            _preservedProgramAddressRegister.set(_programAddressRegister.get());
+            _preservedProgramAddressRegister.setProgramCounter(lastProgramCounter);
+            chargeQuantumTimer((long) count * COMPILED_INSTRUCTION_CHARGE);
+            _compiledBlockCache._instructions += count;
+        }
+
+        return ((flags == 0) && !isAttentionRequired()) ? 1 : 0;
+    }
+
+    /**
+     * Invoked by a compiled block as it exits, to account for the storage references it has made via a base register
+     * @param baseRegisterIndex index of the base register
+     * @param count number of references
+     */
+    private void countCompiledReferences(
+        final int baseRegisterIndex,
+        final int count
+    ) {
+        _storageReferences[_compiledBanks[baseRegisterIndex]._upiIndex] += count;
+    }
+
     /**
      * Creates a new entry in the conditionalJump history table.
      * If we cross the interrupt threshold, set the threshold-reached flag.
@@ -8513,6 +9176,7 @@ public class InstructionProcessor extends Processor implements Worker {
 
         if (_jumpHistoryTableNext > JUMP_HISTORY_TABLE_THRESHOLD ) {
             _jumpHistoryThresholdReached = true;
+            postAttention(ATTENTION_CONDITION);
         }
 
         if (_jumpHistoryTableNext == JUMP_HISTORY_TABLE_SIZE ) {
@@ -8537,14 +9201,21 @@ public class InstructionProcessor extends Processor implements Worker {
         //      * detect and restore instruction mid-point state if it is subsequently called
         //          after returning in mid-point state.
         if (_traceInstructions) {
-            String msg = String.format("Executing Instruction at %012o --> %s",
-                                       getProgramAddressRegister().get(),
-                                       _currentInstruction.interpret(!getDesignatorRegister().getBasicModeEnabled(),
-                                                                     getDesignatorRegister().getExecRegisterSetSelected()));
-            _logger.trace(msg);
+            traceCurrentInstruction();
+        }
+
+        //  If the instruction in F0 is the one we fetched (it might not be - UR loads F0 directly, and indirect
+        //  addressing replaces it) we can use the handler which was resolved when it was decoded.
+        boolean basicMode = _designatorRegister.getBasicModeEnabled();
+        DecodedInstruction decoded = _currentDecodedInstruction;
+        FunctionHandler handler;
+        if ((decoded != null) && (decoded._instruction == _currentInstruction) && (decoded._basicMode == basicMode)) {
+            handler = decoded._handler;
+        } else {
+            handler = _functionTable.lookup(_currentInstruction, basicMode);
         }
 
-        FunctionHandler handler = _functionTable.lookup(_currentInstruction, _designatorRegister.getBasicModeEnabled());
+        _currentInstructionHandler = (handler instanceof InstructionHandler) ? (InstructionHandler) handler : null;
         if (handler == null) {
             _midInstructionInterruptPoint = false;
             _indicatorKeyRegister.setInstructionInF0(false);
@@ -8553,11 +9224,9 @@ public class InstructionProcessor extends Processor implements Worker {
 
         handler.handle();
         _indicatorKeyRegister.setInstructionInF0(_midInstructionInterruptPoint);
-        if (!_midInstructionInterruptPoint) {
+        if (!_midInstructionInterruptPoint && (_heldStorageLockCount > 0)) {
             //  instruction is done - clear storage locks
-            synchronized(_storageLocks) {
-                _storageLocks.get(this).clear();
-            }
+            releaseStorageLocks(0);
         }
     }
 
@@ -8658,8 +9327,9 @@ public class InstructionProcessor extends Processor implements Worker {
             throw new ReferenceViolationInterrupt(ReferenceViolationInterrupt.ErrorType.StorageLimitsViolation, true);
         }
 
-        long pcOffset = programCounter - bReg._lowerLimitNormalized;
-        _currentInstruction = new InstructionWord(bReg._storage.get((int) pcOffset));
+        int pcOffset = (int) (programCounter - bReg._lowerLimitNormalized);
+        _currentDecodedInstruction = _instructionCache.fetch(bReg._storage, pcOffset, basicMode, _functionTable);
+        _currentInstruction = _currentDecodedInstruction._instruction;
         _indicatorKeyRegister.setInstructionInF0(true);
         _preservedProgramAddressRegister.set(_programAddressRegister.get());
     }
@@ -8740,7 +9410,7 @@ public class InstructionProcessor extends Processor implements Worker {
 
                 //  Get xhiu fields from the referenced word, and place them into _currentInstruction,
                 //  then throw UnresolvedAddressException so the caller knows we're not done here.
-                int wx = relativeAddress - br._lowerLimitNormalized;
+                int wx = (int) (relativeAddress - br._lowerLimitNormalized);
                 _currentInstruction = _currentInstruction.setXHIU(br._storage.get(wx));
                 throw new UnresolvedAddressException();
             }
@@ -8778,6 +9448,7 @@ public class InstructionProcessor extends Processor implements Worker {
                 if (updateDB31 && (tx >= 2)) {
                     //  address is found in a secondary bank, so we need to flip DB31
                     _designatorRegister.setBasicModeBaseRegisterSelection(!db31Flag);
+                    _operandCache.flush();
                 }
 
                 return table[tx];
@@ -8798,11 +9469,77 @@ public class InstructionProcessor extends Processor implements Worker {
         final int relativeAddress
     ) {
         int upi = baseRegister._baseAddress._upiIndex;
-        int actualOffset = relativeAddress - baseRegister._lowerLimitNormalized;
-        int offset = baseRegister._baseAddress._offset + actualOffset;
+        int actualOffset = (int) (relativeAddress - baseRegister._lowerLimitNormalized);
+        long offset = baseRegister._baseAddress._offset + actualOffset;
         return new AbsoluteAddress(upi, baseRegister._baseAddress._segment, offset);
     }
 
+    /**
+     * Invoked by a compiled block on entry, for each base register through which it refers to storage
+     * @param baseRegisterIndex index of the base register
+     * @return up-to-date view of the bank based on that register
+     */
+    private CompiledBank getCompiledBank(
+        final int baseRegisterIndex
+    ) {
+        CompiledBank bank = _compiledBanks[baseRegisterIndex];
+        if (bank == null) {
+            bank = new CompiledBank();
+            _compiledBanks[baseRegisterIndex] = bank;
+        }
+
+        BaseRegister bReg = _baseRegisters[baseRegisterIndex];
+        if ((bank._baseRegister != bReg) || (bank._flushCount != _operandCache._flushCount)) {
+            bank.load(bReg, _indicatorKeyRegister.getAccessInfo(), _operandCache._flushCount);
+        }
+        return bank;
+    }
+
+    /**
+     * Finds the compiled block for PAR.PC, compiling it if the location has just become hot
+     * @param verify true to make sure the block still matches the content of storage
+     * @return the block, or null if there isn't one (or if PAR.PC is not within B0 - fetchInstruction() will deal with that)
+     */
+    private CompiledBlock getCompiledBlock(
+        final boolean verify
+    ) {
+        BaseRegister bReg = _baseRegisters[0];
+        int programCounter = _programAddressRegister.getProgramCounter();
+        if (bReg._voidFlag
+            || bReg._largeSizeFlag
+            || (programCounter < bReg._lowerLimitNormalized)
+            || (programCounter > bReg._upperLimitNormalized)) {
+            return null;
+        }
+
+        ArraySlice storage = bReg._storage;
+        if (storage._array == null) {
+            return null;                        //  we only compile code which lives in a long[]
+        }
+
+        int offset = (int) (programCounter - bReg._lowerLimitNormalized);
+        int slot = _compiledBlockCache.probe(storage._array, (int) (storage._offset + offset), programCounter);
+        CompiledBlock block = _compiledBlockCache._blocks[slot];
+        if (block == null) {
+            if (!_compiledBlockCache.isHot(slot)) {
+                return null;
+            }
+
+            block = compileBlock(storage, offset, programCounter, bReg._upperLimitNormalized);
+            if (block == null) {
+                return null;
+            }
+            _compiledBlockCache._blocks[slot] = block;
+        } else if ((programCounter + block._words.length - 1 > bReg._upperLimitNormalized)
+                   || (block._designatorBits != (_designatorRegister.getW() & COMPILED_BLOCK_DESIGNATOR_BITS))
+                   || (verify && !block.isCurrent())) {
+            _compiledBlockCache.discard(slot);
+            return null;
+        }
+
+        return block;
+    }
+
     /**
      * Retrieves a BankDescriptor object representing the BD entry in a particular BDT.
      * @param bankLevel level of the bank of interest (0:7)
@@ -8848,14 +9585,14 @@ public class InstructionProcessor extends Processor implements Worker {
     ) throws MachineInterrupt,
              UnresolvedAddressException {
         int xx = (int) _currentInstruction.getX();
-        IndexRegister xReg = (xx != 0) ? getExecOrUserXRegister(xx) : null;
+        long xReg = (xx != 0) ? getExecOrUserXRegisterValue(xx) : 0;
 
         long addend1;
         long addend2 = 0;
         if (_designatorRegister.getBasicModeEnabled()) {
             addend1 = _currentInstruction.getU();
-            if (xReg != null) {
-                addend2 = xReg.getSignedXM();
+            if (xx != 0) {
+                addend2 = IndexRegister.getSignedXM(xReg);
             }
 
             long relativeAddress = Word36.addSimple(addend1, addend2);
@@ -8876,7 +9613,7 @@ public class InstructionProcessor extends Processor implements Worker {
 
                 //  Get xhiu fields from the referenced word, and place them into _currentInstruction,
                 //  then throw UnresolvedAddressException so the caller knows we're not done here.
-                int wx = (int) relativeAddress - br._lowerLimitNormalized;
+                int wx = (int) (relativeAddress - br._lowerLimitNormalized);
                 _currentInstruction = _currentInstruction.setXHIU(br._storage.get(wx));
                 throw new UnresolvedAddressException();
             }
@@ -8886,13 +9623,13 @@ public class InstructionProcessor extends Processor implements Worker {
         } else {
             //  We have an explicit base register - check limits
             addend1 = _currentInstruction.getD();
-            if (xReg != null) {
+            if (xx != 0) {
                 if (_designatorRegister.getExecutive24BitIndexingEnabled()
                     && (_designatorRegister.getProcessorPrivilege() < 2)) {
                     //  Exec 24-bit indexing is requested
-                    addend2 = xReg.getSignedXM24();
+                    addend2 = IndexRegister.getSignedXM24(xReg);
                 } else {
-                    addend2 = xReg.getSignedXM();
+                    addend2 = IndexRegister.getSignedXM(xReg);
                 }
             }
 
@@ -8948,7 +9685,7 @@ public class InstructionProcessor extends Processor implements Worker {
                     throw new ReferenceViolationInterrupt(ReferenceViolationInterrupt.ErrorType.ReadAccessViolation, false);
                 }
 
-                operands[ox] = _generalRegisterSet.getRegister(grsIndex).getW();
+                operands[ox] = _generalRegisterSet.getValue(grsIndex);
             }
 
             return null;
@@ -8967,7 +9704,7 @@ public class InstructionProcessor extends Processor implements Worker {
         }
 
         //  Retrieve the operands
-        int initialOffset = relAddress - bReg._lowerLimitNormalized;
+        int initialOffset = (int) (relAddress - bReg._lowerLimitNormalized);
         int offset = initialOffset;
         for (int ox = 0; ox < operands.length; ++ox) {
             operands[ox] = bReg._storage.get(offset++);
@@ -9020,9 +9757,20 @@ public class InstructionProcessor extends Processor implements Worker {
     }
 
     /**
-     * Retrieves a reference to the GeneralRegister indicated by the register index...
+     * Retrieves the value of the A register indicated by the register index...
      * i.e., registerIndex == 0 returns either A0 or EA0, depending on the designator register.
      * @param registerIndex A register index of interest
+     * @return GRS register value
+     */
+    private long getExecOrUserARegisterValue(
+        final int registerIndex
+    ) {
+        return _generalRegisterSet.getValue(getExecOrUserARegisterIndex(registerIndex));
+    }
+
+    /**
+     * Retrieves a snapshot of the GeneralRegister indicated by the register index, for tests and displays.
+     * @param registerIndex A register index of interest
      * @return GRS register
      */
     public GeneralRegister getExecOrUserARegister(
@@ -9044,15 +9792,15 @@ public class InstructionProcessor extends Processor implements Worker {
     }
 
     /**
-     * Retrieves a reference to the GeneralRegister indicated by the register index...
+     * Retrieves the value of the R register indicated by the register index...
      * i.e., registerIndex == 0 returns either R0 or ER0, depending on the designator register.
      * @param registerIndex R register index of interest
-     * @return GRS register
+     * @return GRS register value
      */
-    private GeneralRegister getExecOrUserRRegister(
+    private long getExecOrUserRRegisterValue(
         final int registerIndex
     ) {
-        return _generalRegisterSet.getRegister(getExecOrUserRRegisterIndex(registerIndex));
+        return _generalRegisterSet.getValue(getExecOrUserRRegisterIndex(registerIndex));
     }
 
     /**
@@ -9068,15 +9816,27 @@ public class InstructionProcessor extends Processor implements Worker {
     }
 
     /**
-     * Retrieves a reference to the IndexRegister indicated by the register index...
+     * Retrieves the value of the X register indicated by the register index...
      * i.e., registerIndex == 0 returns either X0 or EX0, depending on the designator register.
+     * Use the static IndexRegister methods to pick apart the result.
+     * @param registerIndex X register index of interest
+     * @return GRS register value
+     */
+    private long getExecOrUserXRegisterValue(
+        final int registerIndex
+    ) {
+        return _generalRegisterSet.getValue(getExecOrUserXRegisterIndex(registerIndex));
+    }
+
+    /**
+     * Retrieves a snapshot of the IndexRegister indicated by the register index, for tests and displays.
      * @param registerIndex X register index of interest
      * @return GRS register
      */
     public IndexRegister getExecOrUserXRegister(
         final int registerIndex
     ) {
-        return (IndexRegister)_generalRegisterSet.getRegister(getExecOrUserXRegisterIndex(registerIndex));
+        return (IndexRegister) _generalRegisterSet.getRegister(getExecOrUserXRegisterIndex(registerIndex));
     }
 
     /**
@@ -9130,20 +9890,20 @@ public class InstructionProcessor extends Processor implements Worker {
                 value = 0;
 
             //  Add the contents of Xx(m), and do index register incrementation if appropriate.
-            IndexRegister xReg = getExecOrUserXRegister((int) _currentInstruction.getX());
+            long xReg = getExecOrUserXRegisterValue((int) _currentInstruction.getX());
 
             //  24-bit indexing?
             if (!_designatorRegister.getBasicModeEnabled() && (privilege < 2) && exec24Index) {
                 //  Add the 24-bit modifier
-                value = Word36.addSimple(value, xReg.getXM24());
+                value = Word36.addSimple(value, IndexRegister.getXM24(xReg));
                 if (_currentInstruction.getH() != 0) {
-                    setExecOrUserXRegister((int) _currentInstruction.getX(), IndexRegister.incrementModifier24(xReg.getW()));
+                    setExecOrUserXRegister((int) _currentInstruction.getX(), IndexRegister.incrementModifier24(xReg));
                 }
             } else {
                 //  Add the 18-bit modifier
-                value = Word36.addSimple(value, xReg.getXM());
+                value = Word36.addSimple(value, IndexRegister.getXM(xReg));
                 if (_currentInstruction.getH() != 0) {
-                    setExecOrUserXRegister((int) _currentInstruction.getX(), IndexRegister.incrementModifier18(xReg.getW()));
+                    setExecOrUserXRegister((int) _currentInstruction.getX(), IndexRegister.incrementModifier18(xReg));
                 }
             }
         }
@@ -9251,10 +10011,10 @@ public class InstructionProcessor extends Processor implements Worker {
             //  If we are GRS or not allowing partial word transfers, do a full word.
             //  Otherwise, honor partial word transfering.
             if (grsDestination || !allowPartial) {
-                return _generalRegisterSet.getRegister(relAddress).getW();
+                return _generalRegisterSet.getValue(relAddress);
             } else {
                 boolean qWordMode = _designatorRegister.getQuarterWordModeEnabled();
-                return extractPartialWord(_generalRegisterSet.getRegister(relAddress).getW(), jField, qWordMode);
+                return extractPartialWord(_generalRegisterSet.getValue(relAddress), jField, qWordMode);
             }
         }
 
@@ -9263,18 +10023,28 @@ public class InstructionProcessor extends Processor implements Worker {
             baseRegisterIndex = findBaseRegisterIndex(relAddress, false);
         }
         BaseRegister baseRegister = _baseRegisters[baseRegisterIndex];
-        baseRegister.checkAccessLimits(relAddress,
-                                       false,
-                                       true,
-                                       false,
-                                       _indicatorKeyRegister.getAccessInfo());
+        long value;
+        int slot = isBreakpointArmed(BreakpointComparison.Read)
+                   ? -1 : _operandCache.lookup(baseRegisterIndex, baseRegister, relAddress, false);
+        if (slot >= 0) {
+            //  Fast path - limits and access have already been checked for this page, and no breakpoint is possible
+            incrementIndexRegisterInF0();
+            value = _operandCache._arrays[slot][relAddress + _operandCache._biases[slot]];
+            ++_storageReferences[baseRegister._baseAddress._upiIndex];
+        } else {
+            AccessInfo accessInfo = _indicatorKeyRegister.getAccessInfo();
+            baseRegister.checkAccessLimits(relAddress, false, true, false, accessInfo);
 
-        incrementIndexRegisterInF0();
+            incrementIndexRegisterInF0();
+
+            AbsoluteAddress absAddress = getAbsoluteAddress(baseRegister, relAddress);
+            checkBreakpoint(BreakpointComparison.Read, absAddress);
+            int readOffset = (int) (relAddress - baseRegister._lowerLimitNormalized);
+            value = baseRegister._storage.get(readOffset);
+            ++_storageReferences[baseRegister._baseAddress._upiIndex];
+            _operandCache.load(baseRegisterIndex, baseRegister, relAddress, baseRegister.getEffectivePermissions(accessInfo));
+        }
 
-        AbsoluteAddress absAddress = getAbsoluteAddress(baseRegister, relAddress);
-        checkBreakpoint(BreakpointComparison.Read, absAddress);
-        int readOffset = relAddress - baseRegister._lowerLimitNormalized;
-        long value = baseRegister._storage.get(readOffset);
         if (allowPartial) {
             boolean qWordMode = _designatorRegister.getQuarterWordModeEnabled();
             value = extractPartialWord(value, jField, qWordMode);
@@ -9311,11 +10081,36 @@ public class InstructionProcessor extends Processor implements Worker {
         setStorageLock(absAddress);
         checkBreakpoint(BreakpointComparison.Read, absAddress);
 
-        int readOffset = relAddress - baseRegister._lowerLimitNormalized;
+        int readOffset = (int) (relAddress - baseRegister._lowerLimitNormalized);
         long value = baseRegister._storage.get(readOffset);
         return extractPartialWord(value, jField, quarterWordMode);
     }
 
+    /**
+     * Totals the operand references this IP has made to storage in MSPs within (or outside of) its own affinity group
+     * @param local true to total references to MSPs in our affinity group, false for all others
+     */
+    private long getStorageReferences(
+        final boolean local
+    ) {
+        long total = 0;
+        InventoryManager im = InventoryManager.getInstance();
+        for (int upi = 0; upi < _storageReferences.length; ++upi) {
+            long count = _storageReferences[upi];
+            if (count != 0) {
+                try {
+                    MainStorageProcessor msp = im.getMainStorageProcessor(upi);
+                    if ((msp.getAffinityGroup() == getAffinityGroup()) == local) {
+                        total += count;
+                    }
+                } catch (UPINotAssignedException | UPIProcessorTypeException ex) {
+                    //  MSP has gone away since the references were made - it is neither local nor remote
+                }
+            }
+        }
+        return total;
+    }
+
     /**
      * Handles the current pending interrupt.  Do not call if no interrupt is pending.
      * @throws MachineInterrupt if some other interrupt needs to be raised
@@ -9353,11 +10148,11 @@ public class InstructionProcessor extends Processor implements Worker {
         }
 
         // Acquire a stack frame, and verify limits
-        IndexRegister icsXReg = (IndexRegister) _generalRegisterSet.getRegister(ICS_INDEX_REGISTER);
-        icsXReg = icsXReg.decrementModifier18();
-        _generalRegisterSet.setRegister(ICS_INDEX_REGISTER, icsXReg.getW());
-        long stackOffset = icsXReg.getH2();
-        long stackFrameSize = icsXReg.getXI();
+        long icsXReg = _generalRegisterSet.getValue(ICS_INDEX_REGISTER);
+        icsXReg = IndexRegister.decrementModifier18(icsXReg);
+        _generalRegisterSet.setValue(ICS_INDEX_REGISTER, icsXReg);
+        long stackOffset = Word36.getH2(icsXReg);
+        long stackFrameSize = IndexRegister.getXI(icsXReg);
         long stackFrameLimit = stackOffset + stackFrameSize;
         if ((stackFrameLimit - 1 > _baseRegisters[ICS_BASE_REGISTER]._upperLimitNormalized)
             || (stackOffset < _baseRegisters[ICS_BASE_REGISTER]._lowerLimitNormalized)) {
@@ -9398,13 +10193,11 @@ public class InstructionProcessor extends Processor implements Worker {
     private void incrementIndexRegisterInF0(
     ) {
         if ((_currentInstruction.getX() != 0) && (_currentInstruction.getH() != 0)) {
-            IndexRegister iReg = getExecOrUserXRegister((int) _currentInstruction.getX());
-            if (!_designatorRegister.getBasicModeEnabled()
-                && (_designatorRegister.getExecutive24BitIndexingEnabled())
-                && (_designatorRegister.getProcessorPrivilege() < 2)) {
-                setExecOrUserXRegister((int) _currentInstruction.getX(), IndexRegister.incrementModifier24(iReg.getW()));
-            } else {
-                setExecOrUserXRegister((int) _currentInstruction.getX(), IndexRegister.incrementModifier18(iReg.getW()));            }
+            boolean twentyFourBitMode = !_designatorRegister.getBasicModeEnabled()
+                                        && (_designatorRegister.getExecutive24BitIndexingEnabled())
+                                        && (_designatorRegister.getProcessorPrivilege() < 2);
+            _generalRegisterSet.incrementModifier(getExecOrUserXRegisterIndex((int) _currentInstruction.getX()),
+                                                  twentyFourBitMode);
         }
     }
 
@@ -9448,9 +10241,9 @@ public class InstructionProcessor extends Processor implements Worker {
             }
 
             //  Ignore partial-word transfers.
-            GeneralRegister reg = _generalRegisterSet.getRegister(relAddress);
+            long reg = _generalRegisterSet.getValue(relAddress);
             if (twosComplement) {
-                long sum = reg.getW();
+                long sum = reg;
                 if (sum == 0) {
                     result = true;
                 }
@@ -9459,18 +10252,18 @@ public class InstructionProcessor extends Processor implements Worker {
                     result = true;
                 }
 
-                _generalRegisterSet.setRegister(relAddress, sum);
+                _generalRegisterSet.setValue(relAddress, sum);
                 _designatorRegister.setCarry(false);
                 _designatorRegister.setOverflow(false);
             } else {
-                long sum = reg.getW();
+                long sum = reg;
                 result = Word36.isZero(sum);
                 Word36.StaticAdditionResult sar = Word36.add(sum, incrementValue);
                 if (Word36.isZero(sar._value)) {
                     result = true;
                 }
 
-                _generalRegisterSet.setRegister(relAddress, sar._value);
+                _generalRegisterSet.setValue(relAddress, sar._value);
                 _designatorRegister.setCarry(sar._flags._carry);
                 _designatorRegister.setOverflow(sar._flags._overflow);
             }
@@ -9489,7 +10282,7 @@ public class InstructionProcessor extends Processor implements Worker {
         setStorageLock(absAddress);
         checkBreakpoint(BreakpointComparison.Read, absAddress);
 
-        int readOffset = relAddress - baseRegister._lowerLimitNormalized;
+        int readOffset = (int) (relAddress - baseRegister._lowerLimitNormalized);
         long storageValue = baseRegister._storage.get(readOffset);
         boolean qWordMode = _designatorRegister.getQuarterWordModeEnabled();
         long sum = allowPartial ? extractPartialWord(storageValue, jField, qWordMode) : storageValue;
@@ -9581,6 +10374,61 @@ public class InstructionProcessor extends Processor implements Worker {
         return originalValue;
     }
 
+    /**
+     * Indicates whether there is anything which the run loop must attend to before the next instruction
+     * (UPI traffic, a pending interrupt or interrupt condition, or a change in run mode).
+     * Compiled blocks, like runInstructionBatch(), must return to the run loop whenever it has something to do.
+     */
+    private boolean isAttentionRequired() {
+        return _attention.get() != 0;
+    }
+
+    /**
+     * Indicates whether the breakpoint register could possibly match a reference of the given comparison type.
+     * References which cannot match are allowed to bypass checkBreakpoint() (and the absolute address it requires).
+     * @param comparison comparison type
+     * @return true if the breakpoint register is armed for this comparison type
+     */
+    private boolean isBreakpointArmed(
+        final BreakpointComparison comparison
+    ) {
+        if (_breakpointRegister == null) {
+            return false;
+        }
+
+        switch (comparison) {
+            case Fetch:     return _breakpointRegister._fetchFlag;
+            case Read:      return _breakpointRegister._readFlag;
+            case Write:     return _breakpointRegister._writeFlag;
+        }
+
+        return true;
+    }
+
+    /**
+     * Divide check test for the DI and DF instructions.
+     * Raised if the divisor is zero, or if the 72-bit dividend is not less than the divisor shifted left by 35 bits,
+     * where both are compared as unsigned 72-bit quantities.
+     * @param dividend 72-bit dividend
+     * @param divisor 72-bit (sign-extended) divisor
+     * @return true if a divide check applies
+     */
+    private static boolean isDivideCheck(
+        final long[] dividend,
+        final long[] divisor
+    ) {
+        if (DoubleWord36.isZero(divisor[0], divisor[1])) {
+            return true;
+        } else if (divisor[0] > 1) {
+            //  the shifted divisor cannot be less than 2^72
+            return false;
+        } else {
+            long shiftedDividend = (dividend[0] << 1) | (dividend[1] >>> 35);
+            long fullDivisor = (divisor[0] << 36) | divisor[1];
+            return shiftedDividend >= fullDivisor;
+        }
+    }
+
     /**
      * Checks a base register to see if we can read from it, given our current key/ring
      * @param baseRegister register of interest
@@ -9634,6 +10482,7 @@ public class InstructionProcessor extends Processor implements Worker {
         if ((_pendingInterrupt == null)
             || (interrupt.getInterruptClass().getCode() < _pendingInterrupt.getInterruptClass().getCode())) {
             _pendingInterrupt = interrupt;
+            postAttention(ATTENTION_INTERRUPT);
         }
     }
 
@@ -9652,17 +10501,17 @@ public class InstructionProcessor extends Processor implements Worker {
                                                                 0);
         }
 
-        IndexRegister rcsXReg = getExecOrUserXRegister(InstructionProcessor.RCS_INDEX_REGISTER);
-        int framePointer = (int) rcsXReg.getXM() + 2;
+        long rcsXReg = getExecOrUserXRegisterValue(InstructionProcessor.RCS_INDEX_REGISTER);
+        int framePointer = (int) IndexRegister.getXM(rcsXReg) + 2;
         if (framePointer > rcsBReg._upperLimitNormalized) {
             throw new RCSGenericStackUnderflowOverflowInterrupt(RCSGenericStackUnderflowOverflowInterrupt.Reason.Underflow,
                                                                 InstructionProcessor.RCS_BASE_REGISTER,
                                                                 framePointer);
         }
         setExecOrUserXRegister(InstructionProcessor.RCS_INDEX_REGISTER,
-                               IndexRegister.setXM(rcsXReg.getW(), framePointer));
+                               IndexRegister.setXM(rcsXReg, framePointer));
 
-        int offset = framePointer - rcsBReg._lowerLimitNormalized - 2;
+        int offset = (int) (framePointer - rcsBReg._lowerLimitNormalized - 2);
         long[] result = new long[2];
         //  ignore the null-dereference warning in the next line
         result[0] = rcsBReg._storage.get(offset++);
@@ -9692,9 +10541,9 @@ public class InstructionProcessor extends Processor implements Worker {
         final int framePointer
     ) {
         BaseRegister rcsBReg = _baseRegisters[InstructionProcessor.RCS_BASE_REGISTER];
-        IndexRegister rcsXReg = (IndexRegister) _generalRegisterSet.getRegister(InstructionProcessor.RCS_INDEX_REGISTER);
-        _generalRegisterSet.setRegister(InstructionProcessor.RCS_INDEX_REGISTER,
-                                        IndexRegister.setXM(rcsXReg.getW(), framePointer));
+        long rcsXReg = _generalRegisterSet.getValue(InstructionProcessor.RCS_INDEX_REGISTER);
+        _generalRegisterSet.setValue(InstructionProcessor.RCS_INDEX_REGISTER,
+                                        IndexRegister.setXM(rcsXReg, framePointer));
 
         long reentry = (long) _programAddressRegister.getLBDI() << 18;
         reentry |= (_programAddressRegister.getProgramCounter() + 1) & 0777777;
@@ -9703,7 +10552,7 @@ public class InstructionProcessor extends Processor implements Worker {
         state |= _designatorRegister.getW() & 0_000077_000000;
         state |= _indicatorKeyRegister.getAccessKey();
 
-        int offset = framePointer - rcsBReg._lowerLimitNormalized;
+        int offset = (int) (framePointer - rcsBReg._lowerLimitNormalized);
 
         rcsBReg._storage.set(offset++, reentry);
         rcsBReg._storage.set(offset, state);
@@ -9720,10 +10569,10 @@ public class InstructionProcessor extends Processor implements Worker {
         final int framePointer
     ) {
         BaseRegister rcsBReg = _baseRegisters[InstructionProcessor.RCS_BASE_REGISTER];
-        IndexRegister rcsXReg = getExecOrUserXRegister(InstructionProcessor.RCS_INDEX_REGISTER);
-        setExecOrUserXRegister(InstructionProcessor.RCS_INDEX_REGISTER, IndexRegister.setXM(rcsXReg.getW(), framePointer));
+        long rcsXReg = getExecOrUserXRegisterValue(InstructionProcessor.RCS_INDEX_REGISTER);
+        setExecOrUserXRegister(InstructionProcessor.RCS_INDEX_REGISTER, IndexRegister.setXM(rcsXReg, framePointer));
 
-        int offset = framePointer - rcsBReg._lowerLimitNormalized;
+        int offset = (int) (framePointer - rcsBReg._lowerLimitNormalized);
 
         //  ignore the null-dereference warning in the next line
         rcsBReg._storage.set(offset++, data[0]);
@@ -9746,9 +10595,9 @@ public class InstructionProcessor extends Processor implements Worker {
                 0);
         }
 
-        IndexRegister rcsXReg = (IndexRegister) _generalRegisterSet.getRegister(InstructionProcessor.RCS_INDEX_REGISTER);
+        long rcsXReg = _generalRegisterSet.getValue(InstructionProcessor.RCS_INDEX_REGISTER);
 
-        int framePointer = (int) rcsXReg.getXM() - 2;
+        int framePointer = (int) IndexRegister.getXM(rcsXReg) - 2;
         if (framePointer < rcsBReg._lowerLimitNormalized) {
             throw new RCSGenericStackUnderflowOverflowInterrupt(
                 RCSGenericStackUnderflowOverflowInterrupt.Reason.Overflow,
@@ -9769,7 +10618,7 @@ public class InstructionProcessor extends Processor implements Worker {
         final int registerIndex,
         final long value
     ) {
-        _generalRegisterSet.setRegister(getExecOrUserARegisterIndex(registerIndex), value);
+        _generalRegisterSet.setValue(getExecOrUserARegisterIndex(registerIndex), value);
     }
 
     /**
@@ -9782,7 +10631,7 @@ public class InstructionProcessor extends Processor implements Worker {
         final int registerIndex,
         final long value
     ) {
-        _generalRegisterSet.setRegister(getExecOrUserRRegisterIndex(registerIndex), value);
+        _generalRegisterSet.setValue(getExecOrUserRRegisterIndex(registerIndex), value);
     }
 
     /**
@@ -9795,7 +10644,7 @@ public class InstructionProcessor extends Processor implements Worker {
         final int registerIndex,
         final long value
     ) {
-        _generalRegisterSet.setRegister(getExecOrUserXRegisterIndex(registerIndex), value);
+        _generalRegisterSet.setValue(getExecOrUserXRegisterIndex(registerIndex), value);
     }
 
     /**
@@ -9838,49 +10687,64 @@ public class InstructionProcessor extends Processor implements Worker {
     private void setStorageLocks(
         final AbsoluteAddress[] absAddresses
     ) {
-        boolean weHaveLocks = false;
-        synchronized(_storageLocks) {
-            weHaveLocks = !_storageLocks.get(this).isEmpty();
-        }
+        boolean weHaveLocks = _heldStorageLockCount > 0;
 
-        //  Grab the storage lock, and compare the requested absolute addresses against those which are locked.
-        //  If any of them are locked, and not by us, bail out, yield control, then try again.
+        //  Try to lock each of the requested absolute addresses.
+        //  If any of them are locked, and not by us, release whatever we locked on this pass, yield control, then try again.
         //  If we need to bail out and we've already got at least one lock, die horribly - this situation should never occur.
-        //  Otherwise, lock all the ones not already locked by us and we're done.
+        int originalCount = _heldStorageLockCount;
         boolean done = false;
         while (!done) {
-            synchronized(_storageLocks) {
-                boolean okay = true;
-                Iterator<Map.Entry<InstructionProcessor, HashSet<AbsoluteAddress>>> it = _storageLocks.entrySet().iterator();
-                while (okay && it.hasNext()) {
-                    Map.Entry<InstructionProcessor, HashSet<AbsoluteAddress>> pair = it.next();
-                    InstructionProcessor ip = pair.getKey();
-                    HashSet<AbsoluteAddress> lockedAddresses = pair.getValue();
-                    if (ip != this) {
-                        for (AbsoluteAddress checkAddress : absAddresses) {
-                            if (lockedAddresses.contains(checkAddress)) {
-                                assert(!weHaveLocks);
-                                okay = false;
-                                break;
-                            }
-                        }
+            done = true;
+            for (AbsoluteAddress absAddr : absAddresses) {
+                long key = StorageLockTable.getKey(absAddr);
+                if (!holdsStorageLock(key)) {
+                    if (_storageLocks.tryLock(key, this) != null) {
+                        assert(!weHaveLocks);
+                        done = false;
+                        break;
                     }
-                }
 
-                if (okay) {
-                    for (AbsoluteAddress absAddr : absAddresses) {
-                        _storageLocks.get(this).add(absAddr);
+                    if (_heldStorageLockCount == _heldStorageLocks.length) {
+                        _heldStorageLocks = Arrays.copyOf(_heldStorageLocks, 2 * _heldStorageLocks.length);
                     }
-                    done = true;
+                    _heldStorageLocks[_heldStorageLockCount++] = key;
                 }
             }
 
             if (!done) {
+                releaseStorageLocks(originalCount);
                 Thread.yield();
             }
         }
     }
 
+    /**
+     * Indicates whether this IP already holds the lock for the given encoded address
+     */
+    private boolean holdsStorageLock(
+        final long key
+    ) {
+        for (int lx = 0; lx < _heldStorageLockCount; ++lx) {
+            if (_heldStorageLocks[lx] == key) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Releases storage locks held by this IP, back to the given number of held locks
+     * @param retainCount number of (least-recently acquired) locks to retain - zero to release everything
+     */
+    private void releaseStorageLocks(
+        final int retainCount
+    ) {
+        while (_heldStorageLockCount > retainCount) {
+            _storageLocks.unlock(_heldStorageLocks[--_heldStorageLockCount], this);
+        }
+    }
+
     /**
      * Simple one-liner to effect skipping the next instruction
      */
@@ -9933,7 +10797,7 @@ public class InstructionProcessor extends Processor implements Worker {
                     throw new ReferenceViolationInterrupt(ReferenceViolationInterrupt.ErrorType.ReadAccessViolation, false);
                 }
 
-                _generalRegisterSet.setRegister(grsIndex, operands[ox]);
+                _generalRegisterSet.setValue(grsIndex, operands[ox]);
             }
 
         } else {
@@ -9951,7 +10815,7 @@ public class InstructionProcessor extends Processor implements Worker {
             }
 
             //  Store the operands
-            int offset = relAddress - bReg._lowerLimitNormalized;
+            int offset = (int) (relAddress - bReg._lowerLimitNormalized);
             for (long operand : operands) {
                 bReg._storage.set(offset++, operand);
             }
@@ -10038,11 +10902,11 @@ public class InstructionProcessor extends Processor implements Worker {
             //  Otherwise, honor partial word transfer.
             if (!grsSource && allowPartial) {
                 boolean qWordMode = _designatorRegister.getQuarterWordModeEnabled();
-                long originalValue = _generalRegisterSet.getRegister(relAddress).getW();
+                long originalValue = _generalRegisterSet.getValue(relAddress);
                 long newValue = injectPartialWord(originalValue, operand, jField, qWordMode);
-                _generalRegisterSet.setRegister(relAddress, newValue);
+                _generalRegisterSet.setValue(relAddress, newValue);
             } else {
-                _generalRegisterSet.setRegister(relAddress, operand);
+                _generalRegisterSet.setValue(relAddress, operand);
             }
 
             return;
@@ -10053,14 +10917,33 @@ public class InstructionProcessor extends Processor implements Worker {
             baseRegisterIndex = findBaseRegisterIndex(relAddress, false);
         }
         BaseRegister bReg = _baseRegisters[baseRegisterIndex];
-        bReg.checkAccessLimits(relAddress, false, false, true, _indicatorKeyRegister.getAccessInfo());
+        int slot = isBreakpointArmed(BreakpointComparison.Write)
+                   ? -1 : _operandCache.lookup(baseRegisterIndex, bReg, relAddress, true);
+        if (slot >= 0) {
+            //  Fast path - limits and access have already been checked for this page, and no breakpoint is possible
+            incrementIndexRegisterInF0();
+
+            long[] array = _operandCache._arrays[slot];
+            int index = relAddress + _operandCache._biases[slot];
+            if (allowPartial) {
+                boolean qWordMode = _designatorRegister.getQuarterWordModeEnabled();
+                array[index] = injectPartialWord(array[index], operand, jField, qWordMode);
+            } else {
+                array[index] = operand;
+            }
+            ++_storageReferences[bReg._baseAddress._upiIndex];
+            return;
+        }
+
+        AccessInfo accessInfo = _indicatorKeyRegister.getAccessInfo();
+        bReg.checkAccessLimits(relAddress, false, false, true, accessInfo);
 
         incrementIndexRegisterInF0();
 
         AbsoluteAddress absAddress = getAbsoluteAddress(bReg, relAddress);
         checkBreakpoint(BreakpointComparison.Write, absAddress);
 
-        int offset = relAddress - bReg._lowerLimitNormalized;
+        int offset = (int) (relAddress - bReg._lowerLimitNormalized);
         if (allowPartial) {
             boolean qWordMode = _designatorRegister.getQuarterWordModeEnabled();
             long originalValue = bReg._storage.get(offset);
@@ -10069,6 +10952,9 @@ public class InstructionProcessor extends Processor implements Worker {
         } else {
             bReg._storage.set(offset, operand);
         }
+
+        ++_storageReferences[bReg._baseAddress._upiIndex];
+        _operandCache.load(baseRegisterIndex, bReg, relAddress, bReg.getEffectivePermissions(accessInfo));
     }
 
     /**
@@ -10099,7 +10985,7 @@ public class InstructionProcessor extends Processor implements Worker {
         setStorageLock(absAddress);
         checkBreakpoint(BreakpointComparison.Write, absAddress);
 
-        int offset = relAddress - bReg._lowerLimitNormalized;
+        int offset = (int) (relAddress - bReg._lowerLimitNormalized);
         long originalValue = bReg._storage.get(offset);
         long newValue = injectPartialWord(originalValue, operand, jField, quarterWordMode);
         bReg._storage.set(offset, newValue);
@@ -10129,7 +11015,7 @@ public class InstructionProcessor extends Processor implements Worker {
         setStorageLock(absAddress);
         checkBreakpoint(BreakpointComparison.Read, absAddress);
 
-        int offset = relAddress - bReg._lowerLimitNormalized;
+        int offset = (int) (relAddress - bReg._lowerLimitNormalized);
         long value = bReg._storage.get(offset);
         if (flag) {
             //  we want to set the lock, so it needs to be clear
@@ -10151,6 +11037,17 @@ public class InstructionProcessor extends Processor implements Worker {
         bReg._storage.set(offset, value);
     }
 
+    /**
+     * Writes the current instruction to the log, for instruction tracing
+     */
+    private void traceCurrentInstruction() {
+        String msg = String.format("Executing Instruction at %012o --> %s",
+                                   getProgramAddressRegister().get(),
+                                   _currentInstruction.interpret(!getDesignatorRegister().getBasicModeEnabled(),
+                                                                 getDesignatorRegister().getExecRegisterSetSelected()));
+        _logger.trace(msg);
+    }
+
 
     //  ----------------------------------------------------------------------------------------------------------------------------
     //  Async thread entry point and helpful sub-methods
@@ -10163,45 +11060,44 @@ public class InstructionProcessor extends Processor implements Worker {
     public void run() {
         _isRunning = true;
         EntryMessage em = _logger.traceEntry("worker thread");
-        synchronized(_storageLocks) {
-            _storageLocks.put(this, new HashSet<AbsoluteAddress>());
-        }
 
         _isReady = true;
         while (!_workerTerminate) {
             //  If the virtual processor is not running, then the thread only watches for UPI traffic,
-            //  and otherwise sleeps slowly, waiting for a notify() which would indicate something needs done.
+            //  and otherwise parks, waiting for a wake() which would indicate something needs done.
             if (isStopped()) {
+                _workerStopped = true;
                 if (!runCheckUPI()) {
-                    try {
-                        synchronized (this) { wait(100); }
-                    } catch (InterruptedException ex) {
-                        _logger.catching(ex);
-                    }
+                    waitForWork(100);
                 }
             } else {
+                _workerStopped = false;
+
                 //  This is the algorithm we execute when the processor is 'running'.
                 //  Check for UPI traffic - if none...
                 //  Check for pending machine interrupts - if none...
-                //  Execute (or continue executing) the current instruction.
-                //  If there is nothing at all to do, sleep a little bit.
+                //  Execute (or continue executing) the current instruction - or, in normal run mode,
+                //  a batch of instructions for as long as the attention word remains clear.
                 boolean somethingDone = runCheckUPI()
                                         || runCheckPendingInterruptConditions()
                                         || runCheckPendingInterrupts();
                 if (!somethingDone) {
-                    runCurrentInstruction();
+                    if ((_currentRunMode == RunMode.Normal) && !_midInstructionInterruptPoint) {
+                        runInstructionBatch();
+                    } else {
+                        runCurrentInstruction();
 
-                    // End of the cycle - should we stop?
-                    if (_currentRunMode == RunMode.SingleCycle) {
-                        stop(StopReason.Debug, 0);
+                        // End of the cycle - should we stop?
+                        if (_currentRunMode == RunMode.SingleCycle) {
+                            stop(StopReason.Debug, 0);
+                        }
                     }
                 }
             }
         }
 
-        synchronized(_storageLocks) {
-            _storageLocks.remove(this);
-        }
+        releaseStorageLocks(0);
+        _storageLocks.unlockAll(this);
 
         _logger.traceExit(em);
         _isReady = false;
@@ -10263,67 +11159,120 @@ public class InstructionProcessor extends Processor implements Worker {
     }
 
     /**
-     * Checks UPI containers to see if we need to respond to any UPI traffic
+     * Checks the UPI mailbox to see if we need to respond to any UPI traffic.
+     * This is invoked on every cycle other than those within an instruction batch,
+     * so the no-traffic case costs only a couple of volatile reads.
      * @return true if we found something to do, else false
      */
     private boolean runCheckUPI() {
+        //  Clear the wakeup before looking at the mailbox - anything posted after this point sets it again
+        clearAttention(ATTENTION_WAKE);
+
+        if (_upiMailbox.isEmpty()) {
+            return false;
+        }
+
         boolean result = false;
-        synchronized (_upiPendingAcknowledgements) {
-            for (Processor ackSource : _upiPendingAcknowledgements) {
-                if (_pendingUPISends.remove(ackSource)) {
+        for (UPIMailbox.Message msg = _upiMailbox.drain(); msg != null; msg = msg.getNext()) {
+            Processor source = msg._source;
+            if (msg._kind == UPIMailbox.Kind.Acknowledge) {
+                if (_pendingUPISends.remove(source)) {
                     result = true;
                 } else {
-                    _logger.error(String.format("Got unexpected ACK from %s", ackSource._name));
+                    _logger.error(String.format("Got unexpected ACK from %s", source._name));
                 }
+                continue;
+            }
+
+            switch (source._Type) {
+                case InputOutputProcessor:
+                    //  UPI Normal (IO completed)
+                    //  Ensure we are running, and raise a class 31 interrupt.
+                    //TODO - todo what?
+                    if (isStopped() && (_latestStopReason == StopReason.Checkpoint)) {
+                        //  Hold on to it - it is part of the checkpointed state, and is raised when we resume
+                        _checkpointIOCompletion = true;
+                    } else if (isStopped()) {
+                        _logger.error(String.format("Got a UPI SEND from %s while stopped", source._name));
+                    } else {
+                        raiseInterrupt(new UPINormalInterrupt(MachineInterrupt.Synchrony.Broadcast, 0));
+                    }
+                    break;
+
+                case InstructionProcessor:
+                    //  UPI Initial
+                    //  Ensure we are stopped, raise a class 30 interrupt, and start.
+                    //  TODO (how do we get the ICS and L0 BDT information?  It's a mystery...
+                    if (isStopped()) {
+                        raiseInterrupt(new UPIInitialInterrupt());
+                        start();
+                    } else {
+                        _logger.error(String.format("Got a UPI SEND from %s while running", source._name));
+                    }
+                    break;
+
+                case SystemProcessor:
+                    //  Initial Program Load
+                    //  Ensure we are stopped, raise a class 29 interrupt, and start.
+                    if (isStopped()) {
+                        raiseInterrupt(new InitialProgramLoadInterrupt());
+                        start();
+                    } else {
+                        _logger.error(String.format("Got a UPI SEND from %s while running", source._name));
+                    }
+                    break;
+
+                default:                    //  should never happen
+                    _logger.error(String.format("Got unexpected UPI interrupt from %s", source._name));
             }
         }
 
-        synchronized (_upiPendingInterrupts) {
-            for (Processor sendSource : _upiPendingInterrupts) {
-                switch (sendSource._Type) {
-                    case InputOutputProcessor:
-                        //  UPI Normal (IO completed)
-                        //  Ensure we are running, and raise a class 31 interrupt.
-                        //TODO - todo what?
-                        if (isStopped()) {
-                            _logger.error(String.format("Got a UPI SEND from %s while stopped", sendSource._name));
-                        } else {
-                            raiseInterrupt(new UPINormalInterrupt(MachineInterrupt.Synchrony.Broadcast, 0));
-                        }
-                        break;
+        return result;
+    }
 
-                    case InstructionProcessor:
-                        //  UPI Initial
-                        //  Ensure we are stopped, raise a class 30 interrupt, and start.
-                        //  TODO (how do we get the ICS and L0 BDT information?  It's a mystery...
-                        if (isStopped()) {
-                            raiseInterrupt(new UPIInitialInterrupt());
-                            start();
-                        } else {
-                            _logger.error(String.format("Got a UPI SEND from %s while running", sendSource._name));
-                        }
-                        break;
+    /**
+     * Runs the compiled block at PAR.PC, if there is one, compiling it first if the location has just become hot.
+     * When the block exits, the processor is in the same state as it would be had it interpreted the same instructions,
+     * except that the quantum timer has been charged for them all at once - so it may expire up to a block's worth
+     * of instructions late.  A block never raises an interrupt - it leaves any instruction which might do so
+     * to the interpreter.
+     * If control leaves the block without anything requiring attention, we go straight on to the compiled block
+     * (if any) at the new PAR.PC, for up to MAX_CHAINED_BLOCKS blocks.  Only the first of these is compared against
+     * storage on entry - a block stops the chain if it stores into the bank based on B0, and anything written
+     * by other processors or channels is noticed when we next come through the run loop.
+     * Compiled blocks do not trace, nor check breakpoints, so we do not run them if either is called for.
+     * @return true if we completed any instructions via compiled blocks, false if the caller should fetch an instruction
+     */
+    private boolean runCompiledBlock() {
+        if (!_jitEnabled
+            || (_currentRunMode != RunMode.Normal)
+            || _designatorRegister.getBasicModeEnabled()
+            || _traceInstructions
+            || isBreakpointArmed(BreakpointComparison.Fetch)
+            || isBreakpointArmed(BreakpointComparison.Read)
+            || isBreakpointArmed(BreakpointComparison.Write)) {
+            return false;
+        }
 
-                    case SystemProcessor:
-                        //  Initial Program Load
-                        //  Ensure we are stopped, raise a class 29 interrupt, and start.
-                        if (isStopped()) {
-                            raiseInterrupt(new InitialProgramLoadInterrupt());
-                            start();
-                        } else {
-                            _logger.error(String.format("Got a UPI SEND from %s while running", sendSource._name));
-                        }
-                        break;
+        CompiledBlock block = getCompiledBlock(true);
+        if (block == null) {
+            return false;
+        }
 
-                    default:                    //  should never happen
-                        _logger.error(String.format("Got unexpected UPI interrupt from %s", sendSource._name));
-                }
+        long instructions = _compiledBlockCache._instructions;
+        for (int chained = 0; chained < MAX_CHAINED_BLOCKS; ++chained) {
+            int limit = MAX_COMPILED_INSTRUCTIONS;
+            if (_designatorRegister.getQuantumTimerEnabled()) {
+                limit = (int) Math.max(1, Math.min(limit, _quantumTimer / COMPILED_INSTRUCTION_CHARGE + 1));
             }
 
-            _upiPendingInterrupts.clear();
+            if ((block._code.execute(this, limit) == 0)
+                || ((block = getCompiledBlock(false)) == null)) {
+                break;
+            }
         }
 
-        return result;
+        return _compiledBlockCache._instructions != instructions;
     }
 
     /**
@@ -10331,8 +11280,11 @@ public class InstructionProcessor extends Processor implements Worker {
      */
     private void runCurrentInstruction() {
         try {
-            //  If we don't have an instruction in F0, fetch one.
+            //  If we don't have an instruction in F0, run a compiled block if there is one here - else fetch one.
             if (!_indicatorKeyRegister.getInstructionInF0()) {
+                if (runCompiledBlock()) {
+                    return;
+                }
                 fetchInstruction();
             }
 
@@ -10344,9 +11296,7 @@ public class InstructionProcessor extends Processor implements Worker {
                 //  This is not surprising - can happen for basic mode indirect addressing.
                 //  Update the quantum timer so we can (eventually) interrupt a long or infinite sequence.
                 _midInstructionInterruptPoint = true;
-                if (_designatorRegister.getQuantumTimerEnabled()) {
-                    --_quantumTimer;
-                }
+                chargeQuantumTimer(1);
             }
 
             if (!_midInstructionInterruptPoint) {
@@ -10359,8 +11309,8 @@ public class InstructionProcessor extends Processor implements Worker {
 
                 //  Update IKR and (maybe) the quantum timer
                 _indicatorKeyRegister.setInstructionInF0(false);
-                if (_designatorRegister.getQuantumTimerEnabled()) {
-                    _quantumTimer -= _currentInstructionHandler.getQuantumTimerCharge();
+                if (_currentInstructionHandler != null) {
+                    chargeQuantumTimer(_currentInstructionHandler.getQuantumTimerCharge());
                 }
 
                 // Should we stop, given that we've completed an instruction?
@@ -10373,6 +11323,32 @@ public class InstructionProcessor extends Processor implements Worker {
         }
     }
 
+    /**
+     * Runs instructions for as long as nothing needs our attention, up to MAX_BATCHED_INSTRUCTIONS of them.
+     * The caller has just found no UPI traffic, no pending interrupt, and no interrupt condition to be raised.
+     * From here on, anything which changes that posts to the attention word, so it is all we need to check
+     * between instructions:
+     *      UPI traffic, and start, stop, and terminate requests, post ATTENTION_WAKE via wake()
+     *      raiseInterrupt() posts ATTENTION_INTERRUPT
+     *      breakpoint matches, the jump history threshold, and quantum timer expiry post ATTENTION_CONDITION
+     * Other interrupt conditions (such as software break) come about only by way of instructions which load
+     * the designator register, the indicator/key register, and the like - so the batch also ends after any instruction
+     * which is not batchable, and after any instruction which is left at a mid-instruction interrupt point.
+     * The caller then checks everything in the usual way before the next instruction.
+     */
+    private void runInstructionBatch() {
+        clearAttention(ATTENTION_INTERRUPT | ATTENTION_CONDITION);
+        for (int count = 0; count < MAX_BATCHED_INSTRUCTIONS; ++count) {
+            runCurrentInstruction();
+            if ((_attention.get() != 0)
+                || _midInstructionInterruptPoint
+                || (_currentDecodedInstruction == null)
+                || !_currentDecodedInstruction._batchable) {
+                break;
+            }
+        }
+    }
+
 
     //  ----------------------------------------------------------------------------------------------------------------------------
     //  Public instance methods
@@ -10410,12 +11386,18 @@ public class InstructionProcessor extends Processor implements Worker {
         for (int brx = 0; brx < 32; ++brx) {
             _baseRegisters[brx] = new BaseRegister();
         }
+        _operandCache.flush();
 
         for (int abx = 0; abx < 15; ++abx) {
             _activeBaseTableEntries[abx] = new ActiveBaseTableEntry(0, 0, 0);
         }
 
+        _instructionCache.clear();
+        _compiledBlockCache.clear();
+        _currentDecodedInstruction = null;
+        _currentInstructionHandler = null;
         _pendingUPISends.clear();
+        Arrays.fill(_storageReferences, 0);
         super.clear();
         _logger.traceExit(em);
     }
@@ -10430,7 +11412,20 @@ public class InstructionProcessor extends Processor implements Worker {
     ) {
         super.dump(writer);
         try {
-            writer.write("");//TODO actually, a whole lot to do here
+            writer.write(String.format("  Instruction cache hits:%d misses:%d\n",
+                                       _instructionCache._hits,
+                                       _instructionCache._misses));
+            writer.write(String.format("  Operand cache hits:%d misses:%d\n",
+                                       _operandCache._hits,
+                                       _operandCache._misses));
+            writer.write(String.format("  Storage references local:%d remote:%d\n",
+                                       getLocalStorageReferences(),
+                                       getRemoteStorageReferences()));
+            writer.write(String.format("  JIT %s blocks compiled:%d instructions executed:%d\n",
+                                       _jitEnabled ? "enabled" : "disabled",
+                                       _compiledBlockCache._blocksCompiled,
+                                       _compiledBlockCache._instructions));
+            //TODO actually, a whole lot to do here
         } catch (IOException ex) {
             _logger.catching(ex);
         }
@@ -10444,7 +11439,7 @@ public class InstructionProcessor extends Processor implements Worker {
         for (int grx = 0; grx < 128; grx += 8) {
             StringBuilder sb = new StringBuilder();
             for (int gry = 0; gry < 8; ++gry) {
-                long value = _generalRegisterSet.getRegister(grx + gry).getW();
+                long value = _generalRegisterSet.getValue(grx + gry);
                 sb.append(String.format("%012o ", value));
             }
             _logger.trace(String.format("  %06o  %s", grx, sb.toString()));
@@ -10462,6 +11457,127 @@ public class InstructionProcessor extends Processor implements Worker {
         }
     }
 
+    /**
+     * Reinstates the processor state produced by saveState(), possibly in another emulator process,
+     * so that start() resumes execution where it left off.
+     * Main storage must already contain the image which was current when the state was saved.
+     * @param state as produced by saveState()
+     * @throws AddressingExceptionInterrupt if a base register refers to storage which does not exist
+     */
+    public void restoreState(
+        final long[] state
+    ) throws AddressingExceptionInterrupt {
+        EntryMessage em = _logger.traceEntry("restoreState()");
+
+        if (state.length != STATE_SIZE) {
+            throw new RuntimeException(String.format("%s:Invalid processor state size %d", _name, state.length));
+        }
+
+        clear();
+        _programAddressRegister.set(state[STATE_PAR]);
+        _designatorRegister = new DesignatorRegister(state[STATE_DESIGNATOR_REGISTER]);
+        _indicatorKeyRegister = new IndicatorKeyRegister(state[STATE_INDICATOR_KEY_REGISTER]);
+        _quantumTimer = state[STATE_QUANTUM_TIMER];
+        _checkpointIOCompletion = (state[STATE_FLAGS] & STATE_FLAG_IO_COMPLETION) != 0;
+        _broadcastInterruptEligibility = (state[STATE_FLAGS] & STATE_FLAG_BROADCAST_ELIGIBLE) != 0;
+
+        for (int abx = 0; abx < _activeBaseTableEntries.length; ++abx) {
+            _activeBaseTableEntries[abx] = new ActiveBaseTableEntry(state[STATE_ACTIVE_BASE_TABLE + abx]);
+        }
+
+        for (int grx = 0; grx < 128; ++grx) {
+            _generalRegisterSet.setValue(grx, state[STATE_GENERAL_REGISTERS + grx]);
+        }
+
+        for (int brx = 0; brx < 32; ++brx) {
+            int sx = STATE_BASE_REGISTERS + (brx * STATE_BASE_REGISTER_WORDS);
+            long flags = state[sx];
+            if ((flags & 0_000200_000000L) != 0) {
+                _baseRegisters[brx] = new BaseRegister();
+            } else {
+                _baseRegisters[brx] =
+                    new BaseRegister(new AbsoluteAddress((int) state[sx + 3], (int) state[sx + 4], state[sx + 5]),
+                                     (flags & 0_000004_000000L) != 0,
+                                     state[sx + 1],
+                                     state[sx + 2],
+                                     new AccessInfo(flags & 0777777),
+                                     new AccessPermissions(false,
+                                                           (flags & 0_200000_000000L) != 0,
+                                                           (flags & 0_100000_000000L) != 0),
+                                     new AccessPermissions(false,
+                                                           (flags & 0_020000_000000L) != 0,
+                                                           (flags & 0_010000_000000L) != 0));
+            }
+        }
+        _operandCache.flush();
+
+        _logger.traceExit(em);
+    }
+
+    /**
+     * Captures the state of a stopped processor, such that restoreState() can reinstate it later.
+     * Storage locks and interrupts other than an IO completion cannot be carried over, so the processor
+     * must not be holding or have pending, any of those.
+     * Base registers are saved with their exact limits (rather than in the 4-word packet format used by the
+     * instruction set, which loses granularity).
+     * @return the state, as an array of 36-bit values
+     */
+    public long[] saveState() {
+        EntryMessage em = _logger.traceEntry("saveState()");
+
+        if (!isQuiescent()) {
+            throw new RuntimeException(String.format("%s:Cannot save state of a running processor", _name));
+        }
+
+        if (_midInstructionInterruptPoint) {
+            throw new RuntimeException(String.format("%s:Cannot save state at a mid-instruction interrupt point", _name));
+        }
+
+        boolean ioCompletion = _checkpointIOCompletion;
+        if (_pendingInterrupt instanceof UPINormalInterrupt) {
+            ioCompletion = true;
+        } else if (_pendingInterrupt != null) {
+            throw new RuntimeException(String.format("%s:Cannot save state with a pending %s interrupt",
+                                                     _name,
+                                                     _pendingInterrupt.getInterruptClass()));
+        }
+
+        if (_heldStorageLockCount > 0) {
+            throw new RuntimeException(String.format("%s:Cannot save state while holding storage locks", _name));
+        }
+
+        long[] state = new long[STATE_SIZE];
+        state[STATE_PAR] = _programAddressRegister.get();
+        state[STATE_DESIGNATOR_REGISTER] = _designatorRegister.getW();
+        state[STATE_INDICATOR_KEY_REGISTER] = _indicatorKeyRegister.getW();
+        state[STATE_QUANTUM_TIMER] = _quantumTimer;
+        state[STATE_FLAGS] = (ioCompletion ? STATE_FLAG_IO_COMPLETION : 0)
+                             | (_broadcastInterruptEligibility ? STATE_FLAG_BROADCAST_ELIGIBLE : 0);
+
+        for (int abx = 0; abx < _activeBaseTableEntries.length; ++abx) {
+            ActiveBaseTableEntry abte = _activeBaseTableEntries[abx];
+            state[STATE_ACTIVE_BASE_TABLE + abx] = (abte == null) ? 0 : abte._value;
+        }
+
+        for (int grx = 0; grx < 128; ++grx) {
+            state[STATE_GENERAL_REGISTERS + grx] = _generalRegisterSet.getValue(grx);
+        }
+
+        for (int brx = 0; brx < 32; ++brx) {
+            BaseRegister br = _baseRegisters[brx];
+            int sx = STATE_BASE_REGISTERS + (brx * STATE_BASE_REGISTER_WORDS);
+            state[sx] = br.getBaseRegisterWords()[0];
+            state[sx + 1] = br._lowerLimitNormalized;
+            state[sx + 2] = br._upperLimitNormalized;
+            state[sx + 3] = br._baseAddress._upiIndex;
+            state[sx + 4] = br._baseAddress._segment;
+            state[sx + 5] = br._baseAddress._offset;
+        }
+
+        _logger.traceExit(em);
+        return state;
+    }
+
     /**
      * Starts the processor.
      * Since the worker thread is always running, this merely wakes it up so that it can resume instruction processing.
@@ -10479,8 +11595,12 @@ public class InstructionProcessor extends Processor implements Worker {
                     InventoryManager im = InventoryManager.getInstance();
                     _systemProcessor = im.getSystemProcessor(InventoryManager.FIRST_SYSTEM_PROCESSOR_UPI_INDEX);
                     _preservedProgramAddressRegister.set(_programAddressRegister.get());
+                    if (_checkpointIOCompletion) {
+                        raiseInterrupt(new UPINormalInterrupt(MachineInterrupt.Synchrony.Broadcast, 0));
+                        _checkpointIOCompletion = false;
+                    }
                     _currentRunMode = RunMode.Normal;
-                    this.notify();
+                    wake();
                     result = true;
                 } catch (UPINotAssignedException | UPIProcessorTypeException ex) {
                     _logger.catching(ex);
@@ -10513,7 +11633,7 @@ public class InstructionProcessor extends Processor implements Worker {
                 _logger.error(String.format("Stopping:%s Detail:%o",
                                            stopReason.toString(),
                                            _latestStopDetail));
-                this.notify();
+                wake();
             }
         }
 
@@ -11,6 +11,7 @@ import com.kadware.komodo.hardwarelib.exceptions.*;
 import java.io.BufferedWriter;
 import java.io.IOException;
 import java.time.Instant;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -26,22 +27,42 @@ import org.apache.logging.log4j.message.EntryMessage;
 @SuppressWarnings("Duplicates")
 public class InventoryManager {
 
+    /**
+     * How dynamic storage is placed when the OS leaves the choice of MSP to us (see selectMainStorageProcessor())
+     */
+    public enum StoragePolicy {
+        Local,          //  an MSP in the requester's affinity group if there is one, else any MSP - the default
+        Interleaved,    //  all MSPs in turn, regardless of affinity
+    }
+
+    /**
+     * How the workers for channel modules and IOPs, and the completion handlers for devices, are run.
+     * IPs, MSPs, and SPs always have platform threads.  Applies to nodes created (and media mounted) after it is set.
+     */
+    public enum ExecutionModel {
+        PlatformThreads,    //  a dedicated platform thread for each worker - the default
+        VirtualThreads,     //  virtual threads, where the runtime supports them - otherwise, platform threads
+    }
+
     public static class Counters {
         final int _inputOutputProcessors;
         final int _instructionProcessors;
         final int _mainStorageProcessors;
         final int _systemProcessors;
+        final Map<String, SegmentArena.Statistics> _segmentStatistics;     //  by MSP name, for those which have arenas
 
         Counters(
             final int inputOutputProcessors,
             final int instructionProcessors,
             final int mainStorageProcessors,
-            final int systemProcessors
+            final int systemProcessors,
+            final Map<String, SegmentArena.Statistics> segmentStatistics
         ) {
             _inputOutputProcessors = inputOutputProcessors;
             _instructionProcessors = instructionProcessors;
             _mainStorageProcessors = mainStorageProcessors;
             _systemProcessors = systemProcessors;
+            _segmentStatistics = segmentStatistics;
         }
     }
 
@@ -59,6 +80,9 @@ public class InventoryManager {
     public final static int FIRST_INSTRUCTION_PROCESSOR_UPI_INDEX = FIRST_INPUT_OUTPUT_PROCESSOR_UPI_INDEX + MAX_INPUT_OUTPUT_PROCESSORS;
 
     private final Map<Integer, Processor> _processors = new HashMap<>();
+    private StoragePolicy _storagePolicy = StoragePolicy.Local;
+    private ExecutionModel _executionModel = ExecutionModel.PlatformThreads;
+    private int _nextStorageSelection = 0;     //  rotates selections among equally-suitable MSPs
     private final List<ChannelModule> _channelModules = new LinkedList<>();
     private final List<Device> _devices = new LinkedList<>();
 
@@ -224,6 +248,9 @@ public class InventoryManager {
             proc.terminate();
         }
         _processors.clear();
+        _storagePolicy = StoragePolicy.Local;
+        _executionModel = ExecutionModel.PlatformThreads;
+        _nextStorageSelection = 0;
 
         LOGGER.traceExit(em);
     }
@@ -280,11 +307,37 @@ public class InventoryManager {
     public MainStorageProcessor createMainStorageProcessor(
         final String name,
         final int fixedStorageSize
+    ) throws MaxNodesException {
+        return createMainStorageProcessor(name, fixedStorageSize, MainStorageProcessor.StorageType.Heap, null, false);
+    }
+
+    /**
+     * Creates a new MainStorageProcessor with a unique name and UPI.
+     * @param name processor name
+     * @param fixedStorageSize size, in words, of the fixed storage portion of the MSP
+     * @param storageType where the MSP allocates its storage
+     * @param storageDirectory for OffHeap storage, hugetlbfs directory to map storage from - null for none;
+     *                         for Mapped storage, directory containing the storage files - null for the default
+     * @param snapshotsEnabled true to allow the SP to take copy-on-write snapshots of the MSP's storage
+     * @return new processor object
+     * @throws MaxNodesException if too many processors of this type have been created
+     */
+    public MainStorageProcessor createMainStorageProcessor(
+        final String name,
+        final int fixedStorageSize,
+        final MainStorageProcessor.StorageType storageType,
+        final String storageDirectory,
+        final boolean snapshotsEnabled
     ) throws MaxNodesException {
         int upiIndex = FIRST_MAIN_STORAGE_PROCESSOR_UPI_INDEX;
         for (int px = 0; px < MAX_MAIN_STORAGE_PROCESSORS; ++px, ++upiIndex) {
             if (_processors.get(upiIndex) == null) {
-                MainStorageProcessor msp = new MainStorageProcessor(name, upiIndex, fixedStorageSize);
+                MainStorageProcessor msp = new MainStorageProcessor(name,
+                                                                   upiIndex,
+                                                                   fixedStorageSize,
+                                                                   storageType,
+                                                                   storageDirectory,
+                                                                   snapshotsEnabled);
                 _processors.put(upiIndex, msp);
                 msp.initialize();
                 return msp;
@@ -361,13 +414,17 @@ public class InventoryManager {
             for (Device d : _devices) {
                 d.dump(writer);
             }
+
+            writer.write("IO Buffer Pool -----------------------------\n");
+            IOBufferPool.getInstance().dump(writer);
         } catch (IOException ex) {
             LOGGER.catching(ex);
         }
     }
 
     /**
-     * Tally number of each type of processor in the current configuration
+     * Tally number of each type of processor in the current configuration,
+     * along with the segment arena statistics of each MSP
      * @return Counters object
      */
     public Counters getCounters(
@@ -376,17 +433,24 @@ public class InventoryManager {
         int ips = 0;
         int msps = 0;
         int sps = 0;
+        Map<String, SegmentArena.Statistics> segmentStatistics = new HashMap<>();
 
         for (Processor processor : _processors.values()) {
             switch (processor._Type) {
                 case InputOutputProcessor -> iops++;
                 case InstructionProcessor -> ips++;
-                case MainStorageProcessor -> msps++;
+                case MainStorageProcessor -> {
+                    msps++;
+                    SegmentArena.Statistics stats = ((MainStorageProcessor) processor).getSegmentStatistics();
+                    if (stats != null) {
+                        segmentStatistics.put(processor._name, stats);
+                    }
+                }
                 case SystemProcessor -> sps++;
             }
         }
 
-        return new Counters(iops, ips, msps, sps);
+        return new Counters(iops, ips, msps, sps, segmentStatistics);
     }
 
     /**
@@ -485,6 +549,44 @@ public class InventoryManager {
         return result;
     }
 
+    public ExecutionModel getExecutionModel() { return _executionModel; }
+    public void setExecutionModel(final ExecutionModel model) { _executionModel = model; }
+    public StoragePolicy getStoragePolicy() { return _storagePolicy; }
+    public void setStoragePolicy(final StoragePolicy policy) { _storagePolicy = policy; }
+
+    /**
+     * Chooses the MSP from which dynamic storage should be allocated, on behalf of a requester in the given
+     * affinity group.  Under the Local policy we choose among the MSPs in that group (or among all of them if the group
+     * has none), while under the Interleaved policy we choose among all of them.  Either way, successive requests
+     * rotate among the candidates, so that storage is spread evenly across them.
+     * @param affinityGroup affinity group of the requester
+     * @return chosen MSP
+     * @throws UPINotAssignedException if there are no MSPs at all
+     */
+    synchronized MainStorageProcessor selectMainStorageProcessor(
+        final int affinityGroup
+    ) throws UPINotAssignedException {
+        List<MainStorageProcessor> candidates = getMainStorageProcessors();
+        if (candidates.isEmpty()) {
+            throw new UPINotAssignedException(FIRST_MAIN_STORAGE_PROCESSOR_UPI_INDEX);
+        }
+
+        if (_storagePolicy == StoragePolicy.Local) {
+            List<MainStorageProcessor> local = new LinkedList<>();
+            for (MainStorageProcessor msp : candidates) {
+                if (msp.getAffinityGroup() == affinityGroup) {
+                    local.add(msp);
+                }
+            }
+            if (!local.isEmpty()) {
+                candidates = local;
+            }
+        }
+
+        candidates.sort(Comparator.comparingInt(msp -> msp._upiIndex));
+        return candidates.get(_nextStorageSelection++ % candidates.size());
+    }
+
     /**
      * Retrieves a particular processor given its UPI
      * @param upiIndex UPI of processor of interest
@@ -549,12 +651,37 @@ public class InventoryManager {
         final HardwareConfiguration config
     ) throws MaxNodesException {
         clearConfiguration();
+        if (config._storagePolicy != null) {
+            _storagePolicy = StoragePolicy.valueOf(config._storagePolicy);
+        }
+        if (config._executionModel != null) {
+            _executionModel = ExecutionModel.valueOf(config._executionModel);
+        }
+
         for (ProcessorDefinition pd : config._processorDefinitions) {
             Processor.ProcessorType ptype = Processor.ProcessorType.valueOf(pd._processorType);
+            int affinityGroup = (pd._affinityGroup == null) ? 0 : pd._affinityGroup;
             switch (ptype) {
-                case MainStorageProcessor -> createMainStorageProcessor(pd._nodeName, pd._fixedStorageSize);
+                case MainStorageProcessor -> {
+                    MainStorageProcessor.StorageType storageType = (pd._storageType == null)
+                                                                   ? MainStorageProcessor.StorageType.Heap
+                                                                   : MainStorageProcessor.StorageType.valueOf(pd._storageType);
+                    String storageDirectory = (storageType == MainStorageProcessor.StorageType.Mapped) ? pd._storageDirectory
+                                                                                                       : pd._hugePageDirectory;
+                    boolean snapshotsEnabled = (pd._snapshotsEnabled != null) && pd._snapshotsEnabled;
+                    MainStorageProcessor msp = createMainStorageProcessor(pd._nodeName,
+                                                                          pd._fixedStorageSize,
+                                                                          storageType,
+                                                                          storageDirectory,
+                                                                          snapshotsEnabled);
+                    msp.setAffinityGroup(affinityGroup);
+                }
                 case InputOutputProcessor -> createInputOutputProcessor(pd._nodeName);
-                case InstructionProcessor -> createInstructionProcessor(pd._nodeName);
+                case InstructionProcessor -> {
+                    InstructionProcessor ip = createInstructionProcessor(pd._nodeName);
+                    ip.setJitEnabled((config._jitEnabled != null) && config._jitEnabled);
+                    ip.setAffinityGroup(affinityGroup);
+                }
                 case SystemProcessor -> createSystemProcessor(pd._nodeName, pd._httpPort, pd._httpsPort, pd._adminCredentials);
             }
         }
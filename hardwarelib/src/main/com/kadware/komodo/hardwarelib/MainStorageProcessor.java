@@ -5,10 +5,29 @@
 package com.kadware.komodo.hardwarelib;
 
 import com.kadware.komodo.baselib.ArraySlice;
+import com.kadware.komodo.baselib.ArrayStorage;
+import com.kadware.komodo.baselib.CopyOnWriteArrayStorage;
+import com.kadware.komodo.baselib.HeapArrayStorage;
+import com.kadware.komodo.baselib.MappedArrayStorage;
+import com.kadware.komodo.baselib.OffHeapArrayStorage;
+import com.kadware.komodo.baselib.PathNames;
 import com.kadware.komodo.hardwarelib.interrupts.AddressingExceptionInterrupt;
 import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.concurrent.atomic.AtomicLong;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.message.EntryMessage;
@@ -27,14 +46,102 @@ import org.apache.logging.log4j.message.EntryMessage;
  *
  * This design relieves the burden of memory management from the operating system,
  * placing it in the host operating system which knows far better how to page.
+ *
+ * Dynamic segments of Heap or OffHeap storage are carved out of large chunks by a SegmentArena, so that allocation
+ * is cheap and most reallocations happen in place.  Mapped storage needs a file per segment, and snapshots need
+ * copy-on-write storage per segment, so for those each segment is allocated separately.
+ *
+ * A dynamic segment may be as large as MAX_SEGMENT_SIZE words, so that a single segment can hold a very large bank.
+ * Segments too large for a long[] are allocated off-heap (and carry the costs described below) whatever the storage
+ * type - segments of ordinary size are unaffected.
+ *
+ * Storage may be allocated on the Java heap (the default), or outside of it.  Off-heap storage is somewhat slower
+ * to reference (IPs do not cache operands from it, nor compile code which lives in it), but very large MSPs
+ * neither inflate the heap nor lengthen garbage collection pauses.
+ *
+ * Mapped storage is off-heap storage which lives in files, one per segment, in a storage directory.
+ * It survives the emulator process - when an MSP with mapped storage is created, it picks up whatever segments
+ * it finds in the directory, so that the SP can resume the system from a checkpoint without an IPL.
+ *
+ * Any type of storage may have snapshots enabled, in which case it is layered under copy-on-write storage
+ * so that the SP can take snapshots of it (which cost only the pages written after they are taken), restore them,
+ * and fork new systems from them.  Since such storage is never a simple long[], the same caveats apply as for
+ * off-heap storage.
  */
 @SuppressWarnings("Duplicates")
 public class MainStorageProcessor extends Processor {
 
+    /**
+     * Where storage for this MSP is allocated
+     */
+    public enum StorageType {
+        Heap,           //  long[] on the Java heap
+        OffHeap,        //  page-aligned direct buffers, optionally backed by huge pages
+        Mapped,         //  files in a storage directory, which persist across emulator restarts
+    }
+
+    /**
+     * Largest dynamic segment - every word of it must be reachable by the 32-bit offset of an AbsoluteAddress.
+     * Segments too large for a long[] are allocated off-heap, whatever the storage type.
+     */
+    static final long MAX_SEGMENT_SIZE = 1L << 32;
+
+    private static final Pattern SEGMENT_FILE_PATTERN = Pattern.compile("(.+)-(\\d+)\\.storage");
+
     private final ArraySlice _fixedStorage;
-    private final Map<Integer, ArraySlice> _dynamicStorage = new HashMap<>();
+    private final String _storageDirectory;
+    private final StorageType _storageType;
+    private boolean _restored = false;      //  true if our storage was picked up from a previous run, and not yet cleared
+    private final boolean _snapshotsEnabled;
+    private final Map<Integer, SegmentArena.Allocation> _allocations = new HashMap<>();
+    private final SegmentArena _arena;      //  null if segments are allocated separately
+    private final Map<Integer, ArraySlice> _dynamicStorage = new ConcurrentHashMap<>();
+    private int _lowestFreeSegment = 1;     //  no segment below this index is free
     private static final Logger LOGGER = LogManager.getLogger(MainStorageProcessor.class.getSimpleName());
 
+    /**
+     * Bumped whenever any MSP discards or replaces storage, so that consumers which cache information
+     * about storage content (i.e., IP decoded instruction caches) know to discard it.
+     */
+    private static final AtomicLong _storageGeneration = new AtomicLong(0);
+
+    /**
+     * The content of all the segments of an MSP at a particular point in time
+     */
+    public static class Snapshot {
+
+        private final Map<Integer, CopyOnWriteArrayStorage.Snapshot> _segments = new HashMap<>();
+        private final Map<Integer, ArraySlice> _slices = new HashMap<>();     //  storage of each segment when the snapshot was taken
+
+        /**
+         * Retrieves the snapshot of a particular segment
+         * @return snapshot, or null if the segment did not exist
+         */
+        public CopyOnWriteArrayStorage.Snapshot getSegment(
+            final int segmentIndex
+        ) {
+            return _segments.get(segmentIndex);
+        }
+
+        /**
+         * Indices of the segments which existed when the snapshot was taken
+         */
+        public Set<Integer> getSegmentIndices() {
+            return Collections.unmodifiableSet(_segments.keySet());
+        }
+
+        /**
+         * Number of pages which have been copied into the snapshot since it was taken
+         */
+        public long getPreservedPageCount() {
+            long result = 0;
+            for (CopyOnWriteArrayStorage.Snapshot segment : _segments.values()) {
+                result += segment.getPreservedPageCount();
+            }
+            return result;
+        }
+    }
+
     /**
      * constructor
      * @param name node name of the MSP
@@ -45,12 +152,168 @@ public class MainStorageProcessor extends Processor {
         final String name,
         final int upi,
         final int fixedStorageSize
+    ) {
+        this(name, upi, fixedStorageSize, StorageType.Heap, null, false);
+    }
+
+    /**
+     * constructor
+     * @param name node name of the MSP
+     * @param upi UPI for the MSP
+     * @param fixedStorageSize number of words of fixed storage - minimum of 256KW.
+     * @param storageType where fixed and dynamic storage are to be allocated
+     * @param storageDirectory for OffHeap storage, the hugetlbfs directory from which storage is to be mapped -
+     *                          null to use ordinary direct buffers.
+     *                         For Mapped storage, the directory containing the storage files -
+     *                          null for PathNames.STORAGE_ROOT_DIRECTORY
+     * @param snapshotsEnabled true to layer storage under copy-on-write storage, so that snapshots can be taken
+     */
+    MainStorageProcessor(
+        final String name,
+        final int upi,
+        final int fixedStorageSize,
+        final StorageType storageType,
+        final String storageDirectory,
+        final boolean snapshotsEnabled
     ) {
         super(ProcessorType.MainStorageProcessor, name, upi);
         if (fixedStorageSize < 256 * 1024) {
             throw new RuntimeException(String.format("Bad size for MSP:%d words", fixedStorageSize));
         }
-        _fixedStorage = new ArraySlice(new long[fixedStorageSize]);
+        _storageType = storageType;
+        _snapshotsEnabled = snapshotsEnabled;
+        if ((storageType == StorageType.Mapped) && (storageDirectory == null)) {
+            _storageDirectory = PathNames.STORAGE_ROOT_DIRECTORY;
+        } else {
+            _storageDirectory = storageDirectory;
+        }
+
+        if (storageType == StorageType.Mapped) {
+            _arena = null;
+            _restored = Files.exists(getSegmentPath(0));
+            _fixedStorage = mapStorage(0, fixedStorageSize);
+            restoreSegments();
+        } else {
+            _arena = snapshotsEnabled ? null : new SegmentArena(this::allocateStorage);
+            _fixedStorage = allocateStorage(fixedStorageSize);
+        }
+    }
+
+    /**
+     * Allocates zeroed storage of the configured type (other than Mapped).
+     * Heap storage cannot exceed the 2^31-1 words of a long[], so larger segments go off-heap regardless.
+     * @param storageSize size in words
+     * @return ArraySlice describing the entirety of the new storage
+     */
+    private ArraySlice allocateStorage(
+        final long storageSize
+    ) {
+        if ((_storageType == StorageType.OffHeap) || (storageSize > Integer.MAX_VALUE)) {
+            return createSlice(new OffHeapArrayStorage(storageSize, _storageDirectory));
+        } else if (_snapshotsEnabled) {
+            return createSlice(new HeapArrayStorage(storageSize));
+        } else {
+            return new ArraySlice(new long[(int) storageSize]);
+        }
+    }
+
+    /**
+     * Creates a slice describing the entirety of the given storage - layered under copy-on-write storage
+     * if snapshots are enabled
+     */
+    private ArraySlice createSlice(
+        final ArrayStorage storage
+    ) {
+        ArrayStorage sliceStorage = _snapshotsEnabled ? new CopyOnWriteArrayStorage(storage) : storage;
+        return new ArraySlice(sliceStorage, 0, storage.getSize());
+    }
+
+    /**
+     * Copies into every outstanding snapshot whatever they still need from the given storage,
+     * before it is discarded or (for Mapped storage) remapped
+     */
+    private static void detachSnapshots(
+        final ArraySlice slice
+    ) {
+        if ((slice._storage instanceof CopyOnWriteArrayStorage)
+            && (((CopyOnWriteArrayStorage) slice._storage).getSnapshotCount() > 0)) {
+            ((CopyOnWriteArrayStorage) slice._storage).detach();
+        }
+    }
+
+    /**
+     * Retrieves the storage underlying the given slice, beneath any copy-on-write storage
+     */
+    private static ArrayStorage getBaseStorage(
+        final ArraySlice slice
+    ) {
+        if (slice._storage instanceof CopyOnWriteArrayStorage) {
+            return ((CopyOnWriteArrayStorage) slice._storage).getBase();
+        } else {
+            return slice._storage;
+        }
+    }
+
+    /**
+     * Path of the file which contains a particular segment, for Mapped storage
+     */
+    private Path getSegmentPath(
+        final int segmentIndex
+    ) {
+        return getSegmentPath(Paths.get(_storageDirectory), segmentIndex);
+    }
+
+    /**
+     * Path of the file which contains a particular segment, for Mapped storage in the given directory
+     */
+    private Path getSegmentPath(
+        final Path directory,
+        final int segmentIndex
+    ) {
+        return directory.resolve(String.format("%s-%d.storage", _name, segmentIndex));
+    }
+
+    /**
+     * Maps the storage file for a segment, preserving any content it already has
+     * @param segmentIndex segment index
+     * @param storageSize size in words
+     * @return ArraySlice describing the entirety of the storage
+     */
+    private ArraySlice mapStorage(
+        final int segmentIndex,
+        final long storageSize
+    ) {
+        try {
+            Files.createDirectories(Paths.get(_storageDirectory));
+            return createSlice(new MappedArrayStorage(getSegmentPath(segmentIndex), storageSize));
+        } catch (IOException ex) {
+            throw new RuntimeException(String.format("%s cannot map segment %d:%s", _name, segmentIndex, ex.getMessage()));
+        }
+    }
+
+    /**
+     * Picks up any dynamic segments which a previous run left in the storage directory
+     */
+    private void restoreSegments() {
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(Paths.get(_storageDirectory), _name + "-*.storage")) {
+            for (Path path : stream) {
+                Matcher matcher = SEGMENT_FILE_PATTERN.matcher(path.getFileName().toString());
+                if (matcher.matches() && matcher.group(1).equals(_name)) {
+                    int segmentIndex = Integer.parseInt(matcher.group(2));
+                    MappedArrayStorage storage = (segmentIndex == 0) ? null : MappedArrayStorage.open(path);
+                    if (storage != null) {
+                        _dynamicStorage.put(segmentIndex, createSlice(storage));
+                    }
+                }
+            }
+        } catch (IOException ex) {
+            throw new RuntimeException(String.format("%s cannot restore segments:%s", _name, ex.getMessage()));
+        }
+
+        LOGGER.info(String.format("%s restored %d dynamic segments from %s",
+                                  _name,
+                                  _dynamicStorage.size(),
+                                  _storageDirectory));
     }
 
     /**
@@ -59,32 +322,90 @@ public class MainStorageProcessor extends Processor {
     @Override
     public void clear(
     ) {
-        _dynamicStorage.clear();
+        synchronized (this) {
+            for (Map.Entry<Integer, ArraySlice> entry : _dynamicStorage.entrySet()) {
+                detachSnapshots(entry.getValue());
+                if (_storageType == StorageType.Mapped) {
+                    deleteSegmentFile(entry.getKey());
+                }
+            }
+            _dynamicStorage.clear();
+            _allocations.clear();
+            if (_arena != null) {
+                _arena.clear();
+            }
+            _lowestFreeSegment = 1;
+            _restored = false;
+        }
         _fixedStorage.clear();
+        _storageGeneration.incrementAndGet();
         super.clear();
     }
 
+    /**
+     * Removes the file for a dynamic segment of Mapped storage.
+     * Existing mappings of the file remain valid until they are no longer referenced.
+     */
+    private void deleteSegmentFile(
+        final int segmentIndex
+    ) {
+        try {
+            Files.deleteIfExists(getSegmentPath(segmentIndex));
+        } catch (IOException ex) {
+            LOGGER.catching(ex);
+        }
+    }
+
+    /**
+     * Ensures that everything written to Mapped storage has reached the storage files.
+     * Does nothing for other storage types.
+     */
+    void forceStorage() {
+        if (_storageType == StorageType.Mapped) {
+            synchronized (this) {
+                ((MappedArrayStorage) getBaseStorage(_fixedStorage)).force();
+                for (ArraySlice slice : _dynamicStorage.values()) {
+                    ((MappedArrayStorage) getBaseStorage(slice)).force();
+                }
+            }
+        }
+    }
+
     /**
      * Allocates a new segment
-     * @param storageSize requested size in words - must be greater than zero
+     * @param storageSize requested size in words - must be greater than zero, and may be as large as the 32-bit
+     *                      offset of an absolute address can reach
      * @return segmentIndex of newly-allocated segment
      * @throws AddressingExceptionInterrupt if the given storageSize is incorrect
      */
     int createSegment(
-        final int storageSize
+        final long storageSize
     ) throws AddressingExceptionInterrupt {
-        if (storageSize <= 0) {
+        if ((storageSize <= 0) || (storageSize > MAX_SEGMENT_SIZE)) {
             throw new AddressingExceptionInterrupt(AddressingExceptionInterrupt.Reason.FatalAddressingException,
                                                    0,
                                                    0);
         }
 
         synchronized (this) {
-            int newSegment = 1;
+            int newSegment = _lowestFreeSegment;
             while (_dynamicStorage.containsKey(newSegment)) {
                 ++newSegment;
             }
-            ArraySlice newSlice = new ArraySlice(new long[storageSize]);
+            _lowestFreeSegment = newSegment + 1;
+
+            ArraySlice newSlice;
+            if ((_arena != null) && (storageSize <= Integer.MAX_VALUE)) {
+                SegmentArena.Allocation allocation = _arena.allocate((int) storageSize);
+                _allocations.put(newSegment, allocation);
+                newSlice = allocation._slice;
+            } else if (_storageType == StorageType.Mapped) {
+                //  There should not be a file for this segment, but if there is, it is stale
+                deleteSegmentFile(newSegment);
+                newSlice = mapStorage(newSegment, storageSize);
+            } else {
+                newSlice = allocateStorage(storageSize);
+            }
             _dynamicStorage.put(newSegment, newSlice);
             return newSegment;
         }
@@ -106,7 +427,103 @@ public class MainStorageProcessor extends Processor {
                                                        0);
             }
 
+            detachSnapshots(slice);
             _dynamicStorage.remove(segmentIndex);
+            _lowestFreeSegment = Math.min(_lowestFreeSegment, segmentIndex);
+            if (_allocations.containsKey(segmentIndex)) {
+                _arena.free(_allocations.remove(segmentIndex));
+            } else if (_storageType == StorageType.Mapped) {
+                deleteSegmentFile(segmentIndex);
+            }
+            _storageGeneration.incrementAndGet();
+        }
+    }
+
+    /**
+     * Discards a snapshot taken by takeSnapshot(), so that storage no longer needs to copy pages into it
+     */
+    void discardSnapshot(
+        final Snapshot snapshot
+    ) {
+        synchronized (this) {
+            for (CopyOnWriteArrayStorage.Snapshot segment : snapshot._segments.values()) {
+                segment.getSource().discardSnapshot(segment);
+            }
+        }
+    }
+
+    /**
+     * Writes the content of a snapshot into Mapped storage files in the given directory, such that an MSP with
+     * the same name, configured with Mapped storage in that directory, picks it up as its own storage.
+     * Any storage files already in the directory for an MSP of our name are replaced.
+     * This may be done while the system continues to run.
+     * @param snapshot snapshot taken by takeSnapshot()
+     * @param directory destination directory - must not be our own storage directory
+     * @throws IOException if the files cannot be written
+     */
+    void exportSnapshot(
+        final Snapshot snapshot,
+        final Path directory
+    ) throws IOException {
+        if ((_storageType == StorageType.Mapped)
+            && Files.exists(directory)
+            && Files.isSameFile(directory, Paths.get(_storageDirectory))) {
+            throw new IOException(String.format("%s cannot export a snapshot to its own storage directory", _name));
+        }
+
+        Files.createDirectories(directory);
+        List<Path> staleFiles = new LinkedList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, _name + "-*.storage")) {
+            for (Path path : stream) {
+                Matcher matcher = SEGMENT_FILE_PATTERN.matcher(path.getFileName().toString());
+                if (matcher.matches() && matcher.group(1).equals(_name)) {
+                    staleFiles.add(path);
+                }
+            }
+        }
+        for (Path path : staleFiles) {
+            Files.delete(path);
+        }
+
+        for (Map.Entry<Integer, CopyOnWriteArrayStorage.Snapshot> entry : snapshot._segments.entrySet()) {
+            CopyOnWriteArrayStorage.Snapshot segment = entry.getValue();
+            MappedArrayStorage storage = new MappedArrayStorage(getSegmentPath(directory, entry.getKey()), segment.getSize());
+            for (long wx = 0; wx < segment.getSize(); ++wx) {
+                storage.set(wx, segment.get(wx));
+            }
+            storage.force();
+        }
+    }
+
+    /**
+     * Indicates whether this MSP's storage was picked up from a previous run (Mapped storage only),
+     * and has not since been cleared
+     */
+    public boolean isRestored() {
+        return _restored;
+    }
+
+    /**
+     * Indicates whether this MSP's storage is layered under copy-on-write storage, so that snapshots can be taken
+     */
+    public boolean isSnapshotsEnabled() {
+        return _snapshotsEnabled;
+    }
+
+    /**
+     * Indicates where storage for this MSP is allocated
+     */
+    public StorageType getStorageType() {
+        return _storageType;
+    }
+
+    /**
+     * Retrieves the occupancy and fragmentation of the segment arena
+     * @return statistics, or null if this MSP allocates segments separately
+     */
+    SegmentArena.Statistics getSegmentStatistics() {
+        synchronized (this) {
+            return (_arena == null) ? null : _arena.getStatistics();
         }
     }
 
@@ -131,6 +548,14 @@ public class MainStorageProcessor extends Processor {
         }
     }
 
+    /**
+     * Retrieves the current storage generation, which changes whenever any MSP discards or replaces storage
+     * @return generation value
+     */
+    static long getStorageGeneration() {
+        return _storageGeneration.get();
+    }
+
     /**
      * MSPs have no ancestors
      * @param ancestor candidate ancestor
@@ -152,6 +577,58 @@ public class MainStorageProcessor extends Processor {
         final BufferedWriter writer
     ) {
         super.dump(writer);
+        try {
+            String detail = "";
+            ArrayStorage baseStorage = getBaseStorage(_fixedStorage);
+            if (baseStorage instanceof OffHeapArrayStorage) {
+                detail = ((OffHeapArrayStorage) baseStorage).isHugePageBacked() ? " (huge pages)" : " (direct buffers)";
+            }
+            if (_storageType == StorageType.Mapped) {
+                detail = String.format(" (%s%s)", _storageDirectory, _restored ? ", restored" : "");
+            }
+            writer.write(String.format("  StorageType:%s%s FixedStorage:%d words\n",
+                                       _storageType,
+                                       detail,
+                                       _fixedStorage.getSize()));
+            synchronized (this) {
+                for (Map.Entry<Integer, ArraySlice> entry : _dynamicStorage.entrySet()) {
+                    writer.write(String.format("    Segment %d: %d words\n", entry.getKey(), entry.getValue().getSize()));
+                }
+
+                if (_arena != null) {
+                    SegmentArena.Statistics stats = _arena.getStatistics();
+                    writer.write(String.format("  Arena: %d chunks, %d words, %d free (largest %d)"
+                                               + " fragmentation internal %.1f%% external %.1f%%,"
+                                               + " reallocations %d in place %d copied\n",
+                                               stats._chunks,
+                                               stats._chunkWords,
+                                               stats._freeWords,
+                                               stats._largestFreeBlock,
+                                               100.0 * stats.getInternalFragmentation(),
+                                               100.0 * stats.getExternalFragmentation(),
+                                               stats._inPlaceReallocations,
+                                               stats._copiedReallocations));
+                    for (int sc = 0; sc < SegmentArena.SIZE_CLASSES; ++sc) {
+                        if (stats._segmentsBySizeClass[sc] > 0) {
+                            writer.write(String.format("    Size class %d words: %d segments\n",
+                                                       SegmentArena.getClassCapacity(sc),
+                                                       stats._segmentsBySizeClass[sc]));
+                        }
+                    }
+                }
+
+                if (_snapshotsEnabled) {
+                    long faults = ((CopyOnWriteArrayStorage) _fixedStorage._storage).getFaultCount();
+                    int snapshots = ((CopyOnWriteArrayStorage) _fixedStorage._storage).getSnapshotCount();
+                    for (ArraySlice slice : _dynamicStorage.values()) {
+                        faults += ((CopyOnWriteArrayStorage) slice._storage).getFaultCount();
+                    }
+                    writer.write(String.format("  Snapshots:%d outstanding, %d page faults\n", snapshots, faults));
+                }
+            }
+        } catch (IOException ex) {
+            _logger.catching(ex);
+        }
     }
 
     /**
@@ -163,14 +640,21 @@ public class MainStorageProcessor extends Processor {
      * In any case, storageSize must be greater than zero.
      * Because this will almost certainly cause the allocation of a new ArraySlice object, the operating system
      * must replace any AbsoluteAddress objects which refer to this segment with new objects.
+     * Segments in the arena are resized in place where possible, in which case the content is not copied.
      * @param segmentIndex Index of the segment
      * @param storageSize new size of the segment
      * @return (probably new) ArraySlice associated with the segment
      */
-    synchronized ArraySlice resizeSegment(
+    ArraySlice resizeSegment(
         final int segmentIndex,
-        final int storageSize
+        final long storageSize
     ) throws AddressingExceptionInterrupt {
+        if ((storageSize <= 0) || (storageSize > MAX_SEGMENT_SIZE)) {
+            throw new AddressingExceptionInterrupt(AddressingExceptionInterrupt.Reason.FatalAddressingException,
+                                                   0,
+                                                   0);
+        }
+
         synchronized (this) {
             ArraySlice originalSlice = _dynamicStorage.get(segmentIndex);
             if (originalSlice == null) {
@@ -182,13 +666,103 @@ public class MainStorageProcessor extends Processor {
             if (storageSize == originalSlice.getSize()) {
                 return originalSlice;
             } else {
-                ArraySlice newSlice = originalSlice.copyOf(storageSize);
+                detachSnapshots(originalSlice);
+                //  Mapped storage is resized in place, in its file - the arena does so if it can - anything else is copied
+                ArraySlice newSlice;
+                if (_allocations.containsKey(segmentIndex) && (storageSize <= Integer.MAX_VALUE)) {
+                    SegmentArena.Allocation allocation = _arena.reallocate(_allocations.get(segmentIndex), (int) storageSize);
+                    _allocations.put(segmentIndex, allocation);
+                    newSlice = allocation._slice;
+                } else if (_storageType == StorageType.Mapped) {
+                    newSlice = mapStorage(segmentIndex, storageSize);
+                } else {
+                    //  Either not in the arena, or outgrowing it
+                    newSlice = allocateStorage(storageSize);
+                    newSlice.load(originalSlice, 0, Math.min(originalSlice.getSize(), storageSize), 0);
+                    if (_allocations.containsKey(segmentIndex)) {
+                        _arena.free(_allocations.remove(segmentIndex));
+                    }
+                }
                 _dynamicStorage.put(segmentIndex, newSlice);
+                _storageGeneration.incrementAndGet();
                 return newSlice;
             }
         }
     }
 
+    /**
+     * Restores all segments to their content at the time the given snapshot was taken.
+     * Segments which were created since then are deleted, and those which were deleted or resized are reallocated.
+     * The caller must see to it that nothing is referencing storage at the time.  The snapshot remains valid.
+     * @param snapshot snapshot taken by takeSnapshot()
+     */
+    void restoreSnapshot(
+        final Snapshot snapshot
+    ) {
+        synchronized (this) {
+            List<Integer> newSegments = new LinkedList<>(_dynamicStorage.keySet());
+            newSegments.removeAll(snapshot._segments.keySet());
+            for (int segmentIndex : newSegments) {
+                detachSnapshots(_dynamicStorage.remove(segmentIndex));
+                _lowestFreeSegment = Math.min(_lowestFreeSegment, segmentIndex);
+                if (_storageType == StorageType.Mapped) {
+                    deleteSegmentFile(segmentIndex);
+                }
+            }
+
+            for (Map.Entry<Integer, CopyOnWriteArrayStorage.Snapshot> entry : snapshot._segments.entrySet()) {
+                int segmentIndex = entry.getKey();
+                CopyOnWriteArrayStorage.Snapshot segment = entry.getValue();
+                ArraySlice currentSlice = (segmentIndex == 0) ? _fixedStorage : _dynamicStorage.get(segmentIndex);
+                if (currentSlice == snapshot._slices.get(segmentIndex)) {
+                    ((CopyOnWriteArrayStorage) currentSlice._storage).restoreSnapshot(segment);
+                } else {
+                    //  The segment has been deleted or resized since the snapshot was taken - reallocate it
+                    long storageSize = segment.getSize();
+                    if (currentSlice != null) {
+                        detachSnapshots(currentSlice);
+                    }
+
+                    ArraySlice newSlice;
+                    if (_storageType == StorageType.Mapped) {
+                        deleteSegmentFile(segmentIndex);
+                        newSlice = mapStorage(segmentIndex, storageSize);
+                    } else {
+                        newSlice = allocateStorage(storageSize);
+                    }
+                    for (long wx = 0; wx < storageSize; ++wx) {
+                        newSlice.set(wx, segment.get(wx));
+                    }
+                    _dynamicStorage.put(segmentIndex, newSlice);
+                }
+            }
+        }
+
+        _storageGeneration.incrementAndGet();
+    }
+
+    /**
+     * Takes a snapshot of all segments, which costs very little until storage is written.
+     * The caller must see to it that nothing is writing to storage at the time.
+     * @return snapshot, to be passed to restoreSnapshot(), exportSnapshot(), and eventually discardSnapshot()
+     */
+    Snapshot takeSnapshot() {
+        if (!_snapshotsEnabled) {
+            throw new RuntimeException(String.format("%s does not have snapshots enabled", _name));
+        }
+
+        Snapshot snapshot = new Snapshot();
+        synchronized (this) {
+            snapshot._slices.put(0, _fixedStorage);
+            snapshot._slices.putAll(_dynamicStorage);
+            for (Map.Entry<Integer, ArraySlice> entry : snapshot._slices.entrySet()) {
+                CopyOnWriteArrayStorage storage = (CopyOnWriteArrayStorage) entry.getValue()._storage;
+                snapshot._segments.put(entry.getKey(), storage.takeSnapshot());
+            }
+        }
+        return snapshot;
+    }
+
     /**
      * processor thread - we don't really do that much here
      */
@@ -199,25 +773,12 @@ public class MainStorageProcessor extends Processor {
 
         _isReady = true;
         while (!_workerTerminate) {
-            synchronized (_upiPendingAcknowledgements) {
-                for (Processor source : _upiPendingAcknowledgements) {
-                    LOGGER.error(String.format("%s received a UPI ACK from %s", _name, source._name));
-                }
-                _upiPendingAcknowledgements.clear();
-            }
-
-            synchronized (_upiPendingInterrupts) {
-                for (Processor source : _upiPendingInterrupts) {
-                    LOGGER.error(String.format("%s received a UPI interrupt from %s", _name, source._name));
-                }
-                _upiPendingInterrupts.clear();
+            for (UPIMailbox.Message msg = _upiMailbox.drain(); msg != null; msg = msg.getNext()) {
+                String kind = msg._kind == UPIMailbox.Kind.Acknowledge ? "ACK" : "interrupt";
+                LOGGER.error(String.format("%s received a UPI %s from %s", _name, kind, msg._source._name));
             }
 
-            try {
-                synchronized (this) { wait(100); }
-            } catch (InterruptedException ex) {
-                LOGGER.catching(ex);
-            }
+            waitForWork(100);
         }
 
         _logger.traceExit(em);
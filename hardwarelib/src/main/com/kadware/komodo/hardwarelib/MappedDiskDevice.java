@@ -0,0 +1,484 @@
+/*
+ * Copyright (c) 2018-2020 by Kurt Duncan - All Rights Reserved
+ */
+
+package com.kadware.komodo.hardwarelib;
+
+import com.kadware.komodo.baselib.*;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.LogManager;
+
+/**
+ * Class describing and implementing a DiskDevice which maps a native host file into memory.
+ * --
+ * The pack format is exactly that of FileSystemDiskDevice (see there), and packs may be mounted on either kind
+ * of device.  Rather than issuing host IOs, we copy data directly between the mapped pack and the IO buffer on the
+ * calling thread, so every IO is complete by the time handleIo() returns.  The entire pack must fit in one mapping,
+ * which is always the case for packs within the supported track counts.
+ * --
+ * Writes are visible to other mappings of the pack as soon as they are made, but they are not necessarily on the
+ * host device until they have been forced.  We force the pack on reset, unload, and termination, and also after every
+ * so many writes according to the force interval:
+ *      0:  only on reset, unload, and termination
+ *      1:  every write is forced (just the blocks written) before it is reported complete
+ *      n:  the entire pack is forced after every n writes
+ */
+@SuppressWarnings("Duplicates")
+public class MappedDiskDevice extends DiskDevice {
+
+    private static final Logger LOGGER = LogManager.getLogger(MappedDiskDevice.class);
+    private String _fileName;               //  only valid if mounted
+    private int _forceInterval = 0;
+    private long _forceCount = 0;
+    private MappedByteBuffer _mapping;      //  only valid if mounted
+    private int _writesSinceForce = 0;
+
+
+    //  ----------------------------------------------------------------------------------------------------------------------------
+    //  Constructor
+    //  ----------------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Standard constructor
+     */
+    MappedDiskDevice(
+        final String name
+    ) {
+        super(Model.FileSystemDisk, name);
+        _mapping = null;
+    }
+
+
+    //  ----------------------------------------------------------------------------------------------------------------------------
+    //  Node, Device implementations
+    //  ----------------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Checks to see whether this node is a valid descendant of the candidate node
+     */
+    @Override
+    public boolean canConnect(
+        final Node candidateAncestor
+    ) {
+        //  We can connect only to Byte channel modules
+        return candidateAncestor instanceof ByteChannelModule;
+    }
+
+    /**
+     * We are a byte interface device
+     */
+    @Override
+    public boolean hasByteInterface() { return true; }
+
+    /**
+     * We copy directly between the mapping and pooled direct buffers
+     */
+    @Override
+    public boolean hasDirectBufferInterface() { return true; }
+
+    /**
+     * We are NOT a word interface device
+     */
+    @Override
+    public boolean hasWordInterface() { return false; }
+
+    /**
+     * Nothing to be done here
+     */
+    @Override
+    public void initialize() {}
+
+    /**
+     * Overrides the call to set the ready flag, preventing setting true if we're not mounted.
+     */
+    @Override
+    public boolean setReady(
+        final boolean readyFlag
+    ) {
+        if (readyFlag && !_isMounted) {
+            return false;
+        }
+
+        return super.setReady(readyFlag);
+    }
+
+    /**
+     * Invoked just before tearing down the configuration.
+     * Anything which has not yet reached the host device, is forced there now.
+     */
+    @Override
+    public void terminate() {
+        if (_isMounted) {
+            force();
+        }
+    }
+
+
+    //  ----------------------------------------------------------------------------------------------------------------------------
+    //  DiskDevice implementation
+    //  ----------------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Produces a byte stream describing this disk device.
+     * This is an immediate IO, no waiting.
+     */
+    @Override
+    protected void ioGetInfo(
+        final IOInfo ioInfo
+    ) {
+        ++_miscCount;
+
+        ArraySlice as = getInfo();
+        ioInfo._byteBuffer = new byte[128];
+        as.pack(ioInfo._byteBuffer);
+        ioInfo._status = IOStatus.Successful;
+        _unitAttentionFlag = false;
+        ioInfo._source.signal(ioInfo);
+    }
+
+    /**
+     * Reads logical records from the mapped pack.
+     * This is an immediate IO, no waiting.
+     */
+    @Override
+    protected void ioRead(
+        final IOInfo ioInfo
+    ) {
+        ++_readCount;
+
+        IOStatus status = checkTransfer(ioInfo);
+        if (status == null) {
+            int byteOffset = (int) calculateByteOffset(ioInfo._blockId);
+            if (ioInfo._ioBuffer != null) {
+                ioInfo._ioBuffer.put(0, _mapping, byteOffset, ioInfo._transferCount);
+            } else {
+                ioInfo._byteBuffer = new byte[ioInfo._transferCount];
+                _mapping.get(byteOffset, ioInfo._byteBuffer, 0, ioInfo._transferCount);
+            }
+            _readBytes += ioInfo._transferCount;
+            ioInfo._transferredCount = ioInfo._transferCount;
+            status = IOStatus.Successful;
+        }
+
+        ioInfo._status = status;
+        ioInfo._source.signal(ioInfo);
+    }
+
+    /**
+     * Resets the device - we force the pack to the host device
+     */
+    @Override
+    protected void ioReset(
+        final IOInfo ioInfo
+    ) {
+        ++_miscCount;
+
+        if (!_readyFlag) {
+            ioInfo._status = IOStatus.NotReady;
+        } else {
+            ioInfo._status = force() ? IOStatus.Successful : IOStatus.SystemException;
+        }
+
+        ioInfo._source.signal(ioInfo);
+    }
+
+    /**
+     * Unmounts the currently-mounted media, leaving the device not-ready.
+     */
+    @Override
+    protected void ioUnload(
+        final IOInfo ioInfo
+    ) {
+        ++_miscCount;
+
+        if (!_readyFlag) {
+            ioInfo._status = IOStatus.NotReady;
+        } else {
+            ioInfo._status = unmount() ? IOStatus.Successful : IOStatus.SystemException;
+        }
+
+        ioInfo._source.signal(ioInfo);
+    }
+
+    /**
+     * Writes logical records to the mapped pack, forcing them if the force interval calls for it.
+     * This is an immediate IO, no waiting.
+     */
+    @Override
+    protected void ioWrite(
+        final IOInfo ioInfo
+    ) {
+        ++_writeCount;
+
+        IOStatus status = checkTransfer(ioInfo);
+        if ((status == null) && _isWriteProtected) {
+            status = IOStatus.WriteProtected;
+        }
+
+        if ((status == null)
+            && (((ioInfo._ioBuffer != null) ? ioInfo._ioBuffer.capacity() : ioInfo._byteBuffer.length) < ioInfo._transferCount)) {
+            status = IOStatus.BufferTooSmall;
+        }
+
+        if (status == null) {
+            int byteOffset = (int) calculateByteOffset(ioInfo._blockId);
+            if (ioInfo._ioBuffer != null) {
+                _mapping.put(byteOffset, ioInfo._ioBuffer, 0, ioInfo._transferCount);
+            } else {
+                _mapping.put(byteOffset, ioInfo._byteBuffer, 0, ioInfo._transferCount);
+            }
+            status = IOStatus.Successful;
+
+            if ((_forceInterval > 0) && (++_writesSinceForce >= _forceInterval)) {
+                boolean forced = (_forceInterval == 1) ? force(byteOffset, ioInfo._transferCount) : force();
+                if (!forced) {
+                    status = IOStatus.SystemException;
+                }
+            }
+
+            if (status == IOStatus.Successful) {
+                _writeBytes += ioInfo._transferCount;
+                ioInfo._transferredCount = ioInfo._transferCount;
+            }
+        }
+
+        ioInfo._status = status;
+        ioInfo._source.signal(ioInfo);
+    }
+
+
+    //  ----------------------------------------------------------------------------------------------------------------------------
+    //  Non-public methods
+    //  ----------------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Single method for converting a logical block ID to a physical byte offset.
+     * Caller must verify blockId is within the blockCount range.
+     */
+    long calculateByteOffset(
+        final long blockId
+    ) {
+        return _blockSize == null ? 0 : (blockId + 1) * _blockSize;
+    }
+
+    /**
+     * Checks the conditions common to reads and writes
+     * @return null if the transfer may proceed, else the status with which it should be rejected
+     */
+    private IOStatus checkTransfer(
+        final IOInfo ioInfo
+    ) {
+        if (!_readyFlag) {
+            return IOStatus.NotReady;
+        }
+
+        if (_unitAttentionFlag) {
+            return IOStatus.UnitAttention;
+        }
+
+        if (!isPrepped()) {
+            return IOStatus.NotPrepped;
+        }
+
+        long reqByteCount = ioInfo._transferCount;
+        if ((reqByteCount % _blockSize) != 0) {
+            return IOStatus.InvalidBlockSize;
+        }
+
+        long reqBlockId = ioInfo._blockId;
+        long reqBlockCount = reqByteCount / _blockSize;
+        if (reqBlockId >= _blockCount) {
+            return IOStatus.InvalidBlockId;
+        }
+
+        if (reqBlockId + reqBlockCount > _blockCount) {
+            return IOStatus.InvalidBlockCount;
+        }
+
+        return null;
+    }
+
+    /**
+     * Forces the entire pack to the host device
+     * @return true if successful, else false
+     */
+    private boolean force() {
+        return force(0, _mapping.capacity());
+    }
+
+    /**
+     * Forces part of the pack to the host device
+     * @return true if successful, else false
+     */
+    private boolean force(
+        final int byteOffset,
+        final int byteCount
+    ) {
+        try {
+            _mapping.force(byteOffset, byteCount);
+            ++_forceCount;
+            _writesSinceForce = 0;
+            return true;
+        } catch (Throwable t) {
+            LOGGER.error(String.format("Device %s Cannot force %s:%s", _name, _fileName, t.getMessage()));
+            return false;
+        }
+    }
+
+    long getForceCount() { return _forceCount; }
+
+    /**
+     * Mounts the media for this device.
+     * For a MappedDiskDevice, this entails opening a filesystem file and mapping the whole of it into memory.
+     * @param mediaName full path and file name for the pack to be mounted
+     * @return true if successful, else false
+     */
+    boolean mount(
+        final String mediaName
+    ) {
+        if (_isMounted) {
+            LOGGER.error(String.format("Device %s Cannot mount %s:Already mounted", _name, mediaName));
+            return false;
+        }
+
+        Path path = FileSystems.getDefault().getPath(mediaName);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            //  The scratch pad tells us the geometry, and hence how much to map - see FileSystemDiskDevice
+            ByteBuffer buffer = ByteBuffer.allocate(128);
+            if (channel.read(buffer, 0) < buffer.capacity()) {
+                LOGGER.error(String.format("Device %s Cannot mount %s:Failed to read some or all of scratch pad",
+                                           _name,
+                                           mediaName));
+                return false;
+            }
+
+            buffer.rewind();
+            FileSystemDiskDevice.ScratchPad scratchPad = new FileSystemDiskDevice.ScratchPad();
+            scratchPad.deserialize(buffer);
+            if (!scratchPad._identifier.equals(FileSystemDiskDevice.ScratchPad.EXPECTED_IDENTIFIER)) {
+                LOGGER.error(String.format("Device %s Cannot mount %s:ScratchPad identifier expected:'%s' got:'%s'",
+                                           _name,
+                                           mediaName,
+                                           FileSystemDiskDevice.ScratchPad.EXPECTED_IDENTIFIER,
+                                           scratchPad._identifier));
+                return false;
+            }
+
+            if (scratchPad._majorVersion != FileSystemDiskDevice.ScratchPad.EXPECTED_MAJOR_VERSION) {
+                LOGGER.error(String.format("Device %s Cannot mount %s:ScratchPad MajorVersion expected:%d got:%d",
+                                           _name,
+                                           mediaName,
+                                           FileSystemDiskDevice.ScratchPad.EXPECTED_MAJOR_VERSION,
+                                           scratchPad._majorVersion));
+                return false;
+            }
+
+            if (scratchPad._minorVersion != FileSystemDiskDevice.ScratchPad.EXPECTED_MINOR_VERSION) {
+                LOGGER.info(String.format("Device %s:ScratchPad MinorVersion expected:%d got:%d",
+                                          _name,
+                                          FileSystemDiskDevice.ScratchPad.EXPECTED_MINOR_VERSION,
+                                          scratchPad._minorVersion));
+            }
+
+            long mappingSize = (scratchPad._blockCount + 1) * scratchPad._blockSize;
+            if (mappingSize > Integer.MAX_VALUE) {
+                LOGGER.error(String.format("Device %s Cannot mount %s:Pack size %d is too large to be mapped",
+                                           _name,
+                                           mediaName,
+                                           mappingSize));
+                return false;
+            }
+
+            //  This extends the host file to the full size of the pack, if it is not already that large
+            _mapping = channel.map(FileChannel.MapMode.READ_WRITE, 0, mappingSize);
+            _blockSize = scratchPad._blockSize;
+            _blockCount = scratchPad._blockCount;
+            _isMounted = true;
+            _fileName = mediaName;
+            _writesSinceForce = 0;
+            LOGGER.info(String.format("Device %s Mount %s successful", _name, mediaName));
+        } catch (IOException ex) {
+            LOGGER.error(String.format("Device %s Cannot mount %s:Caught %s", _name, mediaName, ex.getMessage()));
+            _mapping = null;
+            return false;
+        }
+
+        return true;
+    }
+
+
+    //  ----------------------------------------------------------------------------------------------------------------------------
+    //  Public methods
+    //  ----------------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Nothing to clear
+     */
+    @Override
+    public void clear() {}
+
+    /**
+     * For debugging purposes
+     */
+    @Override
+    public void dump(
+        final BufferedWriter writer
+    ) {
+        super.dump(writer);
+        try {
+            writer.write(String.format("  File Name:       %s\n", String.valueOf(_fileName)));
+            writer.write(String.format("  Force Interval:  %d\n", _forceInterval));
+            writer.write(String.format("  Force Count:     %d\n", _forceCount));
+        } catch (IOException ex) {
+            LOGGER.catching(ex);
+        }
+    }
+
+    public int getForceInterval() { return _forceInterval; }
+
+    /**
+     * Sets the number of writes after which the pack is forced to the host device - see the class description
+     */
+    public void setForceInterval(
+        final int writes
+    ) {
+        if (writes < 0) {
+            throw new RuntimeException(String.format("Invalid force interval %d", writes));
+        }
+        _forceInterval = writes;
+    }
+
+    /**
+     * Unmounts the currently-mounted media
+     * @return true if successful, else false
+     */
+    boolean unmount(
+    ) {
+        if (!_isMounted) {
+            LOGGER.error(String.format("Device %s Cannot unmount pack - no pack mounted", _name));
+            return false;
+        }
+
+        //  Clear ready flag to prevent any more IOs from coming in.
+        setReady(false);
+
+        //  The mapping cannot be explicitly released - it goes away when the buffer is collected
+        boolean result = force();
+        _mapping = null;
+        _blockCount = null;
+        _blockSize = null;
+        _isMounted = false;
+        _isWriteProtected = true;
+        _fileName = null;
+
+        return result;
+    }
+}
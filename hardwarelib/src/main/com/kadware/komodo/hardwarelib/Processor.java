@@ -12,10 +12,11 @@ import com.kadware.komodo.hardwarelib.interrupts.AddressingExceptionInterrupt;
 import java.io.BufferedWriter;
 import java.io.IOException;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.message.EntryMessage;
@@ -97,18 +98,34 @@ public abstract class Processor extends Node implements Worker {
      */
     public final int _upiIndex;
 
+    /**
+     * Locality group for IPs and MSPs - processors in the same group are considered local to one another.
+     * The JVM gives us no way to pin threads or memory to a host NUMA node, so it is up to whoever runs the emulator
+     * to make this so (i.e., by way of numactl) - we merely use it to place storage, and to count references.
+     * Set from the hardware configuration before the processor is started.
+     */
+    private volatile int _affinityGroup = 0;
+
     /**
      * Indicates the current target IP for broadcasts.  Must be kept updated.
      */
     private static InstructionProcessor _broadcastDestination = null;
 
     /**
-     * When an interrupt or an ACK is sent to this processor, an entry is made in the
-     * appropriate set below.  It is up to the individual processor to watch these
-     * sets, and take any appropriate action.
+     * When an interrupt or an ACK is sent to this processor, a message is posted to this mailbox.
+     * It is up to the individual processor to drain the mailbox, and take any appropriate action.
+     */
+    final UPIMailbox _upiMailbox = new UPIMailbox();
+
+    /**
+     * Attention word for the worker thread - a set of ATTENTION_* flags, any of which indicates that the worker thread
+     * has something to attend to.  wake() sets ATTENTION_WAKE, so that UPI traffic, and start, stop, and terminate
+     * requests all show up here.  Subclasses may define further flags for conditions of their own.
+     * A worker which runs in a tight loop thus needs to check only this one volatile word on each iteration.
+     * The worker clears the flags as it attends to the things they represent.
      */
-    final Set<Processor> _upiPendingAcknowledgements = new HashSet<>();
-    final Set<Processor> _upiPendingInterrupts = new HashSet<>();
+    final AtomicInteger _attention = new AtomicInteger();
+    static final int ATTENTION_WAKE = 0x01;
 
     /**
      * Lookup table of mailbox slots for UPI communication.
@@ -135,8 +152,10 @@ public abstract class Processor extends Node implements Worker {
      * All processors must implement a thread, if for no other reason than to monitor the UPI tables.
      * IPs, IOPs, and SPs will all have something useful to do.
      * MSPs will probably not.
+     * When the worker has nothing to do, it parks itself via waitForWork(), and anything which posts work for it
+     * (UPI traffic, state changes, termination) unparks it via wake().
      */
-    protected boolean _workerTerminate;         //  worker thread must monitor this, and shut down when it goes true
+    protected volatile boolean _workerTerminate; //  worker thread must monitor this, and shut down when it goes true
     protected final Thread _workerThread;       //  reference to worker thread.
 
     protected boolean _isReady;                 //  Processor is ready for work (implies _isRunning)
@@ -156,8 +175,11 @@ public abstract class Processor extends Node implements Worker {
         _Type = processorType;
         _upiIndex = upiIndex;
 
-        //  Start the processor thread
-        _workerThread = new Thread(this);
+        //  Create the processor thread - IOPs follow the execution model of the inventory manager,
+        //  the others always have a platform thread of their own.
+        _workerThread = (processorType == ProcessorType.InputOutputProcessor)
+                        ? WorkerThreads.createThread(this, name)
+                        : WorkerThreads.createPlatformThread(this, name);
         _workerTerminate = false;
     }
 
@@ -175,8 +197,7 @@ public abstract class Processor extends Node implements Worker {
     public void clear(
     ) {
         _broadcastDestination = null;
-        _upiPendingInterrupts.clear();
-        _upiPendingAcknowledgements.clear();
+        _upiMailbox.clear();
     }
 
 
@@ -194,32 +215,39 @@ public abstract class Processor extends Node implements Worker {
     ) {
         super.dump(writer);
         try {
-            writer.write(String.format("  ProcessorType:%s Running:%s Ready:%s\n", _Type.toString(), _isRunning, _isReady));
+            writer.write(String.format("  ProcessorType:%s Running:%s Ready:%s AffinityGroup:%d\n",
+                                       _Type.toString(),
+                                       _isRunning,
+                                       _isReady,
+                                       _affinityGroup));
 
             StringBuilder sb = new StringBuilder();
-            sb.append("  Pending SENDs from: ");
-            synchronized (_upiPendingInterrupts) {
-                for (Processor p : _upiPendingInterrupts) {
-                    sb.append(String.format("  %s(%d)", p._name, p._upiIndex));
-                }
+            sb.append("  Pending UPI messages:");
+            for (UPIMailbox.Message msg = _upiMailbox.peek(); msg != null; msg = msg.getNext()) {
+                sb.append(String.format("  %s from %s(%d)", msg._kind, msg._source._name, msg._source._upiIndex));
             }
             sb.append("\n");
             writer.write(sb.toString());
 
-            sb = new StringBuilder();
-            sb.append("  Pending ACKs from: ");
-            synchronized (_upiPendingAcknowledgements) {
-                for (Processor p : _upiPendingAcknowledgements) {
-                    sb.append(String.format("  %s(%d)", p._name, p._upiIndex));
+            writer.write("  UPI latency by source:\n");
+            for (int sx = 0; sx < UPIMailbox.MAX_SOURCES; ++sx) {
+                long count = _upiMailbox.getMessageCount(sx);
+                if (count > 0) {
+                    writer.write(String.format("    UPI %d: messages:%d mean:%dns max:%dns\n",
+                                               sx,
+                                               count,
+                                               _upiMailbox.getMeanLatency(sx),
+                                               _upiMailbox.getMaximumLatency(sx)));
                 }
             }
-            sb.append("\n");
-            writer.write(sb.toString());
         } catch (IOException ex) {
             _logger.catching(ex);
         }
     }
 
+    public final int getAffinityGroup() { return _affinityGroup; }
+    void setAffinityGroup(final int group) { _affinityGroup = group; }
+
     @Override
     public final String getWorkerName() { return _name; }
 
@@ -250,7 +278,7 @@ public abstract class Processor extends Node implements Worker {
     public final void terminate() {
         EntryMessage em = _logger.traceEntry("terminate()");
         _workerTerminate = true;
-        synchronized (this) { notify(); }
+        wake();
         while (_workerThread.isAlive()) {
             Thread.onSpinWait();
         }
@@ -269,12 +297,9 @@ public abstract class Processor extends Node implements Worker {
     ) throws UPINotAssignedException  {
         EntryMessage em = _logger.traceEntry("upiAcknowledge(upiIndex={})", upiIndex);
         Processor destProc = InventoryManager.getInstance().getProcessor(upiIndex);
-        boolean result;
-        synchronized (destProc._upiPendingAcknowledgements) {
-            result = destProc._upiPendingAcknowledgements.add(this);
-            if (result) {
-                synchronized (destProc) { destProc.notify(); }
-            }
+        boolean result = destProc._upiMailbox.post(this, UPIMailbox.Kind.Acknowledge);
+        if (result) {
+            destProc.wake();
         }
         _logger.traceExit(em, result);
         return result;
@@ -292,12 +317,9 @@ public abstract class Processor extends Node implements Worker {
     ) throws InvalidSystemConfigurationException {
         EntryMessage em = _logger.traceEntry("upSendBroadcast()");
         InstructionProcessor ip = getBroadcastProcessor();
-        boolean result;
-        synchronized (ip._upiPendingInterrupts) {
-            result = ip._upiPendingInterrupts.add(this);
-            if (result) {
-                synchronized (ip) { ip.notify(); }
-            }
+        boolean result = ip._upiMailbox.post(this, UPIMailbox.Kind.Interrupt);
+        if (result) {
+            ip.wake();
         }
         _logger.traceExit(em, result);
         return result;
@@ -316,17 +338,63 @@ public abstract class Processor extends Node implements Worker {
     ) throws UPINotAssignedException  {
         EntryMessage em = _logger.traceEntry("upSendDirected(upiIndex={}})", upiIndex);
         Processor destProc = InventoryManager.getInstance().getProcessor(upiIndex);
-        boolean result;
-        synchronized (destProc._upiPendingInterrupts) {
-            result = destProc._upiPendingInterrupts.add(this);
-            if (result) {
-                synchronized (destProc) { destProc.notify(); }
-            }
+        boolean result = destProc._upiMailbox.post(this, UPIMailbox.Kind.Interrupt);
+        if (result) {
+            destProc.wake();
         }
         _logger.traceExit(em, result);
         return result;
     }
 
+    /**
+     * Clears the given flags in the attention word
+     * @param flags ATTENTION_* flags to be cleared
+     */
+    final void clearAttention(
+        final int flags
+    ) {
+        int value;
+        do {
+            value = _attention.get();
+        } while (((value & flags) != 0) && !_attention.compareAndSet(value, value & ~flags));
+    }
+
+    /**
+     * Sets the given flags in the attention word
+     * @param flags ATTENTION_* flags to be set
+     */
+    final void postAttention(
+        final int flags
+    ) {
+        int value;
+        do {
+            value = _attention.get();
+        } while (((value & flags) != flags) && !_attention.compareAndSet(value, value | flags));
+    }
+
+    /**
+     * Parks the worker thread until it is woken via wake(), or until the given timeout expires.
+     * Spurious returns are possible, so the worker must re-check its work conditions upon return.
+     * Must only be invoked by the worker thread.
+     * @param timeoutMillis maximum time to wait, in milliseconds
+     */
+    protected final void waitForWork(
+        final long timeoutMillis
+    ) {
+        LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(timeoutMillis));
+    }
+
+    /**
+     * Wakes the worker thread if it is parked in waitForWork().
+     * If it is not parked, the wakeup is retained and the next waitForWork() returns immediately,
+     * so a wakeup posted while the worker is busy is never lost.
+     * The wakeup is also posted to the attention word, for workers which do not park while they are busy.
+     */
+    final void wake() {
+        postAttention(ATTENTION_WAKE);
+        LockSupport.unpark(_workerThread);
+    }
+
 
     //  ----------------------------------------------------------------------------------------------------------------------------
     //  Static methods
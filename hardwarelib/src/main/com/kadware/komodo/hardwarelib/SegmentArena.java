@@ -0,0 +1,436 @@
+/*
+ * Copyright (c) 2018-2020 by Kurt Duncan - All Rights Reserved
+ */
+
+package com.kadware.komodo.hardwarelib;
+
+import com.kadware.komodo.baselib.ArraySlice;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.IntFunction;
+
+/**
+ * Carves the dynamic segments of an MSP out of large chunks of storage, rather than allocating storage
+ * for each segment separately.
+ * --
+ * Requests are rounded up to a size class - four classes per power of two, so that no more than a quarter of any
+ * segment is wasted - and the rounded capacity is taken from the smallest free block which will hold it (best fit).
+ * Free blocks are coalesced with their neighbours as soon as they are freed, and a chunk which becomes
+ * completely free is released (unless it is our only one).
+ * Reallocation is done in place whenever it can be - within the segment's capacity, by taking over the free block
+ * which follows it, or (when shrinking) by giving back its excess capacity - and only otherwise does it copy.
+ * Segments too large to share a chunk get a chunk of their own.
+ * --
+ * Since segments share chunks, any ArraySlice which still refers to a segment after it has been freed or moved
+ * refers to storage which may since have been given to some other segment.
+ * The methods are not thread-safe - the MSP serializes them.
+ */
+class SegmentArena {
+
+    static final int CHUNK_SIZE = 1 << 21;                      //  2M words (16MB of long) per shared chunk
+    static final int LARGE_THRESHOLD = CHUNK_SIZE >> 2;         //  segments larger than this get a chunk of their own
+    static final int MIN_CAPACITY = 64;                         //  smallest size class, in words
+    private static final int MIN_SHIFT = 6;                     //  log2(MIN_CAPACITY)
+    static final int SIZE_CLASSES = 1 + (31 - MIN_SHIFT) * 4;   //  class 0 is MIN_CAPACITY, then four per power of two
+
+    private final IntFunction<ArraySlice> _chunkAllocator;      //  allocates zeroed storage for chunks
+    private final List<Chunk> _chunks = new LinkedList<>();
+    private final TreeSet<FreeBlock> _freeBlocks = new TreeSet<>(FreeBlock.BY_SIZE);
+    private int _nextChunkIdentifier = 0;
+
+    //  Statistics
+    private long _copiedReallocations = 0;
+    private long _inPlaceReallocations = 0;
+    private final long[] _segmentsBySizeClass = new long[SIZE_CLASSES];
+    private final long[] _wordsBySizeClass = new long[SIZE_CLASSES];    //  capacity of live segments, by class
+    private long _requestedWords = 0;                           //  words actually requested by live segments
+
+    /**
+     * A region of contiguous storage out of which segments are carved
+     */
+    private static class Chunk {
+
+        private final boolean _dedicated;                       //  true if it belongs to a single large segment
+        private final TreeMap<Integer, FreeBlock> _freeBlocks = new TreeMap<>();   //  keyed by offset
+        private final int _identifier;
+        private int _segments = 0;
+        private final ArraySlice _storage;
+
+        private Chunk(
+            final int identifier,
+            final ArraySlice storage,
+            final boolean dedicated
+        ) {
+            _dedicated = dedicated;
+            _identifier = identifier;
+            _storage = storage;
+        }
+    }
+
+    /**
+     * A region of a chunk which is not allocated to any segment
+     */
+    private static class FreeBlock {
+
+        private static final Comparator<FreeBlock> BY_SIZE = Comparator.comparingInt((FreeBlock block) -> block._length)
+                                                                       .thenComparingInt(block -> block._chunkIdentifier)
+                                                                       .thenComparingInt(block -> block._offset);
+
+        private final Chunk _chunk;
+        private final int _chunkIdentifier;
+        private final int _length;
+        private final int _offset;
+
+        private FreeBlock(
+            final Chunk chunk,
+            final int offset,
+            final int length
+        ) {
+            _chunk = chunk;
+            _chunkIdentifier = (chunk == null) ? Integer.MIN_VALUE : chunk._identifier;
+            _length = length;
+            _offset = offset;
+        }
+    }
+
+    /**
+     * The storage allocated to a segment
+     */
+    static class Allocation {
+
+        private final int _capacity;
+        private final Chunk _chunk;
+        private final int _offset;
+        final ArraySlice _slice;                                //  the segment itself
+
+        private Allocation(
+            final Chunk chunk,
+            final int offset,
+            final int capacity,
+            final int length
+        ) {
+            _capacity = capacity;
+            _chunk = chunk;
+            _offset = offset;
+            _slice = new ArraySlice(chunk._storage, offset, length);
+        }
+    }
+
+    /**
+     * Occupancy and fragmentation of the arena at a point in time
+     */
+    static class Statistics {
+
+        final long _chunkWords;                                 //  total size of all chunks
+        final int _chunks;
+        final long _copiedReallocations;
+        final long _freeWords;                                  //  total size of all free blocks
+        final long _inPlaceReallocations;
+        final long _largestFreeBlock;
+        final long _requestedWords;                             //  words requested by live segments
+        final long[] _segmentsBySizeClass;                      //  number of live segments, by size class
+        final long[] _wordsBySizeClass;                         //  capacity of live segments, by size class
+
+        private Statistics(
+            final SegmentArena arena
+        ) {
+            long chunkWords = 0;
+            for (Chunk chunk : arena._chunks) {
+                chunkWords += chunk._storage.getSize();
+            }
+
+            long freeWords = 0;
+            for (FreeBlock block : arena._freeBlocks) {
+                freeWords += block._length;
+            }
+
+            _chunkWords = chunkWords;
+            _chunks = arena._chunks.size();
+            _copiedReallocations = arena._copiedReallocations;
+            _freeWords = freeWords;
+            _inPlaceReallocations = arena._inPlaceReallocations;
+            _largestFreeBlock = arena._freeBlocks.isEmpty() ? 0 : arena._freeBlocks.last()._length;
+            _requestedWords = arena._requestedWords;
+            _segmentsBySizeClass = arena._segmentsBySizeClass.clone();
+            _wordsBySizeClass = arena._wordsBySizeClass.clone();
+        }
+
+        /**
+         * Proportion of free space which is not in the largest free block - 0.0 if all free space is contiguous
+         */
+        double getExternalFragmentation() {
+            return (_freeWords == 0) ? 0.0 : 1.0 - ((double) _largestFreeBlock / _freeWords);
+        }
+
+        /**
+         * Proportion of allocated capacity which is not used by the segments to which it is allocated
+         */
+        double getInternalFragmentation() {
+            long allocatedWords = 0;
+            for (long words : _wordsBySizeClass) {
+                allocatedWords += words;
+            }
+            return (allocatedWords == 0) ? 0.0 : 1.0 - ((double) _requestedWords / allocatedWords);
+        }
+    }
+
+    /**
+     * Constructor
+     * @param chunkAllocator allocates zeroed storage of the requested size, for use as a chunk
+     */
+    SegmentArena(
+        final IntFunction<ArraySlice> chunkAllocator
+    ) {
+        _chunkAllocator = chunkAllocator;
+    }
+
+    /**
+     * Rounds a request up to the capacity of its size class
+     */
+    static int getCapacity(
+        final int words
+    ) {
+        if (words <= MIN_CAPACITY) {
+            return MIN_CAPACITY;
+        }
+
+        int shift = 31 - Integer.numberOfLeadingZeros(words - 1);     //  2^shift < words <= 2^(shift+1)
+        long step = 1L << (shift - 2);
+        long capacity = (words + step - 1) & ~(step - 1);
+        return (int) Math.min(capacity, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Determines the capacity of a size class - the inverse of getSizeClass()
+     */
+    static long getClassCapacity(
+        final int sizeClass
+    ) {
+        if (sizeClass == 0) {
+            return MIN_CAPACITY;
+        }
+
+        int shift = MIN_SHIFT + (sizeClass - 1) / 4;
+        int quarter = (sizeClass - 1) % 4 + 1;
+        return (1L << shift) + quarter * (1L << (shift - 2));
+    }
+
+    /**
+     * Determines the size class of a capacity produced by getCapacity()
+     */
+    static int getSizeClass(
+        final int capacity
+    ) {
+        if (capacity <= MIN_CAPACITY) {
+            return 0;
+        }
+
+        int shift = 31 - Integer.numberOfLeadingZeros(capacity - 1);
+        long step = 1L << (shift - 2);
+        int quarter = (int) ((capacity - (1L << shift) + step - 1) / step);    //  1 to 4
+        return 1 + (shift - MIN_SHIFT) * 4 + (quarter - 1);
+    }
+
+    /**
+     * Adds a free block to both indices
+     */
+    private void addFreeBlock(
+        final Chunk chunk,
+        final int offset,
+        final int length
+    ) {
+        if (length > 0) {
+            FreeBlock block = new FreeBlock(chunk, offset, length);
+            chunk._freeBlocks.put(offset, block);
+            _freeBlocks.add(block);
+        }
+    }
+
+    /**
+     * Removes a free block from both indices
+     */
+    private void removeFreeBlock(
+        final FreeBlock block
+    ) {
+        block._chunk._freeBlocks.remove(block._offset);
+        _freeBlocks.remove(block);
+    }
+
+    /**
+     * Accounts for a segment which has been allocated (count = 1) or released (count = -1)
+     */
+    private void tally(
+        final int capacity,
+        final int length,
+        final int count
+    ) {
+        int sizeClass = getSizeClass(capacity);
+        _segmentsBySizeClass[sizeClass] += count;
+        _wordsBySizeClass[sizeClass] += (long) count * capacity;
+        _requestedWords += (long) count * length;
+    }
+
+    /**
+     * Gives a region of a chunk back, coalescing it with its free neighbours
+     */
+    private void release(
+        final Chunk chunk,
+        final int offset,
+        final int length
+    ) {
+        int blockOffset = offset;
+        int blockLength = length;
+
+        Map.Entry<Integer, FreeBlock> previous = chunk._freeBlocks.lowerEntry(offset);
+        if ((previous != null) && (previous.getValue()._offset + previous.getValue()._length == offset)) {
+            removeFreeBlock(previous.getValue());
+            blockOffset = previous.getValue()._offset;
+            blockLength += previous.getValue()._length;
+        }
+
+        FreeBlock next = chunk._freeBlocks.get(offset + length);
+        if (next != null) {
+            removeFreeBlock(next);
+            blockLength += next._length;
+        }
+
+        addFreeBlock(chunk, blockOffset, blockLength);
+    }
+
+    /**
+     * Allocates zeroed storage for a new segment
+     * @param words size of the segment
+     * @return allocation describing the segment's storage
+     */
+    Allocation allocate(
+        final int words
+    ) {
+        int capacity = getCapacity(words);
+        Allocation allocation;
+        if (capacity > LARGE_THRESHOLD) {
+            //  The chunk comes to us zeroed, and nothing else will ever use it
+            Chunk chunk = new Chunk(_nextChunkIdentifier++, _chunkAllocator.apply(words), true);
+            _chunks.add(chunk);
+            allocation = new Allocation(chunk, 0, words, words);
+        } else {
+            FreeBlock block = _freeBlocks.ceiling(new FreeBlock(null, Integer.MIN_VALUE, capacity));
+            if (block == null) {
+                Chunk chunk = new Chunk(_nextChunkIdentifier++, _chunkAllocator.apply(CHUNK_SIZE), false);
+                _chunks.add(chunk);
+                addFreeBlock(chunk, 0, CHUNK_SIZE);
+                block = chunk._freeBlocks.get(0);
+            }
+
+            removeFreeBlock(block);
+            addFreeBlock(block._chunk, block._offset + capacity, block._length - capacity);
+            allocation = new Allocation(block._chunk, block._offset, capacity, words);
+            allocation._slice.clear();
+        }
+
+        ++allocation._chunk._segments;
+        tally(allocation._capacity, words, 1);
+        return allocation;
+    }
+
+    /**
+     * Releases the storage for all segments, and all chunks
+     */
+    void clear() {
+        _chunks.clear();
+        _freeBlocks.clear();
+        _requestedWords = 0;
+        Arrays.fill(_segmentsBySizeClass, 0);
+        Arrays.fill(_wordsBySizeClass, 0);
+    }
+
+    /**
+     * Releases the storage for a segment
+     */
+    void free(
+        final Allocation allocation
+    ) {
+        Chunk chunk = allocation._chunk;
+        tally(allocation._capacity, (int) allocation._slice.getSize(), -1);
+        --chunk._segments;
+
+        if (chunk._dedicated) {
+            _chunks.remove(chunk);
+            return;
+        }
+
+        release(chunk, allocation._offset, allocation._capacity);
+        if (chunk._segments == 0) {
+            //  Keep one shared chunk in reserve, so that we do not thrash when the last segment comes and goes
+            long sharedChunks = _chunks.stream().filter(c -> !c._dedicated).count();
+            if (sharedChunks > 1) {
+                for (FreeBlock block : new LinkedList<>(chunk._freeBlocks.values())) {
+                    removeFreeBlock(block);
+                }
+                _chunks.remove(chunk);
+            }
+        }
+    }
+
+    /**
+     * Snapshot of occupancy and fragmentation
+     */
+    Statistics getStatistics() {
+        return new Statistics(this);
+    }
+
+    /**
+     * Resizes a segment, in place if possible.  Content is preserved up to the lesser of the old and new sizes,
+     * and anything beyond the old size is zeroed.
+     * @param allocation current storage for the segment
+     * @param words new size of the segment
+     * @return new allocation for the segment - which is in the same place, unless the content had to be copied
+     */
+    Allocation reallocate(
+        final Allocation allocation,
+        final int words
+    ) {
+        Chunk chunk = allocation._chunk;
+        int oldLength = (int) allocation._slice.getSize();
+        int capacity = chunk._dedicated ? allocation._capacity : getCapacity(words);
+
+        Allocation result = null;
+        if (words <= allocation._capacity) {
+            if (chunk._dedicated || (capacity > LARGE_THRESHOLD)) {
+                capacity = allocation._capacity;
+            } else {
+                //  Give back whatever capacity the smaller size class does not need
+                release(chunk, allocation._offset + capacity, allocation._capacity - capacity);
+            }
+            result = new Allocation(chunk, allocation._offset, capacity, words);
+        } else if (!chunk._dedicated && (capacity <= LARGE_THRESHOLD)) {
+            FreeBlock next = chunk._freeBlocks.get(allocation._offset + allocation._capacity);
+            int needed = capacity - allocation._capacity;
+            if ((next != null) && (next._length >= needed)) {
+                removeFreeBlock(next);
+                addFreeBlock(chunk, next._offset + needed, next._length - needed);
+                result = new Allocation(chunk, allocation._offset, capacity, words);
+            }
+        }
+
+        if (result != null) {
+            tally(allocation._capacity, oldLength, -1);
+            tally(result._capacity, words, 1);
+            if (words > oldLength) {
+                new ArraySlice(result._slice, oldLength, words - oldLength).clear();
+            }
+            ++_inPlaceReallocations;
+            return result;
+        }
+
+        result = allocate(words);
+        result._slice.load(allocation._slice, 0, Math.min(oldLength, words), 0);
+        free(allocation);
+        ++_copiedReallocations;
+        return result;
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2018-2020 by Kurt Duncan - All Rights Reserved
+ */
+
+package com.kadware.komodo.hardwarelib;
+
+import com.kadware.komodo.baselib.AbsoluteAddress;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Partition-wide table of storage locks, as used by test-and-set and similar instructions.
+ * Locks are keyed by absolute address (encoded into a long) and ownership is established by an atomic
+ * put-if-absent of the owning IP, so there is no global monitor - IPs contend only on the particular
+ * addresses they are trying to lock.
+ * Each IP is responsible for remembering which locks it holds, and for releasing them when its instruction completes.
+ */
+public class StorageLockTable {
+
+    private final Map<Long, InstructionProcessor> _owners = new ConcurrentHashMap<>();
+
+    //  Statistics - contention is tracked per address so we can find hot lock words
+    private final LongAdder _acquisitions = new LongAdder();
+    private final LongAdder _contentions = new LongAdder();
+    private final Map<Long, LongAdder> _contentionsByAddress = new ConcurrentHashMap<>();
+
+    /**
+     * Encodes an absolute address as a single long, suitable for use as a key
+     * @param address absolute address
+     * @return key
+     */
+    static long getKey(
+        final AbsoluteAddress address
+    ) {
+        return ((long) address._upiIndex << 57)
+               | ((long) (address._segment & 0x1FFFFFF) << 32)
+               | (address._offset & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Inverse of getKey()
+     * @param key encoded absolute address
+     * @return absolute address
+     */
+    static AbsoluteAddress getAddress(
+        final long key
+    ) {
+        return new AbsoluteAddress((int) (key >>> 57), (int) (key >>> 32) & 0x1FFFFFF, key & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Attempts to lock the given address on behalf of the given IP
+     * @param key encoded absolute address
+     * @param owner IP requesting the lock
+     * @return null if the lock was acquired (or was already held by owner), else the IP which holds the lock
+     */
+    InstructionProcessor tryLock(
+        final long key,
+        final InstructionProcessor owner
+    ) {
+        InstructionProcessor holder = _owners.putIfAbsent(key, owner);
+        if (holder == null) {
+            _acquisitions.increment();
+            return null;
+        } else if (holder == owner) {
+            return null;
+        }
+
+        _contentions.increment();
+        _contentionsByAddress.computeIfAbsent(key, k -> new LongAdder()).increment();
+        return holder;
+    }
+
+    /**
+     * Releases the lock on the given address if, and only if, it is held by the given IP
+     * @param key encoded absolute address
+     * @param owner IP which (presumably) holds the lock
+     */
+    void unlock(
+        final long key,
+        final InstructionProcessor owner
+    ) {
+        _owners.remove(key, owner);
+    }
+
+    /**
+     * Releases all locks held by the given IP - for use when the IP goes away
+     * @param owner IP of interest
+     */
+    void unlockAll(
+        final InstructionProcessor owner
+    ) {
+        _owners.values().removeIf(ip -> ip == owner);
+    }
+
+    /**
+     * @return number of locks successfully acquired since the table was created (or the statistics were reset)
+     */
+    public long getAcquisitionCount() {
+        return _acquisitions.sum();
+    }
+
+    /**
+     * @return number of times an IP found a requested address locked by another IP
+     */
+    public long getContentionCount() {
+        return _contentions.sum();
+    }
+
+    /**
+     * Retrieves the addresses which have seen the most contention, in descending order of contention
+     * @param limit maximum number of entries to return
+     * @return map of absolute address to contention count
+     */
+    public Map<AbsoluteAddress, Long> getHotAddresses(
+        final int limit
+    ) {
+        Map<AbsoluteAddress, Long> result = new LinkedHashMap<>();
+        _contentionsByAddress.entrySet()
+                             .stream()
+                             .map(e -> Map.entry(e.getKey(), e.getValue().sum()))
+                             .sorted(Map.Entry.<Long, Long>comparingByValue(Comparator.reverseOrder()))
+                             .limit(limit)
+                             .forEach(e -> result.put(getAddress(e.getKey()), e.getValue()));
+        return result;
+    }
+
+    /**
+     * Clears the statistics
+     */
+    public void resetStatistics() {
+        _acquisitions.reset();
+        _contentions.reset();
+        _contentionsByAddress.clear();
+    }
+}
@@ -4,6 +4,9 @@
 
 package com.kadware.komodo.hardwarelib;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.kadware.komodo.baselib.AbsoluteAddress;
 import com.kadware.komodo.baselib.AccessInfo;
 import com.kadware.komodo.baselib.AccessPermissions;
@@ -11,17 +14,30 @@ import com.kadware.komodo.baselib.ArraySlice;
 import com.kadware.komodo.baselib.BankDescriptor;
 import com.kadware.komodo.baselib.Credentials;
 import com.kadware.komodo.baselib.KomodoLoggingAppender;
+import com.kadware.komodo.baselib.PathNames;
 import com.kadware.komodo.baselib.VirtualAddress;
 import com.kadware.komodo.baselib.Word36;
 import com.kadware.komodo.baselib.exceptions.BinaryLoadException;
+import com.kadware.komodo.hardwarelib.exceptions.CheckpointException;
 import com.kadware.komodo.hardwarelib.exceptions.UPINotAssignedException;
 import com.kadware.komodo.hardwarelib.exceptions.UPIProcessorTypeException;
 import com.kadware.komodo.hardwarelib.interrupts.AddressingExceptionInterrupt;
 import com.kadware.komodo.hardwarelib.interrupts.MachineInterrupt;
 import com.kadware.komodo.kex.klink.LoadableBank;
 import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.time.Instant;
 import java.time.temporal.ChronoField;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
 import org.apache.logging.log4j.Level;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -84,6 +100,8 @@ public class SystemProcessor extends Processor implements JumpKeyPanel {
     //  ----------------------------------------------------------------------------------------------------------------------------
 
     private static final long LOG_PERIODICITY_MSECS = 1000;             //  check the log every 1 second
+    private static final long CHECKPOINT_QUIESCE_MSECS = 10000;         //  how long we wait for IPs and IOs to settle
+    private static final String CHECKPOINT_FILE_NAME = "checkpoint.json";
 
     private final Logger _logger = LogManager.getLogger(SystemProcessor.class.getSimpleName());
 
@@ -96,6 +114,77 @@ public class SystemProcessor extends Processor implements JumpKeyPanel {
     private Integer _httpsPort = null;
     private long _jumpKeys = 0;
     private long _mostRecentLogIdentifier = 0;
+    private final Map<String, SystemSnapshot> _snapshots = new HashMap<>();
+    private boolean _tookCheckpoint = false;            //  we took the current checkpoint, so storage still matches it
+
+
+    //  ----------------------------------------------------------------------------------------------------------------------------
+    //  Nested classes
+    //  ----------------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Everything, other than the content of main storage, which is needed to resume the system from a checkpoint.
+     * It is persisted as JSON beside the storage files of the MSPs.
+     */
+    static class Checkpoint {
+
+        @JsonProperty("timestamp")              final String _timestamp;
+        @JsonProperty("dayclockOffset")         final long _dayclockOffsetMicros;
+        @JsonProperty("jumpKeys")               final long _jumpKeys;
+        @JsonProperty("mainStorageProcessors")  final String[] _mainStorageProcessors;
+        @JsonProperty("processorStates")        final Map<String, long[]> _processorStates;     //  IP name to saved state
+        @JsonProperty("runningProcessors")      final String[] _runningProcessors;              //  IPs to be restarted
+
+        @JsonCreator
+        Checkpoint(
+            @JsonProperty("timestamp")              final String timestamp,
+            @JsonProperty("dayclockOffset")         final long dayclockOffsetMicros,
+            @JsonProperty("jumpKeys")               final long jumpKeys,
+            @JsonProperty("mainStorageProcessors")  final String[] mainStorageProcessors,
+            @JsonProperty("processorStates")        final Map<String, long[]> processorStates,
+            @JsonProperty("runningProcessors")      final String[] runningProcessors
+        ) {
+            _timestamp = timestamp;
+            _dayclockOffsetMicros = dayclockOffsetMicros;
+            _jumpKeys = jumpKeys;
+            _mainStorageProcessors = mainStorageProcessors;
+            _processorStates = processorStates;
+            _runningProcessors = runningProcessors;
+        }
+    }
+
+    /**
+     * A copy-on-write snapshot of the system - the content of all storage, plus everything else a checkpoint
+     * would contain.  It lives only as long as this process (or until it is discarded).
+     */
+    public static class SystemSnapshot {
+
+        private final String _name;
+        private final Checkpoint _state;
+        private final Map<MainStorageProcessor, MainStorageProcessor.Snapshot> _storage = new HashMap<>();
+
+        private SystemSnapshot(
+            final String name,
+            final Checkpoint state
+        ) {
+            _name = name;
+            _state = state;
+        }
+
+        public String getName() { return _name; }
+        public String getTimestamp() { return _state._timestamp; }
+
+        /**
+         * Number of storage pages which have been copied into the snapshot since it was taken
+         */
+        public long getPreservedPageCount() {
+            long result = 0;
+            for (MainStorageProcessor.Snapshot snapshot : _storage.values()) {
+                result += snapshot.getPreservedPageCount();
+            }
+            return result;
+        }
+    }
 
 
     //  ----------------------------------------------------------------------------------------------------------------------------
@@ -136,6 +225,164 @@ public class SystemProcessor extends Processor implements JumpKeyPanel {
     //  Private methods
     //  ----------------------------------------------------------------------------------------------------------------------------
 
+    /**
+     * Captures everything other than storage which is needed to resume the system.
+     * All IPs must be stopped and quiescent.
+     * @param running IPs which are to be restarted upon resumption
+     * @throws CheckpointException if the state of any IP cannot be saved
+     */
+    private Checkpoint captureState(
+        final List<InstructionProcessor> running
+    ) throws CheckpointException {
+        InventoryManager im = InventoryManager.getInstance();
+        Map<String, long[]> states = new HashMap<>();
+        for (InstructionProcessor ip : im.getInstructionProcessors()) {
+            try {
+                states.put(ip._name, ip.saveState());
+            } catch (RuntimeException ex) {
+                throw new CheckpointException(ex.getMessage());
+            }
+        }
+
+        String[] mspNames = im.getMainStorageProcessors().stream().map(msp -> msp._name).toArray(String[]::new);
+        String[] runningNames = running.stream().map(ip -> ip._name).toArray(String[]::new);
+        return new Checkpoint(Instant.now().toString(), _dayclockOffsetMicros, _jumpKeys, mspNames, states, runningNames);
+    }
+
+    /**
+     * Location of the checkpoint file
+     */
+    private static Path getCheckpointPath() {
+        return Paths.get(PathNames.STORAGE_ROOT_DIRECTORY, CHECKPOINT_FILE_NAME);
+    }
+
+    /**
+     * Discards the checkpoint file (if any) - once the system runs again, storage no longer matches it
+     */
+    private void invalidateCheckpoint() {
+        _tookCheckpoint = false;
+        try {
+            Files.deleteIfExists(getCheckpointPath());
+        } catch (IOException ex) {
+            _logger.catching(ex);
+        }
+    }
+
+    /**
+     * Restarts the given IPs, after an unsuccessful checkpoint or a successful resume
+     */
+    private void restartProcessors(
+        final List<InstructionProcessor> processors
+    ) {
+        for (InstructionProcessor ip : processors) {
+            ip.start();
+        }
+    }
+
+    /**
+     * Restores the IPs, dayclock, and jump keys from a checkpoint or snapshot, which must match the configuration.
+     * The IPs must all be stopped.
+     * @return IPs which are to be restarted
+     * @throws CheckpointException if the configuration does not match, or an IP cannot be restored
+     */
+    private List<InstructionProcessor> restoreState(
+        final Checkpoint checkpoint
+    ) throws CheckpointException {
+        List<InstructionProcessor> ips = InventoryManager.getInstance().getInstructionProcessors();
+        if (ips.size() != checkpoint._processorStates.size()) {
+            throw new CheckpointException("IP configuration does not match the checkpoint");
+        }
+
+        List<InstructionProcessor> running = new LinkedList<>();
+        for (InstructionProcessor ip : ips) {
+            long[] state = checkpoint._processorStates.get(ip._name);
+            if ((state == null) || !ip.isStopped()) {
+                throw new CheckpointException(String.format("%s cannot be restored", ip._name));
+            }
+
+            try {
+                ip.restoreState(state);
+            } catch (AddressingExceptionInterrupt | RuntimeException ex) {
+                throw new CheckpointException(String.format("%s cannot be restored:%s", ip._name, ex.getMessage()));
+            }
+
+            for (String name : checkpoint._runningProcessors) {
+                if (name.equals(ip._name)) {
+                    running.add(ip);
+                }
+            }
+        }
+
+        _dayclockOffsetMicros = checkpoint._dayclockOffsetMicros;
+        _jumpKeys = checkpoint._jumpKeys;
+        if (_systemConsoleInterface != null) {
+            _systemConsoleInterface.jumpKeysUpdated();
+        }
+
+        return running;
+    }
+
+    /**
+     * Stops all running IPs, and waits for them and any in-flight IOs to settle
+     * (any resulting IO completion interrupts are held by the IPs as part of their state).
+     * If they do not settle in time, they are restarted.
+     * @return IPs which were running, and which the caller is responsible for eventually restarting
+     * @throws CheckpointException if the IPs and IOs do not settle in time
+     */
+    private List<InstructionProcessor> stopProcessors(
+    ) throws CheckpointException {
+        InventoryManager im = InventoryManager.getInstance();
+        List<InstructionProcessor> stopped = new LinkedList<>();
+        for (InstructionProcessor ip : im.getInstructionProcessors()) {
+            if (!ip.isStopped()) {
+                ip.stop(InstructionProcessor.StopReason.Checkpoint, 0);
+                stopped.add(ip);
+            }
+        }
+
+        if (!waitForQuiescence(() -> stopped.stream().allMatch(InstructionProcessor::isQuiescent))
+            || !waitForQuiescence(() -> im.getInputOutputProcessors().stream().allMatch(InputOutputProcessor::isIdle))) {
+            restartProcessors(stopped);
+            throw new CheckpointException("Timed out waiting for processors and IO to settle");
+        }
+
+        return stopped;
+    }
+
+    /**
+     * Waits for a condition to become true, for up to CHECKPOINT_QUIESCE_MSECS
+     * @return true if it did
+     */
+    private static boolean waitForQuiescence(
+        final BooleanSupplier condition
+    ) {
+        long limit = System.currentTimeMillis() + CHECKPOINT_QUIESCE_MSECS;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > limit) {
+                return false;
+            }
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Writes a checkpoint file atomically, so that a partial file is never mistaken for a checkpoint
+     */
+    private static void writeCheckpoint(
+        final Checkpoint checkpoint,
+        final Path path
+    ) throws IOException {
+        Path temp = Paths.get(path.toString() + ".tmp");
+        new ObjectMapper().writeValue(temp.toFile(), checkpoint);
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
 //    /**
 //     * Establishes and populates a communications area in one of the configured MSPs.
 //     * Should be invoked after clearing the various processors and before IPL.
@@ -342,34 +589,21 @@ public class SystemProcessor extends Processor implements JumpKeyPanel {
 
             //  Check UPI ACKs and SENDs
             //  ACKs mean we can send another IO
-            boolean didSomething = false;
-            synchronized (_upiPendingAcknowledgements) {
-                for (Processor source : _upiPendingAcknowledgements) {
-                    //TODO
-                    _logger.trace(String.format("%s received a UPI ACK from %s", _name, source._name));
-                    didSomething = true;
-                }
-                _upiPendingAcknowledgements.clear();
-            }
-
             //  SENDs mean an IO is completed
-            synchronized (_upiPendingInterrupts) {
-                for (Processor source : _upiPendingInterrupts) {
-                    //TODO
-                    _logger.trace(String.format("%s received a UPI interrupt from %s", _name, source._name));
-                    didSomething = true;
+            boolean didSomething = false;
+            for (UPIMailbox.Message msg = _upiMailbox.drain(); msg != null; msg = msg.getNext()) {
+                //TODO
+                if (msg._kind == UPIMailbox.Kind.Acknowledge) {
+                    _logger.trace(String.format("%s received a UPI ACK from %s", _name, msg._source._name));
+                } else {
+                    _logger.trace(String.format("%s received a UPI interrupt from %s", _name, msg._source._name));
                 }
-                _upiPendingInterrupts.clear();
+                didSomething = true;
             }
 
+            //  We still wake up periodically, as there is housekeeping to be done above which nobody wakes us for
             if (!didSomething) {
-                try {
-                    synchronized (this) {
-                        wait(25);
-                    }
-                } catch (InterruptedException ex) {
-                    _logger.catching(ex);
-                }
+                waitForWork(25);
             }
         }
 
@@ -386,6 +620,49 @@ public class SystemProcessor extends Processor implements JumpKeyPanel {
     //  Mostly for InstructionProcessor's SYSC instruction
     //  ----------------------------------------------------------------------------------------------------------------------------
 
+    /**
+     * Takes a checkpoint of the system, from which resumeFromCheckpoint() can resume it - typically in a new emulator
+     * process, after a maintenance restart - without an IPL.
+     * All MSPs must have Mapped storage.  The IPs are stopped, and we wait for in-flight IOs to complete
+     * (any resulting IO completion interrupts are held by the IPs as part of their state).  Then storage is forced
+     * to the storage files, and the IP states are written to the checkpoint file.
+     * The IPs are left stopped, so that the emulator can be shut down (or resumed, if the operator changes their mind).
+     * If the checkpoint cannot be taken, they are restarted.
+     * @throws CheckpointException if the checkpoint cannot be taken
+     */
+    public void checkpoint(
+    ) throws CheckpointException {
+        EntryMessage em = _logger.traceEntry("checkpoint()");
+
+        List<MainStorageProcessor> msps = InventoryManager.getInstance().getMainStorageProcessors();
+        for (MainStorageProcessor msp : msps) {
+            if (msp.getStorageType() != MainStorageProcessor.StorageType.Mapped) {
+                throw new CheckpointException(String.format("%s does not have Mapped storage", msp._name));
+            }
+        }
+
+        List<InstructionProcessor> stopped = stopProcessors();
+        try {
+            Checkpoint checkpoint = captureState(stopped);
+            for (MainStorageProcessor msp : msps) {
+                msp.forceStorage();
+            }
+
+            writeCheckpoint(checkpoint, getCheckpointPath());
+            _tookCheckpoint = true;
+            _logger.info(String.format("Checkpoint taken at %s: %d IPs, %d MSPs",
+                                       checkpoint._timestamp,
+                                       checkpoint._processorStates.size(),
+                                       msps.size()));
+        } catch (CheckpointException | IOException ex) {
+            restartProcessors(stopped);
+            _logger.traceExit(em);
+            throw (ex instanceof CheckpointException) ? (CheckpointException) ex : new CheckpointException(ex.getMessage());
+        }
+
+        _logger.traceExit(em);
+    }
+
     /**
      * Cancels a previously-sent read-reply message, and optionally replaces the previous message with new text
      */
@@ -673,9 +950,9 @@ public class SystemProcessor extends Processor implements JumpKeyPanel {
 
         if (useFixedStorage) {
             ArraySlice fixedSlice = msp.getStorage(0);
-            int fixedSize = msp.getStorage(0).getSize();
+            long fixedSize = msp.getStorage(0).getSize();
             int nextOffset = 3;
-            int remaining = fixedSize - 3;
+            long remaining = fixedSize - 3;
             fixedSlice.set(0, 0_777000_777000L);
             fixedSlice.set(1, nextOffset);
             fixedSlice.set(2, remaining);
@@ -697,8 +974,8 @@ public class SystemProcessor extends Processor implements JumpKeyPanel {
         for (LoadableBank lb : loadableBanks) {
             AbsoluteAddress bdtAddr = bdtAddresses[lb._bankLevel];
             ArraySlice bdtSlice = msp.getStorage(bdtAddr._segment);
-            int bdtOffset = bdtAddr._offset;
-            int bdOffset = bdtOffset + (8 * lb._bankDescriptorIndex);
+            long bdtOffset = bdtAddr._offset;
+            long bdOffset = bdtOffset + (8 * lb._bankDescriptorIndex);
             BankDescriptor bd = new BankDescriptor(bdtSlice, bdOffset);
 
             if (lb._content.length > 0) {
@@ -767,10 +1044,202 @@ public class SystemProcessor extends Processor implements JumpKeyPanel {
         ip.setBaseRegister(InstructionProcessor.ICS_BASE_REGISTER, icsBaseReg);
         ip.setGeneralRegister(InstructionProcessor.ICS_INDEX_REGISTER, (icsFrameSize << 18) | icsSize);
 
+        invalidateCheckpoint();
         upiSendDirected(instructionProcessorUPI);
         _logger.traceExit(em);
     }
 
+    /**
+     * Resumes the system from the checkpoint taken by checkpoint(), presumably by a previous emulator process.
+     * The MSPs must have picked up their storage from that process (i.e., they are configured with Mapped storage
+     * in the same storage directory, and have not been cleared) - unless we took the checkpoint ourselves.
+     * The IPs are restored to their checkpointed state, and those which were running are started.
+     * The checkpoint file is then discarded, since storage will no longer match it.
+     * @throws CheckpointException if there is no usable checkpoint
+     */
+    public void resumeFromCheckpoint(
+    ) throws CheckpointException {
+        EntryMessage em = _logger.traceEntry("resumeFromCheckpoint()");
+
+        Path path = getCheckpointPath();
+        if (!Files.exists(path)) {
+            throw new CheckpointException("There is no checkpoint");
+        }
+
+        Checkpoint checkpoint;
+        try {
+            checkpoint = new ObjectMapper().readValue(path.toFile(), Checkpoint.class);
+        } catch (IOException ex) {
+            throw new CheckpointException(String.format("Cannot read checkpoint:%s", ex.getMessage()));
+        }
+
+        InventoryManager im = InventoryManager.getInstance();
+        List<MainStorageProcessor> msps = im.getMainStorageProcessors();
+        if (msps.size() != checkpoint._mainStorageProcessors.length) {
+            throw new CheckpointException("MSP configuration does not match the checkpoint");
+        }
+        for (MainStorageProcessor msp : msps) {
+            if (!msp.isRestored() && !_tookCheckpoint) {
+                throw new CheckpointException(String.format("%s does not have the checkpointed storage", msp._name));
+            }
+        }
+
+        List<InstructionProcessor> running = restoreState(checkpoint);
+        invalidateCheckpoint();
+        restartProcessors(running);
+        _logger.info(String.format("Resumed from checkpoint taken at %s", checkpoint._timestamp));
+        _logger.traceExit(em);
+    }
+
+    /**
+     * Discards a snapshot taken by takeSnapshot()
+     * @param name name of the snapshot
+     * @throws CheckpointException if there is no such snapshot
+     */
+    public void discardSnapshot(
+        final String name
+    ) throws CheckpointException {
+        EntryMessage em = _logger.traceEntry("discardSnapshot({})", name);
+
+        synchronized (_snapshots) {
+            SystemSnapshot snapshot = _snapshots.remove(name);
+            if (snapshot == null) {
+                throw new CheckpointException(String.format("There is no snapshot named %s", name));
+            }
+
+            for (Map.Entry<MainStorageProcessor, MainStorageProcessor.Snapshot> entry : snapshot._storage.entrySet()) {
+                entry.getKey().discardSnapshot(entry.getValue());
+            }
+        }
+
+        _logger.traceExit(em);
+    }
+
+    /**
+     * Forks a new system from a snapshot taken by takeSnapshot().  The storage in the snapshot is written to Mapped
+     * storage files in the given directory, along with a checkpoint file.  A second emulator whose storage directory
+     * (i.e., STORAGE_DIR) is that directory, and which has the same configuration (with Mapped storage), can then
+     * resume from the checkpoint - while this system carries on, unaffected.
+     * @param name name of the snapshot
+     * @param directory directory in which the new system's storage and checkpoint files are to be written
+     * @throws CheckpointException if there is no such snapshot, or the files cannot be written
+     */
+    public void forkSnapshot(
+        final String name,
+        final String directory
+    ) throws CheckpointException {
+        EntryMessage em = _logger.traceEntry("forkSnapshot({}, {})", name, directory);
+
+        synchronized (_snapshots) {
+            SystemSnapshot snapshot = _snapshots.get(name);
+            if (snapshot == null) {
+                throw new CheckpointException(String.format("There is no snapshot named %s", name));
+            }
+
+            Path path = Paths.get(directory);
+            try {
+                for (Map.Entry<MainStorageProcessor, MainStorageProcessor.Snapshot> entry : snapshot._storage.entrySet()) {
+                    entry.getKey().exportSnapshot(entry.getValue(), path);
+                }
+                writeCheckpoint(snapshot._state, path.resolve(CHECKPOINT_FILE_NAME));
+            } catch (IOException ex) {
+                _logger.traceExit(em);
+                throw new CheckpointException(String.format("Cannot fork snapshot %s:%s", name, ex.getMessage()));
+            }
+        }
+
+        _logger.info(String.format("Forked snapshot %s into %s", name, directory));
+        _logger.traceExit(em);
+    }
+
+    /**
+     * Retrieves the outstanding snapshots
+     */
+    public List<SystemSnapshot> getSnapshots() {
+        synchronized (_snapshots) {
+            return new ArrayList<>(_snapshots.values());
+        }
+    }
+
+    /**
+     * Rolls the system back to a snapshot taken by takeSnapshot().  Running IPs are stopped, and we wait for in-flight
+     * IOs to complete.  Then storage and the IPs are restored, and those IPs which were running when the snapshot
+     * was taken are started.  The snapshot remains, so that the system can be rolled back to it again.
+     * @param name name of the snapshot
+     * @throws CheckpointException if there is no such snapshot, or the system cannot be restored to it
+     */
+    public void restoreSnapshot(
+        final String name
+    ) throws CheckpointException {
+        EntryMessage em = _logger.traceEntry("restoreSnapshot({})", name);
+
+        synchronized (_snapshots) {
+            SystemSnapshot snapshot = _snapshots.get(name);
+            if (snapshot == null) {
+                throw new CheckpointException(String.format("There is no snapshot named %s", name));
+            }
+
+            long startMillis = System.currentTimeMillis();
+            stopProcessors();
+            for (Map.Entry<MainStorageProcessor, MainStorageProcessor.Snapshot> entry : snapshot._storage.entrySet()) {
+                entry.getKey().restoreSnapshot(entry.getValue());
+            }
+
+            //  The checkpoint (if any) no longer describes storage
+            invalidateCheckpoint();
+            List<InstructionProcessor> running = restoreState(snapshot._state);
+            restartProcessors(running);
+            _logger.info(String.format("Restored snapshot %s in %d msecs",
+                                       name,
+                                       System.currentTimeMillis() - startMillis));
+        }
+
+        _logger.traceExit(em);
+    }
+
+    /**
+     * Takes a copy-on-write snapshot of the system, to which it can later be rolled back by restoreSnapshot(),
+     * or from which a new system can be forked by forkSnapshot().  All MSPs must have snapshots enabled.
+     * Running IPs are stopped only for as long as it takes for them and any in-flight IOs to settle -
+     * taking the snapshot itself copies nothing.
+     * @param name name of the snapshot
+     * @throws CheckpointException if there is already a snapshot of that name, or the snapshot cannot be taken
+     */
+    public void takeSnapshot(
+        final String name
+    ) throws CheckpointException {
+        EntryMessage em = _logger.traceEntry("takeSnapshot({})", name);
+
+        List<MainStorageProcessor> msps = InventoryManager.getInstance().getMainStorageProcessors();
+        for (MainStorageProcessor msp : msps) {
+            if (!msp.isSnapshotsEnabled()) {
+                throw new CheckpointException(String.format("%s does not have snapshots enabled", msp._name));
+            }
+        }
+
+        synchronized (_snapshots) {
+            if (_snapshots.containsKey(name)) {
+                throw new CheckpointException(String.format("There is already a snapshot named %s", name));
+            }
+
+            long startMillis = System.currentTimeMillis();
+            List<InstructionProcessor> stopped = stopProcessors();
+            try {
+                SystemSnapshot snapshot = new SystemSnapshot(name, captureState(stopped));
+                for (MainStorageProcessor msp : msps) {
+                    snapshot._storage.put(msp, msp.takeSnapshot());
+                }
+                _snapshots.put(name, snapshot);
+            } finally {
+                restartProcessors(stopped);
+            }
+
+            _logger.info(String.format("Took snapshot %s in %d msecs", name, System.currentTimeMillis() - startMillis));
+        }
+
+        _logger.traceExit(em);
+    }
+
     /**
      * Updates the credentials required for using the SPIF
      * @param credentials new credentials
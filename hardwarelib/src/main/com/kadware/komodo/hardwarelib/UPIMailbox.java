@@ -0,0 +1,224 @@
+/*
+ * Copyright (c) 2018-2020 by Kurt Duncan - All Rights Reserved
+ */
+
+package com.kadware.komodo.hardwarelib;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Lock-free multiple-producer, single-consumer mailbox of UPI messages for a particular destination processor.
+ * Any processor may post a message; only the worker thread of the owning processor may drain the mailbox.
+ * --
+ * Architecturally, a source processor may have at most one interrupt and one acknowledgement outstanding
+ * to any particular destination processor - we track this with one bit per source UPI index and message kind,
+ * so that a duplicate post is rejected without any locking.
+ * Messages are pushed onto a linked stack with a single CAS; the consumer takes the whole stack with a single
+ * swap and reverses it, so that messages are handled in the order in which they were posted.
+ * The consumer can thus determine that nothing is pending with a single volatile read.
+ * --
+ * We also keep statistics regarding the time between posting a message and draining it,
+ * for each source processor.
+ */
+public class UPIMailbox {
+
+    //  ----------------------------------------------------------------------------------------------------------------------------
+    //  Nested things
+    //  ----------------------------------------------------------------------------------------------------------------------------
+
+    public enum Kind {
+        Acknowledge(0),
+        Interrupt(1);
+
+        private final int _code;
+        Kind(int code) { _code = code; }
+        public int getCode() { return _code; }
+    }
+
+    /**
+     * A single UPI signal from a source processor.
+     * Immutable once posted, other than the link which is set by the mailbox.
+     */
+    public static class Message {
+        public final Processor _source;
+        public final Kind _kind;
+        public final long _timestamp;           //  System.nanoTime() at which the message was posted
+        private Message _next;                  //  next message in the mailbox, or in a drained chain
+
+        private Message(
+            final Processor source,
+            final Kind kind
+        ) {
+            _source = source;
+            _kind = kind;
+            _timestamp = System.nanoTime();
+        }
+
+        /**
+         * @return the next message in a chain returned by drain(), or null if this is the last one
+         */
+        public Message getNext() { return _next; }
+    }
+
+
+    //  ----------------------------------------------------------------------------------------------------------------------------
+    //  Class attributes
+    //  ----------------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Number of distinct source UPI indices we can track - two bits per source must fit in a long
+     */
+    static final int MAX_SOURCES = 32;
+
+    private final AtomicReference<Message> _head = new AtomicReference<>();
+    private final AtomicLong _pendingBits = new AtomicLong();
+
+    //  Latency statistics, indexed by source UPI index.  Written only by the consumer.
+    private final AtomicLongArray _messageCounts = new AtomicLongArray(MAX_SOURCES);
+    private final AtomicLongArray _totalLatencies = new AtomicLongArray(MAX_SOURCES);
+    private final AtomicLongArray _maximumLatencies = new AtomicLongArray(MAX_SOURCES);
+
+
+    //  ----------------------------------------------------------------------------------------------------------------------------
+    //  Instance methods
+    //  ----------------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Discards any pending messages and resets the statistics
+     */
+    void clear() {
+        _head.set(null);
+        _pendingBits.set(0);
+        for (int sx = 0; sx < MAX_SOURCES; ++sx) {
+            _messageCounts.set(sx, 0);
+            _totalLatencies.set(sx, 0);
+            _maximumLatencies.set(sx, 0);
+        }
+    }
+
+    /**
+     * For the owning processor's worker thread - takes all the pending messages from the mailbox,
+     * and makes it possible for their source processors to post the same kind of message again.
+     * @return the oldest pending message, linked via getNext() to the rest in the order they were posted;
+     *          null if there are no pending messages
+     */
+    Message drain() {
+        if (_head.get() == null) {
+            return null;
+        }
+
+        //  Take the stack, and reverse it into posting order
+        Message msg = _head.getAndSet(null);
+        Message chain = null;
+        long now = System.nanoTime();
+        long drainedBits = 0;
+        while (msg != null) {
+            Message next = msg._next;
+            msg._next = chain;
+            chain = msg;
+            drainedBits |= getBit(msg._source._upiIndex, msg._kind);
+            recordLatency(msg._source._upiIndex, now - msg._timestamp);
+            msg = next;
+        }
+
+        long bits;
+        do {
+            bits = _pendingBits.get();
+        } while (!_pendingBits.compareAndSet(bits, bits & ~drainedBits));
+
+        return chain;
+    }
+
+    /**
+     * Retrieves the number of messages drained from the given source
+     */
+    public long getMessageCount(
+        final int sourceUpiIndex
+    ) {
+        return _messageCounts.get(sourceUpiIndex);
+    }
+
+    /**
+     * Retrieves the largest post-to-drain latency seen for messages from the given source, in nanoseconds
+     */
+    public long getMaximumLatency(
+        final int sourceUpiIndex
+    ) {
+        return _maximumLatencies.get(sourceUpiIndex);
+    }
+
+    /**
+     * Retrieves the mean post-to-drain latency for messages from the given source, in nanoseconds
+     */
+    public long getMeanLatency(
+        final int sourceUpiIndex
+    ) {
+        long count = _messageCounts.get(sourceUpiIndex);
+        return count == 0 ? 0 : _totalLatencies.get(sourceUpiIndex) / count;
+    }
+
+    /**
+     * Quick check for the consumer's hot path - a single volatile read
+     * @return true if there are no messages in the mailbox
+     */
+    boolean isEmpty() {
+        return _head.get() == null;
+    }
+
+    /**
+     * Posts a message to this mailbox
+     * @param source processor which is sending the message
+     * @param kind kind of message
+     * @return true if the message was posted, false if a message of this kind from this source is already pending
+     */
+    boolean post(
+        final Processor source,
+        final Kind kind
+    ) {
+        long bit = getBit(source._upiIndex, kind);
+        long bits;
+        do {
+            bits = _pendingBits.get();
+            if ((bits & bit) != 0) {
+                return false;
+            }
+        } while (!_pendingBits.compareAndSet(bits, bits | bit));
+
+        Message msg = new Message(source, kind);
+        Message head;
+        do {
+            head = _head.get();
+            msg._next = head;
+        } while (!_head.compareAndSet(head, msg));
+
+        return true;
+    }
+
+    /**
+     * Produces a snapshot of the pending messages, most recently-posted first, for display purposes.
+     * The mailbox is not disturbed.
+     */
+    Message peek() {
+        return _head.get();
+    }
+
+    private void recordLatency(
+        final int sourceUpiIndex,
+        final long latency
+    ) {
+        _messageCounts.lazySet(sourceUpiIndex, _messageCounts.get(sourceUpiIndex) + 1);
+        _totalLatencies.lazySet(sourceUpiIndex, _totalLatencies.get(sourceUpiIndex) + latency);
+        if (latency > _maximumLatencies.get(sourceUpiIndex)) {
+            _maximumLatencies.lazySet(sourceUpiIndex, latency);
+        }
+    }
+
+    private static long getBit(
+        final int sourceUpiIndex,
+        final Kind kind
+    ) {
+        return 1L << ((sourceUpiIndex << 1) | kind._code);
+    }
+}
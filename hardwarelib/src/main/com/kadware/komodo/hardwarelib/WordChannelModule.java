@@ -6,10 +6,6 @@ package com.kadware.komodo.hardwarelib;
 
 import com.kadware.komodo.baselib.ArraySlice;
 
-import java.util.Iterator;
-import org.apache.logging.log4j.LogManager;
-import org.apache.logging.log4j.Logger;
-
 /**
  * Implements a word channel module.
  * Designed for connected devices which do IO on long integers, of which the lower 36 bits are significant.
@@ -23,8 +19,6 @@ public class WordChannelModule extends ChannelModule {
 
     protected class WordTracker extends Tracker {
 
-        private ArraySlice _workingBuffer = null;
-
         WordTracker(
             final Processor source,
             final InputOutputProcessor ioProcessor,
@@ -32,21 +26,10 @@ public class WordChannelModule extends ChannelModule {
             final ArraySlice compositeBuffer
         ) {
             super(source, ioProcessor, channelProgram, compositeBuffer);
-            int bufferSize = channelProgram.getCumulativeTransferWords();
-            if (bufferSize > 0) {
-                _workingBuffer = new ArraySlice(new long[bufferSize]);
-            }
         }
     }
 
 
-    //  ----------------------------------------------------------------------------------------------------------------------------
-    //  Class attributes
-    //  ----------------------------------------------------------------------------------------------------------------------------
-
-    private static final Logger LOGGER = LogManager.getLogger(WordChannelModule.class);
-
-
     //  ----------------------------------------------------------------------------------------------------------------------------
     //  Constructors
     //  ----------------------------------------------------------------------------------------------------------------------------
@@ -95,71 +78,27 @@ public class WordChannelModule extends ChannelModule {
     }
 
     /**
-     * Thread
+     * The device IO is done.
+     * There is never a device IO at present (see startIO()), and the channel status is already set.
      */
-    public void run() {
-        LOGGER.info("worker starting for " + _name);
-
-        while (!_workerTerminate) {
-            boolean sleepFlag = true;
-            synchronized (_workerThread) {
-                Iterator<Tracker> iter = _trackers.iterator();
-                while (iter.hasNext()) {
-                    WordTracker tracker = (WordTracker) iter.next();
-                    if (!tracker._started) {
-                        startIO(tracker);
-                        sleepFlag = false;
-                    } else if (tracker._completed) {
-                        //  CM IO is done - notify source, and delist it
-                        tracker._ioProcessor.finalizeIo(tracker._channelProgram, tracker._source);
-                        iter.remove();
-                        sleepFlag = false;
-                    } else {
-                        //  tracker is started and not completed.  Is the device IO complete?
-                        if (tracker._ioInfo._status != Device.IOStatus.InProgress) {
-                            //TODO
-                            sleepFlag = false;
-                        }
-                    }
-                }
-            }
-
-            if (sleepFlag) {
-                try {
-                    synchronized (this) { wait(100); }
-                } catch (InterruptedException ex) {
-                    LOGGER.catching(ex);
-                }
-            }
-        }
-
-        LOGGER.info("worker stopping for " + _name);
-    }
+    @Override
+    protected void completeIO(
+        final Tracker tracker
+    ) {}
 
     /**
-     * Transitions a tracker to the started state
+     * Builds the device IO for a tracker and hands it to the device.
+     * No word devices are implemented yet, so there is nothing we can hand the IO to - we fail it immediately,
+     * so that the channel program is finalized instead of holding up the device queue indefinitely.
+     * @return false, as the IO is done immediately
      */
-    private void startIO(
-        final WordTracker tracker
+    @Override
+    protected boolean startIO(
+        final Tracker tracker
     ) {
         ChannelProgram cp = tracker._channelProgram;
-        if (tracker._workingBuffer == null) {
-            tracker._ioInfo = new Device.IOInfo.NonTransferBuilder().setSource(this)
-                                                                    .setIOFunction(cp.getFunction())
-                                                                    .build();
-            Device device = (Device) _descendants.get(cp.getDeviceAddress());
-            device.ioStart(tracker._ioInfo);
-        } else {
-            //TODO what to do here?
-//            long blockId = cp.getBlockAddress() == null ? 0 : cp.getBlockAddress().getValue();
-//            tracker._ioInfo = new IOInfo.WordTransferBuilder().setSource(this)
-//                                                                    .setIOFunction(cp.getFunction())
-//                                                                    .setTransferCount(cp.getWordsRequested())
-//                                                                    .setBuffer()
-//                                                                    .setBlockId(blockId)
-//                                                                    .build();
-        }
-
-        tracker._started = true;
+        cp.setDeviceStatus(Device.IOStatus.InvalidFunction);
+        cp.setChannelStatus(ChannelStatus.DeviceError);
+        return false;
     }
 }
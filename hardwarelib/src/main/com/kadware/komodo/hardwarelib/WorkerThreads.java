@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2018-2020 by Kurt Duncan - All Rights Reserved
+ */
+
+package com.kadware.komodo.hardwarelib;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Creates the threads on which nodes do their work, according to the execution model of the InventoryManager.
+ * --
+ * For ExecutionModel.VirtualThreads, channel module and IOP workers are virtual threads, and device completion
+ * handlers run on a shared virtual-thread-per-task executor instead of the JDK's default channel group.
+ * Virtual threads are reached through reflection, so that we still build and run on runtimes which do not have them;
+ * there, we log a warning once and fall back to platform threads.
+ * --
+ * The workers park in LockSupport while idle, which releases the carrier thread of a virtual thread.
+ * IPs are always given platform threads, since they spin (rather than park) while running.
+ */
+final class WorkerThreads {
+
+    private static final Logger LOGGER = LogManager.getLogger(WorkerThreads.class);
+
+    private static final Method OF_VIRTUAL;             //  Thread.ofVirtual()
+    private static final Method BUILDER_NAME;           //  Thread.Builder.name(String)
+    private static final Method BUILDER_UNSTARTED;      //  Thread.Builder.unstarted(Runnable)
+    private static final Method NEW_VIRTUAL_EXECUTOR;   //  Executors.newVirtualThreadPerTaskExecutor()
+
+    static {
+        Method ofVirtual = null;
+        Method builderName = null;
+        Method builderUnstarted = null;
+        Method newVirtualExecutor = null;
+        try {
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            ofVirtual = Thread.class.getMethod("ofVirtual");
+            builderName = builderClass.getMethod("name", String.class);
+            builderUnstarted = builderClass.getMethod("unstarted", Runnable.class);
+            newVirtualExecutor = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (ClassNotFoundException | NoSuchMethodException ex) {
+            ofVirtual = null;
+        }
+
+        OF_VIRTUAL = ofVirtual;
+        BUILDER_NAME = builderName;
+        BUILDER_UNSTARTED = builderUnstarted;
+        NEW_VIRTUAL_EXECUTOR = newVirtualExecutor;
+    }
+
+    private static boolean _fallbackLogged = false;
+    private static ExecutorService _deviceExecutor = null;
+
+    private WorkerThreads() {}
+
+
+    //  ----------------------------------------------------------------------------------------------------------------------------
+    //  Non-public methods
+    //  ----------------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Reports whether virtual threads are to be used - that is, whether they have been asked for and are available
+     */
+    private static synchronized boolean useVirtualThreads() {
+        if (InventoryManager.getInstance().getExecutionModel() != InventoryManager.ExecutionModel.VirtualThreads) {
+            return false;
+        }
+
+        if (OF_VIRTUAL == null) {
+            if (!_fallbackLogged) {
+                LOGGER.warn(String.format("Virtual threads are not supported by Java %s - using platform threads",
+                                          System.getProperty("java.specification.version")));
+                _fallbackLogged = true;
+            }
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Invokes one of our reflected methods, which are not expected to fail
+     */
+    private static Object invoke(
+        final Method method,
+        final Object target,
+        final Object... args
+    ) {
+        try {
+            return method.invoke(target, args);
+        } catch (IllegalAccessException | InvocationTargetException ex) {
+            throw new RuntimeException(String.format("Cannot invoke %s:%s", method.getName(), ex.getMessage()), ex);
+        }
+    }
+
+
+    //  ----------------------------------------------------------------------------------------------------------------------------
+    //  Package-private methods
+    //  ----------------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Creates an unstarted worker thread for a channel module or an IOP, per the current execution model
+     * @param worker the node which is to run on the thread
+     * @param name name for the thread
+     */
+    static Thread createThread(
+        final Runnable worker,
+        final String name
+    ) {
+        if (useVirtualThreads()) {
+            Object builder = invoke(OF_VIRTUAL, null);
+            builder = invoke(BUILDER_NAME, builder, name);
+            return (Thread) invoke(BUILDER_UNSTARTED, builder, worker);
+        }
+
+        return createPlatformThread(worker, name);
+    }
+
+    /**
+     * Creates an unstarted platform thread, regardless of the current execution model
+     * @param worker the node which is to run on the thread
+     * @param name name for the thread
+     */
+    static Thread createPlatformThread(
+        final Runnable worker,
+        final String name
+    ) {
+        return new Thread(worker, name);
+    }
+
+    /**
+     * Opens a host file for a device, so that its completion handlers run per the current execution model
+     * @param path path of the host file
+     * @param options how the file is to be opened
+     * @throws IOException if the file cannot be opened
+     */
+    static AsynchronousFileChannel openChannel(
+        final Path path,
+        final Set<? extends OpenOption> options
+    ) throws IOException {
+        ExecutorService executor = null;
+        if (useVirtualThreads()) {
+            synchronized (WorkerThreads.class) {
+                if (_deviceExecutor == null) {
+                    _deviceExecutor = (ExecutorService) invoke(NEW_VIRTUAL_EXECUTOR, null);
+                }
+                executor = _deviceExecutor;
+            }
+        }
+
+        return AsynchronousFileChannel.open(path, options, executor);
+    }
+
+    /**
+     * Reports whether this runtime is able to create virtual threads
+     */
+    static boolean isVirtualThreadSupported() {
+        return OF_VIRTUAL != null;
+    }
+}
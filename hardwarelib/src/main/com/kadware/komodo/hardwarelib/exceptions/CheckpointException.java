@@ -0,0 +1,17 @@
+/*
+ * Copyright (c) 2018-2020 by Kurt Duncan - All Rights Reserved
+ */
+
+package com.kadware.komodo.hardwarelib.exceptions;
+
+/**
+ * Exception thrown when the system cannot be checkpointed, or cannot be resumed from a checkpoint
+ */
+public class CheckpointException extends Exception {
+
+    public CheckpointException(
+        final String message
+    ) {
+        super(message);
+    }
+}
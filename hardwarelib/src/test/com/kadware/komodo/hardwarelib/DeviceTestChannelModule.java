@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2018-2020 by Kurt Duncan - All Rights Reserved
+ */
+
+package com.kadware.komodo.hardwarelib;
+
+import com.kadware.komodo.baselib.ArraySlice;
+
+/**
+ * Channel module for device unit tests, which hands IOs straight to a device and waits for them to finish,
+ * without any channel programs or device queues.  The tests do not initialize it, so it has no worker.
+ */
+public class DeviceTestChannelModule extends ChannelModule {
+
+    DeviceTestChannelModule() {
+        super(ChannelModuleType.Byte, "TESTCM");
+    }
+
+    //  Only for satisfying the compiler
+    @Override
+    protected Tracker createTracker(
+        final Processor source,
+        final InputOutputProcessor ioProcessor,
+        final ChannelProgram channelProgram,
+        final ArraySlice buffer
+    ) {
+        return null;
+    }
+
+    //  Only for satisfying the compiler
+    @Override
+    protected void completeIO(
+        final Tracker tracker
+    ) {}
+
+    //  Only for satisfying the compiler
+    @Override
+    protected boolean startIO(
+        final Tracker tracker
+    ) {
+        return false;
+    }
+
+    /**
+     * Hands an IO to the device, and waits for the device to finish it
+     */
+    void submitAndWait(
+        final Device target,
+        final Device.IOInfo deviceIoInfo
+    ) {
+        if (target.handleIo(deviceIoInfo)) {
+            synchronized (deviceIoInfo) {
+                while (deviceIoInfo._status == Device.IOStatus.InProgress) {
+                    try {
+                        deviceIoInfo.wait(1);
+                    } catch (InterruptedException ex) {
+                        //  leave the IO in progress, for the test to notice
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public void run() {
+        while (!_workerTerminate) {
+            waitForWork(1000);
+        }
+    }
+}
@@ -8,12 +8,15 @@ import com.kadware.komodo.baselib.ArraySlice;
 import com.kadware.komodo.baselib.Credentials;
 import com.kadware.komodo.hardwarelib.exceptions.*;
 import com.kadware.komodo.hardwarelib.interrupts.AddressingExceptionInterrupt;
+import java.io.File;
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.function.IntSupplier;
 import static org.junit.Assert.*;
 import org.junit.*;
 
@@ -358,6 +361,83 @@ public class Test_ByteChannelModule {
         public void writeBuffersToLog(IOInfo ioInfo) {}
     }
 
+    /**
+     * Disk device which holds on to its IOs until the test releases them, noting the order in which they arrive
+     */
+    private static class HeldDiskDevice extends DiskDevice {
+
+        private final boolean _directBuffers;
+        private final List<IOInfo> _held = new LinkedList<>();
+        private final byte[] _pack = new byte[128 * 1000];
+        private final List<Integer> _startedTransferCounts = new LinkedList<>();
+        private final List<Long> _startedBlockIds = new LinkedList<>();
+
+        HeldDiskDevice() {
+            this(false);
+        }
+
+        HeldDiskDevice(
+            final boolean directBuffers
+        ) {
+            super(Model.None, "DISK1");
+            _directBuffers = directBuffers;
+            _blockSize = 128;
+            _blockCount = 1000L;
+            _isMounted = true;
+            _readyFlag = true;
+        }
+
+        @Override public boolean canConnect(Node ancestor) { return true; }
+        @Override public void clear() {}
+        @Override public boolean hasByteInterface() { return true; }
+        @Override public boolean hasDirectBufferInterface() { return _directBuffers; }
+        @Override public boolean hasWordInterface() { return false; }
+        @Override public void initialize() {}
+        @Override void ioGetInfo(IOInfo ioInfo) {}
+        @Override void ioRead(IOInfo ioInfo) {}
+        @Override void ioReset(IOInfo ioInfo) {}
+        @Override void ioUnload(IOInfo ioInfo) {}
+        @Override void ioWrite(IOInfo ioInfo) {}
+        @Override public void terminate() {}
+
+        @Override
+        public synchronized boolean handleIo(
+            final IOInfo ioInfo
+        ) {
+            ioInfo._status = IOStatus.InProgress;
+            _startedBlockIds.add(ioInfo._blockId);
+            _startedTransferCounts.add(ioInfo._transferCount);
+            _held.add(ioInfo);
+            return true;
+        }
+
+        synchronized List<Long> getStartedBlockIds() { return new LinkedList<>(_startedBlockIds); }
+        synchronized List<Integer> getStartedTransferCounts() { return new LinkedList<>(_startedTransferCounts); }
+
+        /**
+         * Completes the oldest held IO
+         */
+        synchronized void release() {
+            IOInfo ioInfo = _held.remove(0);
+            int offset = (int) ioInfo._blockId * _blockSize;
+            if (ioInfo._ioBuffer != null) {
+                if (ioInfo._ioFunction.isReadFunction()) {
+                    ioInfo._ioBuffer.put(0, _pack, offset, ioInfo._transferCount);
+                } else {
+                    ioInfo._ioBuffer.get(0, _pack, offset, ioInfo._transferCount);
+                }
+            } else if (ioInfo._ioFunction.isReadFunction()) {
+                ioInfo._byteBuffer = new byte[ioInfo._transferCount];
+                System.arraycopy(_pack, offset, ioInfo._byteBuffer, 0, ioInfo._transferCount);
+            } else {
+                System.arraycopy(ioInfo._byteBuffer, 0, _pack, offset, ioInfo._transferCount);
+            }
+            ioInfo._transferredCount = ioInfo._transferCount;
+            ioInfo._status = IOStatus.Successful;
+            ioInfo._source.signal(ioInfo);
+        }
+    }
+
     //  ----------------------------------------------------------------------------------------------------------------------------
     //  members
     //  ----------------------------------------------------------------------------------------------------------------------------
@@ -377,6 +457,17 @@ public class Test_ByteChannelModule {
 
     private void setup(
         final Device.Type deviceType
+    ) throws CannotConnectException,
+             MaxNodesException {
+        if (deviceType == Device.Type.Disk) {
+            setup(new TestDiskDevice());
+        } else if (deviceType == Device.Type.Tape) {
+            setup(new TestTapeDevice());
+        }
+    }
+
+    private void setup(
+        final Device device
     ) throws CannotConnectException,
              MaxNodesException {
         //  Create stub nodes and one real channel module
@@ -389,13 +480,7 @@ public class Test_ByteChannelModule {
         _iop = im.createInputOutputProcessor("IOP0");
         _msp = im.createMainStorageProcessor("MSP0", 1024 * 1024);
         _cm = new ByteChannelModule("CM0-0");
-        if (deviceType == Device.Type.Disk) {
-            _device = new TestDiskDevice();
-        } else if (deviceType == Device.Type.Tape) {
-            _device = new TestTapeDevice();
-
-        }
-
+        _device = device;
         _cmIndex = Math.abs(_random.nextInt()) % 6;
         _deviceIndex = Math.abs(_random.nextInt() % 16);
         Node.connect(_iop, _cmIndex, _cm);
@@ -1080,4 +1165,308 @@ public class Test_ByteChannelModule {
     public void io_formatD_stopBit() {
         //TODO - for tape
     }
+
+    /**
+     * Runs a channel program against the device under test, waiting a limited time for it to finish
+     */
+    private ChannelModule.ChannelProgram runTapeIO(
+        final Device.IOFunction function,
+        final ArraySlice buffer
+    ) {
+        ChannelModule.ChannelProgram cp = new ChannelModule.ChannelProgram.Builder().setIopUpiIndex(_iop._upiIndex)
+                                                                                    .setChannelModuleIndex(_cmIndex)
+                                                                                    .setDeviceAddress(_deviceIndex)
+                                                                                    .setIOFunction(function)
+                                                                                    .setAccessControlWords(new AccessControlWord[0])
+                                                                                    .setByteTranslationFormat(ChannelModule.ByteTranslationFormat.QuarterWordPerByte)
+                                                                                    .build();
+        assertTrue(_cm.scheduleChannelProgram(_ip, _iop, cp, buffer));
+        long limit = System.currentTimeMillis() + 10000;
+        while (cp.getChannelStatus() == ChannelModule.ChannelStatus.InProgress) {
+            assertTrue(String.format("%s did not finish", function), System.currentTimeMillis() < limit);
+            Thread.onSpinWait();
+        }
+        return cp;
+    }
+
+    /**
+     * Drives a real tape device, including the IOs it finishes without waiting for the host file,
+     * and makes sure that every one of them gets back to the channel module.
+     */
+    @Test
+    public void fileSystemTape_immediateCompletions(
+    ) throws CannotConnectException,
+             IOException,
+             MaxNodesException {
+        File file = File.createTempFile("TEST", ".vol");
+        assertTrue(file.delete());
+        String fileName = file.getPath();
+        FileSystemTapeDevice.createVolume(fileName);
+
+        FileSystemTapeDevice device = new FileSystemTapeDevice("TAPE0");
+        assertTrue(device.mount(fileName));
+        assertTrue(device.setReady(true));
+        assertTrue(device.setIsWriteProtected(false));
+        setup(device);
+
+        //  Unit attention is posted at once, until GetInfo clears it
+        ChannelModule.ChannelProgram cp = runTapeIO(Device.IOFunction.Rewind, null);
+        assertEquals(ChannelModule.ChannelStatus.DeviceError, cp.getChannelStatus());
+        assertEquals(Device.IOStatus.UnitAttention, cp.getDeviceStatus());
+        cp = runTapeIO(Device.IOFunction.GetInfo, new ArraySlice(new long[28]));
+        assertEquals(ChannelModule.ChannelStatus.Successful, cp.getChannelStatus());
+
+        //  Rewind at load point, and SetMode, are also finished at once
+        cp = runTapeIO(Device.IOFunction.Rewind, null);
+        assertEquals(Device.IOStatus.EndOfTape, cp.getDeviceStatus());
+        cp = runTapeIO(Device.IOFunction.SetMode, null);
+        assertEquals(Device.IOStatus.InvalidFunction, cp.getDeviceStatus());
+
+        ArraySlice data = createBlockBuffer(1);
+        cp = runTapeIO(Device.IOFunction.Write, data);
+        assertEquals(ChannelModule.ChannelStatus.Successful, cp.getChannelStatus());
+        cp = runTapeIO(Device.IOFunction.WriteEndOfFile, null);
+        assertEquals(ChannelModule.ChannelStatus.Successful, cp.getChannelStatus());
+        cp = runTapeIO(Device.IOFunction.Rewind, null);
+        assertEquals(ChannelModule.ChannelStatus.Successful, cp.getChannelStatus());
+
+        //  The first read fills the read-ahead window, the second is satisfied from it
+        ArraySlice result = new ArraySlice(new long[32]);
+        cp = runTapeIO(Device.IOFunction.Read, result);
+        assertEquals(ChannelModule.ChannelStatus.Successful, cp.getChannelStatus());
+        assertArrayEquals(data.getAll(), result.getAll());
+        cp = runTapeIO(Device.IOFunction.Read, new ArraySlice(new long[32]));
+        assertEquals(Device.IOStatus.FileMark, cp.getDeviceStatus());
+
+        teardown();
+        device.unmount();
+        assertTrue(file.delete());
+    }
+
+    private ChannelModule.ChannelProgram scheduleDiskIO(
+        final Device.IOFunction function,
+        final long blockId
+    ) {
+        return scheduleDiskIO(function, blockId, new ArraySlice(new long[28]));
+    }
+
+    private ChannelModule.ChannelProgram scheduleDiskIO(
+        final Device.IOFunction function,
+        final long blockId,
+        final ArraySlice buffer
+    ) {
+        ChannelModule.ChannelProgram cp = new ChannelModule.ChannelProgram.Builder().setIopUpiIndex(_iop._upiIndex)
+                                                                                    .setChannelModuleIndex(_cmIndex)
+                                                                                    .setDeviceAddress(_deviceIndex)
+                                                                                    .setIOFunction(function)
+                                                                                    .setBlockId(blockId)
+                                                                                    .setAccessControlWords(new AccessControlWord[0])
+                                                                                    .setByteTranslationFormat(ChannelModule.ByteTranslationFormat.QuarterWordPerByte)
+                                                                                    .build();
+        assertTrue(_cm.scheduleChannelProgram(_ip, _iop, cp, buffer));
+        return cp;
+    }
+
+    /**
+     * Waits for the device to see the given number of IOs, or for the channel module to have queued them
+     */
+    private static void awaitCount(
+        final IntSupplier counter,
+        final int count
+    ) {
+        long limit = System.currentTimeMillis() + 10000;
+        while (counter.getAsInt() < count) {
+            assertTrue(System.currentTimeMillis() < limit);
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Holds the first IO on the device, queues a number of others behind it, then releases them one at a time
+     * @return the order in which the device saw the block ids
+     */
+    private List<Long> runHeldIOs(
+        final HeldDiskDevice device,
+        final long deadlineMillis
+    ) throws CannotConnectException,
+             MaxNodesException {
+        setup(device);
+        _cm.setDeviceQueueDepth(_deviceIndex, 1);
+        _cm.setDeviceQueueDeadline(_deviceIndex, deadlineMillis);
+        ChannelModule.DeviceQueue queue = _cm.getDeviceQueue(_deviceIndex);
+
+        List<ChannelModule.ChannelProgram> cps = new LinkedList<>();
+        cps.add(scheduleDiskIO(Device.IOFunction.Read, 100));
+        awaitCount(() -> device.getStartedBlockIds().size(), 1);
+        cps.add(scheduleDiskIO(Device.IOFunction.Read, 50));
+        cps.add(scheduleDiskIO(Device.IOFunction.Read, 200));
+        cps.add(scheduleDiskIO(Device.IOFunction.Read, 150));
+        cps.add(scheduleDiskIO(Device.IOFunction.Read, 10));
+        cps.add(scheduleDiskIO(Device.IOFunction.Write, 300));
+        cps.add(scheduleDiskIO(Device.IOFunction.Read, 300));
+        awaitCount(queue::getDepth, cps.size());
+
+        for (int x = 1; x < cps.size(); ++x) {
+            device.release();
+            awaitCount(() -> device.getStartedBlockIds().size(), x + 1);
+        }
+        device.release();
+
+        for (ChannelModule.ChannelProgram cp : cps) {
+            while (cp.getChannelStatus() == ChannelModule.ChannelStatus.InProgress) {
+                Thread.onSpinWait();
+            }
+            assertEquals(ChannelModule.ChannelStatus.Successful, cp.getChannelStatus());
+        }
+
+        while (!_cm.isIdle()) {
+            Thread.onSpinWait();
+        }
+
+        assertEquals(cps.size(), queue.getStartedCount());
+        assertEquals(cps.size(), queue.getCompletedCount());
+        assertEquals(cps.size(), queue.getMaxDepth());
+        assertEquals(0, queue.getDepth());
+        List<Long> result = device.getStartedBlockIds();
+        teardown();
+        return result;
+    }
+
+    @Test
+    public void scheduler_elevator(
+    ) throws CannotConnectException,
+             MaxNodesException {
+        //  Ascending from the end of the first IO, then wrapping - but the read of 300 may not pass the write of 300
+        List<Long> order = runHeldIOs(new HeldDiskDevice(), 60000);
+        assertEquals(Arrays.asList(100L, 150L, 200L, 300L, 10L, 50L, 300L), order);
+    }
+
+    @Test
+    public void scheduler_deadline(
+    ) throws CannotConnectException,
+             MaxNodesException {
+        //  Everything is past its deadline immediately, so everything goes in arrival order
+        List<Long> order = runHeldIOs(new HeldDiskDevice(), 0);
+        assertEquals(Arrays.asList(100L, 50L, 200L, 150L, 10L, 300L, 300L), order);
+    }
+
+    /**
+     * Waits for the given channel programs to complete, and checks that they were successful
+     */
+    private static void awaitSuccess(
+        final List<ChannelModule.ChannelProgram> cps
+    ) {
+        for (ChannelModule.ChannelProgram cp : cps) {
+            while (cp.getChannelStatus() == ChannelModule.ChannelStatus.InProgress) {
+                Thread.onSpinWait();
+            }
+            assertEquals(ChannelModule.ChannelStatus.Successful, cp.getChannelStatus());
+        }
+    }
+
+    /**
+     * Creates a buffer of one block (in format A) of recognizable data
+     */
+    private static ArraySlice createBlockBuffer(
+        final int seed
+    ) {
+        ArraySlice buffer = new ArraySlice(new long[32]);
+        for (int wx = 0; wx < 32; ++wx) {
+            long quarter = (seed * 32 + wx) & 0377;
+            buffer.set(wx, (quarter << 27) | (quarter << 18) | (quarter << 9) | quarter);
+        }
+        return buffer;
+    }
+
+    /**
+     * Queues contiguous writes, then contiguous reads, behind held IOs, and checks how they were coalesced
+     */
+    private void runCoalescing(
+        final HeldDiskDevice device
+    ) throws CannotConnectException,
+             MaxNodesException {
+        setup(device);
+        _cm.setDeviceQueueDepth(_deviceIndex, 1);
+        ChannelModule.DeviceQueue queue = _cm.getDeviceQueue(_deviceIndex);
+
+        //  Contiguous writes queued behind a held write go to the device as one IO, and the unrelated write separately
+        List<ChannelModule.ChannelProgram> cps = new LinkedList<>();
+        cps.add(scheduleDiskIO(Device.IOFunction.Write, 0, createBlockBuffer(0)));
+        awaitCount(() -> device.getStartedBlockIds().size(), 1);
+        cps.add(scheduleDiskIO(Device.IOFunction.Write, 2, createBlockBuffer(2)));
+        cps.add(scheduleDiskIO(Device.IOFunction.Write, 10, createBlockBuffer(10)));
+        cps.add(scheduleDiskIO(Device.IOFunction.Write, 1, createBlockBuffer(1)));
+        cps.add(scheduleDiskIO(Device.IOFunction.Write, 3, createBlockBuffer(3)));
+        awaitCount(queue::getDepth, cps.size());
+        device.release();
+        awaitCount(() -> device.getStartedBlockIds().size(), 2);
+        device.release();
+        awaitCount(() -> device.getStartedBlockIds().size(), 3);
+        device.release();
+        awaitSuccess(cps);
+
+        assertEquals(Arrays.asList(0L, 1L, 10L), device.getStartedBlockIds());
+        assertEquals(Arrays.asList(128, 384, 128), device.getStartedTransferCounts());
+        assertEquals(2, queue.getCoalescedCount());
+        for (ChannelModule.ChannelProgram cp : cps) {
+            assertEquals(32, cp.getWordsTransferred());
+        }
+
+        //  Contiguous reads are coalesced up to the limit, and each gets its own part of the data
+        _cm.setDeviceQueueCoalescing(_deviceIndex, 256, 0);
+        cps.clear();
+        List<ArraySlice> buffers = new LinkedList<>();
+        for (int bx = 0; bx < 4; ++bx) {
+            buffers.add(new ArraySlice(new long[32]));
+        }
+        cps.add(scheduleDiskIO(Device.IOFunction.Read, 10, new ArraySlice(new long[32])));
+        awaitCount(() -> device.getStartedBlockIds().size(), 4);
+        for (int bx = 0; bx < 4; ++bx) {
+            cps.add(scheduleDiskIO(Device.IOFunction.Read, bx, buffers.get(bx)));
+        }
+        awaitCount(queue::getDepth, cps.size());
+        for (int x = 0; x < 2; ++x) {
+            device.release();
+            awaitCount(() -> device.getStartedBlockIds().size(), 5 + x);
+        }
+        awaitSuccess(cps.subList(0, 3));
+        device.release();
+        awaitSuccess(cps);
+
+        assertEquals(Arrays.asList(0L, 1L, 10L, 10L, 0L, 2L), device.getStartedBlockIds());
+        assertEquals(Arrays.asList(128, 384, 128, 128, 256, 256), device.getStartedTransferCounts());
+        assertEquals(4, queue.getCoalescedCount());
+        for (int bx = 0; bx < 4; ++bx) {
+            assertArrayEquals(createBlockBuffer(bx).getAll(), buffers.get(bx).getAll());
+            assertEquals(32, cps.get(bx + 1).getWordsTransferred());
+        }
+
+        while (!_cm.isIdle()) {
+            Thread.onSpinWait();
+        }
+        assertEquals(10, queue.getStartedCount());
+        assertEquals(10, queue.getCompletedCount());
+        teardown();
+    }
+
+    @Test
+    public void scheduler_coalescing(
+    ) throws CannotConnectException,
+             MaxNodesException {
+        runCoalescing(new HeldDiskDevice());
+    }
+
+    @Test
+    public void scheduler_coalescing_pooledBuffers(
+    ) throws CannotConnectException,
+             MaxNodesException {
+        IOBufferPool pool = IOBufferPool.getInstance();
+        long requests = pool.getRequests();
+        long releases = pool.getReleases();
+        runCoalescing(new HeldDiskDevice(true));
+
+        //  one pooled buffer for each device IO, and each given back
+        assertEquals(6, pool.getRequests() - requests);
+        assertEquals(6, pool.getReleases() - releases);
+    }
 }
@@ -12,9 +12,7 @@ import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
-import java.util.Iterator;
-import java.util.LinkedList;
-import java.util.List;
+import java.util.Arrays;
 import java.util.Random;
 import org.junit.*;
 import static org.junit.Assert.*;
@@ -24,70 +22,6 @@ import static org.junit.Assert.*;
  */
 public class Test_FileSystemDiskDevice {
 
-    public static class TestChannelModule extends ChannelModule {
-
-        private final List<Device.IOInfo> _ioList = new LinkedList<>();
-
-        private TestChannelModule() {
-            super(ChannelModuleType.Byte, "TESTCM");
-        }
-
-        //  Only for satisfying the compiler
-        protected Tracker createTracker(
-            Processor p,
-            InputOutputProcessor iop,
-            ChannelProgram cp,
-            ArraySlice buffer
-        ) {
-            return null;
-        }
-
-        //  This is the real thing
-        void submitAndWait(
-            final Device target,
-            final Device.IOInfo deviceIoInfo
-        ) {
-            if (target.handleIo(deviceIoInfo)) {
-                synchronized (_ioList) {
-                    _ioList.add(deviceIoInfo);
-                }
-
-                synchronized (deviceIoInfo) {
-                    while (deviceIoInfo._status == Device.IOStatus.InProgress) {
-                        try {
-                            deviceIoInfo.wait(1);
-                        } catch (InterruptedException ex) {
-                            System.out.println(ex.getMessage());
-                        }
-                    }
-                }
-            }
-        }
-
-        public void run() {
-            while (!_workerTerminate) {
-                synchronized (_workerThread) {
-                    try {
-                        _workerThread.wait(1000);
-                    } catch (InterruptedException ex) {
-                        System.out.println(ex.getMessage());
-                    }
-                }
-
-                synchronized (_ioList) {
-                    Iterator<Device.IOInfo> iter = _ioList.iterator();
-                    while (iter.hasNext()) {
-                        Device.IOInfo ioInfo = iter.next();
-                        if (ioInfo._status != Device.IOStatus.InProgress) {
-                            iter.remove();
-                            ioInfo._status.notify();
-                        }
-                    }
-                }
-            }
-        }
-    }
-
     public static class TestDevice extends FileSystemDiskDevice {
 
         TestDevice() { super("TEST"); }
@@ -136,10 +70,211 @@ public class Test_FileSystemDiskDevice {
     }
 
 
+    /**
+     * Reads the given logical block directly from the host file - zeroes if the file does not reach that far
+     */
+    private static byte[] readHostBlock(
+        final String fileName,
+        final int blockSize,
+        final long blockId
+    ) throws IOException {
+        byte[] buffer = new byte[blockSize];
+        RandomAccessFile file = new RandomAccessFile(fileName, "r");
+        long offset = (blockId + 1) * blockSize;
+        if (offset < file.length()) {
+            file.seek(offset);
+            file.readFully(buffer);
+        }
+        file.close();
+        return buffer;
+    }
+
+    private static Device.IOInfo readBlocks(
+        final DeviceTestChannelModule cm,
+        final TestDevice d,
+        final long blockId,
+        final int byteCount
+    ) {
+        Device.IOInfo ioInfo = new Device.IOInfo.ByteTransferBuilder().setSource(cm)
+                                                                      .setIOFunction(Device.IOFunction.Read)
+                                                                      .setBlockId(blockId)
+                                                                      .setTransferCount(byteCount)
+                                                                      .build();
+        cm.submitAndWait(d, ioInfo);
+        assertEquals(Device.IOStatus.Successful, ioInfo._status);
+        assertEquals(byteCount, ioInfo._transferredCount);
+        return ioInfo;
+    }
+
+    private static void writeBlocks(
+        final DeviceTestChannelModule cm,
+        final TestDevice d,
+        final long blockId,
+        final byte[] buffer
+    ) {
+        Device.IOInfo ioInfo = new Device.IOInfo.ByteTransferBuilder().setSource(cm)
+                                                                      .setIOFunction(Device.IOFunction.Write)
+                                                                      .setBlockId(blockId)
+                                                                      .setBuffer(buffer)
+                                                                      .setTransferCount(buffer.length)
+                                                                      .build();
+        cm.submitAndWait(d, ioInfo);
+        assertEquals(Device.IOStatus.Successful, ioInfo._status);
+        assertEquals(buffer.length, ioInfo._transferredCount);
+    }
+
+    /**
+     * Creates a pack, mounts it on a new device with the given cache, and eats the UA
+     */
+    private static TestDevice setupCachedDevice(
+        final DeviceTestChannelModule cm,
+        final String fileName,
+        final int blockSize,
+        final DiskBlockCache cache
+    ) throws Exception {
+        long blockCount = 10000 * PrepFactor.getBlocksPerTrack(PrepFactor.getPrepFactorFromBlockSize(blockSize));
+        FileSystemDiskDevice.createPack(fileName, blockSize, blockCount);
+        TestDevice d = new TestDevice();
+        d.setBlockCache(cache);
+        d.mount(fileName);
+        d.setReady(true);
+        Device.IOInfo ioInfo = new Device.IOInfo.ByteTransferBuilder().setSource(cm)
+                                                                      .setIOFunction(Device.IOFunction.GetInfo)
+                                                                      .setTransferCount(128)
+                                                                      .build();
+        cm.submitAndWait(d, ioInfo);
+        return d;
+    }
+
+
     //  ----------------------------------------------------------------------------------------------------------------------------
     //  Tests
     //  ----------------------------------------------------------------------------------------------------------------------------
 
+    @Test
+    public void blockCache_writeBack_flushOnReset(
+    ) throws Exception {
+        String fileName = getTestFileName();
+        DiskBlockCache cache = new DiskBlockCache(1024 * 1024, DiskBlockCache.WritePolicy.WriteBack);
+        DeviceTestChannelModule cm = new DeviceTestChannelModule();
+        TestDevice d = setupCachedDevice(cm, fileName, 512, cache);
+
+        byte[] data = new byte[4 * 512];
+        new Random(1).nextBytes(data);
+        writeBlocks(cm, d, 10, data);
+        assertEquals(4, cache.getDirtyBlockCount(d));
+        assertArrayEquals(new byte[512], readHostBlock(fileName, 512, 10));
+
+        //  Read back from the cache, and also a range which is half in and half out of the cache
+        Device.IOInfo ioInfo = readBlocks(cm, d, 10, 4 * 512);
+        assertArrayEquals(data, ioInfo._byteBuffer);
+        assertEquals(4, d.getCacheHits());
+        assertEquals(0, d.getCacheMisses());
+        ioInfo = readBlocks(cm, d, 12, 4 * 512);
+        assertArrayEquals(Arrays.copyOfRange(data, 2 * 512, 4 * 512), Arrays.copyOfRange(ioInfo._byteBuffer, 0, 2 * 512));
+        assertArrayEquals(new byte[2 * 512], Arrays.copyOfRange(ioInfo._byteBuffer, 2 * 512, 4 * 512));
+        assertEquals(6, d.getCacheHits());
+        assertEquals(2, d.getCacheMisses());
+
+        Device.IOInfo resetInfo = new Device.IOInfo.NonTransferBuilder().setSource(cm)
+                                                                        .setIOFunction(Device.IOFunction.Reset)
+                                                                        .build();
+        cm.submitAndWait(d, resetInfo);
+        assertEquals(Device.IOStatus.Successful, resetInfo._status);
+        assertEquals(0, cache.getDirtyBlockCount(d));
+        for (int bx = 0; bx < 4; ++bx) {
+            assertArrayEquals(Arrays.copyOfRange(data, bx * 512, (bx + 1) * 512), readHostBlock(fileName, 512, 10 + bx));
+        }
+
+        d.unmount();
+        assertEquals(0, cache.getUsedBytes());
+        deleteTestFile(fileName);
+    }
+
+    @Test
+    public void blockCache_writeBack_eviction(
+    ) throws Exception {
+        String fileName = getTestFileName();
+        DiskBlockCache cache = new DiskBlockCache(2 * 1024, DiskBlockCache.WritePolicy.WriteBack);
+        DeviceTestChannelModule cm = new DeviceTestChannelModule();
+        TestDevice d = setupCachedDevice(cm, fileName, 1024, cache);
+
+        Random r = new Random(2);
+        byte[][] blocks = new byte[4][1024];
+        for (int bx = 0; bx < 4; ++bx) {
+            r.nextBytes(blocks[bx]);
+            writeBlocks(cm, d, 100 + bx, blocks[bx]);
+        }
+
+        //  The two least-recently-used blocks have been written to the host file to make room
+        assertEquals(2, cache.getEvictions());
+        assertEquals(2, cache.getWriteBacks());
+        assertEquals(2, cache.getDirtyBlockCount(d));
+        assertEquals(2 * 1024, cache.getUsedBytes());
+        assertArrayEquals(blocks[0], readHostBlock(fileName, 1024, 100));
+        assertArrayEquals(blocks[1], readHostBlock(fileName, 1024, 101));
+        assertArrayEquals(new byte[1024], readHostBlock(fileName, 1024, 103));
+
+        for (int bx = 0; bx < 4; ++bx) {
+            assertArrayEquals(blocks[bx], readBlocks(cm, d, 100 + bx, 1024)._byteBuffer);
+        }
+
+        //  Unload writes everything back
+        Device.IOInfo unloadInfo = new Device.IOInfo.NonTransferBuilder().setSource(cm)
+                                                                         .setIOFunction(Device.IOFunction.Unload)
+                                                                         .build();
+        cm.submitAndWait(d, unloadInfo);
+        assertEquals(Device.IOStatus.Successful, unloadInfo._status);
+        assertEquals(0, cache.getUsedBytes());
+        for (int bx = 0; bx < 4; ++bx) {
+            assertArrayEquals(blocks[bx], readHostBlock(fileName, 1024, 100 + bx));
+        }
+
+        deleteTestFile(fileName);
+    }
+
+    @Test
+    public void blockCache_writeThrough_shared(
+    ) throws Exception {
+        String fileName1 = getTestFileName();
+        String fileName2 = getTestFileName();
+        DiskBlockCache cache = new DiskBlockCache(1024 * 1024, DiskBlockCache.WritePolicy.WriteThrough);
+        DeviceTestChannelModule cm = new DeviceTestChannelModule();
+        TestDevice d1 = setupCachedDevice(cm, fileName1, 256, cache);
+        TestDevice d2 = setupCachedDevice(cm, fileName2, 2048, cache);
+
+        byte[] data1 = new byte[256];
+        byte[] data2 = new byte[2048];
+        new Random(3).nextBytes(data1);
+        new Random(4).nextBytes(data2);
+        writeBlocks(cm, d1, 5, data1);
+        writeBlocks(cm, d2, 5, data2);
+        assertEquals(0, cache.getDirtyBlockCount(d1));
+        assertEquals(0, cache.getDirtyBlockCount(d2));
+        assertArrayEquals(data1, readHostBlock(fileName1, 256, 5));
+        assertArrayEquals(data2, readHostBlock(fileName2, 2048, 5));
+
+        //  Same block id on two devices are two different blocks
+        assertArrayEquals(data1, readBlocks(cm, d1, 5, 256)._byteBuffer);
+        assertArrayEquals(data2, readBlocks(cm, d2, 5, 2048)._byteBuffer);
+        assertEquals(1, d1.getCacheHits());
+        assertEquals(1, d2.getCacheHits());
+
+        //  A miss is cached for next time
+        readBlocks(cm, d1, 7, 256);
+        readBlocks(cm, d1, 7, 256);
+        assertEquals(2, d1.getCacheHits());
+        assertEquals(1, d1.getCacheMisses());
+        assertEquals(256 * 2 + 2048, cache.getUsedBytes());
+
+        d1.unmount();
+        assertEquals(2048, cache.getUsedBytes());
+        d2.unmount();
+        assertEquals(0, cache.getUsedBytes());
+        deleteTestFile(fileName1);
+        deleteTestFile(fileName2);
+    }
+
     @Test
     public void create(
     ) {
@@ -261,7 +396,7 @@ public class Test_FileSystemDiskDevice {
         int blockSize = 8192;
         FileSystemDiskDevice.createPack(fileName, blockSize, blockCount);
 
-        TestChannelModule cm = new TestChannelModule();
+        DeviceTestChannelModule cm = new DeviceTestChannelModule();
         FileSystemDiskDevice d = new FileSystemDiskDevice("DISK0");
         d.mount(fileName);
         d.setReady(true);
@@ -310,7 +445,7 @@ public class Test_FileSystemDiskDevice {
         long blockCount = 10000 * PrepFactor.getBlocksPerTrack(prepFactor);
         FileSystemDiskDevice.createPack(fileName, blockSize, blockCount);
 
-        TestChannelModule cm = new TestChannelModule();
+        DeviceTestChannelModule cm = new DeviceTestChannelModule();
         TestDevice d = new TestDevice();
         d.mount(fileName);
         d.setReady(false);
@@ -342,7 +477,7 @@ public class Test_FileSystemDiskDevice {
         long blockCount = 10000 * PrepFactor.getBlocksPerTrack(prepFactor);
         FileSystemDiskDevice.createPack(fileName, blockSize, blockCount);
 
-        TestChannelModule cm = new TestChannelModule();
+        DeviceTestChannelModule cm = new DeviceTestChannelModule();
         TestDevice d = new TestDevice();
         d.mount(fileName);
         d.setReady(true);
@@ -379,7 +514,7 @@ public class Test_FileSystemDiskDevice {
         long blockCount = 10000 * PrepFactor.getBlocksPerTrack(prepFactor);
         FileSystemDiskDevice.createPack(fileName, blockSize, blockCount);
 
-        TestChannelModule cm = new TestChannelModule();
+        DeviceTestChannelModule cm = new DeviceTestChannelModule();
         TestDevice d = new TestDevice();
         d.mount(fileName);
         d.setReady(true);
@@ -416,7 +551,7 @@ public class Test_FileSystemDiskDevice {
         long blockCount = 10000 * PrepFactor.getBlocksPerTrack(prepFactor);
         FileSystemDiskDevice.createPack(fileName, blockSize, blockCount);
 
-        TestChannelModule cm = new TestChannelModule();
+        DeviceTestChannelModule cm = new DeviceTestChannelModule();
         TestDevice d = new TestDevice();
         d.mount(fileName);
         d.setReady(true);
@@ -453,7 +588,7 @@ public class Test_FileSystemDiskDevice {
         long blockCount = 10000 * PrepFactor.getBlocksPerTrack(prepFactor);
         FileSystemDiskDevice.createPack(fileName, blockSize, blockCount);
 
-        TestChannelModule cm = new TestChannelModule();
+        DeviceTestChannelModule cm = new DeviceTestChannelModule();
         TestDevice d = new TestDevice();
         d.mount(fileName);
         d.setReady(true);
@@ -483,7 +618,7 @@ public class Test_FileSystemDiskDevice {
         int blockSize = 8192;
         FileSystemDiskDevice.createPack(fileName, blockSize, blockCount);
 
-        TestChannelModule cm = new TestChannelModule();
+        DeviceTestChannelModule cm = new DeviceTestChannelModule();
         FileSystemDiskDevice d = new TestDevice();
         d.mount(fileName);
         d.setReady(true);
@@ -510,7 +645,7 @@ public class Test_FileSystemDiskDevice {
         int blockSize = 8192;
         FileSystemDiskDevice.createPack(fileName, blockSize, blockCount);
 
-        TestChannelModule cm = new TestChannelModule();
+        DeviceTestChannelModule cm = new DeviceTestChannelModule();
         FileSystemDiskDevice d = new FileSystemDiskDevice("DISK0");
         d.mount(fileName);
         d.setReady(false);
@@ -532,7 +667,7 @@ public class Test_FileSystemDiskDevice {
     @Test
     public void ioStart_failed_badFunction(
     ) {
-        TestChannelModule cm = new TestChannelModule();
+        DeviceTestChannelModule cm = new DeviceTestChannelModule();
         FileSystemDiskDevice d = new FileSystemDiskDevice("DISK0");
 
         Device.IOInfo[] ioInfos = {
@@ -583,7 +718,7 @@ public class Test_FileSystemDiskDevice {
     @Test
     public void ioStart_none(
     ) {
-        TestChannelModule cm = new TestChannelModule();
+        DeviceTestChannelModule cm = new DeviceTestChannelModule();
         FileSystemDiskDevice d = new FileSystemDiskDevice("DISK0");
         Device.IOInfo ioInfo = new Device.IOInfo.NonTransferBuilder().setSource(cm)
                                                                      .setIOFunction(Device.IOFunction.None)
@@ -608,7 +743,7 @@ public class Test_FileSystemDiskDevice {
         file.write(buffer);
         file.close();
 
-        TestChannelModule cm = new TestChannelModule();
+        DeviceTestChannelModule cm = new DeviceTestChannelModule();
         TestDevice d = new TestDevice();
         d.mount(fileName);
         d.setReady(true);
@@ -637,7 +772,7 @@ public class Test_FileSystemDiskDevice {
         file.write(buffer);
         file.close();
 
-        TestChannelModule cm = new TestChannelModule();
+        DeviceTestChannelModule cm = new DeviceTestChannelModule();
         TestDevice d = new TestDevice();
         d.mount(fileName);
         d.setReady(false);
@@ -668,7 +803,7 @@ public class Test_FileSystemDiskDevice {
             FileSystemDiskDevice.createPack(fileName, blockSize, blockCount);
 
             //  set up the device and eat the UA
-            TestChannelModule cm = new TestChannelModule();
+            DeviceTestChannelModule cm = new DeviceTestChannelModule();
             TestDevice d = new TestDevice();
             d.mount(fileName);
             d.setReady(true);
@@ -726,6 +861,64 @@ public class Test_FileSystemDiskDevice {
         }
     }
 
+    @Test
+    public void ioWrite_ioRead_pooledBuffers(
+    ) throws Exception {
+        String fileName = getTestFileName();
+        IOBufferPool pool = new IOBufferPool(4);
+        DeviceTestChannelModule cm = new DeviceTestChannelModule();
+        TestDevice d = setupCachedDevice(cm, fileName, 256, null);
+        assertTrue(d.hasDirectBufferInterface());
+
+        byte[] data = new byte[512];
+        new Random(5).nextBytes(data);
+        ByteBuffer writeBuffer = pool.acquire(512);
+        writeBuffer.put(0, data);
+        Device.IOInfo ioInfo = new Device.IOInfo.ByteTransferBuilder().setSource(cm)
+                                                                      .setIOFunction(Device.IOFunction.Write)
+                                                                      .setBlockId(3)
+                                                                      .setIOBuffer(writeBuffer)
+                                                                      .setTransferCount(512)
+                                                                      .build();
+        cm.submitAndWait(d, ioInfo);
+        assertEquals(Device.IOStatus.Successful, ioInfo._status);
+        assertEquals(512, ioInfo._transferredCount);
+        assertArrayEquals(Arrays.copyOfRange(data, 256, 512), readHostBlock(fileName, 256, 4));
+        pool.release(writeBuffer);
+
+        //  The released buffer comes back, still holding the old data - which must all be overwritten by the read
+        ByteBuffer readBuffer = pool.acquire(512);
+        assertSame(writeBuffer, readBuffer);
+        ioInfo = new Device.IOInfo.ByteTransferBuilder().setSource(cm)
+                                                        .setIOFunction(Device.IOFunction.Read)
+                                                        .setBlockId(100)
+                                                        .setIOBuffer(readBuffer)
+                                                        .setTransferCount(512)
+                                                        .build();
+        cm.submitAndWait(d, ioInfo);
+        assertEquals(Device.IOStatus.Successful, ioInfo._status);
+        assertNull(ioInfo._byteBuffer);
+        byte[] result = new byte[512];
+        readBuffer.get(0, result);
+        assertArrayEquals(new byte[512], result);
+
+        ioInfo = new Device.IOInfo.ByteTransferBuilder().setSource(cm)
+                                                        .setIOFunction(Device.IOFunction.Read)
+                                                        .setBlockId(3)
+                                                        .setIOBuffer(readBuffer)
+                                                        .setTransferCount(512)
+                                                        .build();
+        cm.submitAndWait(d, ioInfo);
+        assertEquals(Device.IOStatus.Successful, ioInfo._status);
+        readBuffer.get(0, result);
+        assertArrayEquals(data, result);
+        assertEquals(1, pool.getHits());
+        assertEquals(1, pool.getAllocations());
+
+        d.unmount();
+        deleteTestFile(fileName);
+    }
+
     @Test
     public void ioWrite_fail_notReady(
     ) throws Exception {
@@ -735,7 +928,7 @@ public class Test_FileSystemDiskDevice {
         long blockCount = 10000 * PrepFactor.getBlocksPerTrack(prepFactor);
         FileSystemDiskDevice.createPack(fileName, blockSize, blockCount);
 
-        TestChannelModule cm = new TestChannelModule();
+        DeviceTestChannelModule cm = new DeviceTestChannelModule();
         TestDevice d = new TestDevice();
         d.mount(fileName);
         d.setReady(false);
@@ -769,7 +962,7 @@ public class Test_FileSystemDiskDevice {
         long blockCount = 10000 * PrepFactor.getBlocksPerTrack(prepFactor);
         FileSystemDiskDevice.createPack(fileName, blockSize, blockCount);
 
-        TestChannelModule cm = new TestChannelModule();
+        DeviceTestChannelModule cm = new DeviceTestChannelModule();
         TestDevice d = new TestDevice();
         d.mount(fileName);
         d.setReady(true);
@@ -808,7 +1001,7 @@ public class Test_FileSystemDiskDevice {
         long blockCount = 10000 * PrepFactor.getBlocksPerTrack(prepFactor);
         FileSystemDiskDevice.createPack(fileName, blockSize, blockCount);
 
-        TestChannelModule cm = new TestChannelModule();
+        DeviceTestChannelModule cm = new DeviceTestChannelModule();
         TestDevice d = new TestDevice();
         d.mount(fileName);
         d.setReady(true);
@@ -849,7 +1042,7 @@ public class Test_FileSystemDiskDevice {
         long blockCount = 10000 * PrepFactor.getBlocksPerTrack(prepFactor);
         FileSystemDiskDevice.createPack(fileName, blockSize, blockCount);
 
-        TestChannelModule cm = new TestChannelModule();
+        DeviceTestChannelModule cm = new DeviceTestChannelModule();
         TestDevice d = new TestDevice();
         d.mount(fileName);
         d.setReady(true);
@@ -888,7 +1081,7 @@ public class Test_FileSystemDiskDevice {
         long blockCount = 10000 * PrepFactor.getBlocksPerTrack(prepFactor);
         FileSystemDiskDevice.createPack(fileName, blockSize, blockCount);
 
-        TestChannelModule cm = new TestChannelModule();
+        DeviceTestChannelModule cm = new DeviceTestChannelModule();
         TestDevice d = new TestDevice();
         d.mount(fileName);
         d.setReady(true);
@@ -927,7 +1120,7 @@ public class Test_FileSystemDiskDevice {
         long blockCount = 10000 * PrepFactor.getBlocksPerTrack(prepFactor);
         FileSystemDiskDevice.createPack(fileName, blockSize, blockCount);
 
-        TestChannelModule cm = new TestChannelModule();
+        DeviceTestChannelModule cm = new DeviceTestChannelModule();
         TestDevice d = new TestDevice();
         d.mount(fileName);
         d.setReady(true);
@@ -960,7 +1153,7 @@ public class Test_FileSystemDiskDevice {
         long blockCount = 10000 * PrepFactor.getBlocksPerTrack(prepFactor);
         FileSystemDiskDevice.createPack(fileName, blockSize, blockCount);
 
-        TestChannelModule cm = new TestChannelModule();
+        DeviceTestChannelModule cm = new DeviceTestChannelModule();
         TestDevice d = new TestDevice();
         d.mount(fileName);
         d.setReady(true);
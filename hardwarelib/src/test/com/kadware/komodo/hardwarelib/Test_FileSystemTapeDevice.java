@@ -11,9 +11,6 @@ import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
-import java.util.Iterator;
-import java.util.LinkedList;
-import java.util.List;
 import java.util.Random;
 import org.junit.Assert;
 import org.junit.Test;
@@ -24,70 +21,6 @@ import static org.junit.Assert.*;
  */
 public class Test_FileSystemTapeDevice {
 
-    public static class TestChannelModule extends ChannelModule {
-
-        private final List<Device.IOInfo> _ioList = new LinkedList<>();
-
-        private TestChannelModule() {
-            super(ChannelModuleType.Byte, "TESTCM");
-        }
-
-        //  Only for satisfying the compiler
-        protected Tracker createTracker(
-            Processor p,
-            InputOutputProcessor iop,
-            ChannelProgram cp,
-            ArraySlice buffer
-        ) {
-            return null;
-        }
-
-        //  This is the real thing
-        void submitAndWait(
-            final Device target,
-            final Device.IOInfo deviceIoInfo
-        ) {
-            if (target.handleIo(deviceIoInfo)) {
-                synchronized (_ioList) {
-                    _ioList.add(deviceIoInfo);
-                }
-
-                synchronized (deviceIoInfo) {
-                    while (deviceIoInfo._status == Device.IOStatus.InProgress) {
-                        try {
-                            deviceIoInfo.wait(1);
-                        } catch (InterruptedException ex) {
-                            System.out.println(ex.getMessage());
-                        }
-                    }
-                }
-            }
-        }
-
-        public void run() {
-            while (!_workerTerminate) {
-                synchronized (_workerThread) {
-                    try {
-                        _workerThread.wait(1000);
-                    } catch (InterruptedException ex) {
-                        System.out.println(ex.getMessage());
-                    }
-                }
-
-                synchronized (_ioList) {
-                    Iterator<Device.IOInfo> iter = _ioList.iterator();
-                    while (iter.hasNext()) {
-                        Device.IOInfo ioInfo = iter.next();
-                        if (ioInfo._status != Device.IOStatus.InProgress) {
-                            iter.remove();
-                            ioInfo._status.notify();
-                        }
-                    }
-                }
-            }
-        }
-    }
-
     public static class TestDevice extends FileSystemTapeDevice {
 
         TestDevice() { super("TEST"); }
@@ -195,7 +128,7 @@ public class Test_FileSystemTapeDevice {
         String fileName = getTestFileName();
         FileSystemTapeDevice.createVolume(fileName);
 
-        TestChannelModule cm = new TestChannelModule();
+        DeviceTestChannelModule cm = new DeviceTestChannelModule();
         TestDevice d = new TestDevice();
         d.mount(fileName);
         assertTrue(d.setReady(true));
@@ -230,7 +163,7 @@ public class Test_FileSystemTapeDevice {
     @Test
     public void ioRead_fail_notReady(
     ) {
-        TestChannelModule cm = new TestChannelModule();
+        DeviceTestChannelModule cm = new DeviceTestChannelModule();
         TestDevice d = new TestDevice();
 
         long blockId = 5;
@@ -251,7 +184,7 @@ public class Test_FileSystemTapeDevice {
         String fileName = getTestFileName();
         FileSystemTapeDevice.createVolume(fileName);
 
-        TestChannelModule cm = new TestChannelModule();
+        DeviceTestChannelModule cm = new DeviceTestChannelModule();
         TestDevice d = new TestDevice();
         assertTrue(d.mount(fileName));
         assertTrue(d.setReady(true));
@@ -273,7 +206,7 @@ public class Test_FileSystemTapeDevice {
         String fileName = getTestFileName();
         FileSystemTapeDevice.createVolume(fileName);
 
-        TestChannelModule cm = new TestChannelModule();
+        DeviceTestChannelModule cm = new DeviceTestChannelModule();
         FileSystemTapeDevice d = new TestDevice();
         d.mount(fileName);
         d.setReady(true);
@@ -291,7 +224,7 @@ public class Test_FileSystemTapeDevice {
     @Test
     public void ioReset_failed_notReady(
     ) {
-        TestChannelModule cm = new TestChannelModule();
+        DeviceTestChannelModule cm = new DeviceTestChannelModule();
         FileSystemTapeDevice d = new FileSystemTapeDevice("TAPE0");
         Device.IOInfo ioInfo = new Device.IOInfo.NonTransferBuilder().setSource(cm)
                                                                      .setIOFunction(Device.IOFunction.Reset)
@@ -303,7 +236,7 @@ public class Test_FileSystemTapeDevice {
     @Test
     public void ioStart_failed_badFunction(
     ) {
-        TestChannelModule cm = new TestChannelModule();
+        DeviceTestChannelModule cm = new DeviceTestChannelModule();
         FileSystemTapeDevice d = new TestDevice();
 
         Device.IOInfo[] ioInfos = {
@@ -321,7 +254,7 @@ public class Test_FileSystemTapeDevice {
     @Test
     public void ioStart_none(
     ) {
-        TestChannelModule cm = new TestChannelModule();
+        DeviceTestChannelModule cm = new DeviceTestChannelModule();
         TestDevice d = new TestDevice();
         Device.IOInfo ioInfo = new Device.IOInfo.NonTransferBuilder().setSource(cm)
                                                                      .setIOFunction(Device.IOFunction.None)
@@ -336,7 +269,7 @@ public class Test_FileSystemTapeDevice {
         String fileName = getTestFileName();
         FileSystemTapeDevice.createVolume(fileName);
 
-        TestChannelModule cm = new TestChannelModule();
+        DeviceTestChannelModule cm = new DeviceTestChannelModule();
         TestDevice d = new TestDevice();
         d.mount(fileName);
         d.setReady(true);
@@ -356,7 +289,7 @@ public class Test_FileSystemTapeDevice {
         String fileName = getTestFileName();
         FileSystemTapeDevice.createVolume(fileName);
 
-        TestChannelModule cm = new TestChannelModule();
+        DeviceTestChannelModule cm = new DeviceTestChannelModule();
         TestDevice d = new TestDevice();
         d.mount(fileName);
         d.setReady(false);
@@ -378,7 +311,7 @@ public class Test_FileSystemTapeDevice {
         String fileName = getTestFileName();
         FileSystemTapeDevice.createVolume(fileName);
 
-        TestChannelModule cm = new TestChannelModule();
+        DeviceTestChannelModule cm = new DeviceTestChannelModule();
         TestDevice d = new TestDevice();
         d.mount(fileName);
         d.setReady(true);
@@ -492,7 +425,7 @@ public class Test_FileSystemTapeDevice {
         String fileName = getTestFileName();
         FileSystemTapeDevice.createVolume(fileName);
 
-        TestChannelModule cm = new TestChannelModule();
+        DeviceTestChannelModule cm = new DeviceTestChannelModule();
         TestDevice d = new TestDevice();
         d.mount(fileName);
         d.setReady(true);
@@ -606,10 +539,105 @@ public class Test_FileSystemTapeDevice {
         deleteTestFile(fileName);
     }
 
+    @Test
+    public void io_readAhead_readBackward_queued(
+    ) throws Exception {
+        String fileName = getTestFileName();
+        FileSystemTapeDevice.createVolume(fileName);
+
+        DeviceTestChannelModule cm = new DeviceTestChannelModule();
+        TestDevice d = new TestDevice();
+        d.mount(fileName);
+        d.setReady(true);
+        d.setIsWriteProtected(false);
+
+        Device.IOInfo ioInfoGet = new Device.IOInfo.ByteTransferBuilder().setSource(cm)
+                                                                         .setIOFunction(Device.IOFunction.GetInfo)
+                                                                         .setTransferCount(128)
+                                                                         .build();
+        cm.submitAndWait(d, ioInfoGet);
+
+        //  write blocks which can be told apart, followed by a file mark
+        int blockCount = 64;
+        int blockSize = 4096;
+        byte[][] data = new byte[blockCount][blockSize];
+        for (int bx = 0; bx < blockCount; ++bx) {
+            _random.nextBytes(data[bx]);
+            Device.IOInfo ioInfoWrite = new Device.IOInfo.ByteTransferBuilder().setSource(cm)
+                                                                               .setIOFunction(Device.IOFunction.Write)
+                                                                               .setBuffer(data[bx])
+                                                                               .setTransferCount(blockSize)
+                                                                               .build();
+            cm.submitAndWait(d, ioInfoWrite);
+            assertEquals(Device.IOStatus.Successful, ioInfoWrite._status);
+        }
+
+        Device.IOInfo ioInfoWriteFileMark = new Device.IOInfo.NonTransferBuilder().setSource(cm)
+                                                                                  .setIOFunction(Device.IOFunction.WriteEndOfFile)
+                                                                                  .build();
+        cm.submitAndWait(d, ioInfoWriteFileMark);
+        assertEquals(Device.IOStatus.Successful, ioInfoWriteFileMark._status);
+
+        Device.IOInfo ioInfoRewind = new Device.IOInfo.NonTransferBuilder().setSource(cm)
+                                                                           .setIOFunction(Device.IOFunction.Rewind)
+                                                                           .build();
+        cm.submitAndWait(d, ioInfoRewind);
+
+        //  issue all of the reads at once - they must be queued, and completed in order
+        Device.IOInfo[] reads = new Device.IOInfo[blockCount + 1];
+        for (int rx = 0; rx < reads.length; ++rx) {
+            reads[rx] = new Device.IOInfo.ByteTransferBuilder().setSource(cm)
+                                                               .setIOFunction(Device.IOFunction.Read)
+                                                               .setTransferCount(0)
+                                                               .build();
+            assertTrue(d.handleIo(reads[rx]));
+        }
+
+        for (int rx = 0; rx < reads.length; ++rx) {
+            while (reads[rx]._status == Device.IOStatus.InProgress) {
+                Thread.sleep(1);
+            }
+        }
+
+        for (int bx = 0; bx < blockCount; ++bx) {
+            assertEquals(Device.IOStatus.Successful, reads[bx]._status);
+            assertArrayEquals(data[bx], reads[bx]._byteBuffer);
+        }
+        assertEquals(Device.IOStatus.FileMark, reads[blockCount]._status);
+
+        //  the read-ahead window holds many of these blocks, so there should have been very few host reads
+        assertTrue(d.getReadAheadFetches() <= 3);
+
+        //  now read backward - the file mark, each block in reverse order, then load point
+        Device.IOInfo ioInfoReadBackward = new Device.IOInfo.ByteTransferBuilder().setSource(cm)
+                                                                                  .setIOFunction(Device.IOFunction.ReadBackward)
+                                                                                  .setTransferCount(0)
+                                                                                  .build();
+        cm.submitAndWait(d, ioInfoReadBackward);
+        assertEquals(Device.IOStatus.FileMark, ioInfoReadBackward._status);
+
+        for (int bx = blockCount - 1; bx >= 0; --bx) {
+            cm.submitAndWait(d, ioInfoReadBackward);
+            assertEquals(Device.IOStatus.Successful, ioInfoReadBackward._status);
+            byte[] expected = new byte[blockSize];
+            for (int sx = blockSize - 1, dx = 0; dx < blockSize; --sx, ++dx) {
+                expected[dx] = data[bx][sx];
+            }
+            assertArrayEquals(expected, ioInfoReadBackward._byteBuffer);
+        }
+
+        assertTrue(d._loadPointFlag);
+        cm.submitAndWait(d, ioInfoReadBackward);
+        assertEquals(Device.IOStatus.EndOfTape, ioInfoReadBackward._status);
+
+        d.unmount();
+        deleteTestFile(fileName);
+    }
+
     @Test
     public void ioWrite_fail_notReady(
     ) {
-        TestChannelModule cm = new TestChannelModule();
+        DeviceTestChannelModule cm = new DeviceTestChannelModule();
         TestDevice d = new TestDevice();
         int bufferSize = 128;
         byte[] writeBuffer = new byte[bufferSize];
@@ -629,7 +657,7 @@ public class Test_FileSystemTapeDevice {
         String fileName = getTestFileName();
         FileSystemTapeDevice.createVolume(fileName);
 
-        TestChannelModule cm = new TestChannelModule();
+        DeviceTestChannelModule cm = new DeviceTestChannelModule();
         TestDevice d = new TestDevice();
         d.mount(fileName);
         d.setReady(true);
@@ -660,7 +688,7 @@ public class Test_FileSystemTapeDevice {
         String fileName = getTestFileName();
         FileSystemTapeDevice.createVolume(fileName);
 
-        TestChannelModule cm = new TestChannelModule();
+        DeviceTestChannelModule cm = new DeviceTestChannelModule();
         TestDevice d = new TestDevice();
         d.mount(fileName);
         d.setReady(true);
@@ -691,7 +719,7 @@ public class Test_FileSystemTapeDevice {
         String fileName = getTestFileName();
         FileSystemTapeDevice.createVolume(fileName);
 
-        TestChannelModule cm = new TestChannelModule();
+        DeviceTestChannelModule cm = new DeviceTestChannelModule();
         TestDevice d = new TestDevice();
         d.mount(fileName);
         d.setReady(true);
@@ -717,7 +745,7 @@ public class Test_FileSystemTapeDevice {
         String fileName = getTestFileName();
         FileSystemTapeDevice.createVolume(fileName);
 
-        TestChannelModule cm = new TestChannelModule();
+        DeviceTestChannelModule cm = new DeviceTestChannelModule();
         TestDevice d = new TestDevice();
         d.mount(fileName);
         d.setReady(true);
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2018-2020 by Kurt Duncan - All Rights Reserved
+ */
+
+package com.kadware.komodo.hardwarelib;
+
+import java.nio.ByteBuffer;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Unit tests for IOBufferPool class
+ */
+public class Test_IOBufferPool {
+
+    @Test
+    public void acquire_sizeClasses() {
+        IOBufferPool pool = new IOBufferPool(4);
+        ByteBuffer buffer = pool.acquire(0);
+        assertTrue(buffer.isDirect());
+        assertEquals(512, buffer.capacity());
+        assertEquals(0, buffer.limit());
+
+        buffer = pool.acquire(513);
+        assertEquals(1024, buffer.capacity());
+        assertEquals(513, buffer.limit());
+        assertEquals(0, buffer.position());
+
+        buffer = pool.acquire(1024 * 1024);
+        assertEquals(1024 * 1024, buffer.capacity());
+
+        assertEquals(3, pool.getRequests());
+        assertEquals(3, pool.getAllocations());
+        assertEquals(0, pool.getHits());
+        assertEquals(512 + 1024 + 1024 * 1024, pool.getAllocatedBytes());
+    }
+
+    @Test
+    public void release_reuse() {
+        IOBufferPool pool = new IOBufferPool(4);
+        ByteBuffer buffer = pool.acquire(3000);
+        buffer.position(100);
+        pool.release(buffer);
+
+        ByteBuffer again = pool.acquire(2049);
+        assertSame(buffer, again);
+        assertEquals(0, again.position());
+        assertEquals(2049, again.limit());
+        assertEquals(1, pool.getHits());
+        assertEquals(1, pool.getAllocations());
+
+        //  A different class does not get it
+        pool.release(again);
+        assertNotSame(buffer, pool.acquire(2048));
+    }
+
+    @Test
+    public void release_discards() {
+        IOBufferPool pool = new IOBufferPool(1);
+        ByteBuffer buffer1 = pool.acquire(600);
+        ByteBuffer buffer2 = pool.acquire(600);
+        pool.release(buffer1);
+        pool.release(buffer2);
+        assertEquals(1, pool.getDiscards());
+
+        //  Buffers which are not ours, or are too big to keep
+        pool.release(ByteBuffer.allocate(1024));
+        pool.release(ByteBuffer.allocateDirect(1000));
+        pool.release(pool.acquire(2 * 1024 * 1024));
+        assertEquals(4, pool.getDiscards());
+        assertEquals(1, pool.getOversizeRequests());
+        assertSame(buffer1, pool.acquire(1000));
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void acquire_negative() {
+        new IOBufferPool(1).acquire(-1);
+    }
+}
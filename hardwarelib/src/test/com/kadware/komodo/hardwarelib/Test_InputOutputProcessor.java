@@ -10,7 +10,6 @@ import com.kadware.komodo.baselib.Credentials;
 import com.kadware.komodo.hardwarelib.exceptions.*;
 import com.kadware.komodo.hardwarelib.interrupts.AddressingExceptionInterrupt;
 import java.util.Arrays;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Random;
 import org.junit.Test;
@@ -35,11 +34,7 @@ public class Test_InputOutputProcessor {
         @Override
         public void run() {
             while (!_workerTerminate) {
-                try {
-                    synchronized (this) { wait(); }
-                } catch (InterruptedException ex) {
-                    System.out.println("Caught " + ex.getMessage());
-                }
+                waitForWork(1000);
             }
         }
 
@@ -83,8 +78,8 @@ public class Test_InputOutputProcessor {
                 } else if (channelProgram.getFunction().isReadFunction()) {
                     _lastBuffer = buffer;
                     Random r = new Random(System.currentTimeMillis());
-                    for (int bx = 0; bx < buffer._array.length; ++bx) {
-                        buffer._array[bx] = r.nextLong() & 0_777777_777777L;
+                    for (int bx = 0; bx < buffer.getSize(); ++bx) {
+                        buffer.set(bx, r.nextLong() & 0_777777_777777L);
                     }
                 } else {
                     _lastBuffer = null;
@@ -105,30 +100,16 @@ public class Test_InputOutputProcessor {
             return new TestTracker(source, ioProcessor, channelProgram, buffer);
         }
 
-        public void run() {
-            while (!_workerTerminate) {
-                boolean sleepFlag = true;
-                synchronized (this) {
-                    Iterator<Tracker> iter = _trackers.iterator();
-                    while (iter.hasNext()) {
-                        TestTracker tracker = (TestTracker) iter.next();
-                        tracker._channelProgram.setChannelStatus(ChannelStatus.Successful);
-                        tracker._ioProcessor.finalizeIo(tracker._channelProgram, tracker._source);
-                        iter.remove();
-                        sleepFlag = false;
-                    }
-                }
+        protected void completeIO(
+            final Tracker tracker
+        ) {
+            tracker._channelProgram.setChannelStatus(ChannelStatus.Successful);
+        }
 
-                if (sleepFlag) {
-                    try {
-                        synchronized (this) {
-                            wait(100);
-                        }
-                    } catch (InterruptedException ex) {
-                        System.out.println("Caught " + ex.getMessage());
-                    }
-                }
-            }
+        protected boolean startIO(
+            final Tracker tracker
+        ) {
+            return false;
         }
     }
 
@@ -195,7 +176,6 @@ public class Test_InputOutputProcessor {
              NodeNameConflictException {
         InventoryManager im = InventoryManager.getInstance();
         TestSystemProcessor sp = new TestSystemProcessor();
-        sp.initialize();
         im.addSystemProcessor(sp);
 
         _ip = im.createInstructionProcessor("IP0");
@@ -334,7 +314,7 @@ public class Test_InputOutputProcessor {
         }
 
         assertEquals(ChannelModule.ChannelStatus.Successful, cp.getChannelStatus());
-        assertArrayEquals(_cm._lastBuffer._array, dataStorage._array);
+        assertArrayEquals(_cm._lastBuffer.getAll(), dataStorage.getAll());
 
         teardown();
     }
@@ -377,7 +357,60 @@ public class Test_InputOutputProcessor {
             Thread.onSpinWait();
         }
         assertEquals(ChannelModule.ChannelStatus.Successful, cp.getChannelStatus());
-        assertArrayEquals(baseData, _cm._lastBuffer._array);
+        assertArrayEquals(baseData, _cm._lastBuffer.getAll());
+
+        teardown();
+    }
+
+    @Test
+    public void invalidAddress_bufferOutsideSegment(
+    ) throws AddressingExceptionInterrupt,
+             CannotConnectException,
+             MaxNodesException,
+             NodeNameConflictException,
+             UPIConflictException {
+        setup();
+
+        int dataSegment = _msp.createSegment(100);
+        int acwSegment = _msp.createSegment(28);
+        ArraySlice acwStorage = _msp.getStorage(acwSegment);
+
+        //  A single incrementing ACW which runs off the end of its segment
+        AccessControlWord.populate(acwStorage,
+                                   0,
+                                   new AbsoluteAddress(_msp._upiIndex, dataSegment, 50),
+                                   51,
+                                   AccessControlWord.AddressModifier.Increment);
+        AccessControlWord[] acws = { new AccessControlWord(acwStorage, 0) };
+        ChannelModule.ChannelProgram cp = new ChannelModule.ChannelProgram.Builder().setIopUpiIndex(_iop._upiIndex)
+                                                                                    .setChannelModuleIndex(_cmIndex)
+                                                                                    .setDeviceAddress(_devIndex)
+                                                                                    .setIOFunction(Device.IOFunction.Read)
+                                                                                    .setAccessControlWords(acws)
+                                                                                    .build();
+        assertFalse(_iop.startIO(_ip, cp));
+        assertEquals(ChannelModule.ChannelStatus.InvalidAddress, cp.getChannelStatus());
+
+        //  A decrementing ACW, following a good one, which runs off the front of its segment
+        AccessControlWord.populate(acwStorage,
+                                   0,
+                                   new AbsoluteAddress(_msp._upiIndex, dataSegment, 0),
+                                   100,
+                                   AccessControlWord.AddressModifier.Increment);
+        AccessControlWord.populate(acwStorage,
+                                   3,
+                                   new AbsoluteAddress(_msp._upiIndex, dataSegment, 9),
+                                   11,
+                                   AccessControlWord.AddressModifier.Decrement);
+        acws = new AccessControlWord[]{ new AccessControlWord(acwStorage, 0), new AccessControlWord(acwStorage, 3) };
+        cp = new ChannelModule.ChannelProgram.Builder().setIopUpiIndex(_iop._upiIndex)
+                                                       .setChannelModuleIndex(_cmIndex)
+                                                       .setDeviceAddress(_devIndex)
+                                                       .setIOFunction(Device.IOFunction.Read)
+                                                       .setAccessControlWords(acws)
+                                                       .build();
+        assertFalse(_iop.startIO(_ip, cp));
+        assertEquals(ChannelModule.ChannelStatus.InvalidAddress, cp.getChannelStatus());
 
         teardown();
     }
@@ -449,14 +482,15 @@ public class Test_InputOutputProcessor {
         }
 
         assertEquals(ChannelModule.ChannelStatus.Successful, cp.getChannelStatus());
-        assertEquals(baseData0.length + baseData1.length + baseData2.length, _cm._lastBuffer._array.length);
-        assertArrayEquals(baseData0, Arrays.copyOfRange(_cm._lastBuffer._array,
+        long[] lastBuffer = _cm._lastBuffer.getAll();
+        assertEquals(baseData0.length + baseData1.length + baseData2.length, lastBuffer.length);
+        assertArrayEquals(baseData0, Arrays.copyOfRange(lastBuffer,
                                                         0,
                                                         baseData0.length));
-        assertArrayEquals(baseData1, Arrays.copyOfRange(_cm._lastBuffer._array,
+        assertArrayEquals(baseData1, Arrays.copyOfRange(lastBuffer,
                                                         baseData0.length,
                                                         baseData0.length + baseData1.length));
-        assertArrayEquals(baseData2, Arrays.copyOfRange(_cm._lastBuffer._array,
+        assertArrayEquals(baseData2, Arrays.copyOfRange(lastBuffer,
                                                         baseData0.length + baseData1.length,
                                                         baseData0.length + baseData1.length + baseData2.length));
 
@@ -471,7 +505,56 @@ public class Test_InputOutputProcessor {
              NodeNameConflictException,
              UPIConflictException {
         setup();
-        //TODO
+
+        int dataSegment0 = _msp.createSegment(80);
+        ArraySlice dataStorage0 = _msp.getStorage(dataSegment0);
+        AbsoluteAddress dataAddress0 = new AbsoluteAddress(_msp._upiIndex, dataSegment0, 0);
+
+        int dataSegment1 = _msp.createSegment(100);
+        ArraySlice dataStorage1 = _msp.getStorage(dataSegment1);
+        AbsoluteAddress dataAddress1 = new AbsoluteAddress(_msp._upiIndex, dataSegment1, 99);
+
+        int dataSegment2 = _msp.createSegment(10);
+        ArraySlice dataStorage2 = _msp.getStorage(dataSegment2);
+        AbsoluteAddress dataAddress2 = new AbsoluteAddress(_msp._upiIndex, dataSegment2, 5);
+
+        int acwSegment = _msp.createSegment(28);
+        ArraySlice acwStorage = _msp.getStorage(acwSegment);
+        AccessControlWord.populate(acwStorage, 0, dataAddress0, 80, AccessControlWord.AddressModifier.Increment);
+        AccessControlWord.populate(acwStorage, 3, dataAddress1, 100, AccessControlWord.AddressModifier.Decrement);
+        AccessControlWord.populate(acwStorage, 6, dataAddress2, 4, AccessControlWord.AddressModifier.NoChange);
+        AccessControlWord[] acws = {
+            new AccessControlWord(acwStorage, 0),
+            new AccessControlWord(acwStorage, 3),
+            new AccessControlWord(acwStorage, 6)
+        };
+
+        ChannelModule.ChannelProgram cp = new ChannelModule.ChannelProgram.Builder().setIopUpiIndex(_iop._upiIndex)
+                                                                                    .setChannelModuleIndex(_cmIndex)
+                                                                                    .setDeviceAddress(_devIndex)
+                                                                                    .setIOFunction(Device.IOFunction.Read)
+                                                                                    .setAccessControlWords(acws)
+                                                                                    .build();
+        boolean scheduled = _iop.startIO(_ip, cp);
+        assert(scheduled);
+        while (cp.getChannelStatus() == ChannelModule.ChannelStatus.InProgress) {
+            Thread.onSpinWait();
+        }
+
+        //  The data read lands directly in the ACW buffers, walked as each ACW's modifier dictates
+        assertEquals(ChannelModule.ChannelStatus.Successful, cp.getChannelStatus());
+        long[] lastBuffer = _cm._lastBuffer.getAll();
+        assertEquals(184, lastBuffer.length);
+        for (int wx = 0; wx < 80; ++wx) {
+            assertEquals(lastBuffer[wx], dataStorage0.get(wx));
+        }
+        for (int wx = 0; wx < 100; ++wx) {
+            assertEquals(lastBuffer[80 + wx], dataStorage1.get(99 - wx));
+        }
+        assertEquals(lastBuffer[183], dataStorage2.get(5));
+        assertEquals(0, dataStorage2.get(4));
+        assertEquals(0, dataStorage2.get(6));
+
         teardown();
     }
 }
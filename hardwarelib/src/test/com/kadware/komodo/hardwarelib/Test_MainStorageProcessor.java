@@ -0,0 +1,251 @@
+/*
+ * Copyright (c) 2018-2020 by Kurt Duncan - All Rights Reserved
+ */
+
+package com.kadware.komodo.hardwarelib;
+
+import com.kadware.komodo.baselib.ArraySlice;
+import com.kadware.komodo.hardwarelib.exceptions.MaxNodesException;
+import com.kadware.komodo.hardwarelib.exceptions.UPINotAssignedException;
+import com.kadware.komodo.hardwarelib.interrupts.AddressingExceptionInterrupt;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+import static org.junit.Assert.*;
+import org.junit.*;
+
+/**
+ * Unit tests for MainStorageProcessor class
+ */
+public class Test_MainStorageProcessor {
+
+    private static final int FIXED_SIZE = 256 * 1024;
+
+    private Path _directory = null;
+
+    @Before
+    public void before(
+    ) throws IOException {
+        _directory = Files.createTempDirectory("komodo-msp");
+    }
+
+    @After
+    public void after(
+    ) throws IOException {
+        try (Stream<Path> paths = Files.walk(_directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    private MainStorageProcessor createMapped() {
+        return createMapped(false);
+    }
+
+    private MainStorageProcessor createMapped(
+        final boolean snapshotsEnabled
+    ) {
+        return new MainStorageProcessor("MSP0",
+                                        InventoryManager.FIRST_MAIN_STORAGE_PROCESSOR_UPI_INDEX,
+                                        FIXED_SIZE,
+                                        MainStorageProcessor.StorageType.Mapped,
+                                        _directory.toString(),
+                                        snapshotsEnabled);
+    }
+
+    @Test
+    public void segmentSize_limits(
+    ) throws AddressingExceptionInterrupt {
+        MainStorageProcessor msp = new MainStorageProcessor("MSP0",
+                                                            InventoryManager.FIRST_MAIN_STORAGE_PROCESSOR_UPI_INDEX,
+                                                            FIXED_SIZE);
+        int segment = msp.createSegment(100);
+        try {
+            msp.createSegment(MainStorageProcessor.MAX_SEGMENT_SIZE + 1);
+            fail("Expected AddressingExceptionInterrupt");
+        } catch (AddressingExceptionInterrupt ex) {
+            //  expected
+        }
+
+        try {
+            msp.resizeSegment(segment, 0);
+            fail("Expected AddressingExceptionInterrupt");
+        } catch (AddressingExceptionInterrupt ex) {
+            //  expected
+        }
+    }
+
+    @Test
+    public void mapped_largeSegment(
+    ) throws AddressingExceptionInterrupt {
+        //  The file is sparse, so only the pages we touch take any space
+        long size = (1L << 31) + 1000;
+        MainStorageProcessor msp = createMapped();
+        int segment = msp.createSegment(size);
+        ArraySlice storage = msp.getStorage(segment);
+        assertEquals(size, storage.getSize());
+        storage.set(size - 1, 0_112233_445566L);
+
+        ArraySlice bank = new ArraySlice(storage, size - 1000, 1000);
+        assertEquals(0_112233_445566L, bank.get(999));
+        msp.deleteSegment(segment);
+    }
+
+    @Test
+    public void mapped_persists(
+    ) throws AddressingExceptionInterrupt {
+        MainStorageProcessor msp = createMapped();
+        assertFalse(msp.isRestored());
+        msp.getStorage(0).set(0, 0_777000_777000L);
+        msp.getStorage(0).set(FIXED_SIZE - 1, 0_123456_765432L);
+        int segment = msp.createSegment(1000);
+        msp.getStorage(segment).set(999, 0_010203_040506L);
+        msp.forceStorage();
+
+        //  A new MSP on the same directory (i.e., after an emulator restart) sees the same storage
+        MainStorageProcessor restored = createMapped();
+        assertTrue(restored.isRestored());
+        assertEquals(0_777000_777000L, restored.getStorage(0).get(0));
+        assertEquals(0_123456_765432L, restored.getStorage(0).get(FIXED_SIZE - 1));
+        assertEquals(1000, restored.getStorage(segment).getSize());
+        assertEquals(0_010203_040506L, restored.getStorage(segment).get(999));
+
+        //  ...until it is cleared
+        restored.clear();
+        assertFalse(restored.isRestored());
+        assertEquals(0, restored.getStorage(0).get(0));
+        assertFalse(Files.exists(_directory.resolve(String.format("MSP0-%d.storage", segment))));
+    }
+
+    @Test
+    public void mapped_resizeAndDelete(
+    ) throws AddressingExceptionInterrupt {
+        MainStorageProcessor msp = createMapped();
+        int segment = msp.createSegment(100);
+        ArraySlice original = msp.getStorage(segment);
+        for (int wx = 0; wx < 100; ++wx) {
+            original.set(wx, wx + 1);
+        }
+
+        ArraySlice smaller = msp.resizeSegment(segment, 50);
+        assertEquals(50, smaller.getSize());
+        assertEquals(50, smaller.get(49));
+
+        //  growing again must not resurrect the words which were truncated
+        ArraySlice larger = msp.resizeSegment(segment, 200);
+        assertEquals(50, larger.get(49));
+        assertEquals(0, larger.get(50));
+        assertEquals(0, larger.get(199));
+
+        //  the original slice remains usable, since the file is never truncated
+        assertEquals(1, original.get(0));
+
+        msp.deleteSegment(segment);
+        assertTrue(createMapped().isRestored());
+        try {
+            createMapped().getStorage(segment);
+            fail("deleted segment was restored");
+        } catch (AddressingExceptionInterrupt ex) {
+            //  expected
+        }
+    }
+
+    @Test
+    public void snapshot_restore(
+    ) throws AddressingExceptionInterrupt {
+        MainStorageProcessor msp = new MainStorageProcessor("MSP0",
+                                                            InventoryManager.FIRST_MAIN_STORAGE_PROCESSOR_UPI_INDEX,
+                                                            FIXED_SIZE,
+                                                            MainStorageProcessor.StorageType.Heap,
+                                                            null,
+                                                            true);
+        int kept = msp.createSegment(100);
+        int resized = msp.createSegment(100);
+        int deleted = msp.createSegment(100);
+        msp.getStorage(0).set(0, 0_01);
+        msp.getStorage(kept).set(0, 0_02);
+        msp.getStorage(resized).set(99, 0_03);
+        msp.getStorage(deleted).set(50, 0_04);
+
+        MainStorageProcessor.Snapshot snapshot = msp.takeSnapshot();
+        assertEquals(0, snapshot.getPreservedPageCount());
+
+        msp.getStorage(0).set(0, 0_11);
+        msp.getStorage(kept).set(0, 0_12);
+        msp.resizeSegment(resized, 50);
+        msp.deleteSegment(deleted);
+        msp.createSegment(100);     //  reuses the deleted segment's index
+        int created = msp.createSegment(100);
+
+        msp.restoreSnapshot(snapshot);
+        assertEquals(0_01, msp.getStorage(0).get(0));
+        assertEquals(0_02, msp.getStorage(kept).get(0));
+        assertEquals(100, msp.getStorage(resized).getSize());
+        assertEquals(0_03, msp.getStorage(resized).get(99));
+        assertEquals(0_04, msp.getStorage(deleted).get(50));
+        try {
+            msp.getStorage(created);
+            fail("segment created after the snapshot survived restoration");
+        } catch (AddressingExceptionInterrupt ex) {
+            //  expected
+        }
+
+        msp.discardSnapshot(snapshot);
+    }
+
+    @Test
+    public void snapshot_export(
+    ) throws AddressingExceptionInterrupt, IOException {
+        MainStorageProcessor msp = new MainStorageProcessor("MSP0",
+                                                            InventoryManager.FIRST_MAIN_STORAGE_PROCESSOR_UPI_INDEX,
+                                                            FIXED_SIZE,
+                                                            MainStorageProcessor.StorageType.OffHeap,
+                                                            null,
+                                                            true);
+        int segment = msp.createSegment(1000);
+        msp.getStorage(0).set(1, 0_01);
+        msp.getStorage(segment).set(999, 0_02);
+        MainStorageProcessor.Snapshot snapshot = msp.takeSnapshot();
+        msp.getStorage(0).set(1, 0_11);
+        msp.getStorage(segment).set(999, 0_12);
+
+        msp.exportSnapshot(snapshot, _directory);
+        MainStorageProcessor forked = createMapped(true);
+        assertTrue(forked.isRestored());
+        assertEquals(0_01, forked.getStorage(0).get(1));
+        assertEquals(0_02, forked.getStorage(segment).get(999));
+
+        //  The fork and the original go their separate ways
+        forked.getStorage(0).set(1, 0_21);
+        assertEquals(0_11, msp.getStorage(0).get(1));
+    }
+
+    @Test
+    public void selectMainStorageProcessor_policies(
+    ) throws MaxNodesException, UPINotAssignedException {
+        InventoryManager im = InventoryManager.getInstance();
+        im.clearConfiguration();
+        try {
+            MainStorageProcessor msp0 = im.createMainStorageProcessor("MSP0", FIXED_SIZE);
+            MainStorageProcessor msp1 = im.createMainStorageProcessor("MSP1", FIXED_SIZE);
+            msp1.setAffinityGroup(1);
+
+            //  Local policy keeps to the requester's group, and falls back to any MSP if the group has none
+            assertEquals(InventoryManager.StoragePolicy.Local, im.getStoragePolicy());
+            assertSame(msp0, im.selectMainStorageProcessor(0));
+            assertSame(msp0, im.selectMainStorageProcessor(0));
+            assertSame(msp1, im.selectMainStorageProcessor(1));
+            MainStorageProcessor first = im.selectMainStorageProcessor(2);
+            assertNotSame(first, im.selectMainStorageProcessor(2));
+
+            //  Interleaved policy takes each MSP in turn regardless of group
+            im.setStoragePolicy(InventoryManager.StoragePolicy.Interleaved);
+            first = im.selectMainStorageProcessor(0);
+            assertNotSame(first, im.selectMainStorageProcessor(0));
+            assertSame(first, im.selectMainStorageProcessor(0));
+        } finally {
+            im.clearConfiguration();
+        }
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright (c) 2018-2020 by Kurt Duncan - All Rights Reserved
+ */
+
+package com.kadware.komodo.hardwarelib;
+
+import com.kadware.komodo.baselib.*;
+import java.io.RandomAccessFile;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.util.Random;
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for MappedDiskDevice class
+ */
+public class Test_MappedDiskDevice {
+
+    private static int nextFileIndex = 1;
+
+    private static String getTestFileName(
+    ) {
+        String pathName = System.getProperty("java.io.tmpdir");
+        return String.format("%sMAPPED%04d.pack", pathName == null ? "" : pathName, nextFileIndex++);
+    }
+
+    private static void deleteTestFile(
+        final String fileName
+    ) throws Exception {
+        Files.delete(FileSystems.getDefault().getPath(fileName));
+    }
+
+    /**
+     * Creates a pack, mounts it on a new device, and eats the UA
+     */
+    private static MappedDiskDevice setupDevice(
+        final DeviceTestChannelModule cm,
+        final String fileName,
+        final int blockSize
+    ) throws Exception {
+        long blockCount = 10000 * PrepFactor.getBlocksPerTrack(PrepFactor.getPrepFactorFromBlockSize(blockSize));
+        FileSystemDiskDevice.createPack(fileName, blockSize, blockCount);
+        MappedDiskDevice d = new MappedDiskDevice("DISK0");
+        assertTrue(d.mount(fileName));
+        d.setReady(true);
+        Device.IOInfo ioInfo = new Device.IOInfo.ByteTransferBuilder().setSource(cm)
+                                                                      .setIOFunction(Device.IOFunction.GetInfo)
+                                                                      .setTransferCount(128)
+                                                                      .build();
+        cm.submitAndWait(d, ioInfo);
+        assertEquals(Device.IOStatus.Successful, ioInfo._status);
+        return d;
+    }
+
+    private static Device.IOInfo write(
+        final DeviceTestChannelModule cm,
+        final MappedDiskDevice d,
+        final long blockId,
+        final byte[] buffer
+    ) {
+        Device.IOInfo ioInfo = new Device.IOInfo.ByteTransferBuilder().setSource(cm)
+                                                                      .setIOFunction(Device.IOFunction.Write)
+                                                                      .setBlockId(blockId)
+                                                                      .setBuffer(buffer)
+                                                                      .setTransferCount(buffer.length)
+                                                                      .build();
+        cm.submitAndWait(d, ioInfo);
+        return ioInfo;
+    }
+
+
+    //  ----------------------------------------------------------------------------------------------------------------------------
+    //  Tests
+    //  ----------------------------------------------------------------------------------------------------------------------------
+
+    @Test
+    public void canConnect(
+    ) {
+        MappedDiskDevice d = new MappedDiskDevice("DISK0");
+        assertTrue(d.canConnect(new ByteChannelModule("CM1-0")));
+        assertFalse(d.canConnect(new WordChannelModule("CM1-0")));
+        assertFalse(d.canConnect(new FileSystemDiskDevice("DISK1")));
+        assertFalse(d.hasWordInterface());
+        assertTrue(d.hasByteInterface());
+    }
+
+    @Test
+    public void ioWrite_ioRead_successful(
+    ) throws Exception {
+        Random r = new Random(1);
+        DeviceTestChannelModule cm = new DeviceTestChannelModule();
+        for (int blockSize : new int[]{ 128, 1024, 8192 }) {
+            String fileName = getTestFileName();
+            MappedDiskDevice d = setupDevice(cm, fileName, blockSize);
+            for (int x = 0; x < 16; ++x) {
+                long blockId = r.nextInt(d._blockCount.intValue() - 4);
+                byte[] buffer = new byte[(x % 4) * blockSize];
+                r.nextBytes(buffer);
+                Device.IOInfo writeInfo = write(cm, d, blockId, buffer);
+                assertEquals(Device.IOStatus.Successful, writeInfo._status);
+                assertEquals(buffer.length, writeInfo._transferredCount);
+
+                Device.IOInfo readInfo = new Device.IOInfo.ByteTransferBuilder().setSource(cm)
+                                                                                .setIOFunction(Device.IOFunction.Read)
+                                                                                .setBlockId(blockId)
+                                                                                .setTransferCount(buffer.length)
+                                                                                .build();
+                cm.submitAndWait(d, readInfo);
+                assertEquals(Device.IOStatus.Successful, readInfo._status);
+                assertEquals(buffer.length, readInfo._transferredCount);
+                assertArrayEquals(buffer, readInfo._byteBuffer);
+            }
+
+            assertEquals(16, d._readCount);
+            assertEquals(16, d._writeCount);
+            assertEquals(d._readBytes, d._writeBytes);
+            assertTrue(d.unmount());
+            deleteTestFile(fileName);
+        }
+    }
+
+    @Test
+    public void ioWrite_visibleToFileSystemDiskDevice(
+    ) throws Exception {
+        DeviceTestChannelModule cm = new DeviceTestChannelModule();
+        String fileName = getTestFileName();
+        MappedDiskDevice d = setupDevice(cm, fileName, 512);
+        byte[] buffer = new byte[2 * 512];
+        new Random(2).nextBytes(buffer);
+        assertEquals(Device.IOStatus.Successful, write(cm, d, 300, buffer)._status);
+
+        Device.IOInfo unloadInfo = new Device.IOInfo.NonTransferBuilder().setSource(cm)
+                                                                         .setIOFunction(Device.IOFunction.Unload)
+                                                                         .build();
+        cm.submitAndWait(d, unloadInfo);
+        assertEquals(Device.IOStatus.Successful, unloadInfo._status);
+        assertFalse(d._isMounted);
+
+        //  Same pack format, so the data is where a FileSystemDiskDevice would have put it
+        byte[] check = new byte[buffer.length];
+        RandomAccessFile file = new RandomAccessFile(fileName, "r");
+        file.seek(301 * 512);
+        file.readFully(check);
+        file.close();
+        assertArrayEquals(buffer, check);
+        deleteTestFile(fileName);
+    }
+
+    @Test
+    public void ioWrite_forceInterval(
+    ) throws Exception {
+        DeviceTestChannelModule cm = new DeviceTestChannelModule();
+        String fileName = getTestFileName();
+        MappedDiskDevice d = setupDevice(cm, fileName, 256);
+        byte[] buffer = new byte[256];
+
+        d.setForceInterval(0);
+        for (int x = 0; x < 5; ++x) {
+            write(cm, d, x, buffer);
+        }
+        assertEquals(0, d.getForceCount());
+
+        d.setForceInterval(1);
+        for (int x = 0; x < 5; ++x) {
+            write(cm, d, x, buffer);
+        }
+        assertEquals(5, d.getForceCount());
+
+        d.setForceInterval(4);
+        for (int x = 0; x < 9; ++x) {
+            write(cm, d, x, buffer);
+        }
+        assertEquals(7, d.getForceCount());
+
+        Device.IOInfo resetInfo = new Device.IOInfo.NonTransferBuilder().setSource(cm)
+                                                                        .setIOFunction(Device.IOFunction.Reset)
+                                                                        .build();
+        cm.submitAndWait(d, resetInfo);
+        assertEquals(Device.IOStatus.Successful, resetInfo._status);
+        assertEquals(8, d.getForceCount());
+        assertTrue(d.unmount());
+        deleteTestFile(fileName);
+    }
+
+    @Test
+    public void ioRead_fail_invalidBlockCount(
+    ) throws Exception {
+        DeviceTestChannelModule cm = new DeviceTestChannelModule();
+        String fileName = getTestFileName();
+        MappedDiskDevice d = setupDevice(cm, fileName, 1024);
+        Device.IOInfo readInfo = new Device.IOInfo.ByteTransferBuilder().setSource(cm)
+                                                                        .setIOFunction(Device.IOFunction.Read)
+                                                                        .setBlockId(d._blockCount - 1)
+                                                                        .setTransferCount(2 * 1024)
+                                                                        .build();
+        cm.submitAndWait(d, readInfo);
+        assertEquals(Device.IOStatus.InvalidBlockCount, readInfo._status);
+        assertTrue(d.unmount());
+        deleteTestFile(fileName);
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void setForceInterval_invalid(
+    ) {
+        new MappedDiskDevice("DISK0").setForceInterval(-1);
+    }
+
+    @Test
+    public void mount_notAPack(
+    ) throws Exception {
+        String fileName = getTestFileName();
+        RandomAccessFile file = new RandomAccessFile(fileName, "rw");
+        file.write(new byte[512]);
+        file.close();
+        MappedDiskDevice d = new MappedDiskDevice("DISK0");
+        assertFalse(d.mount(fileName));
+        assertFalse(d.setReady(true));
+        deleteTestFile(fileName);
+    }
+}
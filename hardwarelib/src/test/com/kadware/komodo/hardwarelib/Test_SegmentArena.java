@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2018-2020 by Kurt Duncan - All Rights Reserved
+ */
+
+package com.kadware.komodo.hardwarelib;
+
+import com.kadware.komodo.baselib.ArraySlice;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Unit tests for SegmentArena class
+ */
+public class Test_SegmentArena {
+
+    private static SegmentArena createArena() {
+        return new SegmentArena(size -> new ArraySlice(new long[size]));
+    }
+
+    @Test
+    public void sizeClasses() {
+        assertEquals(64, SegmentArena.getCapacity(1));
+        assertEquals(64, SegmentArena.getCapacity(64));
+        assertEquals(80, SegmentArena.getCapacity(65));
+        assertEquals(128, SegmentArena.getCapacity(120));
+        assertEquals(1280, SegmentArena.getCapacity(1025));
+        assertEquals(0, SegmentArena.getSizeClass(64));
+
+        int previousClass = 0;
+        for (int words = 65; words < 1_000_000; words += 37) {
+            int capacity = SegmentArena.getCapacity(words);
+            int sizeClass = SegmentArena.getSizeClass(capacity);
+            assertTrue(capacity >= words);
+            assertTrue(capacity - words <= capacity / 4);
+            assertEquals(capacity, SegmentArena.getClassCapacity(sizeClass));
+            assertTrue(sizeClass >= previousClass);
+            previousClass = sizeClass;
+        }
+    }
+
+    @Test
+    public void allocate_shareChunk() {
+        SegmentArena arena = createArena();
+        SegmentArena.Allocation a1 = arena.allocate(100);
+        SegmentArena.Allocation a2 = arena.allocate(1000);
+        assertSame(a1._slice._array, a2._slice._array);
+        assertEquals(100, a1._slice.getSize());
+        assertEquals(1000, a2._slice.getSize());
+
+        a1._slice.set(99, 0_777);
+        a2._slice.set(0, 0_555);
+        assertEquals(0_777, a1._slice.get(99));
+
+        SegmentArena.Statistics stats = arena.getStatistics();
+        assertEquals(1, stats._chunks);
+        assertEquals(1100, stats._requestedWords);
+        assertEquals(1, stats._segmentsBySizeClass[SegmentArena.getSizeClass(SegmentArena.getCapacity(100))]);
+        assertEquals(1, stats._segmentsBySizeClass[SegmentArena.getSizeClass(SegmentArena.getCapacity(1000))]);
+    }
+
+    @Test
+    public void free_coalesceAndReuse() {
+        SegmentArena arena = createArena();
+        SegmentArena.Allocation a1 = arena.allocate(1000);
+        SegmentArena.Allocation a2 = arena.allocate(1000);
+        SegmentArena.Allocation a3 = arena.allocate(1000);
+        a2._slice.set(5, 0_123);
+
+        arena.free(a2);
+        assertTrue(arena.getStatistics().getExternalFragmentation() > 0.0);
+        arena.free(a1);
+        arena.free(a3);
+
+        SegmentArena.Statistics stats = arena.getStatistics();
+        assertEquals(SegmentArena.CHUNK_SIZE, stats._freeWords);
+        assertEquals(SegmentArena.CHUNK_SIZE, stats._largestFreeBlock);
+        assertEquals(0.0, stats.getExternalFragmentation(), 0.0);
+
+        //  Reused storage comes back zeroed
+        SegmentArena.Allocation a4 = arena.allocate(2000);
+        for (int wx = 0; wx < 2000; ++wx) {
+            assertEquals(0, a4._slice.get(wx));
+        }
+    }
+
+    @Test
+    public void reallocate_inPlace() {
+        SegmentArena arena = createArena();
+        SegmentArena.Allocation a1 = arena.allocate(1000);
+        a1._slice.set(999, 0_111);
+
+        //  Grows into the free space which follows
+        SegmentArena.Allocation a2 = arena.reallocate(a1, 5000);
+        assertEquals(a1._slice._offset, a2._slice._offset);
+        assertEquals(0_111, a2._slice.get(999));
+        assertEquals(0, a2._slice.get(4999));
+
+        //  Shrinks, and grows again without resurrecting the truncated content
+        SegmentArena.Allocation a3 = arena.reallocate(a2, 500);
+        a3._slice.set(499, 0_222);
+        SegmentArena.Allocation a4 = arena.reallocate(a3, 1000);
+        assertEquals(a1._slice._offset, a4._slice._offset);
+        assertEquals(0_222, a4._slice.get(499));
+        assertEquals(0, a4._slice.get(999));
+
+        SegmentArena.Statistics stats = arena.getStatistics();
+        assertEquals(3, stats._inPlaceReallocations);
+        assertEquals(0, stats._copiedReallocations);
+        assertEquals(1000, stats._requestedWords);
+    }
+
+    @Test
+    public void reallocate_copied() {
+        SegmentArena arena = createArena();
+        SegmentArena.Allocation a1 = arena.allocate(1000);
+        SegmentArena.Allocation blocker = arena.allocate(1000);
+        a1._slice.set(0, 0_333);
+
+        SegmentArena.Allocation a2 = arena.reallocate(a1, 2000);
+        assertNotEquals(a1._slice._offset, a2._slice._offset);
+        assertEquals(0_333, a2._slice.get(0));
+        assertEquals(1, arena.getStatistics()._copiedReallocations);
+        assertEquals(3000, arena.getStatistics()._requestedWords);
+        arena.free(blocker);
+        arena.free(a2);
+    }
+
+    @Test
+    public void large() {
+        SegmentArena arena = createArena();
+        SegmentArena.Allocation small = arena.allocate(100);
+        SegmentArena.Allocation large = arena.allocate(SegmentArena.LARGE_THRESHOLD + 1);
+        assertNotSame(small._slice._array, large._slice._array);
+        assertEquals(2, arena.getStatistics()._chunks);
+
+        arena.free(large);
+        assertEquals(1, arena.getStatistics()._chunks);
+    }
+}
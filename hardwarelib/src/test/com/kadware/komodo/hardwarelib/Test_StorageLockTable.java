@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2018-2020 by Kurt Duncan - All Rights Reserved
+ */
+
+package com.kadware.komodo.hardwarelib;
+
+import com.kadware.komodo.baselib.AbsoluteAddress;
+import java.util.Map;
+import static org.junit.Assert.*;
+import org.junit.*;
+
+/**
+ * Unit tests for StorageLockTable class
+ */
+public class Test_StorageLockTable {
+
+    @Test
+    public void keyRoundTrip(
+    ) {
+        StorageLockTable table = new StorageLockTable();
+        InstructionProcessor ip0 = new InstructionProcessor("IP0", InventoryManager.FIRST_INSTRUCTION_PROCESSOR_UPI_INDEX);
+        InstructionProcessor ip1 = new InstructionProcessor("IP1", InventoryManager.FIRST_INSTRUCTION_PROCESSOR_UPI_INDEX + 1);
+        AbsoluteAddress addr = new AbsoluteAddress(3, 0x1234567, 0_777777_777);
+        long key = StorageLockTable.getKey(addr);
+
+        assertNull(table.tryLock(key, ip0));
+        assertEquals(ip0, table.tryLock(key, ip1));
+
+        Map<AbsoluteAddress, Long> hot = table.getHotAddresses(10);
+        assertEquals(1, hot.size());
+        assertEquals(Long.valueOf(1), hot.get(addr));
+    }
+
+    @Test
+    public void keyRoundTrip_highOffsets(
+    ) {
+        AbsoluteAddress addr1 = new AbsoluteAddress(15, 0x1FFFFFF, 0x80000000L);
+        AbsoluteAddress addr2 = new AbsoluteAddress(1, 0, 0xFFFFFFFFL);
+
+        AbsoluteAddress result1 = StorageLockTable.getAddress(StorageLockTable.getKey(addr1));
+        AbsoluteAddress result2 = StorageLockTable.getAddress(StorageLockTable.getKey(addr2));
+        assertEquals(addr1, result1);
+        assertEquals(0x80000000L, result1._offset);
+        assertEquals(addr2, result2);
+        assertEquals(0xFFFFFFFFL, result2._offset);
+    }
+
+    @Test
+    public void lockAndUnlock(
+    ) {
+        StorageLockTable table = new StorageLockTable();
+        InstructionProcessor ip0 = new InstructionProcessor("IP0", InventoryManager.FIRST_INSTRUCTION_PROCESSOR_UPI_INDEX);
+        InstructionProcessor ip1 = new InstructionProcessor("IP1", InventoryManager.FIRST_INSTRUCTION_PROCESSOR_UPI_INDEX + 1);
+        long key1 = StorageLockTable.getKey(new AbsoluteAddress(1, 0, 01000));
+        long key2 = StorageLockTable.getKey(new AbsoluteAddress(1, 0, 01001));
+
+        assertNull(table.tryLock(key1, ip0));
+        assertNull(table.tryLock(key1, ip0));
+        assertNull(table.tryLock(key2, ip1));
+        assertEquals(ip0, table.tryLock(key1, ip1));
+        assertEquals(ip1, table.tryLock(key2, ip0));
+
+        //  unlock by a non-owner must have no effect
+        table.unlock(key1, ip1);
+        assertEquals(ip0, table.tryLock(key1, ip1));
+
+        table.unlock(key1, ip0);
+        assertNull(table.tryLock(key1, ip1));
+
+        table.unlockAll(ip1);
+        assertNull(table.tryLock(key1, ip0));
+        assertNull(table.tryLock(key2, ip0));
+
+        assertEquals(5, table.getAcquisitionCount());
+        assertEquals(3, table.getContentionCount());
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2018-2020 by Kurt Duncan - All Rights Reserved
+ */
+
+package com.kadware.komodo.hardwarelib;
+
+import static org.junit.Assert.*;
+import org.junit.*;
+
+/**
+ * Unit tests for UPIMailbox class
+ */
+public class Test_UPIMailbox {
+
+    @Test
+    public void postAndDrain(
+    ) {
+        UPIMailbox mailbox = new UPIMailbox();
+        InstructionProcessor ip0 = new InstructionProcessor("IP0", InventoryManager.FIRST_INSTRUCTION_PROCESSOR_UPI_INDEX);
+        InstructionProcessor ip1 = new InstructionProcessor("IP1", InventoryManager.FIRST_INSTRUCTION_PROCESSOR_UPI_INDEX + 1);
+
+        assertTrue(mailbox.isEmpty());
+        assertNull(mailbox.drain());
+
+        assertTrue(mailbox.post(ip0, UPIMailbox.Kind.Interrupt));
+        assertTrue(mailbox.post(ip1, UPIMailbox.Kind.Interrupt));
+        assertTrue(mailbox.post(ip0, UPIMailbox.Kind.Acknowledge));
+        assertFalse(mailbox.post(ip0, UPIMailbox.Kind.Interrupt));
+        assertFalse(mailbox.isEmpty());
+
+        //  messages come back in the order they were posted
+        UPIMailbox.Message msg = mailbox.drain();
+        assertEquals(ip0, msg._source);
+        assertEquals(UPIMailbox.Kind.Interrupt, msg._kind);
+        msg = msg.getNext();
+        assertEquals(ip1, msg._source);
+        msg = msg.getNext();
+        assertEquals(ip0, msg._source);
+        assertEquals(UPIMailbox.Kind.Acknowledge, msg._kind);
+        assertNull(msg.getNext());
+        assertTrue(mailbox.isEmpty());
+
+        //  once drained, the same source may post again
+        assertTrue(mailbox.post(ip0, UPIMailbox.Kind.Interrupt));
+        assertNotNull(mailbox.drain());
+
+        assertEquals(3, mailbox.getMessageCount(ip0._upiIndex));
+        assertEquals(1, mailbox.getMessageCount(ip1._upiIndex));
+        assertTrue(mailbox.getMaximumLatency(ip0._upiIndex) >= mailbox.getMeanLatency(ip0._upiIndex));
+    }
+
+    @Test
+    public void concurrentProducers(
+    ) throws InterruptedException {
+        final int sourceCount = 4;
+        final int messagesPerSource = 1000;
+        UPIMailbox mailbox = new UPIMailbox();
+        InstructionProcessor[] sources = new InstructionProcessor[sourceCount];
+        Thread[] threads = new Thread[sourceCount];
+        for (int sx = 0; sx < sourceCount; ++sx) {
+            InstructionProcessor source = new InstructionProcessor("IP" + sx, InventoryManager.FIRST_INSTRUCTION_PROCESSOR_UPI_INDEX + sx);
+            sources[sx] = source;
+            threads[sx] = new Thread(() -> {
+                for (int mx = 0; mx < messagesPerSource; ++mx) {
+                    while (!mailbox.post(source, UPIMailbox.Kind.Interrupt)) {
+                        Thread.yield();
+                    }
+                }
+            });
+            threads[sx].start();
+        }
+
+        int received = 0;
+        while (received < sourceCount * messagesPerSource) {
+            for (UPIMailbox.Message msg = mailbox.drain(); msg != null; msg = msg.getNext()) {
+                ++received;
+            }
+            Thread.yield();
+        }
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertTrue(mailbox.isEmpty());
+        for (InstructionProcessor source : sources) {
+            assertEquals(messagesPerSource, mailbox.getMessageCount(source._upiIndex));
+        }
+    }
+}
@@ -4,6 +4,9 @@
 
 package com.kadware.komodo.hardwarelib;
 
+import com.kadware.komodo.baselib.ArraySlice;
+import com.kadware.komodo.baselib.Credentials;
+import com.kadware.komodo.hardwarelib.exceptions.*;
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.LogManager;
 import static org.junit.Assert.*;
@@ -117,4 +120,57 @@ public class Test_WordChannelModule {
 //        assertTrue(cm.isWorkerActive());
 //        cm.terminate();
 //    }
+
+    private static class TestWordDevice extends Device {
+
+        private TestWordDevice() { super(Type.Disk, Model.None, "DISK0"); }
+
+        @Override public boolean canConnect(Node ancestor) { return ancestor instanceof WordChannelModule; }
+        @Override public void clear() {}
+        @Override public boolean handleIo(IOInfo ioInfo) { throw new RuntimeException("No IO expected"); }
+        @Override public boolean hasByteInterface() { return false; }
+        @Override public boolean hasWordInterface() { return true; }
+        @Override public void initialize() {}
+        @Override public void terminate() {}
+        @Override public void writeBuffersToLog(IOInfo ioInfo) {}
+    }
+
+    /**
+     * There are no word devices yet, so every IO must be failed at once rather than left in the device queue
+     */
+    @Test
+    public void io_failsImmediately(
+    ) throws CannotConnectException,
+             MaxNodesException {
+        InventoryManager im = InventoryManager.getInstance();
+        im.createSystemProcessor("SP0", null, null, new Credentials("test", "test"));
+        InstructionProcessor ip = im.createInstructionProcessor("IP0");
+        InputOutputProcessor iop = im.createInputOutputProcessor("IOP0");
+        WordChannelModule cm = new WordChannelModule("CM0-0");
+        Node.connect(iop, 0, cm);
+        Node.connect(cm, 0, new TestWordDevice());
+        cm.initialize();
+
+        Device.IOFunction[] functions = { Device.IOFunction.Read, Device.IOFunction.Rewind, Device.IOFunction.Read };
+        for (Device.IOFunction function : functions) {
+            ChannelModule.ChannelProgram cp = new ChannelModule.ChannelProgram.Builder().setIopUpiIndex(iop._upiIndex)
+                                                                                        .setChannelModuleIndex(0)
+                                                                                        .setDeviceAddress(0)
+                                                                                        .setIOFunction(function)
+                                                                                        .setAccessControlWords(new AccessControlWord[0])
+                                                                                        .build();
+            ArraySlice buffer = function.requiresBuffer() ? new ArraySlice(new long[28]) : null;
+            assertTrue(cm.scheduleChannelProgram(ip, iop, cp, buffer));
+            long limit = System.currentTimeMillis() + 10000;
+            while (cp.getChannelStatus() == ChannelModule.ChannelStatus.InProgress) {
+                assertTrue(System.currentTimeMillis() < limit);
+                Thread.onSpinWait();
+            }
+            assertEquals(ChannelModule.ChannelStatus.DeviceError, cp.getChannelStatus());
+            assertEquals(Device.IOStatus.InvalidFunction, cp.getDeviceStatus());
+        }
+
+        cm.terminate();
+        im.clearConfiguration();
+    }
 }
@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2018-2020 by Kurt Duncan - All Rights Reserved
+ */
+
+package com.kadware.komodo.hardwarelib;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.file.StandardOpenOption;
+import java.util.EnumSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for WorkerThreads class
+ */
+public class Test_WorkerThreads {
+
+    /**
+     * Thread.isVirtual() does not exist before Java 21, in which case no thread is virtual
+     */
+    private static boolean isVirtual(
+        final Thread thread
+    ) throws Exception {
+        try {
+            return (Boolean) Thread.class.getMethod("isVirtual").invoke(thread);
+        } catch (NoSuchMethodException ex) {
+            return false;
+        }
+    }
+
+    @After
+    public void after() {
+        InventoryManager.getInstance().setExecutionModel(InventoryManager.ExecutionModel.PlatformThreads);
+    }
+
+    @Test
+    public void createThread_platform(
+    ) throws Exception {
+        Thread thread = WorkerThreads.createThread(() -> {}, "CM0");
+        assertEquals("CM0", thread.getName());
+        assertFalse(thread.isAlive());
+        assertFalse(isVirtual(thread));
+    }
+
+    @Test
+    public void createThread_virtual(
+    ) throws Exception {
+        InventoryManager.getInstance().setExecutionModel(InventoryManager.ExecutionModel.VirtualThreads);
+        CountDownLatch latch = new CountDownLatch(1);
+        Thread thread = WorkerThreads.createThread(latch::countDown, "IOP0");
+        assertEquals("IOP0", thread.getName());
+        assertEquals(WorkerThreads.isVirtualThreadSupported(), isVirtual(thread));
+
+        thread.start();
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        thread.join();
+    }
+
+    @Test
+    public void createPlatformThread_virtual(
+    ) throws Exception {
+        InventoryManager.getInstance().setExecutionModel(InventoryManager.ExecutionModel.VirtualThreads);
+        Thread thread = WorkerThreads.createPlatformThread(() -> {}, "IP0");
+        assertEquals("IP0", thread.getName());
+        assertFalse(isVirtual(thread));
+    }
+
+    @Test
+    public void openChannel_virtual(
+    ) throws Exception {
+        InventoryManager.getInstance().setExecutionModel(InventoryManager.ExecutionModel.VirtualThreads);
+        File file = File.createTempFile("TEST", ".pack");
+        file.deleteOnExit();
+
+        AtomicReference<Thread> handlerThread = new AtomicReference<>();
+        CountDownLatch latch = new CountDownLatch(1);
+        try (AsynchronousFileChannel channel =
+                 WorkerThreads.openChannel(file.toPath(), EnumSet.of(StandardOpenOption.READ, StandardOpenOption.WRITE))) {
+            channel.write(ByteBuffer.wrap(new byte[] { 1, 2, 3, 4 }), 0, null, new CompletionHandler<Integer, Object>() {
+                @Override
+                public void completed(
+                    final Integer result,
+                    final Object attachment
+                ) {
+                    handlerThread.set(Thread.currentThread());
+                    latch.countDown();
+                }
+
+                @Override
+                public void failed(
+                    final Throwable exc,
+                    final Object attachment
+                ) {
+                    latch.countDown();
+                }
+            });
+
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+            assertNotNull(handlerThread.get());
+            assertEquals(WorkerThreads.isVirtualThreadSupported(), isVirtual(handlerThread.get()));
+            assertEquals(4, channel.size());
+        } finally {
+            file.delete();
+        }
+    }
+}
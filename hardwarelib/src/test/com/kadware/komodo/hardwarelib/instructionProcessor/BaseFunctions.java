@@ -458,7 +458,7 @@ class BaseFunctions {
         final int baseRegisterIndex
     ) {
         ArraySlice array = _instructionProcessor.getBaseRegister(baseRegisterIndex)._storage;
-        long[] result = new long[array.getSize()];
+        long[] result = new long[(int) array.getSize()];
         for (int ax = 0; ax < array.getSize(); ++ax) {
             result[ax] = array.get(ax);
         }
@@ -471,6 +471,21 @@ class BaseFunctions {
      */
     void ipl(
         final boolean wait
+    ) throws BinaryLoadException,
+             MachineInterrupt,
+             UPINotAssignedException,
+             UPIProcessorTypeException {
+        ipl(wait, true);
+    }
+
+    /**
+     * As above, but lets the caller run without instruction tracing (which keeps the IP out of compiled blocks)
+     * @param wait true to wait until the IP halts, false to return immediately after starting the IP
+     * @param trace true to trace each instruction as it is executed
+     */
+    void ipl(
+        final boolean wait,
+        final boolean trace
     ) throws BinaryLoadException,
              MachineInterrupt,
              UPINotAssignedException,
@@ -483,7 +498,8 @@ class BaseFunctions {
         assertNotNull(_systemProcessor);
 
         _instructionProcessor.setDevelopmentMode(true);
-        _instructionProcessor.setTraceInstructions(true);
+        _instructionProcessor.setTraceInstructions(trace);
+        InstructionProcessor.StopReason initialStopReason = _instructionProcessor.getLatestStopReason();
         _systemProcessor.iplBinary("TEST",
                                    _linkResult._loadableBanks,
                                    _linkResult._programStartInfo._vAddress,
@@ -492,8 +508,8 @@ class BaseFunctions {
                                    false,
                                    false);
 
-        //  wait for IP to start
-        while (_instructionProcessor.isStopped()) {
+        //  wait for IP to start - a short program might already have run to completion by the time we look
+        while (_instructionProcessor.isStopped() && (_instructionProcessor.getLatestStopReason() == initialStopReason)) {
             Thread.onSpinWait();
         }
 
@@ -660,7 +676,7 @@ class BaseFunctions {
                                                                  bd.getLowerLimitNormalized(),
                                                                  bd.getUpperLimitNormalized(),
                                                                  bd.getBankType().name()));
-                                int len = bd.getUpperLimitNormalized() - bd.getLowerLimitNormalized() + 1;
+                                int len = (int) (bd.getUpperLimitNormalized() - bd.getLowerLimitNormalized() + 1);
                                 for (int ix = 0; ix < len; ix += 8) {
                                     StringBuilder sb = new StringBuilder();
                                     sb.append(String.format("      %08o:%08o  ", ix + bd.getLowerLimitNormalized(), ix));
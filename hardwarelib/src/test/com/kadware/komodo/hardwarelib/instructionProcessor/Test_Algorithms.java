@@ -127,6 +127,212 @@ public class Test_Algorithms extends BaseFunctions {
         clear();
     }
 
+    /**
+     * Tight loop - every pass after the first should be satisfied from the decoded instruction cache
+     */
+    @Test
+    public void loop_decodedInstructionCache(
+    ) throws BinaryLoadException,
+             MachineInterrupt,
+             MaxNodesException,
+             NodeNameConflictException,
+             UPIConflictException,
+             UPINotAssignedException,
+             UPIProcessorTypeException {
+        String[] source = {
+            "          $EXTEND",
+            "          $INFO 1 3",
+            "          $INFO 10 1",
+            "",
+            "$(1),START",
+            "          LD        DESREG",
+            "          LA,U      A0,0",
+            "          LA,U      A2,999",
+            "LOOP      AA,U      A0,1",
+            "          JGD       A2,LOOP",
+            "          HALT      0",
+            "",
+            "DESREG    + 014,0   . PP=3, ExtMode, Normal Regs",
+            "          $END      START"
+        };
+
+        buildDualBank(source);
+        ipl(true);
+
+        Assert.assertEquals(InstructionProcessor.StopReason.Debug, _instructionProcessor.getLatestStopReason());
+        Assert.assertEquals(0, _instructionProcessor.getLatestStopDetail());
+        Assert.assertEquals(1000, _instructionProcessor.getGeneralRegister(GeneralRegisterSet.A0).getW());
+        assertTrue(_instructionProcessor.getInstructionCacheHits() >= 2 * 999);
+        assertTrue(_instructionProcessor.getInstructionCacheMisses() < 100);
+
+        clear();
+    }
+
+    /**
+     * Loop of loads, logicals, shifts, adds, tests, and stores, with the JIT enabled -
+     * most of the iterations should run in compiled blocks, with the same results as the interpreter would produce.
+     */
+    @Test
+    public void loop_compiledBlocks(
+    ) throws BinaryLoadException,
+             MachineInterrupt,
+             MaxNodesException,
+             NodeNameConflictException,
+             UPIConflictException,
+             UPINotAssignedException,
+             UPIProcessorTypeException {
+        String[] source = {
+            "          $EXTEND",
+            "          $INFO 1 3",
+            "          $INFO 10 1",
+            "",
+            "$(0)",
+            "TABLE     $RES 2",
+            "",
+            "$(1)      .",
+            "START",
+            "          LD        DESREG",
+            "          LBU       B2,DATA0BDI",
+            "          SZ        table,,B2",
+            "          SZ        table+1,,B2",
+            "          LA,U      A0,0                . sum of (n & 017) * 4",
+            "          LA,U      A1,0                . count of n for which (n & 017) is zero",
+            "          LA,U      A2,4999             . n",
+            "",
+            "LOOP      LA        A3,A2",
+            "          AND,U     A3,017              . A4 <- n & 017",
+            "          LSSL      A4,2",
+            "          AA        A0,A4",
+            "          TNZ       A4",
+            "          AA,U      A1,1",
+            "          SA        A0,table,,B2",
+            "          ADD1      table+1,,B2",
+            "          JGD       A2,LOOP",
+            "          HALT      0",
+            "",
+            "DESREG    +000020, 0",
+            "DATA0BDI  +LBDIREF$+TABLE, 0            . to be based on B2",
+            "",
+            "          $END      START",
+        };
+
+        buildMultiBank(source, false, false);
+        _instructionProcessor.setJitEnabled(true);
+        ipl(true, false);
+
+        Assert.assertEquals(InstructionProcessor.StopReason.Debug, _instructionProcessor.getLatestStopReason());
+        Assert.assertEquals(0, _instructionProcessor.getLatestStopDetail());
+        Assert.assertEquals(149872, _instructionProcessor.getGeneralRegister(GeneralRegisterSet.A0).getW());
+        Assert.assertEquals(313, _instructionProcessor.getGeneralRegister(GeneralRegisterSet.A1).getW());
+        Assert.assertEquals(0_777777_777776L, _instructionProcessor.getGeneralRegister(GeneralRegisterSet.A2).getW());
+
+        long[] table = getBankByBaseRegister(2);
+        Assert.assertEquals(149872, table[0]);
+        Assert.assertEquals(5000, table[1]);
+
+        assertTrue(_instructionProcessor.getCompiledBlockCount() > 0);
+        //  ADD1 is left to the interpreter, so the block runs LA through SA - six instructions when TNZ skips
+        assertTrue(_instructionProcessor.getCompiledInstructionCount() > 6 * 4000);
+
+        clear();
+    }
+
+    /**
+     * Runs a loop of indexed loads and stores, logicals, shifts, tests, and jumps with the JIT disabled or enabled,
+     * returning the registers, designator register, and data bank it leaves behind.
+     */
+    private long[] runMixedLoop(
+        final boolean jitEnabled
+    ) throws BinaryLoadException,
+             MachineInterrupt,
+             MaxNodesException,
+             NodeNameConflictException,
+             UPIConflictException,
+             UPINotAssignedException,
+             UPIProcessorTypeException {
+        String[] source = {
+            "          $EXTEND",
+            "          $INFO 1 3",
+            "          $INFO 10 1",
+            "",
+            "$(0)",
+            "TABLE     $RES 2100",
+            "",
+            "$(1)      .",
+            "START",
+            "          LD        DESREG",
+            "          LBU       B2,DATA0BDI",
+            "          LA,U      A0,0",
+            "          LA,U      A1,0",
+            "          LA,U      A2,1999             . n",
+            "          LXI,U     X7,1",
+            "          LXM,U     X7,0",
+            "",
+            "LOOP      LA        A3,A2",
+            "          AND,U     A3,037              . A4 <- n & 037",
+            "          LX        X5,A4",
+            "          LA        A5,table,X5,B2",
+            "          AA        A5,A2",
+            "          XOR       A5,A0               . A6 <- (table[n & 037] + n) ^ A0",
+            "          SA        A6,table,X5,B2",
+            "          LSSC      A6,7",
+            "          TG        A6,A0",
+            "          AA,U      A1,1",
+            "          SA        A6,table+64,*X7,B2",
+            "          JN        A6,NEG",
+            "          ANA,U     A0,1",
+            "          J         NEXT",
+            "NEG       AA        A0,A6",
+            "NEXT      JGD       A2,LOOP",
+            "          HALT      0",
+            "",
+            "DESREG    +000020, 0",
+            "DATA0BDI  +LBDIREF$+TABLE, 0            . to be based on B2",
+            "",
+            "          $END      START",
+        };
+
+        buildMultiBank(source, false, false);
+        _instructionProcessor.setJitEnabled(jitEnabled);
+        ipl(true, false);
+
+        Assert.assertEquals(InstructionProcessor.StopReason.Debug, _instructionProcessor.getLatestStopReason());
+        Assert.assertEquals(0, _instructionProcessor.getLatestStopDetail());
+        if (jitEnabled) {
+            assertTrue(_instructionProcessor.getCompiledBlockCount() > 0);
+            assertTrue(_instructionProcessor.getCompiledInstructionCount() > 8 * 1000);
+        }
+
+        long[] table = getBankByBaseRegister(2);
+        long[] result = Arrays.copyOf(table, table.length + 11);
+        for (int rx = 0; rx < 8; ++rx) {
+            result[table.length + rx] = _instructionProcessor.getGeneralRegister(GeneralRegisterSet.A0 + rx).getW();
+        }
+        result[table.length + 8] = _instructionProcessor.getGeneralRegister(GeneralRegisterSet.X5).getW();
+        result[table.length + 9] = _instructionProcessor.getGeneralRegister(GeneralRegisterSet.X7).getW();
+        result[table.length + 10] = _instructionProcessor.getDesignatorRegister().getW();
+
+        clear();
+        return result;
+    }
+
+    /**
+     * Compiled blocks must leave exactly the state the interpreter does
+     */
+    @Test
+    public void loop_compiledBlocksMatchInterpreter(
+    ) throws BinaryLoadException,
+             MachineInterrupt,
+             MaxNodesException,
+             NodeNameConflictException,
+             UPIConflictException,
+             UPINotAssignedException,
+             UPIProcessorTypeException {
+        long[] interpreted = runMixedLoop(false);
+        long[] compiled = runMixedLoop(true);
+        assertArrayEquals(interpreted, compiled);
+    }
+
     /**
      * Sieve of Eratosthenes - Primes from 2 to 1000
      */
@@ -263,6 +469,10 @@ public class Test_Algorithms extends BaseFunctions {
         long[] result = getBankByBaseRegister(3);
         assertArrayEquals(Arrays.copyOf(expected, result.length), result);
 
+        //  The data references are confined to a handful of pages, so nearly all of them should be resolved
+        //  through the operand cache.
+        assertTrue(_instructionProcessor.getOperandCacheHits() > 10 * _instructionProcessor.getOperandCacheMisses());
+
         clear();
     }
 }
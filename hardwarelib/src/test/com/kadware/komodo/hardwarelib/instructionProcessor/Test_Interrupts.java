@@ -4,6 +4,7 @@
 
 package com.kadware.komodo.hardwarelib.instructionProcessor;
 
+import com.kadware.komodo.baselib.GeneralRegisterSet;
 import com.kadware.komodo.baselib.exceptions.BinaryLoadException;
 import com.kadware.komodo.hardwarelib.InstructionProcessor;
 import com.kadware.komodo.hardwarelib.exceptions.MaxNodesException;
@@ -57,6 +58,54 @@ public class Test_Interrupts extends BaseFunctions {
         clear();
     }
 
+    @Test
+    public void illegalOperationAfterLoop(
+    ) throws BinaryLoadException,
+             MachineInterrupt,
+             MaxNodesException,
+             NodeNameConflictException,
+             UPIConflictException,
+             UPINotAssignedException,
+             UPIProcessorTypeException {
+
+        //  The loop runs in instruction batches - the interrupt must still be taken
+        //  exactly at the illegal operation which follows it.
+        String[] source = {
+            "          $EXTEND",
+            "          $INFO 10 1",
+            "$(1),START",
+            "          . Set up IH for interrupt class 016",
+            "          LXI,U     A0,LBDI$",
+            "          LXM,U     A0,ih",
+            "          SA        A0,016,,B16",
+            "",
+            "          . Do some work",
+            "          LA,U      A5,0",
+            "LOOP      AA,U      A5,1",
+            "          TE,U      A5,1000",
+            "          J         loop",
+            "",
+            "          . Perform the illegal operation",
+            "          +0 . illegal operation",
+            "          LA,U      A6,1 . should not get here",
+            "          HALT      07777 . nor here",
+            "",
+            "ih        . Interrupt handler",
+            "          HALT      01016 . should stop here",
+            "          $END      START"
+        };
+
+        buildSimple(source);
+        ipl(true);
+
+        assertEquals(InstructionProcessor.StopReason.Debug, _instructionProcessor.getLatestStopReason());
+        assertEquals(01016, _instructionProcessor.getLatestStopDetail());
+        assertEquals(1000, _instructionProcessor.getGeneralRegister(GeneralRegisterSet.EA5).getW());
+        assertEquals(0, _instructionProcessor.getGeneralRegister(GeneralRegisterSet.EA6).getW());
+
+        clear();
+    }
+
     //  TODO make sure maskable interrupts are prevented by PAIJ
 
 }